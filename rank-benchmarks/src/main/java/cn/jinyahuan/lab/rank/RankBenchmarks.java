@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试的入口，按{@code -Dthreads}（默认为{@value #DEFAULT_THREADS}）中的每个线程数各运行一次，
+ * 并开启 GC profiler 输出每次调用的分配量（{@code gc.alloc.rate.norm}）。
+ *
+ * <p>参数与 JMH 的命令行相同，例如{@code RankLabBenchmark -p backend=redis}。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public final class RankBenchmarks {
+    static final String DEFAULT_THREADS = "1,4,16";
+
+    private RankBenchmarks() {}
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        for (String threads : System.getProperty("threads", DEFAULT_THREADS).split(",")) {
+            new Runner(new OptionsBuilder()
+                    .parent(commandLineOptions)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .addProfiler("gc")
+                    .build()
+            ).run();
+        }
+    }
+
+    /**
+     * 在 IDE 中运行单个基准测试类。
+     *
+     * @param include 基准测试的类名
+     * @throws RunnerException
+     */
+    static void run(String include) throws RunnerException {
+        for (String threads : System.getProperty("threads", DEFAULT_THREADS).split(",")) {
+            final ChainedOptionsBuilder builder = new OptionsBuilder()
+                    .include(include)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .addProfiler("gc");
+            new Runner(builder.build()).run();
+        }
+    }
+}
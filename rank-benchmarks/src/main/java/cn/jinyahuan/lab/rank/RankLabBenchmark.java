@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.lab.rank.RedisRankLab.RankMember;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.RunnerException;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端的加入排行榜及查询排行榜。
+ *
+ * <p>{@code backend}为{@code memory}时使用{@link InMemoryRankLab}，只衡量本地的开销；
+ * 为{@code fake}时以 spring profile {@code fake}创建{@link RedisRankLab}，使用 rank-redis-jedis 的 tests 构件中进程内的 FakeRedis，
+ * 衡量除网络之外的完整路径；
+ * 为{@code redis}时通过 rank-redis-jedis 的 spring 配置创建{@link RedisRankLab}，连接{@code redis.properties}中的 redis。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RankLabBenchmark {
+    private static final String RANK_NAME = "rankLabBenchmark";
+
+    @Param({"memory", "fake"})
+    private String backend;
+
+    @Param({"10000"})
+    private int memberCount;
+
+    @Param({"100"})
+    private int pageSize;
+
+    private ClassPathXmlApplicationContext context;
+    private RankLab rankLab;
+
+    @Setup
+    public void setUp() {
+        if ("redis".equals(backend)) {
+            context = new ClassPathXmlApplicationContext("spring/spring-core.xml", "spring/spring-redis.xml");
+            rankLab = context.getBean(RedisRankLab.class);
+        }
+        else if ("fake".equals(backend)) {
+            context = new ClassPathXmlApplicationContext();
+            context.getEnvironment().setActiveProfiles("fake");
+            context.setConfigLocations("spring/spring-core.xml", "spring/spring-redis.xml", "spring/spring-fake.xml");
+            context.refresh();
+            rankLab = context.getBean(RedisRankLab.class);
+        }
+        else if ("memory".equals(backend)) {
+            rankLab = new InMemoryRankLab();
+        }
+        else {
+            throw new IllegalArgumentException("unknown backend: " + backend);
+        }
+
+        for (int i = 0; i < memberCount; i++) {
+            rankLab.joinRank(RANK_NAME, "member" + i, i, 0D);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public Long joinRank() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return rankLab.joinRank(RANK_NAME, "member" + random.nextInt(memberCount), random.nextInt(100), 0D);
+    }
+
+    @Benchmark
+    public Long getRankNumber() {
+        return rankLab.getRankNumber(RANK_NAME, "member" + ThreadLocalRandom.current().nextInt(memberCount));
+    }
+
+    @Benchmark
+    public List<RankMember> getRankListTop() {
+        return rankLab.getRankList(RANK_NAME, 1, pageSize);
+    }
+
+    @Benchmark
+    public List<RankMember> getRankListDeep() {
+        final int start = memberCount - pageSize + 1;
+        return rankLab.getRankList(RANK_NAME, start, memberCount);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        RankBenchmarks.run(RankLabBenchmark.class.getSimpleName());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RankWeightUtils}的{@link java.math.BigDecimal}版本与基本类型版本的对比，
+ * 可通过 {@code -prof gc} 查看每次调用的分配量。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RankWeightUtilsBenchmark {
+    @Param({"1", "65535", "99999999"})
+    private long weightValue;
+
+    @Param({"1", "2"})
+    private int decimalPlaces;
+
+    @Benchmark
+    public double computeWeight() {
+        return RankWeightUtils.computeWeight(weightValue, decimalPlaces).doubleValue();
+    }
+
+    @Benchmark
+    public double computeWeightAsDouble() {
+        return RankWeightUtils.computeWeightAsDouble(weightValue, decimalPlaces);
+    }
+
+    @Benchmark
+    public double computeReverseWeight() {
+        return RankWeightUtils.computeReverseWeight(weightValue, decimalPlaces).doubleValue();
+    }
+
+    @Benchmark
+    public double computeReverseWeightAsDouble() {
+        return RankWeightUtils.computeReverseWeightAsDouble(weightValue, decimalPlaces);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        RankBenchmarks.run(RankWeightUtilsBenchmark.class.getSimpleName());
+    }
+}
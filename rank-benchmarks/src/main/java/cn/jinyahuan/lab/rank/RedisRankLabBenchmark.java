@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.RunnerException;
+import org.springframework.data.redis.connection.DefaultTuple;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RedisRankLab}中不访问 redis 的部分：分值的解码及 ZREVRANGE 结果的转换。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RedisRankLabBenchmark {
+    @Param({"100", "10000"})
+    private int tupleCount;
+
+    private Set<RedisZSetCommands.Tuple> tuples;
+    private Double rankScore;
+
+    @Setup
+    public void setUp() {
+        tuples = new LinkedHashSet<>(tupleCount * 2);
+        for (int i = 0; i < tupleCount; i++) {
+            byte[] member = ("member" + i).getBytes(StandardCharsets.UTF_8);
+            tuples.add(new DefaultTuple(member, DecimalScoreCodec.DEFAULT.encode(tupleCount - i, i + 1)));
+        }
+        rankScore = DecimalScoreCodec.DEFAULT.encode(12345, 65535);
+    }
+
+    @Benchmark
+    public double getScoreWeight() {
+        return RedisRankLab.getScoreWeight(rankScore);
+    }
+
+    /**
+     * 按列存储，成员名在读取时才解码。
+     */
+    @Benchmark
+    public RankPage mappingForRankPage() {
+        return RedisRankLab.mappingForRankPage(tuples, DecimalScoreCodec.DEFAULT);
+    }
+
+    /**
+     * 转换为{@link RedisRankLab.RankMember}列表，即{@link RedisRankLab#getRankList}的完整开销。
+     */
+    @Benchmark
+    public List<RedisRankLab.RankMember> mappingForRankList() {
+        return RedisRankLab.mappingForRankPage(tuples, DecimalScoreCodec.DEFAULT).toRankMembers();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        RankBenchmarks.run(RedisRankLabBenchmark.class.getSimpleName());
+    }
+}
@@ -22,4 +22,6 @@ package cn.jinyahuan.common.redis.component;
  */
 public interface RedisKeyComponent {
     Long del(String key);
+
+    Boolean expire(String key, long seconds);
 }
@@ -18,6 +18,9 @@ package cn.jinyahuan.common.redis.component;
 
 import org.springframework.data.redis.connection.RedisZSetCommands;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -29,9 +32,33 @@ public interface RedisSortedSetComponent {
 
     Double zIncrBy(String key, String member, double score);
 
+    Double zIncrBy(byte[] key, byte[] member, double score);
+
     Double zScore(String key, String member);
 
+    Double zScore(byte[] key, byte[] member);
+
     Long zRevrank(String key, String member);
 
+    Long zRevrank(byte[] key, byte[] member);
+
     Set<RedisZSetCommands.Tuple> zRevRangeWithScores(String key, long start, long stop);
+
+    Set<RedisZSetCommands.Tuple> zRevRangeWithScores(byte[] key, long start, long stop);
+
+    Set<RedisZSetCommands.Tuple> zRevRangeByScoreWithScores(String key, double min, double max, long offset, long count);
+
+    Long zUnionStore(String destKey, Collection<String> keys);
+
+    Long zRemRangeByRank(String key, long start, long stop);
+
+    // --- Batch (pipelined, results in the iteration order of members)
+
+    List<Double> zIncrByBatch(String key, Map<String, Double> memberScores);
+
+    List<Double> zIncrByBatch(Map<String, ? extends Map<String, Double>> keyMemberScores);
+
+    List<Double> zScoreBatch(String key, Collection<String> members);
+
+    List<Long> zRevrankBatch(String key, Collection<String> members);
 }
@@ -27,5 +27,9 @@ public interface RedisStringComponent {
 
     Long incr(String key);
 
+    Long incr(byte[] key);
+
     Long incrBy(String key, long increment);
+
+    Long incrBy(byte[] key, long increment);
 }
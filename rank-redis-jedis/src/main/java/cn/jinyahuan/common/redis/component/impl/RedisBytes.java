@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.component.impl;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 字符串与 redis 字节之间的转换，统一使用 UTF-8，与平台的默认字符集无关。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+final class RedisBytes {
+    private RedisBytes() {}
+
+    static byte[] encode(String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String decode(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
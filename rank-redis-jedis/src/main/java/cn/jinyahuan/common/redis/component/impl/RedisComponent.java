@@ -17,21 +17,40 @@
 package cn.jinyahuan.common.redis.component.impl;
 
 import cn.jinyahuan.common.redis.component.RedisConnectionComponent;
+import cn.jinyahuan.common.redis.component.RedisHashComponent;
 import cn.jinyahuan.common.redis.component.RedisKeyComponent;
+import cn.jinyahuan.common.redis.component.RedisScriptingComponent;
 import cn.jinyahuan.common.redis.component.RedisSortedSetComponent;
 import cn.jinyahuan.common.redis.component.RedisStringComponent;
+import cn.jinyahuan.common.redis.metrics.RedisCommand;
+import cn.jinyahuan.common.redis.metrics.RedisMetrics;
+import cn.jinyahuan.common.redis.replica.RedisReadRouter;
+import cn.jinyahuan.common.redis.script.LuaScript;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.ReturnType;
 import org.springframework.stereotype.Component;
 
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 /**
+ * 所有 redis 命令的统一入口，每次调用的耗时及错误都记录在{@link RedisMetrics}中。
+ *
+ * <p>容器中有{@link RedisReadRouter}时，有序集合的读命令由它选择从节点或主节点执行。
+ *
  * @author JinYahuan
  * @since 1.0.0
  */
 @Component
 public class RedisComponent {
+    /**
+     * 在服务端执行 UNLINK（redis 4.0 及以上），jedis 的命令枚举中没有该命令，因此通过脚本发送。
+     */
+    public static final LuaScript UNLINK_SCRIPT = new LuaScript("return redis.call('UNLINK', KEYS[1])");
+
     @Autowired
     private RedisConnectionComponent redisConnectionComponent;
     @Autowired
@@ -40,52 +59,550 @@ public class RedisComponent {
     private RedisSortedSetComponent redisSortedSetComponent;
     @Autowired
     private RedisStringComponent redisStringComponent;
+    @Autowired
+    private RedisScriptingComponent redisScriptingComponent;
+    @Autowired
+    private RedisHashComponent redisHashComponent;
+
+    /**
+     * 容器中没有时使用一个不通过 JMX 暴露的实例。
+     */
+    @Autowired(required = false)
+    private RedisMetrics redisMetrics = new RedisMetrics();
+
+    /**
+     * 配置了 redis 从节点时才有，有序集合的读命令通过它发给从节点。
+     */
+    @Autowired(required = false)
+    private RedisReadRouter redisReadRouter;
 
     // --- Strings
 
     public String get(String key) {
-        return redisStringComponent.get(key);
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            String result = redisStringComponent.get(key);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.GET, startNanos, failed);
+        }
     }
 
     public void set(String key, String value) {
-        redisStringComponent.set(key, value);
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            redisStringComponent.set(key, value);
+            failed = false;
+        } finally {
+            afterCommand(RedisCommand.SET, startNanos, failed);
+        }
     }
 
     public Long incr(String key) {
-        return redisStringComponent.incr(key);
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Long result = redisStringComponent.incr(key);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.INCR, startNanos, failed);
+        }
+    }
+
+    public Long incr(byte[] key) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Long result = redisStringComponent.incr(key);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.INCR, startNanos, failed);
+        }
     }
 
     public Long incrBy(String key, long increment) {
-        return redisStringComponent.incrBy(key, increment);
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Long result = redisStringComponent.incrBy(key, increment);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.INCRBY, startNanos, failed);
+        }
+    }
+
+    public Long incrBy(byte[] key, long increment) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Long result = redisStringComponent.incrBy(key, increment);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.INCRBY, startNanos, failed);
+        }
+    }
+
+    // --- Hashes
+
+    public String hGet(String key, String field) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            String result = redisHashComponent.hGet(key, field);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.HGET, startNanos, failed);
+        }
+    }
+
+    public List<String> hMGet(String key, Collection<String> fields) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<String> result = redisHashComponent.hMGet(key, fields);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.HMGET, startNanos, failed);
+        }
     }
 
     // --- Sorted Sets
 
     public Double zIncrBy(String key, String member, double score) {
-        return redisSortedSetComponent.zIncrBy(key, member, score);
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Double result = redisSortedSetComponent.zIncrBy(key, member, score);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZINCRBY, startNanos, failed);
+        }
+    }
+
+    public Double zIncrBy(byte[] key, byte[] member, double score) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Double result = redisSortedSetComponent.zIncrBy(key, member, score);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZINCRBY, startNanos, failed);
+        }
     }
 
     public Double zScore(String key, String member) {
-        return redisSortedSetComponent.zScore(key, member);
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Double result = Objects.isNull(redisReadRouter)
+                    ? redisSortedSetComponent.zScore(key, member)
+                    : redisReadRouter.read(redisSortedSetComponent, component -> component.zScore(key, member));
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZSCORE, startNanos, failed);
+        }
+    }
+
+    public Double zScore(byte[] key, byte[] member) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Double result = Objects.isNull(redisReadRouter)
+                    ? redisSortedSetComponent.zScore(key, member)
+                    : redisReadRouter.read(redisSortedSetComponent, component -> component.zScore(key, member));
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZSCORE, startNanos, failed);
+        }
     }
 
     public Long zRevrank(String key, String member) {
-        return redisSortedSetComponent.zRevrank(key, member);
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Long result = Objects.isNull(redisReadRouter)
+                    ? redisSortedSetComponent.zRevrank(key, member)
+                    : redisReadRouter.read(redisSortedSetComponent, component -> component.zRevrank(key, member));
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZREVRANK, startNanos, failed);
+        }
+    }
+
+    public Long zRevrank(byte[] key, byte[] member) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Long result = Objects.isNull(redisReadRouter)
+                    ? redisSortedSetComponent.zRevrank(key, member)
+                    : redisReadRouter.read(redisSortedSetComponent, component -> component.zRevrank(key, member));
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZREVRANK, startNanos, failed);
+        }
     }
 
     public Set<RedisZSetCommands.Tuple> zRevRangeWithScores(String key, long start, long stop) {
-        return redisSortedSetComponent.zRevRangeWithScores(key, start, stop);
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Set<RedisZSetCommands.Tuple> result = Objects.isNull(redisReadRouter)
+                    ? redisSortedSetComponent.zRevRangeWithScores(key, start, stop)
+                    : redisReadRouter.read(redisSortedSetComponent, component -> component.zRevRangeWithScores(key, start, stop));
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZREVRANGE, startNanos, failed);
+        }
+    }
+
+    public Set<RedisZSetCommands.Tuple> zRevRangeWithScores(byte[] key, long start, long stop) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Set<RedisZSetCommands.Tuple> result = Objects.isNull(redisReadRouter)
+                    ? redisSortedSetComponent.zRevRangeWithScores(key, start, stop)
+                    : redisReadRouter.read(redisSortedSetComponent, component -> component.zRevRangeWithScores(key, start, stop));
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZREVRANGE, startNanos, failed);
+        }
+    }
+
+    public Set<RedisZSetCommands.Tuple> zRevRangeByScoreWithScores(String key, double min, double max,
+                                                                  long offset, long count) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Set<RedisZSetCommands.Tuple> result = Objects.isNull(redisReadRouter)
+                    ? redisSortedSetComponent.zRevRangeByScoreWithScores(key, min, max, offset, count)
+                    : redisReadRouter.read(redisSortedSetComponent, component -> component.zRevRangeByScoreWithScores(key, min, max, offset, count));
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZREVRANGEBYSCORE, startNanos, failed);
+        }
+    }
+
+    public Long zRemRangeByRank(String key, long start, long stop) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Long result = redisSortedSetComponent.zRemRangeByRank(key, start, stop);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZREMRANGEBYRANK, startNanos, failed);
+        }
+    }
+
+    public Long zUnionStore(String destKey, Collection<String> keys) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Long result = redisSortedSetComponent.zUnionStore(destKey, keys);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZUNIONSTORE, startNanos, failed);
+        }
+    }
+
+    public List<Double> zIncrByBatch(String key, Map<String, Double> memberScores) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<Double> result = redisSortedSetComponent.zIncrByBatch(key, memberScores);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZINCRBY_BATCH, startNanos, failed);
+        }
+    }
+
+    public List<Double> zIncrByBatch(Map<String, ? extends Map<String, Double>> keyMemberScores) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<Double> result = redisSortedSetComponent.zIncrByBatch(keyMemberScores);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZINCRBY_BATCH, startNanos, failed);
+        }
+    }
+
+    public List<Double> zScoreBatch(String key, Collection<String> members) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<Double> result = Objects.isNull(redisReadRouter)
+                    ? redisSortedSetComponent.zScoreBatch(key, members)
+                    : redisReadRouter.read(redisSortedSetComponent, component -> component.zScoreBatch(key, members));
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZSCORE_BATCH, startNanos, failed);
+        }
+    }
+
+    public List<Long> zRevrankBatch(String key, Collection<String> members) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<Long> result = Objects.isNull(redisReadRouter)
+                    ? redisSortedSetComponent.zRevrankBatch(key, members)
+                    : redisReadRouter.read(redisSortedSetComponent, component -> component.zRevrankBatch(key, members));
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.ZREVRANK_BATCH, startNanos, failed);
+        }
     }
 
     // --- Keys
 
     public Long del(String key) {
-        return redisKeyComponent.del(key);
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Long result = redisKeyComponent.del(key);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.DEL, startNanos, failed);
+        }
+    }
+
+    public Boolean expire(String key, long seconds) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            Boolean result = redisKeyComponent.expire(key, seconds);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.EXPIRE, startNanos, failed);
+        }
+    }
+
+    /**
+     * 不阻塞 redis 地删除有序集合：优先使用 UNLINK 在后台线程中释放内存；
+     * 服务端返回未知命令的错误（redis 4.0 以下）时退化为每次删除{@code chunkSize}个成员（ZREMRANGEBYRANK），直到集合为空；
+     * 其他错误（连接失败、超时等）直接抛出。
+     *
+     * @param key       not null
+     * @param chunkSize 退化时每次删除的成员数
+     * @return 是否删除了 key
+     */
+    public boolean unlinkSortedSet(String key, int chunkSize) {
+        Objects.requireNonNull(key, "key must not be null");
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be greater than 0");
+        }
+        try {
+            Long deleted = evalSha(UNLINK_SCRIPT, ReturnType.INTEGER, 1, key);
+            return Objects.nonNull(deleted) && deleted > 0;
+        } catch (DataAccessException ex) {
+            if (!isUnknownCommandError(ex)) {
+                throw ex;
+            }
+            boolean deleted = false;
+            for (Long removed = zRemRangeByRank(key, 0, chunkSize - 1L);
+                 Objects.nonNull(removed) && removed > 0;
+                 removed = zRemRangeByRank(key, 0, chunkSize - 1L)) {
+                deleted = true;
+            }
+            return deleted;
+        }
+    }
+
+    // --- Scripting
+
+    /**
+     * 执行 lua 脚本，脚本的 sha1 会在首次加载后缓存，服务端返回 {@code NOSCRIPT} 时重新加载后再执行一次。
+     *
+     * @param script      not null
+     * @param returnType  not null
+     * @param numKeys
+     * @param keysAndArgs
+     * @param <T>
+     * @return
+     */
+    public <T> T evalSha(LuaScript script, ReturnType returnType, int numKeys, String... keysAndArgs) {
+        final byte[][] rawKeysAndArgs = new byte[keysAndArgs.length][];
+        for (int i = 0; i < keysAndArgs.length; i++) {
+            rawKeysAndArgs[i] = RedisBytes.encode(keysAndArgs[i]);
+        }
+        return evalSha(script, returnType, numKeys, rawKeysAndArgs);
+    }
+
+    /**
+     * 与{@link #evalSha(LuaScript, ReturnType, int, String...)}相同，key 及参数已经是字节。
+     *
+     * @param script      not null
+     * @param returnType  not null
+     * @param numKeys
+     * @param keysAndArgs
+     * @param <T>
+     * @return
+     */
+    public <T> T evalSha(LuaScript script, ReturnType returnType, int numKeys, byte[]... keysAndArgs) {
+        String sha = script.getSha();
+        if (Objects.isNull(sha)) {
+            sha = scriptLoad(script);
+        }
+        try {
+            return doEvalSha(sha, returnType, numKeys, keysAndArgs);
+        } catch (DataAccessException ex) {
+            if (!isNoScriptError(ex)) {
+                throw ex;
+            }
+            // 服务端的脚本缓存已丢失（SCRIPT FLUSH、重启或主从切换）
+            return doEvalSha(scriptLoad(script), returnType, numKeys, keysAndArgs);
+        }
+    }
+
+    private <T> T doEvalSha(String sha, ReturnType returnType, int numKeys, byte[]... keysAndArgs) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = redisScriptingComponent.evalSha(sha, returnType, numKeys, keysAndArgs);
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.EVALSHA, startNanos, failed);
+        }
+    }
+
+    public String scriptLoad(LuaScript script) {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            String sha = redisScriptingComponent.scriptLoad(script.getSource());
+            script.setSha(sha);
+            failed = false;
+            return sha;
+        } finally {
+            afterCommand(RedisCommand.SCRIPT_LOAD, startNanos, failed);
+        }
+    }
+
+    static boolean isNoScriptError(Throwable ex) {
+        for (Throwable cause = ex; Objects.nonNull(cause); cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (Objects.nonNull(message) && message.contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 服务端不支持脚本中调用的命令时，返回{@code ERR unknown command}或{@code Unknown Redis command called from Lua script}。
+     *
+     * @param ex
+     * @return
+     */
+    static boolean isUnknownCommandError(Throwable ex) {
+        for (Throwable cause = ex; Objects.nonNull(cause); cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (Objects.nonNull(message)) {
+                String lowerCaseMessage = message.toLowerCase(Locale.ROOT);
+                if (lowerCaseMessage.contains("unknown command") || lowerCaseMessage.contains("unknown redis command")) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     // --- Connection
 
     public String ping() {
-        return redisConnectionComponent.ping();
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            String result = redisConnectionComponent.ping();
+            failed = false;
+            return result;
+        } finally {
+            afterCommand(RedisCommand.PING, startNanos, failed);
+        }
+    }
+
+    /**
+     * 在主节点上执行{@code supplier}，其中的读命令不会发给从节点，用于需要读到最新数据（包括其他 JVM 的写入）的调用。
+     *
+     * @param supplier
+     * @param <T>
+     * @return
+     */
+    public <T> T onMaster(Supplier<T> supplier) {
+        Objects.requireNonNull(supplier, "supplier must not be null");
+        return Objects.isNull(redisReadRouter) ? supplier.get() : redisReadRouter.onMaster(supplier);
+    }
+
+    /**
+     * 包装交给其他线程执行的操作，其中的读命令能读到当前线程之前的写入，其中的写入之后当前线程也能读到。
+     *
+     * @param supplier
+     * @param <T>
+     * @return
+     * @see RedisReadRouter#withReadState(Supplier)
+     */
+    public <T> Supplier<T> withReadState(Supplier<T> supplier) {
+        Objects.requireNonNull(supplier, "supplier must not be null");
+        return Objects.isNull(redisReadRouter) ? supplier : redisReadRouter.withReadState(supplier);
+    }
+
+    /**
+     * 包装执行器，提交的每个任务在执行期间使用提交线程的读状态，见{@link #withReadState(Supplier)}。
+     *
+     * @param executor
+     * @return
+     */
+    public Executor withReadState(Executor executor) {
+        Objects.requireNonNull(executor, "executor must not be null");
+        if (Objects.isNull(redisReadRouter)) {
+            return executor;
+        }
+        return task -> {
+            final Supplier<Void> supplier = redisReadRouter.withReadState(() -> {
+                task.run();
+                return null;
+            });
+            executor.execute(supplier::get);
+        };
+    }
+
+    /**
+     * 记录耗时，写命令（无论是否成功）之后当前线程的读命令需要读到这次写入。
+     *
+     * @param command
+     * @param startNanos
+     * @param failed
+     */
+    private void afterCommand(RedisCommand command, long startNanos, boolean failed) {
+        redisMetrics.recordCommand(command, startNanos, failed);
+        if (command.isWrite() && Objects.nonNull(redisReadRouter)) {
+            redisReadRouter.markWritten();
+        }
     }
 }
@@ -18,6 +18,7 @@ package cn.jinyahuan.common.redis.component.impl;
 
 import cn.jinyahuan.common.redis.component.RedisConnectionComponent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
@@ -27,6 +28,7 @@ import org.springframework.stereotype.Component;
  * @since 1.0.0
  */
 @Component
+@Profile("!fake")
 public class RedisConnectionComponentImpl implements RedisConnectionComponent {
     @Autowired
     private StringRedisTemplate stringRedisTemplate;
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.component.impl;
+
+import cn.jinyahuan.common.redis.component.RedisHashComponent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+@Profile("!fake")
+public class RedisHashComponentImpl implements RedisHashComponent {
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Override
+    public String hGet(String key, String field) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(field))) {
+            return null;
+        }
+        return (String) stringRedisTemplate.execute((RedisCallback) connection -> {
+            byte[] temp = connection.hGet(RedisBytes.encode(key), RedisBytes.encode(field));
+            return Objects.isNull(temp) ? null : RedisBytes.decode(temp);
+        });
+    }
+
+    @Override
+    public List<String> hMGet(String key, Collection<String> fields) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(fields))) {
+            return null;
+        }
+        if (fields.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final byte[][] rawFields = new byte[fields.size()][];
+        int i = 0;
+        for (String field : fields) {
+            rawFields[i++] = RedisBytes.encode(field);
+        }
+        return (List<String>) stringRedisTemplate.execute((RedisCallback) connection -> {
+            List<byte[]> values = connection.hMGet(RedisBytes.encode(key), rawFields);
+            List<String> resultList = new ArrayList<>(values.size());
+            for (byte[] value : values) {
+                resultList.add(Objects.isNull(value) ? null : RedisBytes.decode(value));
+            }
+            return resultList;
+        });
+    }
+}
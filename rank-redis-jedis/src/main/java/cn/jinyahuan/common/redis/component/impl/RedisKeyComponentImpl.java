@@ -18,6 +18,7 @@ package cn.jinyahuan.common.redis.component.impl;
 
 import cn.jinyahuan.common.redis.component.RedisKeyComponent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
@@ -29,6 +30,7 @@ import java.util.Objects;
  * @since 1.0.0
  */
 @Component
+@Profile("!fake")
 public class RedisKeyComponentImpl implements RedisKeyComponent {
     @Autowired
     private StringRedisTemplate stringRedisTemplate;
@@ -38,6 +40,15 @@ public class RedisKeyComponentImpl implements RedisKeyComponent {
         if (Objects.isNull(key)) {
             return null;
         }
-        return (Long) stringRedisTemplate.execute((RedisCallback) connection -> connection.del(key.getBytes()));
+        return (Long) stringRedisTemplate.execute((RedisCallback) connection -> connection.del(RedisBytes.encode(key)));
+    }
+
+    @Override
+    public Boolean expire(String key, long seconds) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return (Boolean) stringRedisTemplate.execute(
+                (RedisCallback) connection -> connection.expire(RedisBytes.encode(key), seconds));
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.component.impl;
+
+import cn.jinyahuan.common.redis.component.RedisScriptingComponent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+@Profile("!fake")
+public class RedisScriptingComponentImpl implements RedisScriptingComponent {
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Override
+    public String scriptLoad(String script) {
+        if (Objects.isNull(script)) {
+            return null;
+        }
+        return (String) stringRedisTemplate.execute((RedisCallback) connection -> connection.scriptLoad(RedisBytes.encode(script)));
+    }
+
+    @Override
+    public <T> T evalSha(String scriptSha, ReturnType returnType, int numKeys, String... keysAndArgs) {
+        if (Boolean.logicalOr(Objects.isNull(scriptSha), Objects.isNull(keysAndArgs))) {
+            return null;
+        }
+        final byte[][] rawKeysAndArgs = new byte[keysAndArgs.length][];
+        for (int i = 0; i < keysAndArgs.length; i++) {
+            rawKeysAndArgs[i] = RedisBytes.encode(keysAndArgs[i]);
+        }
+        return evalSha(scriptSha, returnType, numKeys, rawKeysAndArgs);
+    }
+
+    @Override
+    public <T> T evalSha(String scriptSha, ReturnType returnType, int numKeys, byte[]... keysAndArgs) {
+        if (Boolean.logicalOr(Objects.isNull(scriptSha), Objects.isNull(keysAndArgs))) {
+            return null;
+        }
+        return (T) stringRedisTemplate.execute(
+                (RedisCallback) connection -> connection.evalSha(scriptSha, returnType, numKeys, keysAndArgs));
+    }
+}
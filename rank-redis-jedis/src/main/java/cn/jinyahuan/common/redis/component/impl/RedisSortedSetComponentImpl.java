@@ -18,57 +18,94 @@ package cn.jinyahuan.common.redis.component.impl;
 
 import cn.jinyahuan.common.redis.component.RedisSortedSetComponent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.redis.connection.RedisZSetCommands;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
 
 /**
  * @author JinYahuan
  * @since 1.0.0
  */
 @Component
+@Profile("!fake")
 public class RedisSortedSetComponentImpl implements RedisSortedSetComponent {
     @Autowired
     private StringRedisTemplate stringRedisTemplate;
 
+    public RedisSortedSetComponentImpl() {
+    }
+
+    /**
+     * 不在容器中时使用，例如连接 redis 从节点。
+     *
+     * @param stringRedisTemplate
+     */
+    public RedisSortedSetComponentImpl(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = Objects.requireNonNull(stringRedisTemplate, "stringRedisTemplate must not be null");
+    }
+
     @Override
     public Boolean zAdd(String key, String member, double score) {
         if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
             return null;
         }
         return (Boolean) stringRedisTemplate.execute(
-                (RedisCallback) connection -> connection.zAdd(key.getBytes(), score, member.getBytes()));
+                (RedisCallback) connection -> connection.zAdd(RedisBytes.encode(key), score, RedisBytes.encode(member)));
     }
 
     @Override
     public Double zIncrBy(String key, String member, double score) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
+            return null;
+        }
+        return zIncrBy(RedisBytes.encode(key), RedisBytes.encode(member), score);
+    }
+
+    @Override
+    public Double zIncrBy(byte[] key, byte[] member, double score) {
         if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
             return null;
         }
         return (Double) stringRedisTemplate.execute(
-                (RedisCallback) connection -> connection.zIncrBy(key.getBytes(), score, member.getBytes()));
+                (RedisCallback) connection -> connection.zIncrBy(key, score, member));
     }
 
     @Override
     public Double zScore(String key, String member) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
+            return null;
+        }
+        return zScore(RedisBytes.encode(key), RedisBytes.encode(member));
+    }
+
+    @Override
+    public Double zScore(byte[] key, byte[] member) {
         if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
             return null;
         }
         return (Double) stringRedisTemplate.execute(
-                (RedisCallback) connection -> connection.zScore(key.getBytes(), member.getBytes()));
+                (RedisCallback) connection -> connection.zScore(key, member));
     }
 
     @Override
     public Long zRevrank(String key, String member) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
+            return null;
+        }
+        return zRevrank(RedisBytes.encode(key), RedisBytes.encode(member));
+    }
+
+    @Override
+    public Long zRevrank(byte[] key, byte[] member) {
         if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
             return null;
         }
         return (Long) stringRedisTemplate.execute(
-                (RedisCallback) connection -> connection.zRevRank(key.getBytes(), member.getBytes()));
+                (RedisCallback) connection -> connection.zRevRank(key, member));
     }
 
     @Override
@@ -76,7 +113,128 @@ public class RedisSortedSetComponentImpl implements RedisSortedSetComponent {
         if (Objects.isNull(key)) {
             return null;
         }
+        return zRevRangeWithScores(RedisBytes.encode(key), start, stop);
+    }
+
+    @Override
+    public Set<RedisZSetCommands.Tuple> zRevRangeWithScores(byte[] key, long start, long stop) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return (Set<RedisZSetCommands.Tuple>) stringRedisTemplate.execute(
+                (RedisCallback) connection -> connection.zRevRangeWithScores(key, start, stop));
+    }
+
+    @Override
+    public Set<RedisZSetCommands.Tuple> zRevRangeByScoreWithScores(String key, double min, double max,
+                                                                  long offset, long count) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
         return (Set<RedisZSetCommands.Tuple>) stringRedisTemplate.execute(
-                (RedisCallback) connection -> connection.zRevRangeWithScores(key.getBytes(), start, stop));
+                (RedisCallback) connection -> connection.zRevRangeByScoreWithScores(
+                        RedisBytes.encode(key), min, max, offset, count));
+    }
+
+    @Override
+    public Long zUnionStore(String destKey, Collection<String> keys) {
+        if (Boolean.logicalOr(Objects.isNull(destKey), Objects.isNull(keys))) {
+            return null;
+        }
+        if (keys.isEmpty()) {
+            // ZUNIONSTORE 至少需要一个 key，没有来源时结果为空集
+            del(destKey);
+            return 0L;
+        }
+        final byte[][] rawKeys = new byte[keys.size()][];
+        int i = 0;
+        for (String key : keys) {
+            rawKeys[i++] = RedisBytes.encode(key);
+        }
+        return (Long) stringRedisTemplate.execute(
+                (RedisCallback) connection -> connection.zUnionStore(RedisBytes.encode(destKey), rawKeys));
+    }
+
+    @Override
+    public Long zRemRangeByRank(String key, long start, long stop) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return (Long) stringRedisTemplate.execute(
+                (RedisCallback) connection -> connection.zRemRange(RedisBytes.encode(key), start, stop));
+    }
+
+    private void del(String key) {
+        stringRedisTemplate.execute((RedisCallback) connection -> connection.del(RedisBytes.encode(key)));
+    }
+
+    @Override
+    public List<Double> zIncrByBatch(String key, Map<String, Double> memberScores) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(memberScores))) {
+            return null;
+        }
+        if (memberScores.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final byte[] rawKey = RedisBytes.encode(key);
+        return (List) stringRedisTemplate.executePipelined((RedisCallback) connection -> {
+            for (Map.Entry<String, Double> entry : memberScores.entrySet()) {
+                connection.zIncrBy(rawKey, entry.getValue(), RedisBytes.encode(entry.getKey()));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public List<Double> zIncrByBatch(Map<String, ? extends Map<String, Double>> keyMemberScores) {
+        if (Objects.isNull(keyMemberScores)) {
+            return null;
+        }
+        if (keyMemberScores.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return (List) stringRedisTemplate.executePipelined((RedisCallback) connection -> {
+            for (Map.Entry<String, ? extends Map<String, Double>> keyEntry : keyMemberScores.entrySet()) {
+                final byte[] rawKey = RedisBytes.encode(keyEntry.getKey());
+                for (Map.Entry<String, Double> entry : keyEntry.getValue().entrySet()) {
+                    connection.zIncrBy(rawKey, entry.getValue(), RedisBytes.encode(entry.getKey()));
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public List<Double> zScoreBatch(String key, Collection<String> members) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(members))) {
+            return null;
+        }
+        if (members.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final byte[] rawKey = RedisBytes.encode(key);
+        return (List) stringRedisTemplate.executePipelined((RedisCallback) connection -> {
+            for (String member : members) {
+                connection.zScore(rawKey, RedisBytes.encode(member));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public List<Long> zRevrankBatch(String key, Collection<String> members) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(members))) {
+            return null;
+        }
+        if (members.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final byte[] rawKey = RedisBytes.encode(key);
+        return (List) stringRedisTemplate.executePipelined((RedisCallback) connection -> {
+            for (String member : members) {
+                connection.zRevRank(rawKey, RedisBytes.encode(member));
+            }
+            return null;
+        });
     }
 }
@@ -18,6 +18,7 @@ package cn.jinyahuan.common.redis.component.impl;
 
 import cn.jinyahuan.common.redis.component.RedisStringComponent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
@@ -29,6 +30,7 @@ import java.util.Objects;
  * @since 1.0.0
  */
 @Component
+@Profile("!fake")
 public class RedisStringComponentImpl implements RedisStringComponent {
     @Autowired
     private StringRedisTemplate stringRedisTemplate;
@@ -39,8 +41,8 @@ public class RedisStringComponentImpl implements RedisStringComponent {
             return null;
         }
         return (String) stringRedisTemplate.execute((RedisCallback) connection -> {
-            byte[] temp = connection.get(key.getBytes());
-            return Objects.isNull(temp) ? null : new String(temp);
+            byte[] temp = connection.get(RedisBytes.encode(key));
+            return Objects.isNull(temp) ? null : RedisBytes.decode(temp);
         });
     }
 
@@ -50,7 +52,7 @@ public class RedisStringComponentImpl implements RedisStringComponent {
             return;
         }
         stringRedisTemplate.execute((RedisCallback) connection -> {
-            connection.set(key.getBytes(), value.getBytes());
+            connection.set(RedisBytes.encode(key), RedisBytes.encode(value));
             return null;
         });
     }
@@ -60,7 +62,15 @@ public class RedisStringComponentImpl implements RedisStringComponent {
         if (Objects.isNull(key)) {
             return null;
         }
-        return (Long) stringRedisTemplate.execute((RedisCallback) connection -> connection.incr(key.getBytes()));
+        return incr(RedisBytes.encode(key));
+    }
+
+    @Override
+    public Long incr(byte[] key) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return (Long) stringRedisTemplate.execute((RedisCallback) connection -> connection.incr(key));
     }
 
     @Override
@@ -68,6 +78,14 @@ public class RedisStringComponentImpl implements RedisStringComponent {
         if (Objects.isNull(key)) {
             return null;
         }
-        return (Long) stringRedisTemplate.execute((RedisCallback) connection -> connection.incrBy(key.getBytes(), increment));
+        return incrBy(RedisBytes.encode(key), increment);
+    }
+
+    @Override
+    public Long incrBy(byte[] key, long increment) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return (Long) stringRedisTemplate.execute((RedisCallback) connection -> connection.incrBy(key, increment));
     }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.metrics;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+
+import java.util.Objects;
+
+/**
+ * 记录获取连接耗时的{@link RedisConnectionFactory}，使用连接池时即为等待连接池的时间。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public class MeteredRedisConnectionFactory implements RedisConnectionFactory {
+    private final RedisConnectionFactory delegate;
+    private final RedisMetrics redisMetrics;
+
+    public MeteredRedisConnectionFactory(RedisConnectionFactory delegate, RedisMetrics redisMetrics) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.redisMetrics = Objects.requireNonNull(redisMetrics, "redisMetrics must not be null");
+    }
+
+    @Override
+    public RedisConnection getConnection() {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            RedisConnection connection = delegate.getConnection();
+            failed = false;
+            return connection;
+        } finally {
+            redisMetrics.recordPoolWait(startNanos, failed);
+        }
+    }
+
+    @Override
+    public RedisClusterConnection getClusterConnection() {
+        final long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            RedisClusterConnection connection = delegate.getClusterConnection();
+            failed = false;
+            return connection;
+        } finally {
+            redisMetrics.recordPoolWait(startNanos, failed);
+        }
+    }
+
+    @Override
+    public boolean getConvertPipelineAndTxResults() {
+        return delegate.getConvertPipelineAndTxResults();
+    }
+
+    @Override
+    public RedisSentinelConnection getSentinelConnection() {
+        return delegate.getSentinelConnection();
+    }
+
+    @Override
+    public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
+        return delegate.translateExceptionIfPossible(ex);
+    }
+
+    public RedisConnectionFactory getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.metrics;
+
+/**
+ * 统计耗时的 redis 命令，批量的命令（管道）单独统计，一次批量调用只记录一次。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public enum RedisCommand {
+    GET(false),
+    SET(true),
+    INCR(true),
+    INCRBY(true),
+    HGET(false),
+    HMGET(false),
+    ZINCRBY(true),
+    ZINCRBY_BATCH(true),
+    ZSCORE(false),
+    ZSCORE_BATCH(false),
+    ZREVRANK(false),
+    ZREVRANK_BATCH(false),
+    ZREVRANGE(false),
+    ZREVRANGEBYSCORE(false),
+    ZREMRANGEBYRANK(true),
+    ZUNIONSTORE(true),
+    DEL(true),
+    EXPIRE(true),
+    EVALSHA(true),
+    SCRIPT_LOAD(false),
+    PING(false);
+
+    /**
+     * 是否修改数据，脚本可能修改数据，按写命令处理。
+     */
+    private final boolean write;
+
+    RedisCommand(boolean write) {
+        this.write = write;
+    }
+
+    public boolean isWrite() {
+        return write;
+    }
+}
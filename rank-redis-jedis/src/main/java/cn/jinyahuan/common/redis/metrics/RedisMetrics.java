@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.metrics;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * redis 命令的耗时及错误统计，以及从连接池获取连接的耗时。
+ *
+ * <p>记录时不加锁、不分配对象，可以在生产环境中常开。统计结果可以通过{@link #getCommandMetrics(RedisCommand)}获取，
+ * 也可以通过 JMX 查看（{@code cn.jinyahuan.common.redis:type=RedisCommandMetrics,name=<命令>}
+ * 及{@code cn.jinyahuan.common.redis:type=RedisPoolWaitMetrics}），或者实现{@link RedisMetricsSink}转发到外部的监控系统。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public class RedisMetrics implements InitializingBean, DisposableBean {
+    static final String JMX_DOMAIN = "cn.jinyahuan.common.redis";
+
+    private static final RedisCommand[] COMMANDS = RedisCommand.values();
+    private static final RedisMetricsSink[] NO_SINKS = {};
+
+    private final LatencyMetrics[] commandMetrics = new LatencyMetrics[COMMANDS.length];
+    private final LatencyMetrics poolWaitMetrics = new LatencyMetrics();
+
+    private volatile RedisMetricsSink[] sinks = NO_SINKS;
+
+    private boolean jmxEnabled;
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    public RedisMetrics() {
+        for (int i = 0; i < commandMetrics.length; i++) {
+            commandMetrics[i] = new LatencyMetrics();
+        }
+    }
+
+    /**
+     * 记录一次命令的耗时。
+     *
+     * @param command
+     * @param startNanos 命令开始时的{@link System#nanoTime()}
+     * @param failed     是否抛出了异常
+     */
+    public void recordCommand(RedisCommand command, long startNanos, boolean failed) {
+        final long nanos = System.nanoTime() - startNanos;
+        commandMetrics[command.ordinal()].record(nanos, failed);
+
+        final RedisMetricsSink[] sinks = this.sinks;
+        for (int i = 0; i < sinks.length; i++) {
+            sinks[i].recordCommand(command, nanos, failed);
+        }
+    }
+
+    /**
+     * 记录一次从连接池获取连接的耗时。
+     *
+     * @param startNanos 开始获取时的{@link System#nanoTime()}
+     * @param failed     是否获取失败
+     */
+    public void recordPoolWait(long startNanos, boolean failed) {
+        final long nanos = System.nanoTime() - startNanos;
+        poolWaitMetrics.record(nanos, failed);
+
+        final RedisMetricsSink[] sinks = this.sinks;
+        for (int i = 0; i < sinks.length; i++) {
+            sinks[i].recordPoolWait(nanos, failed);
+        }
+    }
+
+    public LatencyMetrics getCommandMetrics(RedisCommand command) {
+        Objects.requireNonNull(command, "command must not be null");
+        return commandMetrics[command.ordinal()];
+    }
+
+    public LatencyMetrics getPoolWaitMetrics() {
+        return poolWaitMetrics;
+    }
+
+    @Autowired(required = false)
+    public void setSinks(List<RedisMetricsSink> sinks) {
+        Objects.requireNonNull(sinks, "sinks must not be null");
+        this.sinks = sinks.toArray(new RedisMetricsSink[0]);
+    }
+
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws JMException {
+        if (!jmxEnabled) {
+            return;
+        }
+        for (RedisCommand command : COMMANDS) {
+            register(new ObjectName(JMX_DOMAIN + ":type=RedisCommandMetrics,name=" + command.name()),
+                    commandMetrics[command.ordinal()]);
+        }
+        register(new ObjectName(JMX_DOMAIN + ":type=RedisPoolWaitMetrics"), poolWaitMetrics);
+    }
+
+    @Override
+    public void destroy() throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredNames) {
+            server.unregisterMBean(name);
+        }
+        registeredNames.clear();
+    }
+
+    private void register(ObjectName name, LatencyMetricsMXBean metrics) throws JMException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            registeredNames.add(name);
+        } catch (InstanceAlreadyExistsException ex) {
+            // 同一个 JVM 中有多个容器时，只有第一个注册的实例通过 JMX 暴露
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.metrics;
+
+/**
+ * 接收每一次 redis 命令的耗时，用于转发到外部的监控系统。
+ *
+ * <p>在执行命令的线程上同步调用，实现需要足够快且不抛出异常。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public interface RedisMetricsSink {
+    /**
+     * @param command
+     * @param nanos   耗时（含等待连接的时间）
+     * @param failed  是否抛出了异常
+     */
+    void recordCommand(RedisCommand command, long nanos, boolean failed);
+
+    /**
+     * @param nanos  从连接池获取连接的耗时
+     * @param failed 是否获取失败
+     */
+    default void recordPoolWait(long nanos, boolean failed) {}
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.jinyahuan.common.redis.replica;
+
+import cn.jinyahuan.common.redis.component.RedisSortedSetComponent;
+import cn.jinyahuan.common.redis.component.impl.RedisSortedSetComponentImpl;
+import cn.jinyahuan.common.redis.metrics.MeteredRedisConnectionFactory;
+import cn.jinyahuan.common.redis.metrics.RedisMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.time.Clock;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 把有序集合的读命令轮流发给 redis 从节点，写命令及需要读到自己写入的读命令仍发给主节点。
+ *
+ * <p>每隔{@code checkIntervalMillis}向主节点写入一个本实例独有的心跳键（值为写入时的本地时间），再从各从节点读回：
+ * 从节点读到的心跳时间之前主节点上完成的写入，从节点上都已经有了，当前时间与它的差即为该从节点数据的最大延迟。
+ * 延迟超过{@code maxLagMillis}、心跳读取失败或读命令连接失败（超时）的从节点不再使用，直到下一次心跳检查成功；
+ * 启动后第一次检查完成前，以及没有可用的从节点时，读命令都发给主节点。读命令在从节点上出错时，立即在主节点上重试，
+ * 命令本身的错误（例如 WRONGTYPE）不影响从节点的状态。
+ *
+ * <p>一个线程在主节点上写入后（{@link #markWritten()}），该线程的读命令只发给心跳时间晚于这次写入的从节点，
+ * 否则发给主节点，即同一线程总能读到自己的写入；其他线程（其他 JVM）的写入只保证在{@code maxLagMillis}内可见。
+ * 需要读到最新数据的调用通过{@link #onMaster(Supplier)}强制使用主节点。
+ *
+ * <p>读状态保存在{@link ThreadLocal}中，交给其他线程执行的操作（线程池、异步执行器）需通过{@link #withReadState(Supplier)}包装，
+ * 操作执行期间使用提交线程的读状态：能读到提交线程之前的写入，操作中的写入之后提交线程也能读到。
+ *
+ * <p>从节点使用 jedis 连接，{@code maxLagMillis}需大于{@code checkIntervalMillis}。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public class RedisReadRouter implements InitializingBean, DisposableBean {
+    static final String KEY_HEARTBEAT_PREFIX = "redis:replica:heartbeat:";
+
+    /**
+     * 心跳键的最小过期时间，本实例停止后心跳键自动删除。
+     */
+    private static final long MIN_HEARTBEAT_TTL_SECONDS = 60;
+
+    private StringRedisTemplate masterTemplate;
+    private String replicaNodes;
+    private String password;
+    private JedisPoolConfig poolConfig;
+    private RedisMetrics redisMetrics;
+    private long maxLagMillis = 2000;
+    private long checkIntervalMillis = 500;
+
+    private final String heartbeatKey = KEY_HEARTBEAT_PREFIX + UUID.randomUUID();
+    private Clock clock = Clock.systemUTC();
+    private BiConsumer<String, String> heartbeatWriter;
+
+    private final List<Replica> replicas = new CopyOnWriteArrayList<>();
+    private final List<JedisConnectionFactory> connectionFactories = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ThreadLocal<ReadState> readStates = ThreadLocal.withInitial(ReadState::new);
+    private ScheduledExecutorService checker;
+
+    private final LongAdder replicaReadCount = new LongAdder();
+    private final LongAdder masterReadCount = new LongAdder();
+    private final LongAdder fallbackCount = new LongAdder();
+
+    @Override
+    public void afterPropertiesSet() {
+        Objects.requireNonNull(masterTemplate, "masterTemplate must not be null");
+        if (maxLagMillis <= checkIntervalMillis) {
+            throw new IllegalArgumentException("maxLagMillis must be greater than checkIntervalMillis");
+        }
+
+        for (String node : parseNodes(replicaNodes)) {
+            final int colonIndex = node.lastIndexOf(':');
+            if (colonIndex <= 0) {
+                throw new IllegalArgumentException("replica node must be host:port, but was " + node);
+            }
+            final JedisConnectionFactory connectionFactory = Objects.isNull(poolConfig)
+                    ? new JedisConnectionFactory()
+                    : new JedisConnectionFactory(poolConfig);
+            connectionFactory.setHostName(node.substring(0, colonIndex));
+            connectionFactory.setPort(Integer.parseInt(node.substring(colonIndex + 1)));
+            if (Objects.nonNull(password) && !password.isEmpty()) {
+                connectionFactory.setPassword(password);
+            }
+            connectionFactory.afterPropertiesSet();
+            connectionFactories.add(connectionFactory);
+
+            final StringRedisTemplate template = new StringRedisTemplate(Objects.isNull(redisMetrics)
+                    ? connectionFactory
+                    : new MeteredRedisConnectionFactory(connectionFactory, redisMetrics));
+            addReplica(node, new RedisSortedSetComponentImpl(template), key -> template.opsForValue().get(key));
+        }
+
+        final long heartbeatTtlSeconds = Math.max(MIN_HEARTBEAT_TTL_SECONDS,
+                TimeUnit.MILLISECONDS.toSeconds(maxLagMillis) * 2);
+        heartbeatWriter = (key, value) ->
+                masterTemplate.opsForValue().set(key, value, heartbeatTtlSeconds, TimeUnit.SECONDS);
+
+        if (!replicas.isEmpty()) {
+            checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "redis-replica-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checker.scheduleWithFixedDelay(this::checkReplicas, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (Objects.nonNull(checker)) {
+            checker.shutdownNow();
+        }
+        for (JedisConnectionFactory connectionFactory : connectionFactories) {
+            connectionFactory.destroy();
+        }
+    }
+
+    /**
+     * 执行一个读命令，有可用的从节点时发给从节点，否则发给主节点。
+     *
+     * @param master 主节点
+     * @param action 读命令
+     * @param <T>
+     * @return
+     */
+    public <T> T read(RedisSortedSetComponent master, Function<RedisSortedSetComponent, T> action) {
+        final Replica replica = chooseReplica(readStates.get());
+        if (Objects.nonNull(replica)) {
+            try {
+                T result = action.apply(replica.component);
+                replicaReadCount.increment();
+                return result;
+            } catch (DataAccessException ex) {
+                if (isConnectionFailure(ex)) {
+                    replica.down = true;
+                }
+                fallbackCount.increment();
+            }
+        }
+        masterReadCount.increment();
+        return action.apply(master);
+    }
+
+    /**
+     * 其中的读命令都发给主节点。
+     *
+     * @param supplier
+     * @param <T>
+     * @return
+     */
+    public <T> T onMaster(Supplier<T> supplier) {
+        final ReadState readState = readStates.get();
+        readState.masterDepth.incrementAndGet();
+        try {
+            return supplier.get();
+        } finally {
+            readState.masterDepth.decrementAndGet();
+        }
+    }
+
+    /**
+     * 包装交给其他线程执行的操作，执行期间使用当前线程的读状态（在调用本方法的线程中获取）。
+     *
+     * @param supplier
+     * @param <T>
+     * @return
+     */
+    public <T> Supplier<T> withReadState(Supplier<T> supplier) {
+        Objects.requireNonNull(supplier, "supplier must not be null");
+        final ReadState submitterState = readStates.get();
+        return () -> {
+            final ReadState ownState = readStates.get();
+            readStates.set(submitterState);
+            try {
+                return supplier.get();
+            } finally {
+                readStates.set(ownState);
+            }
+        };
+    }
+
+    /**
+     * 当前线程在主节点上执行了写命令，之后的读命令需要读到这次写入。
+     */
+    public void markWritten() {
+        readStates.get().lastWriteMillis.accumulateAndGet(clock.millis(), Math::max);
+    }
+
+    /**
+     * 连接失败、超时说明从节点不可用；其他错误（命令本身的错误）在主节点上同样会出现，不影响从节点的状态。
+     *
+     * @param ex
+     * @return
+     */
+    static boolean isConnectionFailure(DataAccessException ex) {
+        return ex instanceof DataAccessResourceFailureException || ex instanceof QueryTimeoutException;
+    }
+
+    /**
+     * 写入心跳并读取各从节点的心跳。
+     */
+    void checkReplicas() {
+        try {
+            heartbeatWriter.accept(heartbeatKey, Long.toString(clock.millis()));
+        } catch (RuntimeException ex) {
+            // 主节点不可用时心跳不再更新，各从节点的延迟随之增大，超过 maxLagMillis 后不再使用
+        }
+        for (Replica replica : replicas) {
+            try {
+                String heartbeat = replica.heartbeatReader.apply(heartbeatKey);
+                if (Objects.nonNull(heartbeat)) {
+                    replica.heartbeatMillis = Long.parseLong(heartbeat);
+                }
+                replica.down = false;
+            } catch (RuntimeException ex) {
+                replica.down = true;
+            }
+        }
+    }
+
+    void addReplica(String name, RedisSortedSetComponent component, Function<String, String> heartbeatReader) {
+        replicas.add(new Replica(name, component, heartbeatReader));
+    }
+
+    void setHeartbeatWriter(BiConsumer<String, String> heartbeatWriter) {
+        this.heartbeatWriter = heartbeatWriter;
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    String getHeartbeatKey() {
+        return heartbeatKey;
+    }
+
+    /**
+     * 从上次选中的下一个从节点开始，找一个延迟在容忍范围内、且已复制到当前线程最近一次写入的从节点。
+     *
+     * @param readState
+     * @return 没有时返回 null
+     */
+    private Replica chooseReplica(ReadState readState) {
+        if (readState.masterDepth.get() > 0) {
+            return null;
+        }
+        final int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        final long nowMillis = clock.millis();
+        final int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            // 心跳与写入可能在同一毫秒，因此心跳时间需严格晚于写入
+            if (!replica.down
+                    && nowMillis - replica.heartbeatMillis <= maxLagMillis
+                    && replica.heartbeatMillis > readState.lastWriteMillis.get()) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> parseNodes(String replicaNodes) {
+        if (Objects.isNull(replicaNodes)) {
+            return Collections.emptyList();
+        }
+        final List<String> nodes = new ArrayList<>();
+        for (String node : replicaNodes.split(",")) {
+            node = node.trim();
+            if (!node.isEmpty()) {
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * 当前可用的从节点数。
+     *
+     * @return
+     */
+    public int getAvailableReplicaCount() {
+        final long nowMillis = clock.millis();
+        int count = 0;
+        for (Replica replica : replicas) {
+            if (!replica.down && nowMillis - replica.heartbeatMillis <= maxLagMillis) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getReplicaReadCount() {
+        return replicaReadCount.sum();
+    }
+
+    public long getMasterReadCount() {
+        return masterReadCount.sum();
+    }
+
+    /**
+     * 在从节点上出错后改由主节点执行的读命令数。
+     *
+     * @return
+     */
+    public long getFallbackCount() {
+        return fallbackCount.sum();
+    }
+
+    public void setMasterTemplate(StringRedisTemplate masterTemplate) {
+        this.masterTemplate = masterTemplate;
+    }
+
+    /**
+     * @param replicaNodes 逗号分隔的{@code host:port}，为空时所有读命令都发给主节点
+     */
+    public void setReplicaNodes(String replicaNodes) {
+        this.replicaNodes = replicaNodes;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public void setPoolConfig(JedisPoolConfig poolConfig) {
+        this.poolConfig = poolConfig;
+    }
+
+    public void setRedisMetrics(RedisMetrics redisMetrics) {
+        this.redisMetrics = redisMetrics;
+    }
+
+    public void setMaxLagMillis(long maxLagMillis) {
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    public void setCheckIntervalMillis(long checkIntervalMillis) {
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    /**
+     * 一个从节点及其最近一次心跳检查的结果。
+     */
+    static final class Replica {
+        final String name;
+        final RedisSortedSetComponent component;
+        final Function<String, String> heartbeatReader;
+        volatile long heartbeatMillis;
+        /**
+         * 第一次心跳检查成功前不可用。
+         */
+        volatile boolean down = true;
+
+        Replica(String name, RedisSortedSetComponent component, Function<String, String> heartbeatReader) {
+            this.name = name;
+            this.component = component;
+            this.heartbeatReader = heartbeatReader;
+        }
+    }
+
+    /**
+     * 线程的读状态，通过{@link #withReadState(Supplier)}可能被多个线程共享。
+     */
+    static final class ReadState {
+        final AtomicLong lastWriteMillis = new AtomicLong(Long.MIN_VALUE);
+        final AtomicInteger masterDepth = new AtomicInteger();
+    }
+}
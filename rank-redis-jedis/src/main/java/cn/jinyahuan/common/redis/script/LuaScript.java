@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.script;
+
+import java.util.Objects;
+
+/**
+ * lua 脚本。
+ *
+ * <p>脚本首次执行时通过 {@code SCRIPT LOAD} 加载并缓存其 sha1，之后都以 {@code EVALSHA} 执行，
+ * 避免每次都传输脚本内容；当服务端的脚本缓存丢失（{@code SCRIPT FLUSH}、重启或主从切换）时，
+ * 由调用方重新加载并刷新缓存的 sha1。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public final class LuaScript {
+    private final String source;
+
+    private volatile String sha;
+
+    public LuaScript(String source) {
+        this.source = Objects.requireNonNull(source, "source must not be null");
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * 获取已缓存的脚本 sha1。
+     *
+     * @return {@code null}, if script not loaded yet
+     */
+    public String getSha() {
+        return sha;
+    }
+
+    public void setSha(String sha) {
+        this.sha = sha;
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import cn.jinyahuan.lab.rank.RedisRankLab.RankMember;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * {@link RedisRankLab}的异步版本，所有操作都返回{@link CompletableFuture}，调用线程不会阻塞在 redis 连接池上。
+ *
+ * <p>操作在专用的 I/O 执行器上执行：运行时支持虚拟线程（JDK 21+）且{@code rank.async.virtualThreads}为{@code true}时，
+ * 每个操作一个虚拟线程，否则使用{@code rank.async.ioThreads}个平台线程。
+ * 同时在执行及排队的操作数不超过{@code rank.async.maxInFlight}，超出时返回的 future 立即以
+ * {@link RejectedExecutionException}失败，由调用方决定重试或降级。
+ *
+ * <p>返回的 future 在{@code rank.async.callbackThreads}个回调线程上完成，通过非 async 方法注册的回调也在回调线程上执行，
+ * 耗时的回调不会占用 I/O 线程及在途名额。
+ *
+ * <p>操作在 I/O 线程上执行时使用提交线程的读状态（见{@link RedisComponent#withReadState(Supplier)}），
+ * 配置了 redis 从节点时，操作能读到提交线程之前的写入，future 完成后提交线程也能读到操作中的写入。
+ *
+ * <p>关闭时不再接受新的操作，最多等待{@code rank.async.shutdownTimeoutMillis}让已提交的操作执行完；
+ * 超时后中断正在执行的操作，尚未开始的操作的 future 以{@link RejectedExecutionException}失败，不会永远等待。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+public class AsyncRankLab implements InitializingBean, DisposableBean {
+    @Autowired
+    private RedisRankLab redisRankLab;
+    @Autowired
+    private RedisComponent redisComponent;
+
+    @Value("${rank.async.virtualThreads:true}")
+    private boolean virtualThreads = true;
+    @Value("${rank.async.ioThreads:16}")
+    private int ioThreads = 16;
+    @Value("${rank.async.maxInFlight:1024}")
+    private int maxInFlight = 1024;
+    @Value("${rank.async.callbackThreads:0}")
+    private int callbackThreads;
+    @Value("${rank.async.shutdownTimeoutMillis:5000}")
+    private long shutdownTimeoutMillis = 5000;
+
+    private ExecutorService ioExecutor;
+    private ExecutorService callbackExecutor;
+    private Semaphore inFlight;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be greater than 0");
+        }
+        inFlight = new Semaphore(maxInFlight);
+
+        ioExecutor = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        if (Objects.isNull(ioExecutor)) {
+            if (ioThreads < 1) {
+                throw new IllegalArgumentException("ioThreads must be greater than 0");
+            }
+            // 在途的操作数已由 inFlight 限制，队列不会无限增长
+            ioExecutor = Executors.newFixedThreadPool(ioThreads, newThreadFactory("rank-async-io"));
+        }
+
+        final int callbackThreadCount = callbackThreads > 0
+                ? callbackThreads
+                : Runtime.getRuntime().availableProcessors();
+        callbackExecutor = Executors.newFixedThreadPool(callbackThreadCount, newThreadFactory("rank-async-callback"));
+    }
+
+    @Override
+    public void destroy() {
+        ioExecutor.shutdown();
+        boolean terminated = false;
+        try {
+            terminated = ioExecutor.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!terminated) {
+                for (Runnable task : ioExecutor.shutdownNow()) {
+                    ((RankTask<?>) task).abort();
+                }
+            }
+        }
+
+        // 已在队列中的回调仍会执行，之后的回调在完成操作的线程上执行
+        callbackExecutor.shutdown();
+    }
+
+    /**
+     * @see RedisRankLab#joinRank(String, String, long, BigDecimal)
+     */
+    public CompletableFuture<Long> joinRankAsync(String rankName, String memberName, long score, BigDecimal weight) {
+        return submit(() -> redisRankLab.joinRank(rankName, memberName, score, weight));
+    }
+
+    /**
+     * @see RedisRankLab#joinRank(String, String, long, double)
+     */
+    public CompletableFuture<Long> joinRankAsync(String rankName, String memberName, long score, double weight) {
+        return submit(() -> redisRankLab.joinRank(rankName, memberName, score, weight));
+    }
+
+    /**
+     * @see RedisRankLab#joinRank(RankKey, String, long, double)
+     */
+    public CompletableFuture<Long> joinRankAsync(RankKey rankKey, String memberName, long score, double weight) {
+        return submit(() -> redisRankLab.joinRank(rankKey, memberName, score, weight));
+    }
+
+    /**
+     * @see RedisRankLab#joinRankWithTieBreak(String, String, long, long)
+     */
+    public CompletableFuture<Long> joinRankWithTieBreakAsync(String rankName, String memberName,
+                                                            long score, long tieBreak) {
+        return submit(() -> redisRankLab.joinRankWithTieBreak(rankName, memberName, score, tieBreak));
+    }
+
+    /**
+     * @see RedisRankLab#joinRankBatch(String, Map)
+     */
+    public CompletableFuture<List<Long>> joinRankBatchAsync(String rankName, Map<String, Long> memberScores) {
+        return submit(() -> redisRankLab.joinRankBatch(rankName, memberScores));
+    }
+
+    /**
+     * @see RedisRankLab#joinRankBatch(Map)
+     */
+    public CompletableFuture<List<Long>> joinRankBatchAsync(Map<String, ? extends Map<String, Long>> rankMemberScores) {
+        return submit(() -> redisRankLab.joinRankBatch(rankMemberScores));
+    }
+
+    /**
+     * @see RedisRankLab#getRankScore(String, String)
+     */
+    public CompletableFuture<Long> getRankScoreAsync(String rankName, String memberName) {
+        return submit(() -> redisRankLab.getRankScore(rankName, memberName));
+    }
+
+    /**
+     * @see RedisRankLab#getRankScores(String, Collection)
+     */
+    public CompletableFuture<List<Long>> getRankScoresAsync(String rankName, Collection<String> memberNames) {
+        return submit(() -> redisRankLab.getRankScores(rankName, memberNames));
+    }
+
+    /**
+     * @see RedisRankLab#getRankNumber(String, String)
+     */
+    public CompletableFuture<Long> getRankNumberAsync(String rankName, String memberName) {
+        return submit(() -> redisRankLab.getRankNumber(rankName, memberName));
+    }
+
+    /**
+     * @see RedisRankLab#getRankNumbers(String, Collection)
+     */
+    public CompletableFuture<List<Long>> getRankNumbersAsync(String rankName, Collection<String> memberNames) {
+        return submit(() -> redisRankLab.getRankNumbers(rankName, memberNames));
+    }
+
+    /**
+     * @see RedisRankLab#getRankList(String, int, int)
+     */
+    public CompletableFuture<List<RankMember>> getRankListAsync(String rankName, int start, int end) {
+        return submit(() -> redisRankLab.getRankList(rankName, start, end));
+    }
+
+    /**
+     * @see RedisRankLab#getRankPage(String, int, int)
+     */
+    public CompletableFuture<RankPage> getRankPageAsync(String rankName, int start, int end) {
+        return submit(() -> redisRankLab.getRankPage(rankName, start, end));
+    }
+
+    /**
+     * @see RedisRankLab#getRankPageAfter(String, String, int)
+     */
+    public CompletableFuture<RankCursorPage> getRankPageAfterAsync(String rankName, String cursor, int count) {
+        return submit(() -> redisRankLab.getRankPageAfter(rankName, cursor, count));
+    }
+
+    /**
+     * @see RedisRankLab#getNeighborhood(String, String, int, int)
+     */
+    public CompletableFuture<RankNeighborhood> getNeighborhoodAsync(String rankName, String memberName,
+                                                                    int above, int below) {
+        return submit(() -> redisRankLab.getNeighborhood(rankName, memberName, above, below));
+    }
+
+    /**
+     * @return 当前在执行及排队的操作数
+     */
+    public int getInFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * 在 I/O 执行器上执行操作，操作结束后立即归还在途名额，再在回调线程上完成 future。
+     * 参数校验等异常同样通过 future 返回。
+     *
+     * @param operation
+     * @param <T>
+     * @return
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        if (!inFlight.tryAcquire()) {
+            future.completeExceptionally(new RejectedExecutionException(
+                    "too many in-flight rank operations, maxInFlight=" + maxInFlight));
+            return future;
+        }
+        try {
+            ioExecutor.execute(new RankTask<>(redisComponent.withReadState(operation), future));
+        } catch (RejectedExecutionException ex) {
+            inFlight.release();
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private <T> void complete(CompletableFuture<T> future, T result, Throwable failure) {
+        final Runnable completion = () -> {
+            if (Objects.isNull(failure)) {
+                future.complete(result);
+            }
+            else {
+                future.completeExceptionally(failure);
+            }
+        };
+        try {
+            callbackExecutor.execute(completion);
+        } catch (RejectedExecutionException ex) {
+            // 关闭期间回调线程已停止，直接在当前线程完成，避免调用方永远等待
+            completion.run();
+        }
+    }
+
+    /**
+     * I/O 执行器上的一个操作，关闭时尚未开始的操作通过{@link #abort()}归还在途名额并以失败完成 future。
+     */
+    private final class RankTask<T> implements Runnable {
+        private final Supplier<T> operation;
+        private final CompletableFuture<T> future;
+
+        RankTask(Supplier<T> operation, CompletableFuture<T> future) {
+            this.operation = operation;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            T result = null;
+            Throwable failure = null;
+            try {
+                result = operation.get();
+            } catch (Throwable ex) {
+                failure = ex;
+            } finally {
+                inFlight.release();
+            }
+            complete(future, result, failure);
+        }
+
+        void abort() {
+            inFlight.release();
+            future.completeExceptionally(new RejectedExecutionException("async rank lab has been shut down"));
+        }
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，运行时不支持时返回{@code null}。
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory newThreadFactory(String namePrefix) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 排行榜的写缓冲（write-behind），在{@link RedisRankLab}前合并同一个（排行榜，成员）的分值增量。
+ *
+ * <p>增量先累加在本地的并发 map 中，待合并的条目数达到{@code flushThreshold}或距上次刷新超过{@code flushIntervalMillis}时，
+ * 通过{@link RedisRankLab#joinRankBatch(Map)}以一个 pipeline 写入 redis。
+ * 新增条目前先预留容量，待合并及正在写入的条目数达到{@code maxPendingEntries}时，
+ * 新增条目的调用线程会先同步刷新（背压），因此并发写入时内存占用也有上限。
+ *
+ * <p>写入语义为至少一次（at-least-once）：刷新失败时增量放回缓冲区等待下一次刷新，
+ * 而失败的 pipeline 可能已经部分写入，重试时这部分增量会被重复累加。
+ *
+ * <p>只支持不带权重的分值累加；刷新前的分值只存在于本 JVM 中，读排行榜时看不到。
+ * 作为 spring bean 使用时，容器关闭时会刷新剩余的增量，多次重试仍失败时抛出异常并计入{@link #getLostEntryCount()}。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public class BufferedRankWriter implements DisposableBean {
+    /**
+     * 关闭时刷新的最大尝试次数。
+     */
+    static final int DESTROY_FLUSH_ATTEMPTS = 3;
+    private static final long DESTROY_FLUSH_BACKOFF_MILLIS = 100;
+
+    private final RedisRankLab redisRankLab;
+    private final int flushThreshold;
+    private final int maxPendingEntries;
+
+    /**
+     * 排行榜名称 -> (成员 -> 待写入的增量)。
+     *
+     * <p>每个排行榜的 map 只在{@code pending}的{@code compute*}中修改，刷新时整个移除，不会留下空的 map。
+     */
+    private final ConcurrentMap<String, Map<String, Long>> pending = new ConcurrentHashMap<>();
+    /**
+     * 已预留的容量：待合并的条目、正在写入的条目以及即将新增的条目。
+     */
+    private final AtomicInteger pendingEntries = new AtomicInteger();
+
+    /**
+     * 是否已提交了一次尚未开始的异步刷新，条目数超过{@code flushThreshold}后只提交一次。
+     */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean closed;
+
+    private final LongAdder incrementCount = new LongAdder();
+    private final LongAdder flushedEntryCount = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder flushErrorCount = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final LongAdder lostEntryCount = new LongAdder();
+
+    /**
+     * @param redisRankLab        not null
+     * @param flushThreshold      待合并的条目数达到（或超过）该值时异步刷新
+     * @param maxPendingEntries   待合并的条目数上限，需大于等于{@code flushThreshold}
+     * @param flushIntervalMillis 定时刷新的间隔
+     * @throws IllegalArgumentException
+     */
+    public BufferedRankWriter(RedisRankLab redisRankLab, int flushThreshold, int maxPendingEntries, long flushIntervalMillis) {
+        if (flushThreshold <= 0 || maxPendingEntries < flushThreshold || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("required [0 < flushThreshold <= maxPendingEntries] and [flushIntervalMillis > 0]");
+        }
+        this.redisRankLab = Objects.requireNonNull(redisRankLab, "redisRankLab must not be null");
+        this.flushThreshold = flushThreshold;
+        this.maxPendingEntries = maxPendingEntries;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rank-buffered-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 缓冲一次分值累加。
+     *
+     * @param rankName
+     * @param memberName
+     * @param score      需要累加的分值
+     * @throws NullPointerException
+     * @throws IllegalStateException 已关闭
+     */
+    public void joinRank(String rankName, String memberName, long score) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+        if (closed) {
+            throw new IllegalStateException("buffered writer is closed");
+        }
+
+        incrementCount.increment();
+        // 已有条目直接合并，不占用新的容量
+        if (mergeExisting(rankName, memberName, score)) {
+            return;
+        }
+
+        final int entries = reserveEntry();
+        if (!add(rankName, memberName, score)) {
+            // 其他线程已新增了该条目，增量已合并，归还预留的容量
+            pendingEntries.decrementAndGet();
+        }
+        else if (entries >= flushThreshold && flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                // 先清除标记，刷新期间新增的条目可以再提交一次刷新
+                flushScheduled.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    /**
+     * 同步刷新所有待写入的增量。
+     *
+     * @throws org.springframework.dao.DataAccessException 写入失败，此时增量会被放回缓冲区等待下一次刷新，
+     *                                                     已部分写入的增量会被重复累加
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            final Map<String, Map<String, Long>> batch = drain();
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            final long startNanos = System.nanoTime();
+            final int entries;
+            try {
+                entries = redisRankLab.joinRankBatch(batch).size();
+            } catch (RuntimeException ex) {
+                flushErrorCount.increment();
+                restore(batch);
+                throw ex;
+            }
+            final long elapsedNanos = System.nanoTime() - startNanos;
+            pendingEntries.addAndGet(-entries);
+
+            flushCount.increment();
+            flushedEntryCount.add(entries);
+            flushNanos.add(elapsedNanos);
+            maxFlushNanos.accumulateAndGet(elapsedNanos, Math::max);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 停止定时刷新并刷新剩余的增量，失败时最多尝试{@value #DESTROY_FLUSH_ATTEMPTS}次。
+     *
+     * @throws IllegalStateException 多次刷新仍失败，剩余的增量丢失，条目数计入{@link #getLostEntryCount()}
+     */
+    @Override
+    public void destroy() {
+        closed = true;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        RuntimeException lastError = null;
+        for (int attempt = 1; attempt <= DESTROY_FLUSH_ATTEMPTS; attempt++) {
+            try {
+                flush();
+                return;
+            } catch (RuntimeException ex) {
+                lastError = ex;
+            }
+            if (attempt < DESTROY_FLUSH_ATTEMPTS && !sleepQuietly(DESTROY_FLUSH_BACKOFF_MILLIS * attempt)) {
+                break;
+            }
+        }
+        final int lostEntries = pendingEntries.get();
+        lostEntryCount.add(lostEntries);
+        throw new IllegalStateException(lostEntries + " buffered rank entries were not flushed", lastError);
+    }
+
+    /**
+     * 预留一个条目的容量，已达上限时由调用线程同步刷新（背压）。
+     *
+     * @return 预留后的条目数
+     */
+    private int reserveEntry() {
+        for (; ; ) {
+            final int entries = pendingEntries.get();
+            if (entries >= maxPendingEntries) {
+                flush();
+                continue;
+            }
+            if (pendingEntries.compareAndSet(entries, entries + 1)) {
+                return entries + 1;
+            }
+        }
+    }
+
+    private static boolean sleepQuietly(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            // 已计入 flushErrorCount，增量保留到下一次刷新
+        }
+    }
+
+    private Map<String, Map<String, Long>> drain() {
+        Map<String, Map<String, Long>> batch = new LinkedHashMap<>();
+        for (String rankName : pending.keySet()) {
+            // 整个排行榜原子地移除，之后的并发累加会放入新的 map；容量在写入成功后才归还
+            Map<String, Long> increments = pending.remove(rankName);
+            if (Objects.nonNull(increments)) {
+                batch.put(rankName, increments);
+            }
+        }
+        return batch;
+    }
+
+    private void restore(Map<String, Map<String, Long>> batch) {
+        for (Map.Entry<String, Map<String, Long>> rankEntry : batch.entrySet()) {
+            for (Map.Entry<String, Long> entry : rankEntry.getValue().entrySet()) {
+                if (!add(rankEntry.getKey(), entry.getKey(), entry.getValue())) {
+                    // 合并到了刷新期间新增的条目中，该条目已预留了容量
+                    pendingEntries.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * 只累加到已有的条目中。
+     *
+     * @return 是否已有该条目
+     */
+    private boolean mergeExisting(String rankName, String memberName, long increment) {
+        final boolean[] merged = new boolean[1];
+        pending.computeIfPresent(rankName, (k, memberIncrements) -> {
+            merged[0] = Objects.nonNull(memberIncrements.computeIfPresent(memberName, (name, v) -> v + increment));
+            return memberIncrements;
+        });
+        return merged[0];
+    }
+
+    /**
+     * 累加增量，没有该条目时新增。
+     *
+     * @return 是否新增了条目
+     */
+    private boolean add(String rankName, String memberName, long increment) {
+        final boolean[] added = new boolean[1];
+        pending.compute(rankName, (k, memberIncrements) -> {
+            final Map<String, Long> increments = Objects.isNull(memberIncrements) ? new HashMap<>() : memberIncrements;
+            final Long old = increments.get(memberName);
+            added[0] = Objects.isNull(old);
+            increments.put(memberName, added[0] ? increment : old + increment);
+            return increments;
+        });
+        return added[0];
+    }
+
+    // --- Metrics
+
+    /**
+     * @return 当前待写入（含正在写入）的条目数
+     */
+    public int getPendingEntries() {
+        return pendingEntries.get();
+    }
+
+    /**
+     * @return 收到的分值累加次数
+     */
+    public long getIncrementCount() {
+        return incrementCount.sum();
+    }
+
+    /**
+     * @return 实际写入 redis 的条目数
+     */
+    public long getFlushedEntryCount() {
+        return flushedEntryCount.sum();
+    }
+
+    /**
+     * 合并比例：收到的分值累加次数 / 实际写入 redis 的条目数，越大说明合并得越多。
+     *
+     * @return 尚未写入时返回 0
+     */
+    public double getCoalescingRatio() {
+        final long flushedEntries = flushedEntryCount.sum();
+        return flushedEntries == 0 ? 0 : (double) incrementCount.sum() / flushedEntries;
+    }
+
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    public long getFlushErrorCount() {
+        return flushErrorCount.sum();
+    }
+
+    public long getAverageFlushNanos() {
+        final long count = flushCount.sum();
+        return count == 0 ? 0 : flushNanos.sum() / count;
+    }
+
+    public long getMaxFlushNanos() {
+        return maxFlushNanos.get();
+    }
+
+    /**
+     * @return 关闭时未能写入 redis 的条目数
+     */
+    public long getLostEntryCount() {
+        return lostEntryCount.sum();
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import cn.jinyahuan.common.redis.script.LuaScript;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 随时间衰减的（热度）排行榜，分值每经过{@code rank.decay.halfLifeMillis}减半。
+ *
+ * <p>不定期改写所有成员的分值，而是为每个排行榜记录一个基准时间（epoch）：
+ * 在时刻{@code t}累加的分值乘以{@code 2^((t - epoch) / halfLife)}后写入，越晚的写入放大的倍数越大；
+ * 读取时再除以当前时刻的倍数，即为衰减后的分值。所有成员除以同一个倍数，排名不变，
+ * 因此写入及按名次查询都只是一次 zset 操作，与不衰减的排行榜相同。
+ *
+ * <p>倍数随时间指数增长，指数超过{@code rank.decay.rebaseExponent}后，由后台线程把基准时间推后整数个半衰期，
+ * 同时通过 ZUNIONSTORE 把所有分值乘以对应的{@code 2^-k}（2的整数次幂，乘法没有舍入误差）；
+ * 长时间没有写入的排行榜，写入时指数超过{@link #MAX_EXPONENT}则在写入的脚本中同步完成，避免分值溢出。
+ * 基准时间保存在 redis 中，读写与重置都在脚本中原子地完成，多个 JVM 看到的基准时间一致。
+ *
+ * <p>倍数由各 JVM 的本地时间计算，时钟偏差{@code d}带来的误差为{@code 2^(d / halfLife)}倍，半衰期应远大于时钟偏差。
+ * 衰减的排行榜直接保存成员名，不使用{@link MemberDictionary}，与{@link RedisRankLab}的排行榜互不影响。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+public class DecayRankLab implements InitializingBean, DisposableBean {
+    static final String DECAY_SUFFIX = ":decay";
+    static final String EPOCH_SUFFIX = ":decay:epoch";
+
+    /**
+     * 写入时倍数的指数（以2为底）超过该值，在写入的脚本中同步重置基准时间。
+     * 分值的绝对值需小于{@code 2^(1023 - MAX_EXPONENT)}。
+     */
+    static final int MAX_EXPONENT = 512;
+
+    /**
+     * 累加衰减的分值，基准时间不存在时以当前时间为基准时间，指数超过上限时先重置基准时间。
+     *
+     * <p>KEYS[1] 排行榜的 key；KEYS[2] 基准时间的 key；ARGV[1] 成员；ARGV[2] 分值；ARGV[3] 当前时间；
+     * ARGV[4] 半衰期；ARGV[5] 指数的上限。返回{@code [累加后放大的分值, 基准时间]}。
+     */
+    static final LuaScript JOIN_DECAY_RANK_SCRIPT = new LuaScript(
+            "local halfLife = tonumber(ARGV[4])\n" +
+                    "local epoch = redis.call('GET', KEYS[2])\n" +
+                    "if not epoch then\n" +
+                    "    epoch = ARGV[3]\n" +
+                    "    redis.call('SET', KEYS[2], epoch)\n" +
+                    "end\n" +
+                    "local exponent = (tonumber(ARGV[3]) - tonumber(epoch)) / halfLife\n" +
+                    "if exponent > tonumber(ARGV[5]) then\n" +
+                    "    local shift = math.floor(exponent)\n" +
+                    "    redis.call('ZUNIONSTORE', KEYS[1], 1, KEYS[1], 'WEIGHTS', math.pow(2, -shift))\n" +
+                    "    epoch = string.format('%.0f', tonumber(epoch) + shift * halfLife)\n" +
+                    "    redis.call('SET', KEYS[2], epoch)\n" +
+                    "    exponent = exponent - shift\n" +
+                    "end\n" +
+                    "local score = redis.call('ZINCRBY', KEYS[1], tonumber(ARGV[2]) * math.pow(2, exponent), ARGV[1])\n" +
+                    "return {score, epoch}"
+    );
+
+    /**
+     * 读取成员放大的分值及基准时间，保证两者来自同一时刻。
+     *
+     * <p>KEYS[1] 排行榜的 key；KEYS[2] 基准时间的 key；ARGV[1] 成员。返回{@code [放大的分值, 基准时间]}，不存在的为 nil。
+     */
+    static final LuaScript DECAY_SCORE_SCRIPT = new LuaScript(
+            "return {redis.call('ZSCORE', KEYS[1], ARGV[1]), redis.call('GET', KEYS[2])}"
+    );
+
+    /**
+     * 按名次读取成员及放大的分值，并读取基准时间。
+     *
+     * <p>KEYS[1] 排行榜的 key；KEYS[2] 基准时间的 key；ARGV[1] 开始的下标；ARGV[2] 结束的下标。
+     * 返回{@code [基准时间, 成员1, 分值1, 成员2, 分值2, ...]}。
+     */
+    static final LuaScript DECAY_RANGE_SCRIPT = new LuaScript(
+            "local result = redis.call('ZREVRANGE', KEYS[1], ARGV[1], ARGV[2], 'WITHSCORES')\n" +
+                    "table.insert(result, 1, redis.call('GET', KEYS[2]))\n" +
+                    "return result"
+    );
+
+    /**
+     * 基准时间仍为读取到的值时，把所有分值乘以{@code 2^-ARGV[3]}并更新基准时间，否则（其他 JVM 已重置）不做任何操作。
+     *
+     * <p>KEYS[1] 排行榜的 key；KEYS[2] 基准时间的 key；ARGV[1] 读取到的基准时间；ARGV[2] 新的基准时间；
+     * ARGV[3] 推后的半衰期个数。返回是否重置。
+     */
+    static final LuaScript REBASE_DECAY_RANK_SCRIPT = new LuaScript(
+            "if redis.call('GET', KEYS[2]) ~= ARGV[1] then\n" +
+                    "    return 0\n" +
+                    "end\n" +
+                    "redis.call('ZUNIONSTORE', KEYS[1], 1, KEYS[1], 'WEIGHTS', math.pow(2, -tonumber(ARGV[3])))\n" +
+                    "redis.call('SET', KEYS[2], ARGV[2])\n" +
+                    "return 1"
+    );
+
+    @Autowired
+    private RedisComponent redisComponent;
+    @Autowired(required = false)
+    private RankKeyLayout rankKeyLayout = RankKeyLayout.PLAIN;
+
+    @Value("${rank.decay.halfLifeMillis:86400000}")
+    private long halfLifeMillis = 86400000;
+    /**
+     * 倍数的指数超过该值后在后台重置基准时间，需小于{@link #MAX_EXPONENT}。
+     */
+    @Value("${rank.decay.rebaseExponent:256}")
+    private int rebaseExponent = 256;
+
+    private Clock clock = Clock.systemUTC();
+
+    /**
+     * 正在后台重置基准时间的排行榜。
+     */
+    private final Set<String> rebasingRankNames = ConcurrentHashMap.newKeySet();
+    private final ExecutorService rebaseExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rank-decay-rebase");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder rebaseCount = new LongAdder();
+
+    @Override
+    public void afterPropertiesSet() {
+        if (halfLifeMillis < 1) {
+            throw new IllegalArgumentException("halfLifeMillis must be greater than 0");
+        }
+        if (rebaseExponent < 1 || rebaseExponent >= MAX_EXPONENT) {
+            throw new IllegalArgumentException("rebaseExponent must be in [1, " + MAX_EXPONENT + ")");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        rebaseExecutor.shutdownNow();
+    }
+
+    /**
+     * 加入排行榜，分值按当前时间放大后累加。
+     *
+     * @param rankName
+     * @param memberName
+     * @param score      需要累加的分值，可以为负数
+     * @return 累加后衰减到当前时间的分值
+     * @throws NullPointerException
+     * @throws IllegalArgumentException 分值不是有限的数
+     */
+    public Double joinRank(String rankName, String memberName, double score) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+        if (Double.isNaN(score) || Double.isInfinite(score)) {
+            throw new IllegalArgumentException("score must be finite");
+        }
+
+        final long nowMillis = clock.millis();
+        List<Object> result = redisComponent.evalSha(JOIN_DECAY_RANK_SCRIPT, ReturnType.MULTI, 2,
+                getDecayKey(rankName), getEpochKey(rankName), memberName,
+                String.valueOf(score), String.valueOf(nowMillis), String.valueOf(halfLifeMillis),
+                String.valueOf(MAX_EXPONENT));
+
+        final long epochMillis = parseEpoch(result.get(1));
+        if (getExponent(nowMillis, epochMillis) > rebaseExponent) {
+            rebaseAsync(rankName);
+        }
+        return decay(RedisRankLab.parseScore(result.get(0)), nowMillis, epochMillis);
+    }
+
+    /**
+     * 获取成员衰减到当前时间的分值。
+     *
+     * @param rankName
+     * @param memberName
+     * @return 成员不存在时返回 null
+     * @throws NullPointerException
+     */
+    public Double getRankScore(String rankName, String memberName) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+
+        final long nowMillis = clock.millis();
+        List<Object> result = redisComponent.evalSha(DECAY_SCORE_SCRIPT, ReturnType.MULTI, 2,
+                getDecayKey(rankName), getEpochKey(rankName), memberName);
+        final Double score = RedisRankLab.parseScore(result.get(0));
+        return Objects.isNull(score) ? null : decay(score, nowMillis, parseEpoch(result.get(1)));
+    }
+
+    /**
+     * 获取成员的排名，衰减不改变排名，不需要读取基准时间。
+     *
+     * @param rankName
+     * @param memberName
+     * @return 从1开始，成员不存在时返回 null
+     * @throws NullPointerException
+     */
+    public Long getRankNumber(String rankName, String memberName) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+
+        Long rank = redisComponent.zRevrank(getDecayKey(rankName), memberName);
+        return Objects.isNull(rank) ? null : rank + 1;
+    }
+
+    /**
+     * 获取排行榜，分值为衰减到当前时间的分值。
+     *
+     * @param rankName
+     * @param start    查询的排行榜开始的名次，从1开始
+     * @param end      查询的排行榜结束的名次
+     * @return
+     * @throws NullPointerException
+     */
+    public List<DecayedMember> getRankList(String rankName, int start, int end) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+
+        final long nowMillis = clock.millis();
+        List<Object> result = redisComponent.evalSha(DECAY_RANGE_SCRIPT, ReturnType.MULTI, 2,
+                getDecayKey(rankName), getEpochKey(rankName),
+                String.valueOf(start - 1), String.valueOf(end - 1));
+        if (Objects.isNull(result) || result.size() < 3) {
+            return Collections.emptyList();
+        }
+
+        final long epochMillis = parseEpoch(result.get(0));
+        List<DecayedMember> members = new ArrayList<>((result.size() - 1) / 2);
+        for (int i = 1; i + 1 < result.size(); i += 2) {
+            members.add(new DecayedMember(new String((byte[]) result.get(i), StandardCharsets.UTF_8),
+                    decay(RedisRankLab.parseScore(result.get(i + 1)), nowMillis, epochMillis)));
+        }
+        return members;
+    }
+
+    /**
+     * 把排行榜的基准时间推后整数个半衰期，并把所有分值缩小相应的倍数，不足一个半衰期时不做任何操作。
+     *
+     * <p>代价与排行榜的成员数成正比，通常由写入时触发的后台任务执行。
+     *
+     * @param rankName
+     * @return 是否重置，其他 JVM 同时重置时只有一个成功
+     * @throws NullPointerException
+     */
+    public boolean rebase(String rankName) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+
+        final String epochKey = getEpochKey(rankName);
+        final String epoch = redisComponent.get(epochKey);
+        if (Objects.isNull(epoch)) {
+            return false;
+        }
+        final long epochMillis = Long.parseLong(epoch);
+        final long shift = (long) Math.floor(getExponent(clock.millis(), epochMillis));
+        if (shift < 1) {
+            return false;
+        }
+
+        Long rebased = redisComponent.evalSha(REBASE_DECAY_RANK_SCRIPT, ReturnType.INTEGER, 2,
+                getDecayKey(rankName), epochKey, epoch,
+                String.valueOf(epochMillis + shift * halfLifeMillis), String.valueOf(shift));
+        if (Objects.equals(rebased, 1L)) {
+            rebaseCount.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 本 JVM 重置基准时间的次数。
+     *
+     * @return
+     */
+    public long getRebaseCount() {
+        return rebaseCount.sum();
+    }
+
+    /**
+     * 在后台重置基准时间，同一排行榜同时只有一个任务。
+     *
+     * @param rankName
+     */
+    private void rebaseAsync(String rankName) {
+        if (!rebasingRankNames.add(rankName)) {
+            return;
+        }
+        try {
+            rebaseExecutor.execute(() -> {
+                try {
+                    rebase(rankName);
+                } catch (RuntimeException ex) {
+                    // 下一次写入时再次触发；指数达到 MAX_EXPONENT 前，写入的脚本不会溢出
+                } finally {
+                    rebasingRankNames.remove(rankName);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            rebasingRankNames.remove(rankName);
+        }
+    }
+
+    private double getExponent(long nowMillis, long epochMillis) {
+        return (double) (nowMillis - epochMillis) / halfLifeMillis;
+    }
+
+    private Double decay(Double score, long nowMillis, long epochMillis) {
+        if (Objects.isNull(score)) {
+            return null;
+        }
+        return score / Math.pow(2, getExponent(nowMillis, epochMillis));
+    }
+
+    private static long parseEpoch(Object rawEpoch) {
+        if (rawEpoch instanceof byte[]) {
+            return Long.parseLong(new String((byte[]) rawEpoch, StandardCharsets.UTF_8));
+        }
+        throw new IllegalStateException("epoch of decay rank is missing");
+    }
+
+    String getDecayKey(String rankName) {
+        return rankKeyLayout.getRankKey(rankName) + DECAY_SUFFIX;
+    }
+
+    String getEpochKey(String rankName) {
+        return rankKeyLayout.getRankKey(rankName) + EPOCH_SUFFIX;
+    }
+
+    void setClock(Clock clock) {
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+    }
+
+    void setHalfLifeMillis(long halfLifeMillis) {
+        this.halfLifeMillis = halfLifeMillis;
+    }
+
+    public static class DecayedMember implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String name;
+        private Double score;
+
+        public DecayedMember() {}
+
+        public DecayedMember(String name, Double score) {
+            this.name = name;
+            this.score = score;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Double getScore() {
+            return score;
+        }
+
+        public void setScore(Double score) {
+            this.score = score;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DecayedMember that = (DecayedMember) o;
+            return name.equals(that.name) &&
+                    score.equals(that.score);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, score);
+        }
+
+        @Override
+        public String toString() {
+            return "DecayedMember{" +
+                    "name='" + name + '\'' +
+                    ", score=" + score +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+/**
+ * 小数权重的编解码器：整数部分为真实分值，小数部分为{@link RankWeightUtils#computeWeightAsDouble(long, int) 权重}，
+ * 与{@link RedisRankLab#joinRank(String, String, long, double)}的存储方式一致。
+ *
+ * <p>受{@code double}精度的限制，分值大于约{@code 2^53 / 10^小数位数}后权重会丢失，且权重的位数不固定，
+ * 所以同分排名值不可逆，不实现{@link ReversibleScoreCodec}。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public final class DecimalScoreCodec implements ScoreCodec {
+    /**
+     * 以{@link RankWeightUtils#getDefaultDecimalPlaces() 默认精度}计算权重的编解码器。
+     */
+    public static final DecimalScoreCodec DEFAULT = new DecimalScoreCodec(RankWeightUtils.getDefaultDecimalPlaces());
+
+    private final int decimalPlaces;
+
+    public DecimalScoreCodec(int decimalPlaces) {
+        this.decimalPlaces = decimalPlaces;
+    }
+
+    @Override
+    public double encode(long score, long tieBreak) {
+        return score + RankWeightUtils.computeWeightAsDouble(tieBreak, decimalPlaces);
+    }
+
+    @Override
+    public long decodeScore(double encodedScore) {
+        return (long) encodedScore;
+    }
+
+    @Override
+    public double getTieBreakUnit() {
+        return 1;
+    }
+
+    public int getDecimalPlaces() {
+        return decimalPlaces;
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.lab.rank.RedisRankLab.RankMember;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 排行榜的本地内存实现，适用于单节点部署或对延迟敏感的分片。
+ *
+ * <p>每个排行榜由{@link RankSkipList 带跨度的跳表}和成员到分值的 hash 索引组成，
+ * 加入、查分、查排名都是{@code O(log n)}，查询排行榜为{@code O(log n + m)}。
+ * 分值的计算（包括权重的替换）与{@link RedisRankLab}的脚本完全一致，排序规则与 redis 的 zset 一致。
+ *
+ * <p>每个排行榜一把读写锁，不同排行榜之间互不影响。数据只存在于本 JVM 中。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public class InMemoryRankLab implements RankLab {
+    private final ConcurrentMap<String, Board> boards = new ConcurrentHashMap<>();
+
+    private volatile ScoreCodec scoreCodec = DecimalScoreCodec.DEFAULT;
+
+    @Override
+    public Long joinRank(String rankName, String memberName, long score, BigDecimal weight) {
+        Objects.requireNonNull(weight, "weight must not be null");
+        return joinRank(rankName, memberName, score, weight.doubleValue());
+    }
+
+    @Override
+    public Long joinRank(String rankName, String memberName, long score, double weight) {
+        RedisRankLab.checkParamsForJoinRank(rankName, memberName, score, weight);
+
+        final ScoreCodec codec = scoreCodec;
+        if (weight != 0) {
+            RedisRankLab.checkDecimalWeight(codec);
+        }
+        final Board board = getOrCreateBoard(rankName);
+        board.lock.writeLock().lock();
+        try {
+            final Double oldScore = board.scores.get(memberName);
+            double increment = codec.encodeIncrement(score);
+            if (weight != 0) {
+                increment += weight;
+                final double oldWeight = RedisRankLab.getScoreWeight(oldScore);
+                if (oldWeight > 0) {
+                    // 扣除上一次的分值的权重
+                    increment -= oldWeight;
+                }
+            }
+            return codec.decodeScore(board.incrBy(memberName, oldScore, increment));
+        } finally {
+            board.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Long joinRankWithTieBreak(String rankName, String memberName, long score, long tieBreak) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+
+        final ScoreCodec codec = scoreCodec;
+        final double unit = codec.getTieBreakUnit();
+        double increment = codec.encode(score, tieBreak);
+
+        final Board board = getOrCreateBoard(rankName);
+        board.lock.writeLock().lock();
+        try {
+            final Double oldScore = board.scores.get(memberName);
+            if (Objects.nonNull(oldScore)) {
+                // 扣除旧的同分排名部分
+                increment -= oldScore - Math.floor(oldScore / unit) * unit;
+            }
+            return codec.decodeScore(board.incrBy(memberName, oldScore, increment));
+        } finally {
+            board.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Long getRankScore(String rankName, String memberName) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+
+        final Board board = boards.get(rankName);
+        if (Objects.isNull(board)) {
+            return null;
+        }
+        board.lock.readLock().lock();
+        try {
+            final Double score = board.scores.get(memberName);
+            return Objects.isNull(score) ? null : scoreCodec.decodeScore(score);
+        } finally {
+            board.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Long getRankNumber(String rankName, String memberName) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+
+        final Board board = boards.get(rankName);
+        if (Objects.isNull(board)) {
+            return null;
+        }
+        board.lock.readLock().lock();
+        try {
+            final Double score = board.scores.get(memberName);
+            if (Objects.isNull(score)) {
+                return null;
+            }
+            // 升序名次转换为降序名次
+            return (long) (board.skipList.size() - board.skipList.rank(score, memberName) + 1);
+        } finally {
+            board.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<RankMember> getRankList(String rankName, int start, int end) {
+        return getRankPage(rankName, start, end).toRankMembers();
+    }
+
+    @Override
+    public RankPage getRankPage(String rankName, int start, int end) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+
+        final Board board = boards.get(rankName);
+        if (Objects.isNull(board)) {
+            return RankPage.empty();
+        }
+        board.lock.readLock().lock();
+        try {
+            final int length = board.skipList.size();
+            // 与 ZREVRANGE 的下标规则一致，支持负数下标
+            long startIndex = start - 1L;
+            long endIndex = end - 1L;
+            if (startIndex < 0) {
+                startIndex += length;
+            }
+            if (endIndex < 0) {
+                endIndex += length;
+            }
+            if (startIndex < 0) {
+                startIndex = 0;
+            }
+            if (startIndex > endIndex || startIndex >= length) {
+                return RankPage.empty();
+            }
+            if (endIndex >= length) {
+                endIndex = length - 1;
+            }
+
+            final ScoreCodec codec = scoreCodec;
+            final int count = (int) (endIndex - startIndex + 1);
+            final String[] names = new String[count];
+            final long[] scores = new long[count];
+            RankSkipList.Node node = board.skipList.getByRank((int) (length - startIndex));
+            for (int i = 0; i < count; i++, node = node.backward) {
+                names[i] = node.member;
+                scores[i] = codec.decodeScore(node.score);
+            }
+            return RankPage.ofNames(names, scores);
+        } finally {
+            board.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public RankNeighborhood getNeighborhood(String rankName, String memberName, int above, int below) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+        if (above < 0 || below < 0) {
+            throw new IllegalArgumentException("above and below must not be negative");
+        }
+
+        final Board board = boards.get(rankName);
+        if (Objects.isNull(board)) {
+            return null;
+        }
+        board.lock.readLock().lock();
+        try {
+            final Double score = board.scores.get(memberName);
+            if (Objects.isNull(score)) {
+                return null;
+            }
+            final int length = board.skipList.size();
+            final int ascRank = board.skipList.rank(score, memberName);
+            // 降序下标，从0开始
+            final int rank = length - ascRank;
+            final int memberIndex = Math.min(rank, above);
+            final int size = memberIndex + 1 + Math.min(length - rank - 1, below);
+
+            final ScoreCodec codec = scoreCodec;
+            final String[] names = new String[size];
+            final long[] scores = new long[size];
+            RankSkipList.Node node = board.skipList.getByRank(ascRank + memberIndex);
+            for (int i = 0; i < size; i++, node = node.backward) {
+                names[i] = node.member;
+                scores[i] = codec.decodeScore(node.score);
+            }
+            return new RankNeighborhood(rank + 1L, scores[memberIndex], RankPage.ofNames(names, scores), memberIndex);
+        } finally {
+            board.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public RankCursorPage getRankPageAfter(String rankName, String cursor, int count) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be greater than 0");
+        }
+        final RankCursor seek = Objects.isNull(cursor) ? null : RankCursor.decode(cursor);
+
+        final Board board = boards.get(rankName);
+        if (Objects.isNull(board)) {
+            return new RankCursorPage(RankPage.empty(), null);
+        }
+        board.lock.readLock().lock();
+        try {
+            // 降序的下一个成员即升序中最后一个小于游标的成员
+            final int ascRank = Objects.isNull(seek)
+                    ? board.skipList.size()
+                    : board.skipList.countLessThan(seek.score, new String(seek.member, StandardCharsets.UTF_8));
+            final int size = Math.min(count, ascRank);
+            if (size == 0) {
+                return new RankCursorPage(RankPage.empty(), null);
+            }
+
+            final ScoreCodec codec = scoreCodec;
+            final String[] names = new String[size];
+            final long[] scores = new long[size];
+            RankSkipList.Node node = board.skipList.getByRank(ascRank);
+            RankSkipList.Node last = node;
+            for (int i = 0; i < size; i++, node = node.backward) {
+                names[i] = node.member;
+                scores[i] = codec.decodeScore(node.score);
+                last = node;
+            }
+            String nextCursor = size < count
+                    ? null
+                    : new RankCursor(last.score, last.member.getBytes(StandardCharsets.UTF_8)).encode();
+            return new RankCursorPage(RankPage.ofNames(names, scores), nextCursor);
+        } finally {
+            board.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 删除排行榜。
+     *
+     * @param rankName
+     * @return 是否存在
+     */
+    public boolean removeRank(String rankName) {
+        return Objects.nonNull(boards.remove(rankName));
+    }
+
+    public ScoreCodec getScoreCodec() {
+        return scoreCodec;
+    }
+
+    public void setScoreCodec(ScoreCodec scoreCodec) {
+        this.scoreCodec = Objects.requireNonNull(scoreCodec, "scoreCodec must not be null");
+    }
+
+    private Board getOrCreateBoard(String rankName) {
+        return boards.computeIfAbsent(rankName, k -> new Board());
+    }
+
+    /**
+     * 一个排行榜。
+     */
+    static final class Board {
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        final RankSkipList skipList = new RankSkipList();
+        final Map<String, Double> scores = new HashMap<>();
+
+        /**
+         * 与 ZINCRBY 一致，需持有写锁。
+         *
+         * @param memberName
+         * @param oldScore   成员当前的分值，不存在时为 null
+         * @param increment
+         * @return 累加后的分值
+         */
+        double incrBy(String memberName, Double oldScore, double increment) {
+            final double newScore;
+            if (Objects.isNull(oldScore)) {
+                newScore = increment;
+            }
+            else {
+                newScore = oldScore + increment;
+                skipList.delete(oldScore, memberName);
+            }
+            skipList.insert(newScore, memberName);
+            scores.put(memberName, newScore);
+            return newScore;
+        }
+    }
+}
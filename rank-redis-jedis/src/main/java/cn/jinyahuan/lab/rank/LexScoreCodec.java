@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import java.util.Arrays;
+
+/**
+ * 字典序的编解码器，用于分值超出{@link PackedScoreCodec}能表示的范围（即不受 53 位限制）的排行榜。
+ *
+ * <p>把完整 64 位的真实分值和同分排名值编码为定长的十六进制前缀拼接在成员名前面，所有成员以相同的 zset 分值（0）存储，
+ * 此时 zset 按成员的字节序排列，{@code ZREVRANGE}的顺序即为分值降序、同分时同分排名值降序。
+ *
+ * <p>由于分值存放在成员中，更新某个成员的分值需要先{@code ZREM}其旧的编码值，
+ * {@link RedisRankLab#setLexRankScore(String, String, long, long)}通过一个 hash 维护成员到编码值的索引；
+ * 按分值范围查询时以{@link #encodeScore(long)}作为{@code ZREVRANGEBYLEX}的边界。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public final class LexScoreCodec {
+    public static final LexScoreCodec INSTANCE = new LexScoreCodec();
+
+    /**
+     * 单个{@code long}编码后的长度。
+     */
+    static final int LONG_HEX_LENGTH = 16;
+
+    /**
+     * 编码前缀的长度：分值 + 同分排名值。
+     */
+    static final int PREFIX_LENGTH = LONG_HEX_LENGTH * 2;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private static final byte[] HEX_VALUES = new byte['F' + 1];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < HEX_DIGITS.length; i++) {
+            HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+        }
+    }
+
+    private LexScoreCodec() {
+    }
+
+    /**
+     * 编码。
+     *
+     * @param score      真实分值，可以是任意{@code long}值
+     * @param tieBreak   同分排名值，按无符号数比较，该值越大同分时排名越靠前
+     * @param memberName not null
+     * @return 存入 zset 的成员
+     */
+    public String encode(long score, long tieBreak, String memberName) {
+        final char[] chars = new char[PREFIX_LENGTH + memberName.length()];
+        // 翻转符号位，使有符号数的大小顺序与无符号的字典序一致
+        writeHex(chars, 0, score ^ Long.MIN_VALUE);
+        writeHex(chars, LONG_HEX_LENGTH, tieBreak);
+        memberName.getChars(0, memberName.length(), chars, PREFIX_LENGTH);
+        return new String(chars);
+    }
+
+    /**
+     * 只编码分值部分，即所有该分值的编码值共同的前缀。
+     *
+     * @param score
+     * @return
+     */
+    public String encodeScore(long score) {
+        final char[] chars = new char[LONG_HEX_LENGTH];
+        writeHex(chars, 0, score ^ Long.MIN_VALUE);
+        return new String(chars);
+    }
+
+    /**
+     * 解码出真实分值。
+     *
+     * @param encodedMember
+     * @return
+     * @throws IllegalArgumentException 不是合法的编码值
+     */
+    public long decodeScore(String encodedMember) {
+        return readHex(encodedMember, 0) ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * 解码出同分排名值。
+     *
+     * @param encodedMember
+     * @return
+     * @throws IllegalArgumentException 不是合法的编码值
+     */
+    public long decodeTieBreak(String encodedMember) {
+        return readHex(encodedMember, LONG_HEX_LENGTH);
+    }
+
+    /**
+     * 解码出成员名。
+     *
+     * @param encodedMember
+     * @return
+     * @throws IllegalArgumentException 不是合法的编码值
+     */
+    public String decodeMemberName(String encodedMember) {
+        if (encodedMember.length() < PREFIX_LENGTH) {
+            throw new IllegalArgumentException("not a lex encoded member: " + encodedMember);
+        }
+        return encodedMember.substring(PREFIX_LENGTH);
+    }
+
+    private static void writeHex(char[] chars, int offset, long value) {
+        for (int i = LONG_HEX_LENGTH - 1; i >= 0; i--) {
+            chars[offset + i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    private static long readHex(String encodedMember, int offset) {
+        if (encodedMember.length() < PREFIX_LENGTH) {
+            throw new IllegalArgumentException("not a lex encoded member: " + encodedMember);
+        }
+        long value = 0;
+        int invalid = 0;
+        for (int i = offset, end = offset + LONG_HEX_LENGTH; i < end; i++) {
+            final char c = encodedMember.charAt(i);
+            final int digit = c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+            invalid |= digit;
+            value = (value << 4) | (digit & 0xF);
+        }
+        if (invalid < 0) {
+            throw new IllegalArgumentException("not a lex encoded member: " + encodedMember);
+        }
+        return value;
+    }
+}
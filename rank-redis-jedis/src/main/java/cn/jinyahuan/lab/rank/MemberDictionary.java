@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import cn.jinyahuan.common.redis.script.LuaScript;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 成员名字典，将成员名映射为紧凑的编号，所有排行榜共用。
+ *
+ * <p>编号为序列值的 128 进制大端表示，每个字节取值为0~127（即 ASCII 字符），
+ * 小于 2^14 的编号只占2个字节、小于 2^28 的占4个字节，可以直接作为字符串成员用于所有 redis 命令。
+ * 映射保存在两个 hash 中（成员名 -> 编号、编号 -> 成员名），编号通过{@link #ASSIGN_IDS_SCRIPT 脚本}原子地分配，
+ * 同一个成员名在所有 JVM 中得到相同的编号。
+ *
+ * <p>本地以分段的近似 LRU 方式缓存最近使用的{@code rank.dict.cacheSize}个映射（双向），并发的查询按 key 分段加锁。
+ * 映射一旦分配不会改变，缓存不需要失效。
+ *
+ * <p>字典中每个成员名保存两份，成员出现在多个排行榜（如{@link WindowedRankLab 时间窗口}的各个桶、各个赛季）时才能节省内存。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+public class MemberDictionary implements InitializingBean {
+    /**
+     * 字典的3个 key 以{@code rank:dict}为前缀，集群中带有相同的 hash tag（{@code rank:{dict}}），{@link #ASSIGN_IDS_SCRIPT}在集群中也能执行。
+     */
+    static final String DICT_NAME = "dict";
+    static final String KEY_SUFFIX_NAME_TO_ID = ":name2id";
+    static final String KEY_SUFFIX_ID_TO_NAME = ":id2name";
+    static final String KEY_SUFFIX_SEQUENCE = ":seq";
+
+    /**
+     * KEYS[1] 成员名 -> 编号；KEYS[2] 编号 -> 成员名；KEYS[3] 编号的序列；ARGV 成员名。
+     * 按 ARGV 的顺序返回编号，不存在的成员名分配新的编号。
+     */
+    static final LuaScript ASSIGN_IDS_SCRIPT = new LuaScript(
+            "local ids = {}\n" +
+                    "for i, name in ipairs(ARGV) do\n" +
+                    "    local id = redis.call('HGET', KEYS[1], name)\n" +
+                    "    if not id then\n" +
+                    "        local n = redis.call('INCR', KEYS[3])\n" +
+                    "        id = ''\n" +
+                    "        repeat\n" +
+                    "            id = string.char(n % 128) .. id\n" +
+                    "            n = math.floor(n / 128)\n" +
+                    "        until n == 0\n" +
+                    "        redis.call('HSET', KEYS[1], name, id)\n" +
+                    "        redis.call('HSET', KEYS[2], id, name)\n" +
+                    "    end\n" +
+                    "    ids[i] = id\n" +
+                    "end\n" +
+                    "return ids"
+    );
+
+    @Autowired
+    private RedisComponent redisComponent;
+    @Autowired(required = false)
+    private RankKeyLayout rankKeyLayout = RankKeyLayout.PLAIN;
+
+    @Value("${rank.dict.cacheSize:100000}")
+    private int cacheSize = 100000;
+
+    private LruCache<String, String> nameToId;
+    private LruCache<String, String> idToName;
+
+    @Override
+    public void afterPropertiesSet() {
+        nameToId = new LruCache<>(cacheSize);
+        idToName = new LruCache<>(cacheSize);
+    }
+
+    /**
+     * 查询成员名的编号，不分配新的编号。
+     *
+     * @param memberName
+     * @return 成员名不在字典中时返回{@code null}
+     * @throws NullPointerException
+     */
+    public String getId(String memberName) {
+        Objects.requireNonNull(memberName, "memberName must not be null");
+
+        String id = nameToId.getValue(memberName);
+        if (Objects.isNull(id)) {
+            id = redisComponent.hGet(getNameToIdKey(), memberName);
+            if (Objects.nonNull(id)) {
+                cache(memberName, id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * 获取成员名的编号，不存在时分配新的编号。
+     *
+     * @param memberName
+     * @return
+     * @throws NullPointerException
+     */
+    public String getOrAssignId(String memberName) {
+        Objects.requireNonNull(memberName, "memberName must not be null");
+
+        String id = nameToId.getValue(memberName);
+        return Objects.nonNull(id) ? id : getOrAssignIds(Collections.singletonList(memberName)).get(0);
+    }
+
+    /**
+     * 批量获取成员名的编号，不存在时分配新的编号，未缓存的成员名只需一次网络往返。
+     *
+     * @param memberNames
+     * @return 按{@code memberNames}的迭代顺序返回编号
+     * @throws NullPointerException
+     */
+    public List<String> getOrAssignIds(Collection<String> memberNames) {
+        Objects.requireNonNull(memberNames, "memberNames must not be null");
+
+        final List<String> ids = new ArrayList<>(memberNames.size());
+        final List<String> missNames = new ArrayList<>();
+        for (String memberName : memberNames) {
+            Objects.requireNonNull(memberName, "memberName must not be null");
+            String id = nameToId.getValue(memberName);
+            ids.add(id);
+            if (Objects.isNull(id)) {
+                missNames.add(memberName);
+            }
+        }
+        if (missNames.isEmpty()) {
+            return ids;
+        }
+
+        final String[] keysAndArgs = new String[3 + missNames.size()];
+        keysAndArgs[0] = getNameToIdKey();
+        keysAndArgs[1] = getIdToNameKey();
+        keysAndArgs[2] = getSequenceKey();
+        for (int i = 0; i < missNames.size(); i++) {
+            keysAndArgs[3 + i] = missNames.get(i);
+        }
+        List<Object> rawIds = redisComponent.evalSha(ASSIGN_IDS_SCRIPT, ReturnType.MULTI, 3, keysAndArgs);
+        Map<String, String> assigned = new HashMap<>(missNames.size() * 4 / 3 + 1);
+        for (int i = 0; i < missNames.size(); i++) {
+            String id = new String((byte[]) rawIds.get(i), StandardCharsets.US_ASCII);
+            assigned.put(missNames.get(i), id);
+            cache(missNames.get(i), id);
+        }
+
+        int i = 0;
+        for (String memberName : memberNames) {
+            if (Objects.isNull(ids.get(i))) {
+                ids.set(i, assigned.get(memberName));
+            }
+            i++;
+        }
+        return ids;
+    }
+
+    /**
+     * 批量获取编号对应的成员名，未缓存的编号只需一次网络往返。
+     *
+     * @param ids
+     * @return 按{@code ids}的顺序返回成员名
+     * @throws NullPointerException
+     * @throws IllegalStateException 编号不在字典中
+     */
+    public String[] getNames(String[] ids) {
+        Objects.requireNonNull(ids, "ids must not be null");
+
+        final String[] names = new String[ids.length];
+        final Set<String> missIds = new LinkedHashSet<>();
+        for (int i = 0; i < ids.length; i++) {
+            names[i] = idToName.getValue(ids[i]);
+            if (Objects.isNull(names[i])) {
+                missIds.add(ids[i]);
+            }
+        }
+        if (missIds.isEmpty()) {
+            return names;
+        }
+
+        List<String> missNames = redisComponent.hMGet(getIdToNameKey(), missIds);
+        Map<String, String> loaded = new HashMap<>(missIds.size() * 4 / 3 + 1);
+        int j = 0;
+        for (String id : missIds) {
+            String name = missNames.get(j++);
+            if (Objects.isNull(name)) {
+                throw new IllegalStateException("member id not in dictionary: " + toHex(id));
+            }
+            loaded.put(id, name);
+            cache(name, id);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (Objects.isNull(names[i])) {
+                names[i] = loaded.get(ids[i]);
+            }
+        }
+        return names;
+    }
+
+    private void cache(String memberName, String id) {
+        nameToId.putValue(memberName, id);
+        idToName.putValue(id, memberName);
+    }
+
+    private static String toHex(String id) {
+        StringBuilder sb = new StringBuilder(id.length() * 2);
+        for (int i = 0; i < id.length(); i++) {
+            sb.append(String.format("%02x", (int) id.charAt(i)));
+        }
+        return sb.toString();
+    }
+
+    String getNameToIdKey() {
+        return rankKeyLayout.getRankKey(DICT_NAME) + KEY_SUFFIX_NAME_TO_ID;
+    }
+
+    String getIdToNameKey() {
+        return rankKeyLayout.getRankKey(DICT_NAME) + KEY_SUFFIX_ID_TO_NAME;
+    }
+
+    String getSequenceKey() {
+        return rankKeyLayout.getRankKey(DICT_NAME) + KEY_SUFFIX_SEQUENCE;
+    }
+
+    /**
+     * 分段的 LRU 缓存：按 key 的 hash 分到{@link #SEGMENT_COUNT}个段，每段是一个按访问顺序淘汰、在自身上同步的{@link LinkedHashMap}，
+     * 不同段的访问互不阻塞。淘汰只在段内进行，整体上是近似的 LRU，缓存的映射数不超过{@code capacity}。
+     */
+    static final class LruCache<K, V> {
+        static final int SEGMENT_COUNT = 16;
+
+        private final Segment<K, V>[] segments;
+
+        @SuppressWarnings("unchecked")
+        LruCache(int capacity) {
+            // 容量较小时只用一个段，保持精确的 LRU
+            final int segmentCount = capacity < SEGMENT_COUNT * SEGMENT_COUNT ? 1 : SEGMENT_COUNT;
+            final int segmentCapacity = Math.max(0, capacity / segmentCount);
+            segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = new Segment<>(segmentCapacity);
+            }
+        }
+
+        V getValue(K key) {
+            final Segment<K, V> segment = segmentFor(key);
+            synchronized (segment) {
+                return segment.get(key);
+            }
+        }
+
+        void putValue(K key, V value) {
+            final Segment<K, V> segment = segmentFor(key);
+            synchronized (segment) {
+                segment.put(key, value);
+            }
+        }
+
+        int size() {
+            int size = 0;
+            for (Segment<K, V> segment : segments) {
+                synchronized (segment) {
+                    size += segment.size();
+                }
+            }
+            return size;
+        }
+
+        private Segment<K, V> segmentFor(K key) {
+            final int h = key.hashCode();
+            return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+        }
+
+        private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+            private static final long serialVersionUID = 1L;
+
+            private final int capacity;
+
+            Segment(int capacity) {
+                super(16, 0.75F, true);
+                this.capacity = capacity;
+            }
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.lab.rank.RedisRankLab.RankMember;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 排行榜最终名次的本地归档文件。
+ *
+ * <p>文件为 gzip 压缩的二进制格式：4字节的魔数{@code RNK1}，之后按名次依次为每个成员写入
+ * “成员名字节数+1”（varint）、成员名的 UTF-8 字节、分值（第一个成员为 zigzag varint，之后为与上一个成员分值之差的 varint）；
+ * 以一个值为0的 varint 结束。
+ *
+ * <p>追加完所有成员后需调用{@link #finish()}写入结束标记；未调用{@link #finish()}就关闭时视为导出失败，删除不完整的文件。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public final class RankArchive implements Closeable {
+    private static final int MAGIC = 0x524E4B31;
+
+    private final File file;
+    private final DataOutputStream out;
+    private long count;
+    private long lastScore;
+    private boolean finished;
+    private boolean closed;
+
+    private RankArchive(File file, DataOutputStream out) {
+        this.file = file;
+        this.out = out;
+    }
+
+    /**
+     * 创建归档文件，已存在时覆盖。
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static RankArchive create(File file) throws IOException {
+        Objects.requireNonNull(file, "file must not be null");
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file), 1 << 16)));
+        out.writeInt(MAGIC);
+        return new RankArchive(file, out);
+    }
+
+    /**
+     * 追加一页成员，需按名次的顺序追加。
+     *
+     * @param page
+     * @throws IOException
+     */
+    public void append(RankPage page) throws IOException {
+        for (int i = 0, size = page.size(); i < size; i++) {
+            append(page.getRawName(i), page.getScore(i));
+        }
+    }
+
+    private void append(byte[] rawName, long score) throws IOException {
+        if (count > 0 && score > lastScore) {
+            throw new IllegalArgumentException("members must be appended in rank order");
+        }
+        writeVarLong(out, rawName.length + 1L);
+        out.write(rawName);
+        writeVarLong(out, count == 0 ? (score << 1) ^ (score >> 63) : lastScore - score);
+        lastScore = score;
+        count++;
+    }
+
+    /**
+     * @return 已追加的成员数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 写入结束标记并关闭文件，之后不能再追加成员。
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("rank archive has been closed");
+        }
+        closed = true;
+        out.write(0);
+        out.close();
+        finished = true;
+    }
+
+    /**
+     * 已{@link #finish() 完成}时什么也不做，否则关闭并删除不完整的文件。
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    /**
+     * 按名次依次读取归档文件中的成员。
+     *
+     * @param file
+     * @param action
+     * @return 成员数
+     * @throws IOException
+     */
+    public static long read(File file, Consumer<? super RankMember> action) throws IOException {
+        Objects.requireNonNull(file, "file must not be null");
+        Objects.requireNonNull(action, "action must not be null");
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file), 1 << 16)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a rank archive: " + file);
+            }
+            long count = 0;
+            long score = 0;
+            for (long length = readVarLong(in); length != 0; length = readVarLong(in)) {
+                byte[] rawName = new byte[(int) (length - 1)];
+                in.readFully(rawName);
+                long value = readVarLong(in);
+                score = count == 0 ? (value >>> 1) ^ -(value & 1) : score - value;
+                action.accept(new RankMember(new String(rawName, StandardCharsets.UTF_8), score));
+                count++;
+            }
+            return count;
+        }
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+}
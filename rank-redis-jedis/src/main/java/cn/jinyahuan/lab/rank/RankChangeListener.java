@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+/**
+ * 排行榜变化的监听器，注册为 spring bean 后，{@link RedisRankLab}在本 JVM 写入排行榜后通知它。
+ *
+ * <p>通知在写入线程中同步执行，实现需要足够轻量。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public interface RankChangeListener {
+    /**
+     * 排行榜发生了变化。
+     *
+     * @param rankName
+     */
+    void onRankChanged(String rankName);
+}
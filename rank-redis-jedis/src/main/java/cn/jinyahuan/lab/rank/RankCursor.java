@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * 排行榜的游标，即上一页最后一个成员在 zset 中的原始分值及成员名。
+ *
+ * <p>对外表现为不透明的字符串：8字节的分值（{@link Double#doubleToLongBits(double)}）加上成员名的 UTF-8 字节，
+ * 再以不带填充的 URL 安全的 Base64 编码。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+final class RankCursor {
+    private static final int SCORE_BYTES = Double.BYTES;
+
+    final double score;
+    final byte[] member;
+
+    RankCursor(double score, byte[] member) {
+        this.score = score;
+        this.member = Objects.requireNonNull(member, "member must not be null");
+    }
+
+    String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(SCORE_BYTES + member.length);
+        buffer.putLong(Double.doubleToLongBits(score));
+        buffer.put(member);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @param cursor
+     * @return
+     * @throws NullPointerException
+     * @throws IllegalArgumentException 不是有效的游标
+     */
+    static RankCursor decode(String cursor) {
+        Objects.requireNonNull(cursor, "cursor must not be null");
+
+        final byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("invalid rank cursor: " + cursor, ex);
+        }
+        if (bytes.length < SCORE_BYTES) {
+            throw new IllegalArgumentException("invalid rank cursor: " + cursor);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final double score = Double.longBitsToDouble(buffer.getLong());
+        if (Double.isNaN(score)) {
+            throw new IllegalArgumentException("invalid rank cursor: " + cursor);
+        }
+        byte[] member = new byte[buffer.remaining()];
+        buffer.get(member);
+        return new RankCursor(score, member);
+    }
+
+    /**
+     * 按无符号字节序比较，与 redis 同分成员的排序（memcmp）一致。
+     *
+     * @param member1
+     * @param member2
+     * @return
+     */
+    static int compareMember(byte[] member1, byte[] member2) {
+        final int length = Math.min(member1.length, member2.length);
+        for (int i = 0; i < length; i++) {
+            int cmp = (member1[i] & 0xFF) - (member2[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return member1.length - member2.length;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import java.util.Objects;
+
+/**
+ * 按游标分页读取排行榜的一页。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ * @see RankLab#getRankPageAfter(String, String, int)
+ */
+public final class RankCursorPage {
+    private final RankPage page;
+    private final String nextCursor;
+
+    RankCursorPage(RankPage page, String nextCursor) {
+        this.page = Objects.requireNonNull(page, "page must not be null");
+        this.nextCursor = nextCursor;
+    }
+
+    public RankPage getPage() {
+        return page;
+    }
+
+    /**
+     * @return 读取下一页的游标，已到榜尾时返回{@code null}
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return Objects.nonNull(nextCursor);
+    }
+
+    @Override
+    public String toString() {
+        return "RankCursorPage{" +
+                "page=" + page +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import redis.clients.util.JedisClusterCRC16;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 排行榜的 key，预先计算好排行榜及其权重序列的 key 和对应的 UTF-8 字节。
+ *
+ * <p>频繁访问的排行榜可以持有一个实例，通过{@link RedisRankLab}、{@link RankWeightComponent}中以{@code RankKey}为参数的方法访问，
+ * 每次调用不再拼接 key。单个成员的读写（加入、分数、名次、相邻成员）及按名次分页直接使用预先转换的 key 字节；
+ * 批量方法及游标分页使用预先拼接的 key，每次调用仍会转换一次 key 的字节，由一批成员（一页）分摊。
+ *
+ * <p>key 按创建时指定的{@link RankKeyLayout key 格式}拼接，只能用于注入了相同格式的组件，否则抛出{@link IllegalArgumentException}；
+ * 集群的格式（{@link RankKeyLayout#HASH_TAG}）中排行榜与其权重序列在同一个 slot 中。
+ *
+ * <p>不可变，线程安全；返回的字节数组不会被拷贝，调用方不要修改。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public final class RankKey {
+    /**
+     * redis 集群的 slot 数。
+     */
+    static final int SLOT_COUNT = 16384;
+
+    private final String rankName;
+    private final RankKeyLayout layout;
+    private final String key;
+    private final byte[] rawKey;
+    private final String weightKey;
+    private final byte[] rawWeightKey;
+
+    private RankKey(String rankName, RankKeyLayout layout) {
+        this.rankName = rankName;
+        this.layout = layout;
+        this.key = layout.getRankKey(rankName);
+        this.rawKey = key.getBytes(StandardCharsets.UTF_8);
+        this.weightKey = layout.getWeightKey(rankName);
+        this.rawWeightKey = weightKey.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param rankName
+     * @return 默认格式（{@link RankKeyLayout#PLAIN}）的 key
+     * @throws NullPointerException
+     */
+    public static RankKey of(String rankName) {
+        return of(rankName, RankKeyLayout.PLAIN);
+    }
+
+    /**
+     * @param rankName
+     * @param layout 与使用该 key 的组件注入的格式一致，见{@link RedisRankLab#getRankKeyLayout()}
+     * @return
+     * @throws NullPointerException
+     */
+    public static RankKey of(String rankName, RankKeyLayout layout) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(layout, "layout must not be null");
+        return new RankKey(rankName, layout);
+    }
+
+    public String getRankName() {
+        return rankName;
+    }
+
+    public RankKeyLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return 排行榜的 key，见{@link RankKeyLayout#getRankKey(String)}
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public byte[] getRawKey() {
+        return rawKey;
+    }
+
+    /**
+     * @return 权重序列的 key，见{@link RankKeyLayout#getWeightKey(String)}
+     */
+    public String getWeightKey() {
+        return weightKey;
+    }
+
+    public byte[] getRawWeightKey() {
+        return rawWeightKey;
+    }
+
+    /**
+     * @return 排行榜（及其权重序列）在 redis 集群中的 slot
+     */
+    public int getSlot() {
+        return getSlot(rawKey);
+    }
+
+    /**
+     * @param expected 使用该 key 的组件注入的格式
+     * @return this
+     * @throws IllegalArgumentException 格式不一致
+     */
+    RankKey checkLayout(RankKeyLayout expected) {
+        if (layout != expected) {
+            throw new IllegalArgumentException("rankKey layout " + layout + " does not match " + expected);
+        }
+        return this;
+    }
+
+    /**
+     * 计算 key 在 redis 集群中的 slot，与服务端一致：有 hash tag 时只计算 hash tag 的 CRC16，再对{@link #SLOT_COUNT}取模。
+     *
+     * @param key
+     * @return 0~16383
+     * @throws NullPointerException
+     */
+    public static int getSlot(String key) {
+        Objects.requireNonNull(key, "key must not be null");
+        return getSlot(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static int getSlot(byte[] rawKey) {
+        final int start = indexOf(rawKey, (byte) '{', 0);
+        if (start >= 0) {
+            final int end = indexOf(rawKey, (byte) '}', start + 1);
+            if (end > start + 1) {
+                return JedisClusterCRC16.getCRC16(Arrays.copyOfRange(rawKey, start + 1, end)) & (SLOT_COUNT - 1);
+            }
+        }
+        return JedisClusterCRC16.getCRC16(rawKey) & (SLOT_COUNT - 1);
+    }
+
+    /**
+     * @param name
+     * @return 是否含有 hash tag，即第一个{@code '{'}与其后第一个{@code '}'}之间不为空
+     */
+    static boolean hasHashTag(String name) {
+        if (Objects.isNull(name)) {
+            return false;
+        }
+        final int start = name.indexOf('{');
+        if (start < 0) {
+            return false;
+        }
+        final int end = name.indexOf('}', start + 1);
+        return end > start + 1;
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int fromIndex) {
+        for (int i = fromIndex; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RankKey rankKey = (RankKey) o;
+        return rankName.equals(rankKey.rankName) && layout == rankKey.layout;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * rankName.hashCode() + layout.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "RankKey{" +
+                "rankName='" + rankName + '\'' +
+                ", layout=" + layout +
+                '}';
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.jinyahuan.lab.rank;
+
+/**
+ * 排行榜的 key 格式，由{@code rank.cluster.enabled}决定，在 spring-core.xml 中声明为 bean，注入到用到排行榜 key 的组件中。
+ *
+ * <p>已有数据的排行榜从{@link #PLAIN}改为{@link #HASH_TAG}前，需先通过{@link RankKeyMigration}迁移。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public enum RankKeyLayout {
+    /**
+     * 默认格式：{@code rank:<rankName>}。
+     */
+    PLAIN {
+        @Override
+        public String withHashTag(String rankName) {
+            return rankName;
+        }
+    },
+    /**
+     * redis 集群的格式：排行榜名称作为 hash tag，即{@code rank:{<rankName>}}，名称中已有 hash tag 时为{@code rank:<rankName>}。
+     */
+    HASH_TAG {
+        @Override
+        public String withHashTag(String rankName) {
+            return toHashTag(rankName);
+        }
+    };
+
+    /**
+     * @param clusterEnabled 是否部署在 redis 集群上
+     * @return
+     */
+    public static RankKeyLayout of(boolean clusterEnabled) {
+        return clusterEnabled ? HASH_TAG : PLAIN;
+    }
+
+    /**
+     * 按本格式给排行榜名称加上 hash tag。
+     *
+     * <p>排行榜及其权重序列、换季归档、时间窗口的桶等由名称派生的 key 都带有相同的 hash tag，
+     * 落在同一个 slot 中，同时操作这些 key 的脚本、ZUNIONSTORE 在集群中也能执行。
+     *
+     * @param rankName
+     * @return
+     */
+    public abstract String withHashTag(String rankName);
+
+    /**
+     * @param rankName
+     * @return 排行榜的 key
+     */
+    public String getRankKey(String rankName) {
+        return RedisRankLab.KEY_RANK_PREFIX + withHashTag(rankName);
+    }
+
+    /**
+     * @param rankName
+     * @return 排行榜权重序列的 key
+     */
+    public String getWeightKey(String rankName) {
+        return getRankKey(rankName) + RankWeightComponent.KEY_SUFFIX_WEIGHT;
+    }
+
+    /**
+     * 名称中已有 hash tag（第一个{@code '{'}与其后第一个{@code '}'}之间不为空）时原样返回，
+     * 可以通过相同的 hash tag 将多个排行榜放在同一个 slot 中，否则将整个名称作为 hash tag。
+     *
+     * @param rankName
+     * @return
+     */
+    static String toHashTag(String rankName) {
+        return RankKey.hasHashTag(rankName) ? rankName : "{" + rankName + "}";
+    }
+}
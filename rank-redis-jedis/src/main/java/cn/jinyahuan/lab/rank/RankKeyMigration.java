@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import cn.jinyahuan.common.redis.script.LuaScript;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 将排行榜的 key 从默认格式（{@link RankKeyLayout#PLAIN}）迁移到集群的格式（{@link RankKeyLayout#HASH_TAG}）。
+ *
+ * <p>迁移通过{@link #MIGRATE_SCRIPT 脚本}原子地 RENAME，需在{@code rank.cluster.enabled}改为{@code true}之前、
+ * 数据仍在单机（或主从）的 redis 中时执行：两种格式的 key 通常不在同一个 slot 中，在集群中不能 RENAME。
+ * 迁移期间应停止写入，否则迁移后仍按旧格式写入的数据不会被迁移。
+ *
+ * <p>时间窗口的桶、换季的归档在集群中的名称也会变化，不会被迁移，过期后按新格式重新生成。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+public class RankKeyMigration {
+    /**
+     * KEYS 依次为成对的旧 key、新 key。旧 key 存在且新 key 不存在时 RENAME，已迁移过（新 key 已存在）时跳过，不会覆盖。
+     * 返回重命名的 key 数。
+     */
+    static final LuaScript MIGRATE_SCRIPT = new LuaScript(
+            "local count = 0\n" +
+                    "for i = 1, #KEYS, 2 do\n" +
+                    "    if redis.call('EXISTS', KEYS[i]) == 1 and redis.call('EXISTS', KEYS[i + 1]) == 0 then\n" +
+                    "        redis.call('RENAME', KEYS[i], KEYS[i + 1])\n" +
+                    "        count = count + 1\n" +
+                    "    end\n" +
+                    "end\n" +
+                    "return count"
+    );
+
+    @Autowired
+    private RedisComponent redisComponent;
+
+    /**
+     * 迁移排行榜及其权重序列、衰减排行榜的基准时间等以排行榜的 key 为前缀的 key。
+     *
+     * @param rankName
+     * @return 重命名的 key 数
+     * @throws NullPointerException
+     */
+    public long migrate(String rankName) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        return migrate(rankName, "", RankWeightComponent.KEY_SUFFIX_WEIGHT,
+                DecayRankLab.DECAY_SUFFIX, DecayRankLab.EPOCH_SUFFIX);
+    }
+
+    /**
+     * 迁移{@link MemberDictionary 成员名字典}。
+     *
+     * @return 重命名的 key 数
+     */
+    public long migrateMemberDictionary() {
+        return migrate(MemberDictionary.DICT_NAME, MemberDictionary.KEY_SUFFIX_NAME_TO_ID,
+                MemberDictionary.KEY_SUFFIX_ID_TO_NAME, MemberDictionary.KEY_SUFFIX_SEQUENCE);
+    }
+
+    private long migrate(String name, String... keySuffixes) {
+        final String oldPrefix = RankKeyLayout.PLAIN.getRankKey(name);
+        final String newPrefix = RankKeyLayout.HASH_TAG.getRankKey(name);
+        if (oldPrefix.equals(newPrefix)) {
+            // 名称中已有 hash tag，两种格式相同
+            return 0;
+        }
+        List<String> keys = new ArrayList<>(keySuffixes.length * 2);
+        for (String keySuffix : keySuffixes) {
+            keys.add(oldPrefix + keySuffix);
+            keys.add(newPrefix + keySuffix);
+        }
+        Long count = redisComponent.evalSha(MIGRATE_SCRIPT, ReturnType.INTEGER, keys.size(),
+                keys.toArray(new String[0]));
+        return Objects.isNull(count) ? 0 : count;
+    }
+}
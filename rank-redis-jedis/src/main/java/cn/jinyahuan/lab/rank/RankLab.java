@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.lab.rank.RedisRankLab.RankMember;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 排行榜。
+ *
+ * <p>排序规则与 redis 的 zset 一致：分值降序，同分时按成员名的字节序降序。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ * @see RedisRankLab
+ * @see InMemoryRankLab
+ */
+public interface RankLab {
+    /**
+     * 加入排行榜，分值累加，{@code weight}不为0时替换上一次的权重。
+     *
+     * @param rankName
+     * @param memberName
+     * @param score      分值
+     * @param weight     同分时排名的权重，取值范围为(-1,1)
+     * @return 累加后的分值
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     * @throws IllegalStateException    {@code weight}不为0且编解码器不是{@link DecimalScoreCodec}
+     * @see RedisRankLab#joinRank(String, String, long, BigDecimal)
+     */
+    Long joinRank(String rankName, String memberName, long score, BigDecimal weight);
+
+    /**
+     * 与{@link #joinRank(String, String, long, BigDecimal)}相同，权重以{@code double}表示。
+     *
+     * @param rankName
+     * @param memberName
+     * @param score      分值
+     * @param weight     同分时排名的权重，取值范围为(-1,1)
+     * @return 累加后的分值
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     */
+    Long joinRank(String rankName, String memberName, long score, double weight);
+
+    /**
+     * 按{@link ScoreCodec}加入排行榜，分值累加，同分排名值替换为{@code tieBreak}。
+     *
+     * @param rankName
+     * @param memberName
+     * @param score      需要累加的分值
+     * @param tieBreak   同分排名值，该值越大同分时排名越靠前
+     * @return 累加后的分值
+     * @throws NullPointerException
+     * @throws IllegalArgumentException 超出编解码器能表示的范围
+     */
+    Long joinRankWithTieBreak(String rankName, String memberName, long score, long tieBreak);
+
+    /**
+     * 获取{@code memberName}在{@code rankName}榜的分数。
+     *
+     * @param rankName
+     * @param memberName
+     * @return {@code null}, if rank not exist or {@code memberName} not in rank list;
+     * otherwise return {@code memberName} rank score
+     * @throws NullPointerException
+     */
+    Long getRankScore(String rankName, String memberName);
+
+    /**
+     * 获取{@code memberName}在{@code rankName}榜的排名。
+     *
+     * @param rankName
+     * @param memberName
+     * @return {@code null}, if rank not exist or {@code memberName} not in rank list;
+     * otherwise return {@code memberName} real rank number, 从1开始
+     * @throws NullPointerException
+     */
+    Long getRankNumber(String rankName, String memberName);
+
+    /**
+     * 获取排行榜。
+     *
+     * @param rankName
+     * @param start    查询的排行榜开始的名次，从1开始
+     * @param end      查询的排行榜结束的名次
+     * @return
+     * @throws NullPointerException
+     */
+    List<RankMember> getRankList(String rankName, int start, int end);
+
+    /**
+     * 以按列存储的形式获取排行榜。
+     *
+     * @param rankName
+     * @param start    查询的排行榜开始的名次，从1开始
+     * @param end      查询的排行榜结束的名次
+     * @return
+     * @throws NullPointerException
+     * @see #getRankList(String, int, int)
+     */
+    RankPage getRankPage(String rankName, int start, int end);
+
+    /**
+     * 按游标分页获取排行榜，从{@code cursor}指向的成员之后开始（不含该成员）。
+     *
+     * <p>与按名次分页不同，每页的代价与页的深度无关，且遍历期间其它成员的分值变化不会导致翻页时重复或遗漏；
+     * 游标指向的成员本身分值发生变化不影响游标的位置。
+     *
+     * @param rankName
+     * @param cursor   上一页返回的{@link RankCursorPage#getNextCursor() 游标}，为{@code null}时从第一名开始
+     * @param count    每页的成员数
+     * @return
+     * @throws NullPointerException
+     * @throws IllegalArgumentException {@code count}不大于0或{@code cursor}无效
+     */
+    RankCursorPage getRankPageAfter(String rankName, String cursor, int count);
+
+    /**
+     * 获取成员的名次、分值及其前后相邻的成员。
+     *
+     * @param rankName
+     * @param memberName
+     * @param above      名次在成员之前的最多成员数
+     * @param below      名次在成员之后的最多成员数
+     * @return {@code null}, if rank not exist or {@code memberName} not in rank list
+     * @throws NullPointerException
+     * @throws IllegalArgumentException {@code above}或{@code below}小于0
+     */
+    RankNeighborhood getNeighborhood(String rankName, String memberName, int above, int below);
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.lab.rank.RedisRankLab.RankMember;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 排行榜前 N 名的本地缓存。
+ *
+ * <p>每个排行榜缓存一份前{@code rank.cache.topN}名的列表，所有落在该范围内的分页查询都从这一份前缀中截取。
+ * 缓存超过{@code rank.cache.refreshIntervalMillis}后仍返回旧值，同时在后台刷新；
+ * 超过{@code rank.cache.maxStalenessMillis}或本 JVM 写入过该排行榜（版本号变化）后，同步重新加载。
+ * 同一排行榜在同一版本下同时只有一个加载请求，并发的查询共享其结果；版本变化后的查询不会共享变化前开始的加载。
+ *
+ * <p>其他 JVM 的写入只能通过过期时间感知。每次返回的是缓存的拷贝，调用方修改返回的列表及成员不影响缓存。
+ * 版本号只为缓存过的排行榜保存，与缓存一起清除，只写不读的排行榜不占用内存。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+public class RankListCache implements RankChangeListener, DisposableBean {
+    @Autowired
+    private RedisRankLab redisRankLab;
+
+    @Value("${rank.cache.topN:100}")
+    private int topN = 100;
+    @Value("${rank.cache.refreshIntervalMillis:1000}")
+    private long refreshIntervalMillis = 1000;
+    @Value("${rank.cache.maxStalenessMillis:5000}")
+    private long maxStalenessMillis = 5000;
+
+    private final ConcurrentMap<String, CachedRank> cachedRanks = new ConcurrentHashMap<>();
+    /**
+     * 缓存过的排行榜的版本号，取自{@link #versionSequence}，重新加入时不会与之前的版本号相同。
+     */
+    private final ConcurrentMap<String, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicLong versionSequence = new AtomicLong();
+    /**
+     * 正在进行的加载，按开始加载时的版本区分。
+     */
+    private final ConcurrentMap<LoadKey, CompletableFuture<CachedRank>> loadings = new ConcurrentHashMap<>();
+
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rank-list-cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * 获取排行榜，落在前 N 名内的查询走本地缓存，否则直接查询{@link RedisRankLab}。
+     *
+     * @param rankName
+     * @param start    查询的排行榜开始的名次，从1开始
+     * @param end      查询的排行榜结束的名次
+     * @return
+     * @see RedisRankLab#getRankList(String, int, int)
+     */
+    public List<RankMember> getRankList(String rankName, int start, int end) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        if (start < 1 || end > topN) {
+            return redisRankLab.getRankList(rankName, start, end);
+        }
+        if (start > end) {
+            return Collections.emptyList();
+        }
+
+        CachedRank cachedRank = cachedRanks.get(rankName);
+        final long nowNanos = System.nanoTime();
+        if (Objects.isNull(cachedRank)
+                || cachedRank.version != currentVersion(rankName)
+                || nowNanos - cachedRank.loadedAtNanos > TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis)) {
+            missCount.increment();
+            cachedRank = load(rankName, false);
+        }
+        else {
+            hitCount.increment();
+            if (nowNanos - cachedRank.loadedAtNanos > TimeUnit.MILLISECONDS.toNanos(refreshIntervalMillis)) {
+                load(rankName, true);
+            }
+        }
+        return cachedRank.subList(start, end);
+    }
+
+    /**
+     * 本 JVM 写入排行榜后使其缓存失效。
+     *
+     * @param rankName
+     */
+    @Override
+    public void onRankChanged(String rankName) {
+        // 没有缓存过的排行榜下次加载时取新的版本号
+        versions.computeIfPresent(rankName, (k, v) -> versionSequence.incrementAndGet());
+    }
+
+    /**
+     * 清除排行榜的缓存。
+     *
+     * @param rankName
+     */
+    public void invalidate(String rankName) {
+        versions.remove(rankName);
+        cachedRanks.remove(rankName);
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return 没有版本号时返回-1，与任何缓存的版本号都不同
+     */
+    private long currentVersion(String rankName) {
+        Long version = versions.get(rankName);
+        return Objects.isNull(version) ? -1 : version;
+    }
+
+    /**
+     * 加载排行榜的前 N 名，同一排行榜在同一版本下同时只有一个加载请求。
+     *
+     * @param rankName
+     * @param async    是否在后台加载
+     * @return 后台加载时返回 null
+     */
+    private CachedRank load(String rankName, boolean async) {
+        // 先取版本号，加载期间的写入会使这次的结果立即过期；之前版本的加载可能读到写入前的数据，不能共享
+        final long version = versions.computeIfAbsent(rankName, k -> versionSequence.incrementAndGet());
+        final LoadKey loadKey = new LoadKey(rankName, version);
+        final CompletableFuture<CachedRank> loading = new CompletableFuture<>();
+        final CompletableFuture<CachedRank> existing = loadings.putIfAbsent(loadKey, loading);
+        if (Objects.nonNull(existing)) {
+            return async ? null : join(existing);
+        }
+
+        final Runnable task = () -> {
+            try {
+                final long loadedAtNanos = System.nanoTime();
+                CachedRank cachedRank = new CachedRank(
+                        redisRankLab.getRankList(rankName, 1, topN), version, loadedAtNanos);
+                // 较早版本的加载晚完成时不覆盖较新的缓存
+                cachedRanks.merge(rankName, cachedRank,
+                        (oldValue, newValue) -> newValue.version >= oldValue.version ? newValue : oldValue);
+                loading.complete(cachedRank);
+            } catch (Throwable ex) {
+                loading.completeExceptionally(ex);
+            } finally {
+                loadings.remove(loadKey, loading);
+            }
+        };
+        if (async) {
+            try {
+                refreshExecutor.execute(task);
+            } catch (RejectedExecutionException ex) {
+                loadings.remove(loadKey, loading);
+            }
+            return null;
+        }
+        task.run();
+        return join(loading);
+    }
+
+    private static CachedRank join(CompletableFuture<CachedRank> loading) {
+        try {
+            return loading.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * 一次加载的标识：排行榜名称及开始加载时的版本。
+     */
+    static final class LoadKey {
+        final String rankName;
+        final long version;
+
+        LoadKey(String rankName, long version) {
+            this.rankName = rankName;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            LoadKey that = (LoadKey) o;
+            return version == that.version &&
+                    rankName.equals(that.rankName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(rankName, version);
+        }
+    }
+
+    /**
+     * 一份缓存的排行榜前缀。
+     */
+    static final class CachedRank {
+        final List<RankMember> members;
+        final long version;
+        final long loadedAtNanos;
+
+        CachedRank(List<RankMember> members, long version, long loadedAtNanos) {
+            this.members = Collections.unmodifiableList(members);
+            this.version = version;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+
+        /**
+         * @return 成员的拷贝
+         */
+        List<RankMember> subList(int start, int end) {
+            final int fromIndex = Math.min(start - 1, members.size());
+            final int toIndex = Math.min(end, members.size());
+            List<RankMember> copies = new ArrayList<>(Math.max(toIndex - fromIndex, 0));
+            for (RankMember member : members.subList(fromIndex, toIndex)) {
+                copies.add(new RankMember(member.getName(), member.getScore()));
+            }
+            return copies;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import java.util.Objects;
+
+/**
+ * 成员在排行榜中的名次、分值及其前后相邻的成员，来自同一时刻的排行榜。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ * @see RankLab#getNeighborhood(String, String, int, int)
+ */
+public final class RankNeighborhood {
+    private final long rankNumber;
+    private final long score;
+    private final RankPage members;
+    private final int memberIndex;
+
+    RankNeighborhood(long rankNumber, long score, RankPage members, int memberIndex) {
+        this.rankNumber = rankNumber;
+        this.score = score;
+        this.members = Objects.requireNonNull(members, "members must not be null");
+        this.memberIndex = memberIndex;
+    }
+
+    /**
+     * @return 成员的名次，从1开始
+     */
+    public long getRankNumber() {
+        return rankNumber;
+    }
+
+    public long getScore() {
+        return score;
+    }
+
+    /**
+     * @return 按名次排列的相邻成员，包含成员自身
+     */
+    public RankPage getMembers() {
+        return members;
+    }
+
+    /**
+     * @return 成员自身在{@link #getMembers()}中的下标
+     */
+    public int getMemberIndex() {
+        return memberIndex;
+    }
+
+    /**
+     * @return {@link #getMembers()}中第一个成员的名次
+     */
+    public long getStartRankNumber() {
+        return rankNumber - memberIndex;
+    }
+
+    @Override
+    public String toString() {
+        return "RankNeighborhood{" +
+                "rankNumber=" + rankNumber +
+                ", score=" + score +
+                ", members=" + members +
+                ", memberIndex=" + memberIndex +
+                '}';
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.lab.rank.RedisRankLab.RankMember;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 排行榜的一页，按列存储：成员名与分值分别存放在并行的数组中，分值为基本类型{@code long}。
+ *
+ * <p>从 redis 读取的成员名保留原始的字节数组，首次{@link #getName(int) 访问}时才以 UTF-8 解码并缓存，
+ * 只需要部分列（如只导出分值或只处理前几名）时不会解码其余的成员名。
+ *
+ * <p>非线程安全的延迟解码：并发访问同一下标最多导致重复解码，结果相同。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+public final class RankPage {
+    private static final RankPage EMPTY = new RankPage(new byte[0][], new String[0], new long[0]);
+
+    private final byte[][] rawNames;
+    private final String[] names;
+    private final long[] scores;
+
+    private RankPage(byte[][] rawNames, String[] names, long[] scores) {
+        this.rawNames = rawNames;
+        this.names = names;
+        this.scores = scores;
+    }
+
+    /**
+     * @param rawNames UTF-8 编码的成员名，不拷贝
+     * @param scores   与{@code rawNames}等长，不拷贝
+     * @return
+     */
+    static RankPage ofRawNames(byte[][] rawNames, long[] scores) {
+        if (rawNames.length != scores.length) {
+            throw new IllegalArgumentException("rawNames and scores must have the same length");
+        }
+        return rawNames.length == 0 ? EMPTY : new RankPage(rawNames, new String[rawNames.length], scores);
+    }
+
+    /**
+     * @param names  成员名，不拷贝
+     * @param scores 与{@code names}等长，不拷贝
+     * @return
+     */
+    static RankPage ofNames(String[] names, long[] scores) {
+        if (names.length != scores.length) {
+            throw new IllegalArgumentException("names and scores must have the same length");
+        }
+        return names.length == 0 ? EMPTY : new RankPage(null, names, scores);
+    }
+
+    /**
+     * @param names 与本页等长的成员名，不拷贝
+     * @return 分值与本页相同、成员名替换为{@code names}的页
+     */
+    RankPage withNames(String[] names) {
+        return ofNames(names, scores);
+    }
+
+    public static RankPage empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return scores.length;
+    }
+
+    public boolean isEmpty() {
+        return scores.length == 0;
+    }
+
+    /**
+     * @param index 从0开始，第一个为该页的第一名
+     * @return
+     * @throws IndexOutOfBoundsException
+     */
+    public String getName(int index) {
+        String name = names[index];
+        if (Objects.isNull(name)) {
+            name = new String(rawNames[index], StandardCharsets.UTF_8);
+            names[index] = name;
+        }
+        return name;
+    }
+
+    /**
+     * 获取成员名的原始 UTF-8 字节，不拷贝，调用方不要修改。
+     *
+     * @param index 从0开始
+     * @return
+     * @throws IndexOutOfBoundsException
+     */
+    public byte[] getRawName(int index) {
+        if (Objects.isNull(rawNames)) {
+            return names[index].getBytes(StandardCharsets.UTF_8);
+        }
+        return rawNames[index];
+    }
+
+    /**
+     * @param index 从0开始
+     * @return
+     * @throws IndexOutOfBoundsException
+     */
+    public long getScore(int index) {
+        return scores[index];
+    }
+
+    /**
+     * 转换为{@link RankMember}列表。
+     *
+     * @return
+     */
+    public List<RankMember> toRankMembers() {
+        if (isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<RankMember> resultList = new ArrayList<>(scores.length);
+        for (int i = 0; i < scores.length; i++) {
+            resultList.add(new RankMember(getName(i), scores[i]));
+        }
+        return resultList;
+    }
+
+    @Override
+    public String toString() {
+        return toRankMembers().toString();
+    }
+}
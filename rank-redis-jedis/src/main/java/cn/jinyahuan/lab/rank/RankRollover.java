@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import cn.jinyahuan.common.redis.script.LuaScript;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * 排行榜的换季（重置）。
+ *
+ * <p>通过{@link #ROLLOVER_SCRIPT 脚本}将排行榜及其{@link RankWeightComponent 权重序列}原子地 RENAME 为一个归档的排行榜，
+ * 原名称立即成为空的新排行榜，读写都不需要等待；归档的排行榜仍是普通的排行榜，可以继续查询、导出到本地文件，
+ * 最后通过 UNLINK（或分批的 ZREMRANGEBYRANK）删除，不会像 DEL 一个大的 zset 那样长时间阻塞 redis。
+ *
+ * <p>其他 JVM 中已预留的权重序列值不会被丢弃，换季后的最初一段时间，这些 JVM 的同分排名可能排在本 JVM 之前。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+public class RankRollover {
+    /**
+     * KEYS[1] 排行榜的 key；KEYS[2] 归档的排行榜的 key；KEYS[3] 权重序列的 key；KEYS[4] 归档的权重序列的 key。
+     * 返回归档的成员数，归档的 key 已存在时返回错误。
+     */
+    static final LuaScript ROLLOVER_SCRIPT = new LuaScript(
+            "if redis.call('EXISTS', KEYS[2]) == 1 or redis.call('EXISTS', KEYS[4]) == 1 then\n" +
+                    "    return redis.error_reply('rollover target already exists')\n" +
+                    "end\n" +
+                    "local count = 0\n" +
+                    "if redis.call('EXISTS', KEYS[1]) == 1 then\n" +
+                    "    count = redis.call('ZCARD', KEYS[1])\n" +
+                    "    redis.call('RENAME', KEYS[1], KEYS[2])\n" +
+                    "end\n" +
+                    "if redis.call('EXISTS', KEYS[3]) == 1 then\n" +
+                    "    redis.call('RENAME', KEYS[3], KEYS[4])\n" +
+                    "end\n" +
+                    "return count"
+    );
+
+    @Autowired
+    private RedisRankLab redisRankLab;
+    @Autowired
+    private RankWeightComponent rankWeightComponent;
+    @Autowired
+    private RedisComponent redisComponent;
+
+    @Value("${rank.rollover.archiveWindowSize:1000}")
+    private int archiveWindowSize = 1000;
+    @Value("${rank.rollover.removeChunkSize:1000}")
+    private int removeChunkSize = 1000;
+
+    /**
+     * 换季并删除旧的排行榜，需要时先将最终名次导出到本地的归档文件。
+     *
+     * <p>导出失败时保留归档的排行榜（名称见异常信息），可以重新{@link #archive 导出}后再{@link #remove 删除}。
+     *
+     * @param rankName
+     * @param archiveFile 为{@code null}时不导出
+     * @return 导出的成员数，不导出时返回0
+     * @throws NullPointerException
+     * @throws IOException
+     */
+    public long rollover(String rankName, File archiveFile) throws IOException {
+        final String archivedRankName = rollover(rankName);
+        long count = 0;
+        if (Objects.nonNull(archiveFile)) {
+            try {
+                count = archive(archivedRankName, archiveFile);
+            } catch (IOException | RuntimeException ex) {
+                throw new IOException("failed to archive rank, archived rank kept as " + archivedRankName, ex);
+            }
+        }
+        remove(archivedRankName);
+        return count;
+    }
+
+    /**
+     * 换季：将排行榜及其权重序列原子地重命名为归档的排行榜，原名称成为空的新排行榜。
+     *
+     * @param rankName
+     * @return 归档的排行榜名称
+     * @throws NullPointerException
+     */
+    public String rollover(String rankName) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+
+        // 集群的格式中归档的名称带有原排行榜的 hash tag，脚本涉及的4个 key 在同一个 slot 中
+        final RankKeyLayout layout = redisRankLab.getRankKeyLayout();
+        final String archivedRankName = layout.withHashTag(rankName) + ":rollover:" + System.currentTimeMillis();
+        redisComponent.evalSha(ROLLOVER_SCRIPT, ReturnType.INTEGER, 4,
+                layout.getRankKey(rankName), layout.getRankKey(archivedRankName),
+                layout.getWeightKey(rankName), layout.getWeightKey(archivedRankName));
+        rankWeightComponent.discardLease(rankName);
+        redisRankLab.fireRankChanged(rankName);
+        return archivedRankName;
+    }
+
+    /**
+     * 将不再写入的排行榜按名次导出到本地的归档文件，导出失败时删除不完整的文件。
+     *
+     * @param archivedRankName
+     * @param archiveFile
+     * @return 导出的成员数
+     * @throws NullPointerException
+     * @throws IOException
+     * @see RankArchive#read
+     */
+    public long archive(String archivedRankName, File archiveFile) throws IOException {
+        Objects.requireNonNull(archivedRankName, "archivedRankName must not be null");
+
+        try (RankArchive archive = RankArchive.create(archiveFile)) {
+            for (int start = 1; ; start += archiveWindowSize) {
+                RankPage page = redisRankLab.getRankPage(archivedRankName, start, start + archiveWindowSize - 1);
+                archive.append(page);
+                if (page.size() < archiveWindowSize) {
+                    break;
+                }
+            }
+            archive.finish();
+            return archive.getCount();
+        }
+    }
+
+    /**
+     * 不阻塞 redis 地删除归档的排行榜及其权重序列。
+     *
+     * @param archivedRankName
+     * @throws NullPointerException
+     */
+    public void remove(String archivedRankName) {
+        Objects.requireNonNull(archivedRankName, "archivedRankName must not be null");
+
+        final RankKeyLayout layout = redisRankLab.getRankKeyLayout();
+        redisComponent.unlinkSortedSet(layout.getRankKey(archivedRankName), removeChunkSize);
+        redisComponent.del(layout.getWeightKey(archivedRankName));
+    }
+}
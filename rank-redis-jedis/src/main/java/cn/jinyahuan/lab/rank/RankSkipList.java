@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 带跨度（span）的跳表，与 redis 的 zskiplist 一致，按（分值，成员名的字节序）升序排列，
+ * 插入、删除、按成员求名次、按名次取成员都是{@code O(log n)}。
+ *
+ * <p>非线程安全，由调用方加锁。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+final class RankSkipList {
+    static final int MAX_LEVEL = 32;
+
+    /**
+     * 每升一层的概率为 1/4。
+     */
+    private static final int LEVEL_UP_BOUND = 1 << 2;
+
+    private final Node header = new Node(null, 0, MAX_LEVEL);
+    private Node tail;
+    private int level = 1;
+    private int length;
+
+    int size() {
+        return length;
+    }
+
+    /**
+     * 插入一个成员，调用方需保证成员不存在。
+     *
+     * @param score
+     * @param member
+     */
+    void insert(double score, String member) {
+        final Node[] update = new Node[MAX_LEVEL];
+        final int[] rank = new int[MAX_LEVEL];
+
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.forward[i] != null && compare(x.forward[i], score, member) < 0) {
+                rank[i] += x.span[i];
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+
+        final int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = header;
+                update[i].span[i] = length;
+            }
+            level = nodeLevel;
+        }
+
+        x = new Node(member, score, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            x.forward[i] = update[i].forward[i];
+            update[i].forward[i] = x;
+
+            x.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+
+        x.backward = update[0] == header ? null : update[0];
+        if (x.forward[0] != null) {
+            x.forward[0].backward = x;
+        }
+        else {
+            tail = x;
+        }
+        length++;
+    }
+
+    /**
+     * 删除一个成员。
+     *
+     * @param score  成员当前的分值
+     * @param member
+     * @return 是否删除成功
+     */
+    boolean delete(double score, String member) {
+        final Node[] update = new Node[MAX_LEVEL];
+
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && compare(x.forward[i], score, member) < 0) {
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+
+        x = x.forward[0];
+        if (x == null || compare(x, score, member) != 0) {
+            return false;
+        }
+
+        for (int i = 0; i < level; i++) {
+            if (update[i].forward[i] == x) {
+                update[i].span[i] += x.span[i] - 1;
+                update[i].forward[i] = x.forward[i];
+            }
+            else {
+                update[i].span[i] -= 1;
+            }
+        }
+        if (x.forward[0] != null) {
+            x.forward[0].backward = x.backward;
+        }
+        else {
+            tail = x.backward;
+        }
+        while (level > 1 && header.forward[level - 1] == null) {
+            level--;
+        }
+        length--;
+        return true;
+    }
+
+    /**
+     * 求成员的升序名次。
+     *
+     * @param score  成员当前的分值
+     * @param member
+     * @return 从1开始，不存在时返回0
+     */
+    int rank(double score, String member) {
+        int rank = 0;
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && compare(x.forward[i], score, member) <= 0) {
+                rank += x.span[i];
+                x = x.forward[i];
+            }
+            if (x != header && compare(x, score, member) == 0) {
+                return rank;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 求小于指定分值及成员的成员数，指定的成员不需要存在。
+     *
+     * @param score
+     * @param member
+     * @return
+     */
+    int countLessThan(double score, String member) {
+        int count = 0;
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && compare(x.forward[i], score, member) < 0) {
+                count += x.span[i];
+                x = x.forward[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 按升序名次取成员。
+     *
+     * @param rank 从1开始
+     * @return 不存在时返回 null
+     */
+    Node getByRank(int rank) {
+        int traversed = 0;
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.forward[i];
+            }
+            if (traversed == rank) {
+                return x == header ? null : x;
+            }
+        }
+        return null;
+    }
+
+    Node getTail() {
+        return tail;
+    }
+
+    private static int randomLevel() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        int level = 1;
+        while (level < MAX_LEVEL && random.nextInt(LEVEL_UP_BOUND) == 0) {
+            level++;
+        }
+        return level;
+    }
+
+    private static int compare(Node node, double score, String member) {
+        if (node.score < score) {
+            return -1;
+        }
+        if (node.score > score) {
+            return 1;
+        }
+        return compareMember(node.member, member);
+    }
+
+    /**
+     * 按 UTF-8 字节序（即码点顺序）比较成员名，与 redis 的 memcmp 一致。
+     *
+     * @param member1
+     * @param member2
+     * @return
+     */
+    static int compareMember(String member1, String member2) {
+        final int length = Math.min(member1.length(), member2.length());
+        for (int i = 0; i < length; i++) {
+            char c1 = member1.charAt(i);
+            char c2 = member2.charAt(i);
+            if (c1 != c2) {
+                // 代理对（U+D800~U+DFFF）表示的码点大于所有 BMP 字符，调整后按 char 比较即为码点顺序
+                return fixupForCodePointOrder(c1) - fixupForCodePointOrder(c2);
+            }
+        }
+        return member1.length() - member2.length();
+    }
+
+    private static int fixupForCodePointOrder(char c) {
+        if (c >= 0xE000) {
+            return c - 0x800;
+        }
+        if (c >= 0xD800) {
+            return c + 0x2000;
+        }
+        return c;
+    }
+
+    static final class Node {
+        final String member;
+        final double score;
+        final Node[] forward;
+        final int[] span;
+        Node backward;
+
+        Node(String member, double score, int level) {
+            this.member = member;
+            this.score = score;
+            this.forward = new Node[level];
+            this.span = new int[level];
+        }
+    }
+}
@@ -18,19 +18,34 @@ package cn.jinyahuan.lab.rank;
 
 import cn.jinyahuan.common.redis.component.impl.RedisComponent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 排行榜的权重组件，
  *
+ * <p>当{@code rank.weight.blockSize}大于1时，每个 JVM 通过一次{@code INCRBY}向 redis 预留一段连续的权重值（租约），
+ * 之后在本地无锁地发放，剩余{@code 1/4}时提前预留下一段，使权重的 redis 访问次数降为原来的{@code 1/blockSize}。
+ * 此时权重值的保证为：
+ * <ul>
+ * <li>全局唯一，但不一定连续（并发换段时可能丢弃少量预留值）；</li>
+ * <li>同一 JVM 内按发放顺序严格递增；</li>
+ * <li>不同 JVM 之间不保证与请求的先后顺序一致，同分排名只在同一 JVM 内严格先来后到。</li>
+ * </ul>
+ * 需要全局严格有序时保持{@code blockSize}为1，即每次都{@code INCR}。
+ *
  * @author JinYahuan
  * @since 1.0.0
  */
 @Component
 public class RankWeightComponent {
-    static final String KEY_TEMPLATE_WEIGHT = RedisRankLab.KEY_RANK_PREFIX + "%s:weight";
+    static final String KEY_SUFFIX_WEIGHT = ":weight";
 
     /**
      * 周期性权重值的最大值。
@@ -40,27 +55,44 @@ public class RankWeightComponent {
     @Autowired
     private RedisComponent redisComponent;
 
+    @Value("${rank.weight.blockSize:1}")
+    private int blockSize = 1;
+
+    @Autowired(required = false)
+    private RankKeyLayout rankKeyLayout = RankKeyLayout.PLAIN;
+
+    /**
+     * 本 JVM 持有的权重租约，key 为权重的 key。
+     */
+    private final ConcurrentMap<String, WeightLease> leases = new ConcurrentHashMap<>();
+
     /**
      * 检视当前的权重值。
      *
+     * <p>启用预留后，返回的是所有 JVM 已预留的最大权重值，已发放的权重值都不会大于该值。
+     *
      * @param rankName
      * @return
      */
     public long peek(String rankName) {
         Objects.requireNonNull(rankName, "rankName must not be null");
-        String cachedValue = redisComponent.get(getKey(rankName));
+        String cachedValue = redisComponent.get(rankKeyLayout.getWeightKey(rankName));
         return safeToLong(cachedValue, 0);
     }
 
     /**
      * 重新初始化权重值。
      *
+     * <p>同时丢弃本 JVM 尚未发放完的租约，其他 JVM 会在发放完当前租约后从新的初始值继续预留。
+     *
      * @param rankName
      * @param initValue
      * @return
      */
     public void init(String rankName, long initValue) {
-        redisComponent.set(getKey(rankName), String.valueOf(initValue));
+        final String key = rankKeyLayout.getWeightKey(rankName);
+        redisComponent.set(key, String.valueOf(initValue));
+        leases.remove(key);
     }
 
     /**
@@ -70,7 +102,22 @@ public class RankWeightComponent {
      * @return
      */
     public long offer(String rankName) {
-        return redisComponent.incr(getKey(rankName));
+        return offer(RankKey.of(rankName, rankKeyLayout));
+    }
+
+    /**
+     * 提供一个权重值，使用预先计算好的 key。
+     *
+     * @param rankKey
+     * @return
+     * @throws IllegalArgumentException {@code rankKey}的格式与注入的格式不一致
+     */
+    public long offer(RankKey rankKey) {
+        rankKey.checkLayout(rankKeyLayout);
+        if (blockSize <= 1) {
+            return redisComponent.incr(rankKey.getRawWeightKey());
+        }
+        return leases.computeIfAbsent(rankKey.getWeightKey(), k -> new WeightLease()).offer(rankKey);
     }
 
     /**
@@ -94,8 +141,32 @@ public class RankWeightComponent {
         return offer(rankName) % circularLimit;
     }
 
+    /**
+     * 预留一段权重值。
+     *
+     * @param rankKey
+     * @return
+     */
+    WeightBlock reserve(RankKey rankKey) {
+        final long end = redisComponent.incrBy(rankKey.getRawWeightKey(), blockSize);
+        return new WeightBlock(end - blockSize + 1, end);
+    }
+
+    /**
+     * 丢弃本 JVM 中预留的权重序列值，下次从 redis 重新预留。
+     *
+     * @param rankName
+     */
+    void discardLease(String rankName) {
+        leases.remove(rankKeyLayout.getWeightKey(rankName));
+    }
+
+    /**
+     * @param rankName
+     * @return 默认格式的 key，即{@code rank:<rankName>:weight}
+     */
     static String getKey(String rankName) {
-        return String.format(KEY_TEMPLATE_WEIGHT, rankName);
+        return RedisRankLab.getRankKey(rankName) + KEY_SUFFIX_WEIGHT;
     }
 
     static long safeToLong(String str, long defaultValue) {
@@ -108,4 +179,60 @@ public class RankWeightComponent {
             return defaultValue;
         }
     }
+
+    /**
+     * 一段已预留的权重值：[start, end]。
+     */
+    static final class WeightBlock {
+        static final WeightBlock EMPTY = new WeightBlock(1, 0);
+
+        final long start;
+        final long end;
+        final AtomicLong next;
+
+        WeightBlock(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.next = new AtomicLong(start);
+        }
+    }
+
+    /**
+     * 权重租约，当前段发放完后切换到提前预留好的下一段。
+     *
+     * <p>并发时预留的段可能晚于其他线程已经切换到的段，只切换到起始值大于当前段结束值的段，其余的丢弃，
+     * 当前段因此只会向前移动，发放的值严格递增。
+     */
+    final class WeightLease {
+        private final AtomicReference<WeightBlock> current = new AtomicReference<>(WeightBlock.EMPTY);
+        private final AtomicReference<WeightBlock> reserved = new AtomicReference<>();
+
+        /**
+         * 当前段剩余多少个值时提前预留下一段。
+         */
+        private final long reserveAhead = Math.max(1, blockSize >> 2);
+
+        long offer(RankKey key) {
+            for (; ; ) {
+                final WeightBlock block = current.get();
+                final long value = block.next.getAndIncrement();
+                if (value <= block.end) {
+                    // 只有一个线程会拿到这个值，由它提前预留下一段
+                    if (block.end - value == reserveAhead && Objects.isNull(reserved.get())) {
+                        reserved.compareAndSet(null, reserve(key));
+                    }
+                    return value;
+                }
+
+                WeightBlock nextBlock = reserved.getAndSet(null);
+                if (Objects.isNull(nextBlock) || nextBlock.start <= block.end) {
+                    nextBlock = reserve(key);
+                }
+                if (!current.compareAndSet(block, nextBlock) && nextBlock.start > current.get().end) {
+                    // 其他线程已经切换到更早的段，留作下一段
+                    reserved.compareAndSet(null, nextBlock);
+                }
+            }
+        }
+    }
 }
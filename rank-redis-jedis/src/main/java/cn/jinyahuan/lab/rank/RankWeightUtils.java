@@ -21,6 +21,10 @@ import java.math.BigDecimal;
 /**
  * 排行榜权重工具类。
  *
+ * <p>{@code computeXxxAsDouble}系列方法是对应{@link BigDecimal}方法的基本类型版本，
+ * 通过预先计算的 10 的幂次表计算位数，结果与{@code computeXxx(...).doubleValue()}逐位相同，
+ * 在权重值小于{@code 2^52}且总小数位数不超过 22 时不会产生任何对象分配。
+ *
  * @author JinYahuan
  * @since 1.0.0
  */
@@ -33,6 +37,52 @@ public final class RankWeightUtils {
      */
     private static final int DEFAULT_DECIMAL_PLACES = 2;
 
+    /**
+     * 最大的小数位（精度）值。
+     */
+    private static final int MAX_DECIMAL_PLACES = 10;
+
+    /**
+     * 10 的 0~19 次幂，其中 10^19 超出了{@code long}的范围，保存的是溢出后的值，仅用于求补（结果不会溢出）。
+     */
+    private static final long[] LONG_POWERS_OF_TEN = {
+            1L,
+            10L,
+            100L,
+            1_000L,
+            10_000L,
+            100_000L,
+            1_000_000L,
+            10_000_000L,
+            100_000_000L,
+            1_000_000_000L,
+            10_000_000_000L,
+            100_000_000_000L,
+            1_000_000_000_000L,
+            10_000_000_000_000L,
+            100_000_000_000_000L,
+            1_000_000_000_000_000L,
+            10_000_000_000_000_000L,
+            100_000_000_000_000_000L,
+            1_000_000_000_000_000_000L,
+            // 10^19 - 2^64
+            -8_446_744_073_709_551_616L
+    };
+
+    /**
+     * 可以用{@code double}精确表示的 10 的 0~22 次幂。
+     */
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+            1e21, 1e22
+    };
+
+    /**
+     * 小于该值的整数转换成{@code double}时没有精度损失（与{@link BigDecimal#doubleValue()}的快速路径一致）。
+     */
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 52;
+
     /**
      * 计算权重（无需额外保留小数位，即所有小数位都可以为权重）。
      *
@@ -71,7 +121,7 @@ public final class RankWeightUtils {
      */
     public static BigDecimal computeWeight(long weightValue, int decimalPlaces) {
         if (weightValue <= 0
-                || (decimalPlaces < 0 || decimalPlaces > 10)) {
+                || (decimalPlaces < 0 || decimalPlaces > MAX_DECIMAL_PLACES)) {
             return BigDecimal.ZERO;
         }
 
@@ -123,6 +173,72 @@ public final class RankWeightUtils {
         return BigDecimal.ZERO;
     }
 
+    /**
+     * 计算权重，结果与{@link #computeWeight(long, int)}{@code .doubleValue()}相同。
+     *
+     * @param weightValue   权重值，该值越大最终的权重越大。weightValue <= 0 时返回 0
+     * @param decimalPlaces 需要保留的小数位，即该小数位数不能用于计算权重。取值范围为：0 < decimalPlaces <= 10，非此区间返回 0
+     * @return
+     * @see #computeWeight(long, int)
+     * @see #computeReverseWeightAsDouble(long, int)
+     */
+    public static double computeWeightAsDouble(long weightValue, int decimalPlaces) {
+        if (weightValue <= 0
+                || (decimalPlaces < 0 || decimalPlaces > MAX_DECIMAL_PLACES)) {
+            return 0;
+        }
+        return toDouble(weightValue, countDigits(weightValue) + decimalPlaces);
+    }
+
+    /**
+     * 计算与{@link #computeWeightAsDouble(long, int)}互补十进制进一位的权重，
+     * 结果与{@link #computeReverseWeight(long, int)}{@code .doubleValue()}相同。
+     *
+     * @param weightValue   权重值，该值越大最终的权重越小。weightValue <= 0 时返回 0
+     * @param decimalPlaces 需要保留的小数位，即该小数位数不能用于计算权重。取值范围为：0 < decimalPlaces <= 10，非此区间返回 0
+     * @return
+     * @see #computeReverseWeight(long, int)
+     * @see #computeWeightAsDouble(long, int)
+     */
+    public static double computeReverseWeightAsDouble(long weightValue, int decimalPlaces) {
+        if (weightValue <= 0
+                || (decimalPlaces < 0 || decimalPlaces > MAX_DECIMAL_PLACES)) {
+            return 0;
+        }
+        final int digits = countDigits(weightValue);
+        // 10^digits - weightValue 必定在 long 的范围内
+        return toDouble(LONG_POWERS_OF_TEN[digits] - weightValue, digits + decimalPlaces);
+    }
+
+    /**
+     * 计算正整数的十进制位数。
+     *
+     * @param positiveValue 正整数
+     * @return 1~19
+     */
+    static int countDigits(long positiveValue) {
+        int digits = 1;
+        while (digits < 19 && positiveValue >= LONG_POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * 计算{@code unscaledValue * 10^-scale}的{@code double}值，与{@link BigDecimal#doubleValue()}一样为正确舍入的结果。
+     *
+     * @param unscaledValue 非负整数
+     * @param scale         小数位数
+     * @return
+     */
+    static double toDouble(long unscaledValue, int scale) {
+        if (unscaledValue < EXACT_DOUBLE_LIMIT && scale < DOUBLE_POWERS_OF_TEN.length) {
+            // 被除数与除数都能精确表示，IEEE 754 的除法保证结果是正确舍入的
+            return unscaledValue / DOUBLE_POWERS_OF_TEN[scale];
+        }
+        return BigDecimal.valueOf(unscaledValue, scale).doubleValue();
+    }
+
     /**
      * 获取默认的小数位（精度）值。
      *
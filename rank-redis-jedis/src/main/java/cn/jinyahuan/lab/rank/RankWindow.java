@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import java.time.DayOfWeek;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * 时间窗口排行榜的窗口。
+ *
+ * <p>写入只落在{@link #HOUR 小时}桶中，更大的窗口由其下一级的窗口汇总而来。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ * @see WindowedRankLab
+ */
+public enum RankWindow {
+    HOUR("h", DateTimeFormatter.ofPattern("yyyyMMddHH")) {
+        @Override
+        ZonedDateTime truncate(ZonedDateTime time) {
+            return time.truncatedTo(ChronoUnit.HOURS);
+        }
+
+        @Override
+        ZonedDateTime next(ZonedDateTime start) {
+            return start.plusHours(1);
+        }
+
+        @Override
+        RankWindow child() {
+            return null;
+        }
+    },
+    DAY("d", DateTimeFormatter.ofPattern("yyyyMMdd")) {
+        @Override
+        ZonedDateTime truncate(ZonedDateTime time) {
+            return time.truncatedTo(ChronoUnit.DAYS);
+        }
+
+        @Override
+        ZonedDateTime next(ZonedDateTime start) {
+            return start.plusDays(1);
+        }
+
+        @Override
+        RankWindow child() {
+            return HOUR;
+        }
+    },
+    /**
+     * 自然周，从周一开始。
+     */
+    WEEK("w", null) {
+        @Override
+        ZonedDateTime truncate(ZonedDateTime time) {
+            return time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+
+        @Override
+        ZonedDateTime next(ZonedDateTime start) {
+            return start.plusWeeks(1);
+        }
+
+        @Override
+        RankWindow child() {
+            return DAY;
+        }
+
+        @Override
+        String format(ZonedDateTime start) {
+            // ISO 周的年份及周数，与区域设置无关
+            return String.format("%04dW%02d",
+                    start.get(IsoFields.WEEK_BASED_YEAR),
+                    start.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+        }
+    };
+
+    private final String code;
+    private final DateTimeFormatter formatter;
+
+    RankWindow(String code, DateTimeFormatter formatter) {
+        this.code = code;
+        this.formatter = formatter;
+    }
+
+    /**
+     * @param time
+     * @return {@code time}所在窗口的开始时间
+     */
+    abstract ZonedDateTime truncate(ZonedDateTime time);
+
+    /**
+     * @param start 窗口的开始时间
+     * @return 下一个窗口的开始时间，即本窗口的结束时间（不含）
+     */
+    abstract ZonedDateTime next(ZonedDateTime start);
+
+    /**
+     * @return 汇总成本窗口的下一级窗口，{@link #HOUR}返回{@code null}
+     */
+    abstract RankWindow child();
+
+    String getCode() {
+        return code;
+    }
+
+    /**
+     * @param start 窗口的开始时间
+     * @return 窗口在排行榜名称中的标识
+     */
+    String format(ZonedDateTime start) {
+        return start.format(formatter);
+    }
+}
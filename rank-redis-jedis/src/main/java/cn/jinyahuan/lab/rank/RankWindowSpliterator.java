@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.lab.rank.RedisRankLab.RankMember;
+
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * 按固定大小的窗口逐页读取整个排行榜的{@link Spliterator}，从第一名开始。
+ *
+ * <p>内存中最多持有两个窗口：正在遍历的窗口和后台预取的下一个窗口。
+ * 取到的窗口不足{@code windowSize}时认为已到榜尾。
+ *
+ * <p>窗口之间按名次偏移读取，遍历期间排行榜发生变化时，可能重复或遗漏成员；需要一致的结果时，应遍历不再写入的排行榜。
+ *
+ * <p>非线程安全，不支持拆分。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+class RankWindowSpliterator implements Spliterator<RankMember>, AutoCloseable {
+    private final RankLab rankLab;
+    private final String rankName;
+    private final int windowSize;
+    /**
+     * 为{@code null}时在调用线程中同步读取。
+     */
+    private final Executor prefetchExecutor;
+
+    private RankPage page = RankPage.empty();
+    private int index;
+    /**
+     * 下一个窗口的开始名次，从1开始。
+     */
+    private int nextStart = 1;
+    private CompletableFuture<RankPage> prefetch;
+    private boolean exhausted;
+
+    RankWindowSpliterator(RankLab rankLab, String rankName, int windowSize, Executor prefetchExecutor) {
+        Objects.requireNonNull(rankLab, "rankLab must not be null");
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be greater than 0");
+        }
+        this.rankLab = rankLab;
+        this.rankName = rankName;
+        this.windowSize = windowSize;
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super RankMember> action) {
+        Objects.requireNonNull(action, "action must not be null");
+        if (index >= page.size() && !nextPage()) {
+            return false;
+        }
+        action.accept(new RankMember(page.getName(index), page.getScore(index)));
+        index++;
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super RankMember> action) {
+        Objects.requireNonNull(action, "action must not be null");
+        do {
+            final RankPage current = page;
+            for (int size = current.size(); index < size; index++) {
+                action.accept(new RankMember(current.getName(index), current.getScore(index)));
+            }
+        }
+        while (nextPage());
+    }
+
+    /**
+     * 切换到下一个窗口，并预取再下一个窗口。
+     *
+     * @return 是否还有数据
+     */
+    private boolean nextPage() {
+        if (exhausted) {
+            page = RankPage.empty();
+            return false;
+        }
+        RankPage next;
+        if (Objects.isNull(prefetch)) {
+            next = fetch(nextStart);
+        }
+        else {
+            try {
+                next = prefetch.join();
+            } catch (CompletionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw ex;
+            } finally {
+                prefetch = null;
+            }
+        }
+        nextStart += windowSize;
+        page = next;
+        index = 0;
+
+        if (next.size() < windowSize || nextStart <= 0) {
+            exhausted = true;
+        }
+        else if (Objects.nonNull(prefetchExecutor)) {
+            final int start = nextStart;
+            prefetch = CompletableFuture.supplyAsync(() -> fetch(start), prefetchExecutor);
+        }
+        return !next.isEmpty();
+    }
+
+    private RankPage fetch(int start) {
+        return rankLab.getRankPage(rankName, start, start + windowSize - 1);
+    }
+
+    @Override
+    public Spliterator<RankMember> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    /**
+     * 放弃尚未完成的预取。
+     */
+    @Override
+    public void close() {
+        exhausted = true;
+        page = RankPage.empty();
+        if (Objects.nonNull(prefetch)) {
+            prefetch.cancel(false);
+            prefetch = null;
+        }
+    }
+}
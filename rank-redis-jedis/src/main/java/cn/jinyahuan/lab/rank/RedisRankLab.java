@@ -17,14 +17,28 @@
 package cn.jinyahuan.lab.rank;
 
 import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import cn.jinyahuan.common.redis.script.LuaScript;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.ReturnType;
 import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 排行榜 redis 实现的实验室。
@@ -33,13 +47,149 @@ import java.util.*;
  * @since 1.0.0
  */
 @Component
-public class RedisRankLab {
+public class RedisRankLab implements RankLab, DisposableBean {
     static final String KEY_RANK_PREFIX = "rank:";
+    /**
+     * {@link LexScoreCodec 字典序}排行榜的索引 hash（成员名 -> 编码值）的 key 后缀。
+     */
+    static final String KEY_SUFFIX_LEX_INDEX = ":lex";
 
     private static final RoundingMode DEFAULT_ROUNDING_MODE = RoundingMode.HALF_UP;
 
+    /**
+     * 带权重加入排行榜的脚本，在服务端一次完成“读取旧权重、扣除旧权重、加上分值及新权重”，
+     * 与{@link #getScoreWeight(Double)}的权重计算方式一致。
+     *
+     * <p>KEYS[1] 排行榜的 key；ARGV[1] 成员；ARGV[2] 分值；ARGV[3] 权重。返回累加后的总分值。
+     */
+    static final LuaScript JOIN_RANK_SCRIPT = new LuaScript(
+            "local increment = tonumber(ARGV[2]) + tonumber(ARGV[3])\n" +
+                    "local old = tonumber(redis.call('ZSCORE', KEYS[1], ARGV[1]))\n" +
+                    "if old and old ~= 0 then\n" +
+                    "    local absOld = math.abs(old)\n" +
+                    "    local oldWeight = absOld - math.floor(absOld)\n" +
+                    "    if oldWeight > 0 then\n" +
+                    "        increment = increment - oldWeight\n" +
+                    "    end\n" +
+                    "end\n" +
+                    "return redis.call('ZINCRBY', KEYS[1], increment, ARGV[1])"
+    );
+
+    /**
+     * 按{@link ScoreCodec}加入排行榜的脚本，在服务端一次完成“扣除旧的同分排名部分、加上编码后的分值”。
+     *
+     * <p>KEYS[1] 排行榜的 key；ARGV[1] 成员；ARGV[2] 编码后的分值；ARGV[3] {@link ScoreCodec#getTieBreakUnit()}。
+     * 返回累加后的编码分值。
+     */
+    static final LuaScript JOIN_RANK_TIE_BREAK_SCRIPT = new LuaScript(
+            "local unit = tonumber(ARGV[3])\n" +
+                    "local increment = tonumber(ARGV[2])\n" +
+                    "local old = tonumber(redis.call('ZSCORE', KEYS[1], ARGV[1]))\n" +
+                    "if old then\n" +
+                    "    increment = increment - (old - math.floor(old / unit) * unit)\n" +
+                    "end\n" +
+                    "return redis.call('ZINCRBY', KEYS[1], increment, ARGV[1])"
+    );
+
+    /**
+     * 获取成员名次及相邻成员的脚本，保证名次、分值与相邻成员来自同一时刻。
+     *
+     * <p>KEYS[1] 排行榜的 key；ARGV[1] 成员；ARGV[2] 之前的成员数；ARGV[3] 之后的成员数。
+     * 成员不存在时返回 nil，否则返回{@code [名次(从0开始), 成员1, 分值1, 成员2, 分值2, ...]}。
+     */
+    static final LuaScript NEIGHBORHOOD_SCRIPT = new LuaScript(
+            "local rank = redis.call('ZREVRANK', KEYS[1], ARGV[1])\n" +
+                    "if not rank then\n" +
+                    "    return nil\n" +
+                    "end\n" +
+                    "local start = math.max(rank - tonumber(ARGV[2]), 0)\n" +
+                    "local result = redis.call('ZREVRANGE', KEYS[1], start, rank + tonumber(ARGV[3]), 'WITHSCORES')\n" +
+                    "table.insert(result, 1, rank)\n" +
+                    "return result"
+    );
+
+    /**
+     * 设置{@link LexScoreCodec 字典序}排行榜成员分值的脚本，在服务端一次完成“移除旧的编码值、写入新的编码值及索引”。
+     *
+     * <p>KEYS[1] 排行榜的 key；KEYS[2] 索引的 key；ARGV[1] 成员名；ARGV[2] 编码值。成员是新加入的返回1，否则返回0。
+     */
+    static final LuaScript SET_LEX_RANK_SCRIPT = new LuaScript(
+            "local old = redis.call('HGET', KEYS[2], ARGV[1])\n" +
+                    "if old then\n" +
+                    "    redis.call('ZREM', KEYS[1], old)\n" +
+                    "end\n" +
+                    "redis.call('ZADD', KEYS[1], 0, ARGV[2])\n" +
+                    "redis.call('HSET', KEYS[2], ARGV[1], ARGV[2])\n" +
+                    "if old then\n" +
+                    "    return 0\n" +
+                    "end\n" +
+                    "return 1"
+    );
+
+    /**
+     * 获取{@link LexScoreCodec 字典序}排行榜成员名次的脚本。
+     *
+     * <p>KEYS[1] 排行榜的 key；KEYS[2] 索引的 key；ARGV[1] 成员名。返回从0开始的名次，成员不存在时返回-1。
+     */
+    static final LuaScript LEX_RANK_NUMBER_SCRIPT = new LuaScript(
+            "local encoded = redis.call('HGET', KEYS[2], ARGV[1])\n" +
+                    "local rank = encoded and redis.call('ZREVRANK', KEYS[1], encoded)\n" +
+                    "if not rank then\n" +
+                    "    return -1\n" +
+                    "end\n" +
+                    "return rank"
+    );
+
+    /**
+     * 按字典序范围降序获取成员的脚本，即{@code ZREVRANGEBYLEX}（spring-data-redis 1.7 及 jedis 2.6 中没有该命令）。
+     *
+     * <p>KEYS[1] 排行榜的 key；ARGV[1] 上界；ARGV[2] 下界；ARGV[3] 最多返回的成员数。
+     */
+    static final LuaScript LEX_RANGE_SCRIPT = new LuaScript(
+            "return redis.call('ZREVRANGEBYLEX', KEYS[1], ARGV[1], ARGV[2], 'LIMIT', 0, ARGV[3])"
+    );
+
     @Autowired
     private RedisComponent redisComponent;
+    @Autowired
+    private MemberDictionary memberDictionary;
+
+    /**
+     * 是否通过{@link MemberDictionary 成员名字典}在 zset 中只保存成员的编号。
+     *
+     * <p>启用前后写入的排行榜不能混用；同分时按编号而不是成员名排序。
+     */
+    @Value("${rank.dict.enabled:false}")
+    private boolean memberDictionaryEnabled;
+
+    /**
+     * 分值的编解码器，默认与{@link #joinRank(String, String, long, double) 小数权重}的存储方式一致。
+     */
+    @Autowired(required = false)
+    private ScoreCodec scoreCodec = DecimalScoreCodec.DEFAULT;
+
+    /**
+     * 排行榜的 key 格式，默认为{@link RankKeyLayout#PLAIN}。
+     */
+    @Autowired(required = false)
+    private RankKeyLayout rankKeyLayout = RankKeyLayout.PLAIN;
+
+    /**
+     * 排行榜变化的监听器，在本 JVM 写入排行榜后被通知。
+     */
+    @Autowired(required = false)
+    private List<RankChangeListener> rankChangeListeners = Collections.emptyList();
+
+    /**
+     * 遍历整个排行榜时预取下一个窗口的最大线程数，线程都忙时由调用的线程自己执行。
+     */
+    @Value("${rank.scan.prefetchThreads:4}")
+    private int scanPrefetchThreads = 4;
+
+    /**
+     * 遍历整个排行榜时用于预取下一个窗口的线程池，第一次使用时创建。
+     */
+    private volatile ExecutorService rankScanExecutor;
 
     /**
      * <p>由于 zset 中 score 是以双精度的浮点数存储，相当于 java 中的{@link Double}。
@@ -54,6 +204,12 @@ public class RedisRankLab {
      * <p>建议总数位14位进行自行设计分值位数及权重位数。当需要权重时，建议至少2位（其中1位位保留精度位，即0.0x）。
      * 推荐分值位9位(值小于2^31-1也行)，权重位6位（权重需要循环使用了），经测试很稳定。
      *
+     * <p>{@code weight}不为0时通过{@link #JOIN_RANK_SCRIPT 脚本}在服务端原子地替换权重，
+     * 同一成员的并发加入不会重复扣除同一个旧权重。
+     *
+     * <p>小数权重的方式只适用于{@link DecimalScoreCodec}，使用其他编解码器时{@code weight}需为0（分值按编解码器编码后累加），
+     * 需要无损的同分排名时使用{@link #joinRankWithTieBreak}。
+     *
      * @param rankName
      * @param memberName
      * @param score      分值
@@ -63,27 +219,254 @@ public class RedisRankLab {
      * otherwise return {@code member} real rank score
      * @throws NullPointerException
      * @throws IllegalArgumentException
+     * @throws IllegalStateException    {@code weight}不为0且编解码器不是{@link DecimalScoreCodec}
      */
+    @Override
     public Long joinRank(String rankName, String memberName, long score, BigDecimal weight) {
+        Objects.requireNonNull(weight, "weight must not be null");
+        return joinRank(rankName, memberName, score, weight.doubleValue());
+    }
+
+    /**
+     * 与{@link #joinRank(String, String, long, BigDecimal)}相同，权重以{@code double}表示，
+     * 可配合{@link RankWeightUtils#computeWeightAsDouble(long, int)}使用，避免创建{@link BigDecimal}。
+     *
+     * @param rankName
+     * @param memberName
+     * @param score      分值
+     * @param weight     同分时排名的权重，取值范围为(-1,1)
+     * @return 上一次的分值：
+     * {@code null}, if rank not exist or {@code member} not in rank;
+     * otherwise return {@code member} real rank score
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     * @see #joinRank(String, String, long, BigDecimal)
+     */
+    @Override
+    public Long joinRank(String rankName, String memberName, long score, double weight) {
         checkParamsForJoinRank(rankName, memberName, score, weight);
+        return joinRank(RankKey.of(rankName, rankKeyLayout), memberName, score, weight);
+    }
+
+    /**
+     * 与{@link #joinRank(String, String, long, double)}相同，使用预先计算好的 key。
+     *
+     * @param rankKey
+     * @param memberName
+     * @param score      分值
+     * @param weight     同分时排名的权重，取值范围为(-1,1)
+     * @return 上一次的分值
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     */
+    public Long joinRank(RankKey rankKey, String memberName, long score, double weight) {
+        Objects.requireNonNull(rankKey, "rankKey must not be null").checkLayout(rankKeyLayout);
+        checkParamsForJoinRank(rankKey.getRankName(), memberName, score, weight);
+
+        final ScoreCodec codec = scoreCodec;
+        final byte[] member = toStoredMember(memberName).getBytes(StandardCharsets.UTF_8);
+
+        Double totalScore;
+        if (weight != 0) {
+            checkDecimalWeight(codec);
+            // 扣除上一次的分值的权重并加上（真实分值+权重值），在服务端原子地完成，只需一次网络往返
+            totalScore = parseScore(redisComponent.evalSha(JOIN_RANK_SCRIPT, ReturnType.VALUE, 1,
+                    rankKey.getRawKey(), member,
+                    String.valueOf(score).getBytes(StandardCharsets.UTF_8),
+                    String.valueOf(weight).getBytes(StandardCharsets.UTF_8)));
+        }
+        else {
+            totalScore = redisComponent.zIncrBy(rankKey.getRawKey(), member, codec.encodeIncrement(score));
+        }
+        fireRankChanged(rankKey.getRankName());
+        return Objects.isNull(totalScore) ? null : codec.decodeScore(totalScore);
+    }
+
+    /**
+     * 按{@link #getScoreCodec() 编解码器}加入排行榜，分值累加，同分排名值替换为{@code tieBreak}。
+     *
+     * <p>使用{@link PackedScoreCodec}时，分值及同分排名值在其范围内都是无损的。
+     *
+     * @param rankName
+     * @param memberName
+     * @param score      需要累加的分值
+     * @param tieBreak   同分排名值，该值越大同分时排名越靠前
+     * @return 累加后的分值
+     * @throws NullPointerException
+     * @throws IllegalArgumentException 超出编解码器能表示的范围
+     */
+    @Override
+    public Long joinRankWithTieBreak(String rankName, String memberName, long score, long tieBreak) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        return joinRankWithTieBreak(RankKey.of(rankName, rankKeyLayout), memberName, score, tieBreak);
+    }
+
+    /**
+     * 与{@link #joinRankWithTieBreak(String, String, long, long)}相同，使用预先计算好的 key。
+     *
+     * @param rankKey
+     * @param memberName
+     * @param score      需要累加的分值
+     * @param tieBreak   同分排名值，该值越大同分时排名越靠前
+     * @return 累加后的分值
+     * @throws NullPointerException
+     * @throws IllegalArgumentException 超出编解码器能表示的范围
+     */
+    public Long joinRankWithTieBreak(RankKey rankKey, String memberName, long score, long tieBreak) {
+        Objects.requireNonNull(rankKey, "rankKey must not be null").checkLayout(rankKeyLayout);
+        Objects.requireNonNull(memberName, "memberName must not be null");
+
+        final ScoreCodec codec = scoreCodec;
+        final double encodedScore = codec.encode(score, tieBreak);
+        Double totalScore = parseScore(redisComponent.evalSha(JOIN_RANK_TIE_BREAK_SCRIPT, ReturnType.VALUE, 1,
+                rankKey.getRawKey(), toStoredMember(memberName).getBytes(StandardCharsets.UTF_8),
+                String.valueOf(encodedScore).getBytes(StandardCharsets.UTF_8),
+                String.valueOf(codec.getTieBreakUnit()).getBytes(StandardCharsets.UTF_8)));
+        fireRankChanged(rankKey.getRankName());
+        return Objects.isNull(totalScore) ? null : codec.decodeScore(totalScore);
+    }
+
+    /**
+     * 批量加入排行榜（不带权重），所有成员的分值通过一个连接以 pipeline 的方式累加，只需一次网络往返。
+     *
+     * @param rankName
+     * @param memberScores 成员及其需要累加的分值，需要与返回值对应时请使用有序的 map（如{@link LinkedHashMap}）
+     * @return 按{@code memberScores}的迭代顺序返回累加后的分值
+     * @throws NullPointerException
+     */
+    public List<Long> joinRankBatch(String rankName, Map<String, Long> memberScores) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        return joinRankBatch(RankKey.of(rankName, rankKeyLayout), memberScores);
+    }
 
-        final String rankKey = getRankKey(rankName);
+    /**
+     * 与{@link #joinRankBatch(String, Map)}相同，使用预先计算好的 key。
+     *
+     * @param rankKey
+     * @param memberScores 成员及其需要累加的分值，需要与返回值对应时请使用有序的 map（如{@link LinkedHashMap}）
+     * @return 按{@code memberScores}的迭代顺序返回累加后的分值
+     * @throws NullPointerException
+     */
+    public List<Long> joinRankBatch(RankKey rankKey, Map<String, Long> memberScores) {
+        Objects.requireNonNull(rankKey, "rankKey must not be null").checkLayout(rankKeyLayout);
+        Objects.requireNonNull(memberScores, "memberScores must not be null");
+
+        final ScoreCodec codec = scoreCodec;
+        final Iterator<String> members = toStoredMembers(memberScores.keySet()).iterator();
+        Map<String, Double> increments = new LinkedHashMap<>(memberScores.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Long> entry : memberScores.entrySet()) {
+            increments.put(members.next(), codec.encodeIncrement(entry.getValue()));
+        }
+        List<Double> totalScores = redisComponent.zIncrByBatch(rankKey.getKey(), increments);
+        fireRankChanged(rankKey.getRankName());
+        return decodeScores(totalScores);
+    }
+
+    /**
+     * 批量加入多个排行榜（不带权重），所有排行榜的所有成员通过一个连接以 pipeline 的方式累加，只需一次网络往返。
+     *
+     * <p>集群的格式中各个排行榜通常在不同的 slot 中，仍然只用一个管道：客户端没有集群的连接（见 spring-redis.xml），
+     * 需通过按 slot 转发的代理连接集群，由代理将管道中的命令分发到各个节点。
+     *
+     * @param rankMemberScores 排行榜名称 -> (成员 -> 需要累加的分值)
+     * @return 按迭代顺序依次返回每个排行榜每个成员累加后的分值
+     * @throws NullPointerException
+     */
+    public List<Long> joinRankBatch(Map<String, ? extends Map<String, Long>> rankMemberScores) {
+        Objects.requireNonNull(rankMemberScores, "rankMemberScores must not be null");
 
-        double finalAdditiveScore = (double) score;
-        if (weight.doubleValue() != 0) {
-            // 需要加上的分值（真实分值+权重值）
-            BigDecimal dScore = BigDecimal.valueOf(score).add(weight);
+        List<String> memberNames = new ArrayList<>();
+        for (Map<String, Long> memberScores : rankMemberScores.values()) {
+            memberNames.addAll(memberScores.keySet());
+        }
+        final ScoreCodec codec = scoreCodec;
+        final Iterator<String> members = toStoredMembers(memberNames).iterator();
 
-            final double oldScoreWeight = getScoreWeight(doGetRankScore(rankName, memberName));
-            if (oldScoreWeight > 0) {
-                // 扣除上一次的分值的权重
-                dScore = dScore.subtract(BigDecimal.valueOf(oldScoreWeight));
+        Map<String, Map<String, Double>> keyIncrements = new LinkedHashMap<>(rankMemberScores.size() * 4 / 3 + 1);
+        for (Map.Entry<String, ? extends Map<String, Long>> rankEntry : rankMemberScores.entrySet()) {
+            Objects.requireNonNull(rankEntry.getKey(), "rankName must not be null");
+            Map<String, Double> increments = new LinkedHashMap<>(rankEntry.getValue().size() * 4 / 3 + 1);
+            for (Map.Entry<String, Long> entry : rankEntry.getValue().entrySet()) {
+                increments.put(members.next(), codec.encodeIncrement(entry.getValue()));
             }
-            finalAdditiveScore = dScore.doubleValue();
+            keyIncrements.put(rankKeyLayout.getRankKey(rankEntry.getKey()), increments);
         }
+        List<Double> totalScores = redisComponent.zIncrByBatch(keyIncrements);
+        rankMemberScores.keySet().forEach(this::fireRankChanged);
+        return decodeScores(totalScores);
+    }
 
-        Double totalScore = redisComponent.zIncrBy(rankKey, memberName, finalAdditiveScore);
-        return Objects.isNull(totalScore) ? null : totalScore.longValue();
+    /**
+     * 批量获取成员在{@code rankName}榜的分数，只需一次网络往返。
+     *
+     * @param rankName
+     * @param memberNames
+     * @return 按{@code memberNames}的迭代顺序返回分数，成员不在榜中时对应位置为{@code null}
+     * @throws NullPointerException
+     */
+    public List<Long> getRankScores(String rankName, Collection<String> memberNames) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        return getRankScores(RankKey.of(rankName, rankKeyLayout), memberNames);
+    }
+
+    /**
+     * 与{@link #getRankScores(String, Collection)}相同，使用预先计算好的 key。
+     *
+     * @param rankKey
+     * @param memberNames
+     * @return 按{@code memberNames}的迭代顺序返回分数，成员不在榜中时对应位置为{@code null}
+     * @throws NullPointerException
+     */
+    public List<Long> getRankScores(RankKey rankKey, Collection<String> memberNames) {
+        Objects.requireNonNull(rankKey, "rankKey must not be null").checkLayout(rankKeyLayout);
+        Objects.requireNonNull(memberNames, "memberNames must not be null");
+
+        if (!memberDictionaryEnabled) {
+            return decodeScores(redisComponent.zScoreBatch(rankKey.getKey(), memberNames));
+        }
+        final List<String> members = findStoredMembers(memberNames);
+        return decodeScores(expandMissing(members,
+                redisComponent.zScoreBatch(rankKey.getKey(), withoutMissing(members))));
+    }
+
+    /**
+     * 批量获取成员在{@code rankName}榜的排名，只需一次网络往返。
+     *
+     * @param rankName
+     * @param memberNames
+     * @return 按{@code memberNames}的迭代顺序返回排名，成员不在榜中时对应位置为{@code null}
+     * @throws NullPointerException
+     */
+    public List<Long> getRankNumbers(String rankName, Collection<String> memberNames) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        return getRankNumbers(RankKey.of(rankName, rankKeyLayout), memberNames);
+    }
+
+    /**
+     * 与{@link #getRankNumbers(String, Collection)}相同，使用预先计算好的 key。
+     *
+     * @param rankKey
+     * @param memberNames
+     * @return 按{@code memberNames}的迭代顺序返回排名，成员不在榜中时对应位置为{@code null}
+     * @throws NullPointerException
+     */
+    public List<Long> getRankNumbers(RankKey rankKey, Collection<String> memberNames) {
+        Objects.requireNonNull(rankKey, "rankKey must not be null").checkLayout(rankKeyLayout);
+        Objects.requireNonNull(memberNames, "memberNames must not be null");
+
+        List<Long> rankNums;
+        if (!memberDictionaryEnabled) {
+            rankNums = redisComponent.zRevrankBatch(rankKey.getKey(), memberNames);
+        }
+        else {
+            final List<String> members = findStoredMembers(memberNames);
+            rankNums = expandMissing(members, redisComponent.zRevrankBatch(rankKey.getKey(), withoutMissing(members)));
+        }
+        List<Long> resultList = new ArrayList<>(rankNums.size());
+        for (Long rankNum : rankNums) {
+            resultList.add(Objects.isNull(rankNum) ? null : rankNum + 1);
+        }
+        return resultList;
     }
 
     /**
@@ -95,9 +478,24 @@ public class RedisRankLab {
      * otherwise return {@code memberName} rank score
      * @throws NullPointerException
      */
+    @Override
     public Long getRankScore(String rankName, String memberName) {
         Double score = doGetRankScore(rankName, memberName);
-        return Objects.isNull(score) ? null : score.longValue();
+        return Objects.isNull(score) ? null : scoreCodec.decodeScore(score);
+    }
+
+    /**
+     * 与{@link #getRankScore(String, String)}相同，使用预先计算好的 key。
+     *
+     * @param rankKey
+     * @param memberName
+     * @return
+     * @throws NullPointerException
+     */
+    public Long getRankScore(RankKey rankKey, String memberName) {
+        Objects.requireNonNull(rankKey, "rankKey must not be null").checkLayout(rankKeyLayout);
+        Double score = doGetRankScore(rankKey, memberName);
+        return Objects.isNull(score) ? null : scoreCodec.decodeScore(score);
     }
 
     /**
@@ -109,14 +507,99 @@ public class RedisRankLab {
      * otherwise return {@code memberName} real rank number
      * @throws NullPointerException
      */
+    @Override
     public Long getRankNumber(String rankName, String memberName) {
         Objects.requireNonNull(rankName, "rankName must not be null");
+        return getRankNumber(RankKey.of(rankName, rankKeyLayout), memberName);
+    }
+
+    /**
+     * 与{@link #getRankNumber(String, String)}相同，使用预先计算好的 key。
+     *
+     * @param rankKey
+     * @param memberName
+     * @return
+     * @throws NullPointerException
+     */
+    public Long getRankNumber(RankKey rankKey, String memberName) {
+        Objects.requireNonNull(rankKey, "rankKey must not be null").checkLayout(rankKeyLayout);
         Objects.requireNonNull(memberName, "memberName must not be null");
 
-        Long rankNum = redisComponent.zRevrank(getRankKey(rankName), memberName);
+        final String member = findStoredMember(memberName);
+        if (Objects.isNull(member)) {
+            return null;
+        }
+        Long rankNum = redisComponent.zRevrank(rankKey.getRawKey(), member.getBytes(StandardCharsets.UTF_8));
         return Objects.isNull(rankNum) ? null : rankNum + 1;
     }
 
+    /**
+     * 通过{@link #NEIGHBORHOOD_SCRIPT 脚本}一次往返获取成员的名次、分值及其前后相邻的成员。
+     *
+     * @param rankName
+     * @param memberName
+     * @param above      名次在成员之前的最多成员数
+     * @param below      名次在成员之后的最多成员数
+     * @return {@code null}, if rank not exist or {@code memberName} not in rank list
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     */
+    @Override
+    public RankNeighborhood getNeighborhood(String rankName, String memberName, int above, int below) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        return getNeighborhood(RankKey.of(rankName, rankKeyLayout), memberName, above, below);
+    }
+
+    /**
+     * 与{@link #getNeighborhood(String, String, int, int)}相同，使用预先计算好的 key。
+     *
+     * @param rankKey
+     * @param memberName
+     * @param above      名次在成员之前的最多成员数
+     * @param below      名次在成员之后的最多成员数
+     * @return {@code null}, if rank not exist or {@code memberName} not in rank list
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     */
+    public RankNeighborhood getNeighborhood(RankKey rankKey, String memberName, int above, int below) {
+        Objects.requireNonNull(rankKey, "rankKey must not be null").checkLayout(rankKeyLayout);
+        Objects.requireNonNull(memberName, "memberName must not be null");
+        if (above < 0 || below < 0) {
+            throw new IllegalArgumentException("above and below must not be negative");
+        }
+
+        final String member = findStoredMember(memberName);
+        if (Objects.isNull(member)) {
+            return null;
+        }
+        List<Object> result = redisComponent.evalSha(NEIGHBORHOOD_SCRIPT, ReturnType.MULTI, 1,
+                rankKey.getRawKey(), member.getBytes(StandardCharsets.UTF_8),
+                String.valueOf(above).getBytes(StandardCharsets.UTF_8),
+                String.valueOf(below).getBytes(StandardCharsets.UTF_8));
+        if (Objects.isNull(result) || result.isEmpty()) {
+            return null;
+        }
+        RankNeighborhood neighborhood = mappingForNeighborhood(result, above, scoreCodec);
+        if (!memberDictionaryEnabled) {
+            return neighborhood;
+        }
+        return new RankNeighborhood(neighborhood.getRankNumber(), neighborhood.getScore(),
+                toMemberNames(neighborhood.getMembers()), neighborhood.getMemberIndex());
+    }
+
+    static RankNeighborhood mappingForNeighborhood(List<Object> result, int above, ScoreCodec codec) {
+        final long rank = (Long) result.get(0);
+        final int size = (result.size() - 1) / 2;
+        final byte[][] rawNames = new byte[size][];
+        final long[] scores = new long[size];
+        for (int i = 0; i < size; i++) {
+            rawNames[i] = (byte[]) result.get(1 + 2 * i);
+            scores[i] = codec.decodeScore(parseScore(result.get(2 + 2 * i)));
+        }
+        final int memberIndex = (int) Math.min(rank, above);
+        return new RankNeighborhood(rank + 1, scores[memberIndex], RankPage.ofRawNames(rawNames, scores), memberIndex);
+    }
+
     /**
      * 获取排行榜。
      *
@@ -125,15 +608,287 @@ public class RedisRankLab {
      * @param end      查询的排行榜结束的名次
      * @return
      */
+    @Override
     public List<RankMember> getRankList(String rankName, int start, int end) {
+        return getRankPage(rankName, start, end).toRankMembers();
+    }
+
+    /**
+     * 以按列存储的形式获取排行榜，适合大批量的导出。
+     *
+     * @param rankName
+     * @param start    查询的排行榜开始的名次，从1开始
+     * @param end      查询的排行榜结束的名次
+     * @return
+     * @see #getRankList(String, int, int)
+     */
+    @Override
+    public RankPage getRankPage(String rankName, int start, int end) {
         Objects.requireNonNull(rankName, "rankName must not be null");
+        return getRankPage(RankKey.of(rankName, rankKeyLayout), start, end);
+    }
+
+    /**
+     * 与{@link #getRankPage(String, int, int)}相同，使用预先计算好的 key。
+     *
+     * @param rankKey
+     * @param start   查询的排行榜开始的名次，从1开始
+     * @param end     查询的排行榜结束的名次
+     * @return
+     * @throws NullPointerException
+     */
+    public RankPage getRankPage(RankKey rankKey, int start, int end) {
+        Objects.requireNonNull(rankKey, "rankKey must not be null").checkLayout(rankKeyLayout);
 
         Set<RedisZSetCommands.Tuple> rank = redisComponent.zRevRangeWithScores(
-                getRankKey(rankName),
+                rankKey.getRawKey(),
                 start - 1,
                 end - 1
         );
-        return mappingForRankList(rank);
+        return toMemberNames(mappingForRankPage(rank, scoreCodec));
+    }
+
+    /**
+     * 按游标分页获取排行榜，通过 ZREVRANGEBYSCORE 从游标的分值处定位，每页的代价与页的深度无关。
+     *
+     * <p>与游标同分的成员中，排在游标成员之前（成员名不小于游标）的会被跳过；同分成员很多时，跳过的代价与同分成员数成正比。
+     *
+     * @param rankName
+     * @param cursor   上一页返回的游标，为{@code null}时从第一名开始
+     * @param count    每页的成员数
+     * @return
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     */
+    @Override
+    public RankCursorPage getRankPageAfter(String rankName, String cursor, int count) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        return getRankPageAfter(RankKey.of(rankName, rankKeyLayout), cursor, count);
+    }
+
+    /**
+     * 与{@link #getRankPageAfter(String, String, int)}相同，使用预先计算好的 key。
+     *
+     * @param rankKey
+     * @param cursor  上一页返回的游标，为{@code null}时从第一名开始
+     * @param count   每页的成员数
+     * @return
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     */
+    public RankCursorPage getRankPageAfter(RankKey rankKey, String cursor, int count) {
+        Objects.requireNonNull(rankKey, "rankKey must not be null").checkLayout(rankKeyLayout);
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be greater than 0");
+        }
+        final RankCursor seek = Objects.isNull(cursor) ? null : RankCursor.decode(cursor);
+        final String key = rankKey.getKey();
+        final double max = Objects.isNull(seek) ? Double.POSITIVE_INFINITY : seek.score;
+
+        final byte[][] rawNames = new byte[count][];
+        final double[] rawScores = new double[count];
+        int size = 0;
+        boolean skipping = Objects.nonNull(seek);
+        long offset = 0;
+        while (true) {
+            final int fetchCount = count - size;
+            Set<RedisZSetCommands.Tuple> tuples = redisComponent.zRevRangeByScoreWithScores(
+                    key, Double.NEGATIVE_INFINITY, max, offset, fetchCount);
+            if (Objects.isNull(tuples) || tuples.isEmpty()) {
+                break;
+            }
+            for (RedisZSetCommands.Tuple tuple : tuples) {
+                if (skipping) {
+                    // 同分的成员按成员名降序排列，不小于游标的已在之前的页中返回
+                    if (tuple.getScore() == seek.score && RankCursor.compareMember(tuple.getValue(), seek.member) >= 0) {
+                        continue;
+                    }
+                    skipping = false;
+                }
+                rawNames[size] = tuple.getValue();
+                rawScores[size] = tuple.getScore();
+                size++;
+            }
+            if (size == count || tuples.size() < fetchCount) {
+                break;
+            }
+            offset += tuples.size();
+        }
+
+        if (size == 0) {
+            return new RankCursorPage(RankPage.empty(), null);
+        }
+        final ScoreCodec codec = scoreCodec;
+        final long[] scores = new long[size];
+        for (int i = 0; i < size; i++) {
+            scores[i] = codec.decodeScore(rawScores[i]);
+        }
+        String nextCursor = size < count
+                ? null
+                : new RankCursor(rawScores[size - 1], rawNames[size - 1]).encode();
+        return new RankCursorPage(toMemberNames(RankPage.ofRawNames(Arrays.copyOf(rawNames, size), scores)), nextCursor);
+    }
+
+    /**
+     * 按窗口遍历整个排行榜，从第一名开始，不会一次性将整个排行榜读入内存。
+     *
+     * <p>内存中最多持有两个窗口，下一个窗口在后台线程中预取。返回的流应在使用完后关闭，以放弃尚未完成的预取。
+     *
+     * <p>窗口之间按名次偏移读取，遍历期间排行榜发生变化时，可能重复或遗漏成员；需要一致的结果时，应遍历不再写入的排行榜。
+     *
+     * @param rankName
+     * @param windowSize 每次从 redis 读取的成员数
+     * @return
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     */
+    public Stream<RankMember> streamRank(String rankName, int windowSize) {
+        RankWindowSpliterator spliterator = new RankWindowSpliterator(this, rankName, windowSize,
+                redisComponent.withReadState(getRankScanExecutor()));
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    /**
+     * 按窗口遍历整个排行榜，从第一名开始，对每个成员执行{@code action}。
+     *
+     * @param rankName
+     * @param windowSize 每次从 redis 读取的成员数
+     * @param action
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     * @see #streamRank(String, int)
+     */
+    public void forEachRank(String rankName, int windowSize, Consumer<? super RankMember> action) {
+        try (RankWindowSpliterator spliterator = new RankWindowSpliterator(this, rankName, windowSize,
+                redisComponent.withReadState(getRankScanExecutor()))) {
+            spliterator.forEachRemaining(action);
+        }
+    }
+
+    /**
+     * 设置成员在{@link LexScoreCodec 字典序}排行榜中的分值，分值不受 53 位精度的限制。
+     *
+     * <p>字典序排行榜与普通排行榜的存储方式不同，只能通过{@code getLex*}方法读取；成员名原样存储，不经过{@link MemberDictionary}。
+     *
+     * @param rankName
+     * @param memberName
+     * @param score      真实分值，可以是任意{@code long}值
+     * @param tieBreak   同分排名值，按无符号数比较，该值越大同分时排名越靠前
+     * @return 成员是否新加入排行榜
+     * @throws NullPointerException
+     */
+    public boolean setLexRankScore(String rankName, String memberName, long score, long tieBreak) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+
+        Long added = redisComponent.evalSha(SET_LEX_RANK_SCRIPT, ReturnType.INTEGER, 2,
+                rankKeyLayout.getRankKey(rankName), getLexIndexKey(rankName),
+                memberName, LexScoreCodec.INSTANCE.encode(score, tieBreak, memberName));
+        fireRankChanged(rankName);
+        return Objects.nonNull(added) && added == 1;
+    }
+
+    /**
+     * 获取成员在{@link LexScoreCodec 字典序}排行榜中的分值。
+     *
+     * @param rankName
+     * @param memberName
+     * @return {@code null}, if rank not exist or {@code memberName} not in rank list
+     * @throws NullPointerException
+     */
+    public Long getLexRankScore(String rankName, String memberName) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+
+        String encoded = redisComponent.hGet(getLexIndexKey(rankName), memberName);
+        return Objects.isNull(encoded) ? null : LexScoreCodec.INSTANCE.decodeScore(encoded);
+    }
+
+    /**
+     * 获取成员在{@link LexScoreCodec 字典序}排行榜中的名次。
+     *
+     * @param rankName
+     * @param memberName
+     * @return 从1开始；{@code null}, if rank not exist or {@code memberName} not in rank list
+     * @throws NullPointerException
+     */
+    public Long getLexRankNumber(String rankName, String memberName) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+
+        Long rank = redisComponent.evalSha(LEX_RANK_NUMBER_SCRIPT, ReturnType.INTEGER, 2,
+                rankKeyLayout.getRankKey(rankName), getLexIndexKey(rankName), memberName);
+        return Objects.isNull(rank) || rank < 0 ? null : rank + 1;
+    }
+
+    /**
+     * 按名次获取{@link LexScoreCodec 字典序}排行榜。
+     *
+     * @param rankName
+     * @param start    查询的排行榜开始的名次，从1开始
+     * @param end      查询的排行榜结束的名次
+     * @return
+     * @throws NullPointerException
+     */
+    public List<RankMember> getLexRankList(String rankName, int start, int end) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+
+        Set<RedisZSetCommands.Tuple> rank = redisComponent.zRevRangeWithScores(
+                rankKeyLayout.getRankKey(rankName), start - 1, end - 1);
+        if (Objects.isNull(rank) || rank.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<RankMember> resultList = new ArrayList<>(rank.size());
+        for (RedisZSetCommands.Tuple item : rank) {
+            resultList.add(toLexRankMember(item.getValue()));
+        }
+        return resultList;
+    }
+
+    /**
+     * 按分值范围获取{@link LexScoreCodec 字典序}排行榜，通过{@code ZREVRANGEBYLEX}在服务端按编码值的前缀筛选。
+     *
+     * @param rankName
+     * @param minScore 包含
+     * @param maxScore 包含
+     * @param count    最多返回的成员数
+     * @return 按名次排列
+     * @throws NullPointerException
+     * @throws IllegalArgumentException {@code count}小于1
+     */
+    public List<RankMember> getLexRankListByScore(String rankName, long minScore, long maxScore, int count) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
+        if (minScore > maxScore) {
+            return Collections.emptyList();
+        }
+
+        final LexScoreCodec codec = LexScoreCodec.INSTANCE;
+        // 分值为 maxScore 的编码值都小于 maxScore + 1 的前缀
+        final String max = maxScore == Long.MAX_VALUE ? "+" : "(" + codec.encodeScore(maxScore + 1);
+        final String min = "[" + codec.encodeScore(minScore);
+        List<byte[]> members = redisComponent.evalSha(LEX_RANGE_SCRIPT, ReturnType.MULTI, 1,
+                rankKeyLayout.getRankKey(rankName), max, min, String.valueOf(count));
+        if (Objects.isNull(members) || members.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<RankMember> resultList = new ArrayList<>(members.size());
+        for (byte[] member : members) {
+            resultList.add(toLexRankMember(member));
+        }
+        return resultList;
+    }
+
+    String getLexIndexKey(String rankName) {
+        return rankKeyLayout.getRankKey(rankName) + KEY_SUFFIX_LEX_INDEX;
+    }
+
+    private static RankMember toLexRankMember(byte[] member) {
+        final String encoded = new String(member, StandardCharsets.UTF_8);
+        final LexScoreCodec codec = LexScoreCodec.INSTANCE;
+        return new RankMember(codec.decodeMemberName(encoded), codec.decodeScore(encoded));
     }
 
     /**
@@ -147,10 +902,134 @@ public class RedisRankLab {
      */
     Double doGetRankScore(String rankName, String memberName) {
         Objects.requireNonNull(rankName, "rankName must not be null");
+        return doGetRankScore(RankKey.of(rankName, rankKeyLayout), memberName);
+    }
+
+    Double doGetRankScore(RankKey rankKey, String memberName) {
         Objects.requireNonNull(memberName, "memberName must not be null");
-        return redisComponent.zScore(getRankKey(rankName), memberName);
+
+        final String member = findStoredMember(memberName);
+        return Objects.isNull(member)
+                ? null
+                : redisComponent.zScore(rankKey.getRawKey(), member.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * 写入时使用：启用成员名字典时返回成员的编号（不存在时分配），否则返回成员名本身。
+     */
+    private String toStoredMember(String memberName) {
+        return memberDictionaryEnabled ? memberDictionary.getOrAssignId(memberName) : memberName;
+    }
+
+    private List<String> toStoredMembers(Collection<String> memberNames) {
+        if (!memberDictionaryEnabled) {
+            for (String memberName : memberNames) {
+                Objects.requireNonNull(memberName, "memberName must not be null");
+            }
+            return new ArrayList<>(memberNames);
+        }
+        return memberDictionary.getOrAssignIds(memberNames);
+    }
+
+    /**
+     * 查询时使用：启用成员名字典时返回成员的编号，成员名不在字典中（即不在任何排行榜中）时返回{@code null}。
+     */
+    String findStoredMember(String memberName) {
+        return memberDictionaryEnabled ? memberDictionary.getId(memberName) : memberName;
+    }
+
+    private List<String> findStoredMembers(Collection<String> memberNames) {
+        List<String> members = new ArrayList<>(memberNames.size());
+        for (String memberName : memberNames) {
+            members.add(findStoredMember(memberName));
+        }
+        return members;
+    }
+
+    private static List<String> withoutMissing(List<String> members) {
+        List<String> resultList = new ArrayList<>(members.size());
+        for (String member : members) {
+            if (Objects.nonNull(member)) {
+                resultList.add(member);
+            }
+        }
+        return resultList;
+    }
+
+    private static <T> List<T> expandMissing(List<String> members, List<T> values) {
+        List<T> resultList = new ArrayList<>(members.size());
+        Iterator<T> iterator = values.iterator();
+        for (String member : members) {
+            resultList.add(Objects.isNull(member) ? null : iterator.next());
+        }
+        return resultList;
+    }
+
+    /**
+     * 启用成员名字典时，将页中的编号批量转换为成员名。
+     */
+    RankPage toMemberNames(RankPage page) {
+        if (!memberDictionaryEnabled || page.isEmpty()) {
+            return page;
+        }
+        final String[] ids = new String[page.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = page.getName(i);
+        }
+        return page.withNames(memberDictionary.getNames(ids));
+    }
+
+    public ScoreCodec getScoreCodec() {
+        return scoreCodec;
+    }
+
+    public void setScoreCodec(ScoreCodec scoreCodec) {
+        this.scoreCodec = Objects.requireNonNull(scoreCodec, "scoreCodec must not be null");
+    }
+
+    @Override
+    public void destroy() {
+        final ExecutorService executor = rankScanExecutor;
+        if (Objects.nonNull(executor)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private ExecutorService getRankScanExecutor() {
+        ExecutorService executor = rankScanExecutor;
+        if (Objects.isNull(executor)) {
+            synchronized (this) {
+                executor = rankScanExecutor;
+                if (Objects.isNull(executor)) {
+                    final int threadCount = Math.max(1, scanPrefetchThreads);
+                    final AtomicInteger threadNumber = new AtomicInteger();
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(threadCount, threadCount,
+                            60L, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "rank-scan-prefetch-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, (task, rejectedBy) -> {
+                        if (rejectedBy.isShutdown()) {
+                            throw new RejectedExecutionException("rank scan executor has been shut down");
+                        }
+                        task.run();
+                    });
+                    pool.allowCoreThreadTimeOut(true);
+                    rankScanExecutor = executor = pool;
+                }
+            }
+        }
+        return executor;
+    }
+
+    public RankKeyLayout getRankKeyLayout() {
+        return rankKeyLayout;
+    }
+
+    /**
+     * @param rankName
+     * @return 默认格式的 key，即{@code rank:<rankName>}，注入的格式见{@link #getRankKeyLayout()}
+     */
     static String getRankKey(String rankName) {
         return KEY_RANK_PREFIX + rankName;
     }
@@ -164,16 +1043,39 @@ public class RedisRankLab {
      * @throws IllegalArgumentException
      */
     static void checkParamsForJoinRank(String rankName, String memberName, long score, BigDecimal weight) {
+        Objects.requireNonNull(weight, "weight must not be null");
+        checkParamsForJoinRank(rankName, memberName, score, weight.doubleValue());
+    }
+
+    /**
+     * @param rankName
+     * @param memberName
+     * @param score
+     * @param weight
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     */
+    static void checkParamsForJoinRank(String rankName, String memberName, long score, double weight) {
         Objects.requireNonNull(rankName, "rankName must not be null");
         Objects.requireNonNull(memberName, "memberName must not be null");
-        Objects.requireNonNull(weight, "weight must not be null");
 
-        final double dWeight = weight.doubleValue();
-        if (!(rangeIncludeZeroAndExcludeOne(dWeight) || rangeExcludeNegativeOneAndIncludeZero(dWeight))) {
+        if (!(rangeIncludeZeroAndExcludeOne(weight) || rangeExcludeNegativeOneAndIncludeZero(weight))) {
             throw new IllegalArgumentException("weight value range must in [-1 < weight < 1]");
         }
     }
 
+    /**
+     * 小数权重直接加在分值上，只有{@link DecimalScoreCodec}能正确解码。
+     *
+     * @param codec
+     * @throws IllegalStateException
+     */
+    static void checkDecimalWeight(ScoreCodec codec) {
+        if (!(codec instanceof DecimalScoreCodec)) {
+            throw new IllegalStateException("decimal weight requires DecimalScoreCodec, use joinRankWithTieBreak instead");
+        }
+    }
+
     static boolean rangeIncludeZeroAndExcludeOne(double num) {
         return (num >= 0 && num < 1);
     }
@@ -198,20 +1100,47 @@ public class RedisRankLab {
         return diff;
     }
 
-    private static List<RankMember> mappingForRankList(Set<RedisZSetCommands.Tuple> rank) {
-        if (Objects.nonNull(rank) && !rank.isEmpty()) {
-            List<RankMember> resultList = new ArrayList<>(rank.size());
-            for (RedisZSetCommands.Tuple item : rank) {
-                String memberName = new String(item.getValue());
-                Long score = item.getScore().longValue();
+    /**
+     * 解析脚本返回的分值。
+     *
+     * @param rawScore
+     * @return
+     */
+    static Double parseScore(Object rawScore) {
+        if (rawScore instanceof byte[]) {
+            return Double.valueOf(new String((byte[]) rawScore, StandardCharsets.UTF_8));
+        }
+        return null;
+    }
 
-                resultList.add(new RankMember(memberName, score));
-            }
-            return resultList;
+    void fireRankChanged(String rankName) {
+        for (RankChangeListener listener : rankChangeListeners) {
+            listener.onRankChanged(rankName);
         }
-        else {
-            return Collections.EMPTY_LIST;
+    }
+
+    private List<Long> decodeScores(List<Double> scores) {
+        final ScoreCodec codec = scoreCodec;
+        List<Long> resultList = new ArrayList<>(scores.size());
+        for (Double score : scores) {
+            resultList.add(Objects.isNull(score) ? null : codec.decodeScore(score));
+        }
+        return resultList;
+    }
+
+    static RankPage mappingForRankPage(Set<RedisZSetCommands.Tuple> rank, ScoreCodec codec) {
+        if (Objects.isNull(rank) || rank.isEmpty()) {
+            return RankPage.empty();
+        }
+        final byte[][] rawNames = new byte[rank.size()][];
+        final long[] scores = new long[rawNames.length];
+        int i = 0;
+        for (RedisZSetCommands.Tuple item : rank) {
+            rawNames[i] = item.getValue();
+            scores[i] = codec.decodeScore(item.getScore());
+            i++;
         }
+        return RankPage.ofRawNames(rawNames, scores);
     }
 
     public static class RankMember implements Serializable {
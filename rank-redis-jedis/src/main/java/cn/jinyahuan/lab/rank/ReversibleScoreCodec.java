@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.jinyahuan.lab.rank;
+
+/**
+ * 同分排名值可以无损还原的编解码器。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ * @see PackedScoreCodec
+ */
+public interface ReversibleScoreCodec extends ScoreCodec {
+    /**
+     * 解码出同分排名值。
+     *
+     * @param encodedScore
+     * @return
+     */
+    long decodeTieBreak(double encodedScore);
+}
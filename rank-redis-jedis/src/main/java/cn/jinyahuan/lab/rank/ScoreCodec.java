@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+/**
+ * 排行榜分值的编解码器，把真实分值和同分排名值（tie-break）编码成 zset 的一个{@code double}分值。
+ *
+ * <p>编码后的分值满足：{@code encoded = score * tieBreakUnit + tiePart}，其中{@code 0 <= tiePart < tieBreakUnit}，
+ * 因此累加分值时只需要在服务端把旧的{@code tiePart}替换为新的即可。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ * @see DecimalScoreCodec
+ * @see PackedScoreCodec
+ * @see ReversibleScoreCodec
+ */
+public interface ScoreCodec {
+    /**
+     * 编码。
+     *
+     * @param score     真实分值
+     * @param tieBreak  同分排名值，该值越大同分时排名越靠前
+     * @return 编码后的分值
+     * @throws IllegalArgumentException 超出编码器能表示的范围
+     */
+    double encode(long score, long tieBreak);
+
+    /**
+     * 解码出真实分值。
+     *
+     * @param encodedScore
+     * @return
+     */
+    long decodeScore(double encodedScore);
+
+    /**
+     * 编码需要累加的分值，累加后同分排名部分不变。
+     *
+     * @param score 需要累加的真实分值
+     * @return
+     * @throws IllegalArgumentException 超出编码器能表示的范围
+     */
+    default double encodeIncrement(long score) {
+        return score * getTieBreakUnit();
+    }
+
+    /**
+     * 真实分值每增加 1 时编码后分值的增量。
+     *
+     * @return
+     */
+    double getTieBreakUnit();
+}
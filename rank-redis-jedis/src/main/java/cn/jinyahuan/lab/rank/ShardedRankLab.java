@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import cn.jinyahuan.common.redis.script.LuaScript;
+import cn.jinyahuan.lab.rank.RedisRankLab.RankMember;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分片的排行榜，适合单个 key 的写入成为瓶颈的大排行榜。
+ *
+ * <p>每个排行榜拆分为{@code rank.shard.count}个子排行榜（名称为{@code rankName:s:分片号}），
+ * 成员按成员名的哈希值固定落在其中一个分片，写入只涉及成员所在的分片：
+ * <ul>
+ * <li>{@link #getRankPage}并行读取每个分片的前{@code end}名，再按分值降序、同分时按成员名降序做多路归并；</li>
+ * <li>{@link #getRankNumber}先读取成员的分值，再通过{@link #COUNT_BEFORE_SCRIPT 脚本}一次往返统计每个分片中
+ * 分值更高的成员数及同分且成员名更大的成员数并求和，同分成员在服务端比较，不传回客户端。</li>
+ * </ul>
+ * 排序规则与单个 zset 相同，结果与不分片的排行榜一致。
+ *
+ * <p>{@link RedisRankLab#getRankKeyLayout() key 格式}为{@link RankKeyLayout#HASH_TAG}时，每个分片的名称各自作为 hash tag，在 redis 集群中分布到不同的 slot
+ * （{@code rankName}中已有 hash tag 时所有分片在同一个 slot 中），统计排在成员之前的成员数改为每个分片执行一次脚本，并行发送。
+ *
+ * <p>分片数决定了成员所在的分片，已有数据的排行榜不能修改分片数。
+ * 查询的代价随分片数增长，按名次分页时每个分片都要读取前{@code end}名，不适合很深的分页。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+public class ShardedRankLab implements InitializingBean, DisposableBean {
+    static final String SHARD_INFIX = ":s:";
+
+    /**
+     * 统计排在成员之前的成员数的脚本。
+     *
+     * <p>KEYS 各分片的 key；ARGV[1] 成员的分值；ARGV[2] 成员。
+     * 按 KEYS 的顺序依次返回每个分片中分值更高的成员数、同分且成员名（按字节）更大的成员数。
+     * 同分成员按成员名升序排列，在其中二分查找，比较时逐字节比较（lua 的字符串比较受 locale 影响）。
+     */
+    static final LuaScript COUNT_BEFORE_SCRIPT = new LuaScript(
+            "local function greater(a, b)\n" +
+                    "    local n = math.min(#a, #b)\n" +
+                    "    for i = 1, n do\n" +
+                    "        local x, y = string.byte(a, i), string.byte(b, i)\n" +
+                    "        if x ~= y then\n" +
+                    "            return x > y\n" +
+                    "        end\n" +
+                    "    end\n" +
+                    "    return #a > #b\n" +
+                    "end\n" +
+                    "local result = {}\n" +
+                    "for i, key in ipairs(KEYS) do\n" +
+                    "    result[2 * i - 1] = redis.call('ZCOUNT', key, '(' .. ARGV[1], '+inf')\n" +
+                    "    local ties = redis.call('ZRANGEBYSCORE', key, ARGV[1], ARGV[1])\n" +
+                    "    local low, high = 1, #ties + 1\n" +
+                    "    while low < high do\n" +
+                    "        local mid = math.floor((low + high) / 2)\n" +
+                    "        if greater(ties[mid], ARGV[2]) then\n" +
+                    "            high = mid\n" +
+                    "        else\n" +
+                    "            low = mid + 1\n" +
+                    "        end\n" +
+                    "    end\n" +
+                    "    result[2 * i] = #ties + 1 - low\n" +
+                    "end\n" +
+                    "return result"
+    );
+
+    @Autowired
+    private RedisRankLab redisRankLab;
+    @Autowired
+    private RedisComponent redisComponent;
+
+    @Value("${rank.shard.count:8}")
+    private int shardCount = 8;
+    /**
+     * 并行读取分片的线程数，0 表示与分片数相同。
+     */
+    @Value("${rank.shard.fetchThreads:0}")
+    private int fetchThreads;
+
+    private ExecutorService fetchExecutor;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be greater than 0");
+        }
+        final int threadCount = fetchThreads > 0 ? fetchThreads : shardCount;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        fetchExecutor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "rank-shard-fetch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        fetchExecutor.shutdownNow();
+    }
+
+    /**
+     * 加入排行榜，只写入成员所在的分片。
+     *
+     * @param rankName
+     * @param memberName
+     * @param score      分值
+     * @param weight     同分时排名的权重，取值范围为(-1,1)
+     * @return 累加后的分值
+     * @throws NullPointerException
+     * @throws IllegalArgumentException
+     * @see RedisRankLab#joinRank(String, String, long, double)
+     */
+    public Long joinRank(String rankName, String memberName, long score, double weight) {
+        RedisRankLab.checkParamsForJoinRank(rankName, memberName, score, weight);
+        return redisRankLab.joinRank(getShardRankName(rankName, memberName), memberName, score, weight);
+    }
+
+    /**
+     * @see RedisRankLab#joinRankWithTieBreak(String, String, long, long)
+     */
+    public Long joinRankWithTieBreak(String rankName, String memberName, long score, long tieBreak) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+        return redisRankLab.joinRankWithTieBreak(getShardRankName(rankName, memberName), memberName, score, tieBreak);
+    }
+
+    /**
+     * 批量加入排行榜（不带权重），成员按分片分组后通过一个管道累加。
+     *
+     * @param rankName
+     * @param memberScores 成员及其需要累加的分值
+     * @return 按{@code memberScores}的迭代顺序返回累加后的分值
+     * @throws NullPointerException
+     * @see RedisRankLab#joinRankBatch(Map)
+     */
+    public List<Long> joinRankBatch(String rankName, Map<String, Long> memberScores) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberScores, "memberScores must not be null");
+
+        Map<String, Map<String, Long>> shardMemberScores = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : memberScores.entrySet()) {
+            Objects.requireNonNull(entry.getKey(), "memberName must not be null");
+            shardMemberScores.computeIfAbsent(getShardRankName(rankName, entry.getKey()), k -> new LinkedHashMap<>())
+                    .put(entry.getKey(), entry.getValue());
+        }
+        final Iterator<Long> totalScores = redisRankLab.joinRankBatch(shardMemberScores).iterator();
+
+        Map<String, Long> memberTotalScores = new HashMap<>(memberScores.size() * 4 / 3 + 1);
+        for (Map<String, Long> shardScores : shardMemberScores.values()) {
+            for (String memberName : shardScores.keySet()) {
+                memberTotalScores.put(memberName, totalScores.next());
+            }
+        }
+        List<Long> resultList = new ArrayList<>(memberScores.size());
+        for (String memberName : memberScores.keySet()) {
+            resultList.add(memberTotalScores.get(memberName));
+        }
+        return resultList;
+    }
+
+    /**
+     * 获取成员的分数，只读取成员所在的分片。
+     *
+     * @see RedisRankLab#getRankScore(String, String)
+     */
+    public Long getRankScore(String rankName, String memberName) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+        return redisRankLab.getRankScore(getShardRankName(rankName, memberName), memberName);
+    }
+
+    /**
+     * 获取成员的排名，即所有分片中排在成员之前的成员数加1。
+     *
+     * @param rankName
+     * @param memberName
+     * @return {@code null}, if rank not exist or {@code memberName} not in rank list;
+     * otherwise return {@code memberName} real rank number, 从1开始
+     * @throws NullPointerException
+     */
+    public Long getRankNumber(String rankName, String memberName) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(memberName, "memberName must not be null");
+
+        final String member = redisRankLab.findStoredMember(memberName);
+        if (Objects.isNull(member)) {
+            return null;
+        }
+        final byte[] rawMember = member.getBytes(StandardCharsets.UTF_8);
+        final int memberShard = getShardIndex(memberName);
+        final Double score = redisComponent.zScore(
+                redisRankLab.getRankKeyLayout().getRankKey(getShardRankName(rankName, memberShard)).getBytes(StandardCharsets.UTF_8),
+                rawMember);
+        if (Objects.isNull(score)) {
+            return null;
+        }
+
+        final List<String> shardKeys = getShardKeys(rankName);
+        long rankNum = 1;
+        for (long count : countBefore(shardKeys, score, rawMember)) {
+            rankNum += count;
+        }
+        return rankNum;
+    }
+
+    /**
+     * 通过{@link #COUNT_BEFORE_SCRIPT 脚本}统计每个分片中排在成员之前的成员数，所有分片一次往返；
+     * 集群中各个分片在不同的 slot，每个分片执行一次脚本，并行发送。
+     *
+     * @return 与{@link #COUNT_BEFORE_SCRIPT}的返回值一致
+     */
+    private List<Long> countBefore(List<String> shardKeys, double score, byte[] rawMember) {
+        final byte[] rawScore = String.valueOf(score).getBytes(StandardCharsets.UTF_8);
+        if (redisRankLab.getRankKeyLayout() != RankKeyLayout.HASH_TAG) {
+            final byte[][] keysAndArgs = new byte[shardKeys.size() + 2][];
+            for (int i = 0; i < shardKeys.size(); i++) {
+                keysAndArgs[i] = shardKeys.get(i).getBytes(StandardCharsets.UTF_8);
+            }
+            keysAndArgs[shardKeys.size()] = rawScore;
+            keysAndArgs[shardKeys.size() + 1] = rawMember;
+            return redisComponent.evalSha(COUNT_BEFORE_SCRIPT, ReturnType.MULTI, shardKeys.size(), keysAndArgs);
+        }
+        final Executor executor = redisComponent.withReadState(fetchExecutor);
+        final List<CompletableFuture<List<Long>>> futures = new ArrayList<>(shardKeys.size());
+        for (int i = 1; i < shardKeys.size(); i++) {
+            final byte[] rawShardKey = shardKeys.get(i).getBytes(StandardCharsets.UTF_8);
+            futures.add(CompletableFuture.supplyAsync(() -> redisComponent.evalSha(
+                    COUNT_BEFORE_SCRIPT, ReturnType.MULTI, 1, rawShardKey, rawScore, rawMember), executor));
+        }
+        final List<Long> resultList = new ArrayList<>(shardKeys.size() * 2);
+        resultList.addAll(redisComponent.<List<Long>>evalSha(COUNT_BEFORE_SCRIPT, ReturnType.MULTI, 1,
+                shardKeys.get(0).getBytes(StandardCharsets.UTF_8), rawScore, rawMember));
+        for (CompletableFuture<List<Long>> future : futures) {
+            resultList.addAll(join(future));
+        }
+        return resultList;
+    }
+
+    /**
+     * 获取排行榜。
+     *
+     * @param rankName
+     * @param start    查询的排行榜开始的名次，从1开始
+     * @param end      查询的排行榜结束的名次
+     * @return
+     * @throws NullPointerException
+     * @throws IllegalArgumentException {@code start}小于1
+     */
+    public List<RankMember> getRankList(String rankName, int start, int end) {
+        return getRankPage(rankName, start, end).toRankMembers();
+    }
+
+    /**
+     * 以按列存储的形式获取排行榜，并行读取每个分片的前{@code end}名后多路归并。
+     *
+     * @param rankName
+     * @param start    查询的排行榜开始的名次，从1开始
+     * @param end      查询的排行榜结束的名次
+     * @return
+     * @throws NullPointerException
+     * @throws IllegalArgumentException {@code start}小于1
+     */
+    public RankPage getRankPage(String rankName, int start, int end) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        if (start < 1) {
+            throw new IllegalArgumentException("start must be greater than 0");
+        }
+        if (start > end) {
+            return RankPage.empty();
+        }
+
+        final List<String> shardKeys = getShardKeys(rankName);
+        final Executor executor = redisComponent.withReadState(fetchExecutor);
+        final List<CompletableFuture<Set<RedisZSetCommands.Tuple>>> futures = new ArrayList<>(shardCount);
+        for (int i = 1; i < shardCount; i++) {
+            final String shardKey = shardKeys.get(i);
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> redisComponent.zRevRangeWithScores(shardKey, 0, end - 1), executor));
+        }
+        // 第一个分片在当前线程中读取
+        final List<Set<RedisZSetCommands.Tuple>> slices = new ArrayList<>(shardCount);
+        slices.add(redisComponent.zRevRangeWithScores(shardKeys.get(0), 0, end - 1));
+        for (CompletableFuture<Set<RedisZSetCommands.Tuple>> future : futures) {
+            slices.add(join(future));
+        }
+        return redisRankLab.toMemberNames(merge(slices, start, end, redisRankLab.getScoreCodec()));
+    }
+
+    /**
+     * 多路归并各个分片按降序排列的前缀，取出第{@code start}至第{@code end}名。
+     *
+     * @param slices 各个分片的前缀，可以为{@code null}
+     * @param start  从1开始
+     * @param end
+     * @param codec
+     * @return
+     */
+    static RankPage merge(List<Set<RedisZSetCommands.Tuple>> slices, int start, int end, ScoreCodec codec) {
+        final PriorityQueue<SliceCursor> heap = new PriorityQueue<>(Math.max(slices.size(), 1));
+        for (Set<RedisZSetCommands.Tuple> slice : slices) {
+            if (Objects.nonNull(slice) && !slice.isEmpty()) {
+                heap.add(new SliceCursor(slice.iterator()));
+            }
+        }
+
+        final int capacity = end - start + 1;
+        final byte[][] rawNames = new byte[capacity][];
+        final long[] scores = new long[capacity];
+        int size = 0;
+        for (int rankNum = 1; rankNum <= end && !heap.isEmpty(); rankNum++) {
+            final SliceCursor cursor = heap.poll();
+            if (rankNum >= start) {
+                rawNames[size] = cursor.current.getValue();
+                scores[size] = codec.decodeScore(cursor.current.getScore());
+                size++;
+            }
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+        return size == capacity
+                ? RankPage.ofRawNames(rawNames, scores)
+                : RankPage.ofRawNames(Arrays.copyOf(rawNames, size), Arrays.copyOf(scores, size));
+    }
+
+    /**
+     * 成员所在的分片，由成员名的{@link String#hashCode() 哈希值}决定，在所有 JVM 中一致。
+     *
+     * @param memberName
+     * @return 从0开始
+     */
+    public int getShardIndex(String memberName) {
+        Objects.requireNonNull(memberName, "memberName must not be null");
+        return Math.floorMod(memberName.hashCode(), shardCount);
+    }
+
+    /**
+     * 分片的名称是普通的排行榜名称，可以用于{@link RedisRankLab}的所有方法（只包含该分片的成员）。
+     *
+     * @param rankName
+     * @param shardIndex 从0开始
+     * @return
+     */
+    public String getShardRankName(String rankName, int shardIndex) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("shardIndex must in [0, " + shardCount + ")");
+        }
+        return rankName + SHARD_INFIX + shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    private String getShardRankName(String rankName, String memberName) {
+        return getShardRankName(rankName, getShardIndex(memberName));
+    }
+
+    private List<String> getShardKeys(String rankName) {
+        List<String> shardKeys = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shardKeys.add(redisRankLab.getRankKeyLayout().getRankKey(getShardRankName(rankName, i)));
+        }
+        return shardKeys;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * 一个分片的前缀上的游标，按当前成员的分值降序、同分时按成员名降序排在堆顶。
+     */
+    static final class SliceCursor implements Comparable<SliceCursor> {
+        private final Iterator<RedisZSetCommands.Tuple> iterator;
+        RedisZSetCommands.Tuple current;
+
+        SliceCursor(Iterator<RedisZSetCommands.Tuple> iterator) {
+            this.iterator = iterator;
+            this.current = iterator.next();
+        }
+
+        boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            current = iterator.next();
+            return true;
+        }
+
+        @Override
+        public int compareTo(SliceCursor o) {
+            final double score = current.getScore();
+            final double otherScore = o.current.getScore();
+            if (score != otherScore) {
+                return score > otherScore ? -1 : 1;
+            }
+            return RankCursor.compareMember(o.current.getValue(), current.getValue());
+        }
+    }
+}
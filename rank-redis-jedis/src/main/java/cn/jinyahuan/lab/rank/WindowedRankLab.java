@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import cn.jinyahuan.common.redis.script.LuaScript;
+import cn.jinyahuan.lab.rank.RedisRankLab.RankMember;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按时间窗口（小时/天/周）统计的排行榜。
+ *
+ * <p>每次写入只累加到当前小时的桶中（排行榜名称为{@code rankName:h:yyyyMMddHH}），
+ * 天榜、周榜在查询时通过 ZUNIONSTORE 汇总：
+ * <ul>
+ * <li>已结束的窗口汇总一次后不再变化（封存），如已结束的天榜由当天的24个小时桶汇总而来；</li>
+ * <li>进行中的窗口由已封存的下一级窗口加上仍在进行中的小时桶汇总，如周榜由本周已结束的天榜加上今天的小时桶汇总，
+ * 每个窗口最多每{@code rank.window.refreshIntervalMillis}重新汇总一次。</li>
+ * </ul>
+ * 窗口结束{@code rank.window.sealDelayMillis}后才封存，以容忍各个 JVM 的时钟偏差及延迟的写入。
+ * 每个桶及汇总结果都设置了过期时间，过期时间需大于上一级窗口的长度，否则上一级窗口重新汇总时会缺少数据。
+ *
+ * <p>汇总的方式为分值相加，只适用于不带权重的分值；汇总结果是普通的排行榜，
+ * {@link #getWindowRankName(String, RankWindow)}返回的名称可以用于{@link RedisRankLab}的所有查询方法。
+ *
+ * <p>封存时在 redis 中同时写入一个标记（汇总结果的 key 加上{@link #SEAL_SUFFIX}，过期时间与汇总结果相同），
+ * 汇总与写入标记通过{@link #MATERIALIZE_SCRIPT 脚本}原子地完成。已有标记的窗口不再汇总，
+ * 其他 JVM 或重启后查询已封存的窗口时不会用已过期的下一级窗口覆盖完好的汇总结果；本 JVM 另外缓存封存的状态，不再访问标记。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+public class WindowedRankLab {
+    /**
+     * 封存标记的 key 的后缀。
+     */
+    static final String SEAL_SUFFIX = ":sealed";
+
+    /**
+     * 汇总窗口的脚本，已封存（标记存在）时不做任何修改。
+     *
+     * <p>KEYS[1] 汇总结果的 key；KEYS[2] 封存标记的 key；KEYS[3...] 下一级窗口的 key；
+     * ARGV[1] 过期时间（秒）；ARGV[2] 为{@code 1}时同时封存。返回是否汇总。
+     */
+    static final LuaScript MATERIALIZE_SCRIPT = new LuaScript(
+            "if redis.call('EXISTS', KEYS[2]) == 1 then\n" +
+                    "    return 0\n" +
+                    "end\n" +
+                    "if #KEYS > 2 then\n" +
+                    "    redis.call('ZUNIONSTORE', KEYS[1], #KEYS - 2, unpack(KEYS, 3))\n" +
+                    "else\n" +
+                    "    redis.call('DEL', KEYS[1])\n" +
+                    "end\n" +
+                    "redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+                    "if ARGV[2] == '1' then\n" +
+                    "    redis.call('SET', KEYS[2], '1', 'EX', ARGV[1])\n" +
+                    "end\n" +
+                    "return 1"
+    );
+
+    @Autowired
+    private RedisRankLab redisRankLab;
+    @Autowired
+    private RedisComponent redisComponent;
+
+    @Value("${rank.window.refreshIntervalMillis:1000}")
+    private long refreshIntervalMillis = 1000;
+    @Value("${rank.window.sealDelayMillis:60000}")
+    private long sealDelayMillis = 60000;
+    @Value("${rank.window.hourTtlSeconds:691200}")
+    private long hourTtlSeconds = 691200;
+    @Value("${rank.window.dayTtlSeconds:691200}")
+    private long dayTtlSeconds = 691200;
+    @Value("${rank.window.weekTtlSeconds:3024000}")
+    private long weekTtlSeconds = 3024000;
+    /**
+     * 划分窗口的时区，为空时使用系统默认的时区。
+     */
+    @Value("${rank.window.zoneId:}")
+    private String zoneId = "";
+
+    private Clock clock = Clock.systemUTC();
+
+    /**
+     * 排行榜名称 -> 已设置过期时间的当前小时桶。
+     */
+    private final ConcurrentMap<String, String> expiredBuckets = new ConcurrentHashMap<>();
+    /**
+     * 汇总结果的排行榜名称 -> 汇总状态。
+     */
+    private final ConcurrentMap<String, View> views = new ConcurrentHashMap<>();
+
+    /**
+     * 加入排行榜，分值累加到当前小时的桶中。
+     *
+     * @param rankName
+     * @param memberName
+     * @param score
+     * @return 成员在当前小时桶中累加后的分值
+     * @throws NullPointerException
+     */
+    public Long joinRank(String rankName, String memberName, long score) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+
+        final String bucketRankName = getBucketRankName(rankName, now());
+        Long totalScore = redisRankLab.joinRank(bucketRankName, memberName, score, 0D);
+        expireBucket(rankName, bucketRankName);
+        return totalScore;
+    }
+
+    /**
+     * 批量加入排行榜，所有成员通过一次网络往返累加到当前小时的桶中。
+     *
+     * @param rankName
+     * @param memberScores 成员 -> 需要累加的分值
+     * @return 按迭代顺序返回每个成员在当前小时桶中累加后的分值
+     * @throws NullPointerException
+     */
+    public List<Long> joinRankBatch(String rankName, Map<String, Long> memberScores) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+
+        final String bucketRankName = getBucketRankName(rankName, now());
+        List<Long> totalScores = redisRankLab.joinRankBatch(bucketRankName, memberScores);
+        expireBucket(rankName, bucketRankName);
+        return totalScores;
+    }
+
+    /**
+     * 获取当前窗口的排行榜。
+     *
+     * @param rankName
+     * @param window
+     * @param start    查询的排行榜开始的名次，从1开始
+     * @param end      查询的排行榜结束的名次
+     * @return
+     * @throws NullPointerException
+     */
+    public List<RankMember> getRankList(String rankName, RankWindow window, int start, int end) {
+        return redisRankLab.getRankList(getWindowRankName(rankName, window), start, end);
+    }
+
+    /**
+     * 获取成员在当前窗口的排名。
+     *
+     * @param rankName
+     * @param window
+     * @param memberName
+     * @return {@code null}, if {@code memberName} not in rank list
+     * @throws NullPointerException
+     */
+    public Long getRankNumber(String rankName, RankWindow window, String memberName) {
+        return redisRankLab.getRankNumber(getWindowRankName(rankName, window), memberName);
+    }
+
+    /**
+     * 获取成员在当前窗口的分数。
+     *
+     * @param rankName
+     * @param window
+     * @param memberName
+     * @return {@code null}, if {@code memberName} not in rank list
+     * @throws NullPointerException
+     */
+    public Long getRankScore(String rankName, RankWindow window, String memberName) {
+        return redisRankLab.getRankScore(getWindowRankName(rankName, window), memberName);
+    }
+
+    /**
+     * 获取当前窗口汇总结果的排行榜名称，必要时先重新汇总。
+     *
+     * @param rankName
+     * @param window
+     * @return 可以用于{@link RedisRankLab}查询方法的排行榜名称
+     * @throws NullPointerException
+     */
+    public String getWindowRankName(String rankName, RankWindow window) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(window, "window must not be null");
+
+        final ZonedDateTime now = now();
+        return materialize(rankName, window, window.truncate(now), now);
+    }
+
+    /**
+     * 获取指定窗口汇总结果的排行榜名称，必要时先重新汇总。
+     *
+     * @param rankName
+     * @param window
+     * @param time     窗口内的任一时间，不能晚于当前时间
+     * @return 可以用于{@link RedisRankLab}查询方法的排行榜名称
+     * @throws NullPointerException
+     * @throws IllegalArgumentException {@code time}晚于当前时间
+     */
+    public String getWindowRankName(String rankName, RankWindow window, ZonedDateTime time) {
+        Objects.requireNonNull(rankName, "rankName must not be null");
+        Objects.requireNonNull(window, "window must not be null");
+        Objects.requireNonNull(time, "time must not be null");
+
+        final ZonedDateTime now = now();
+        final ZonedDateTime windowTime = time.withZoneSameInstant(now.getZone());
+        if (windowTime.isAfter(now)) {
+            throw new IllegalArgumentException("time must not be after now");
+        }
+        return materialize(rankName, window, window.truncate(windowTime), now);
+    }
+
+    private String materialize(String rankName, RankWindow window, ZonedDateTime start, ZonedDateTime now) {
+        final String windowRankName = formatWindowRankName(redisRankLab.getRankKeyLayout(), rankName, window, start);
+        if (Objects.isNull(window.child())) {
+            return windowRankName;
+        }
+
+        final long nowMillis = now.toInstant().toEpochMilli();
+        View view = views.get(windowRankName);
+        if (Objects.nonNull(view) && (view.sealed || nowMillis - view.builtAtMillis < refreshIntervalMillis)) {
+            return windowRankName;
+        }
+
+        final ZonedDateTime end = window.next(start);
+        final boolean sealed = !now.isBefore(end.plusNanos(sealDelayMillis * 1_000_000L));
+        final String key = redisRankLab.getRankKeyLayout().getRankKey(windowRankName);
+        final String sealKey = key + SEAL_SUFFIX;
+        final long ttlSeconds = getTtlSeconds(window);
+        // 已由其他 JVM（或重启前）封存时不必展开下一级窗口，它们可能已过期；脚本中还会再检查一次
+        if (!sealed || Objects.isNull(redisComponent.get(sealKey))) {
+            List<String> sourceKeys = new ArrayList<>();
+            collectSources(rankName, window, start, now, sourceKeys);
+            final String[] keysAndArgs = new String[sourceKeys.size() + 4];
+            keysAndArgs[0] = key;
+            keysAndArgs[1] = sealKey;
+            for (int i = 0; i < sourceKeys.size(); i++) {
+                keysAndArgs[2 + i] = sourceKeys.get(i);
+            }
+            keysAndArgs[sourceKeys.size() + 2] = String.valueOf(ttlSeconds);
+            keysAndArgs[sourceKeys.size() + 3] = sealed ? "1" : "0";
+            redisComponent.evalSha(MATERIALIZE_SCRIPT, ReturnType.INTEGER, sourceKeys.size() + 2, keysAndArgs);
+        }
+
+        views.put(windowRankName, new View(nowMillis, sealed, nowMillis + ttlSeconds * 1000L));
+        if (sealed) {
+            views.values().removeIf(item -> item.expireAtMillis <= nowMillis);
+        }
+        return windowRankName;
+    }
+
+    /**
+     * 已结束的下一级窗口使用其汇总结果，进行中的下一级窗口继续向下展开，直到小时桶。
+     */
+    private void collectSources(String rankName, RankWindow window, ZonedDateTime start, ZonedDateTime now,
+                                List<String> sourceKeys) {
+        final RankWindow child = window.child();
+        final ZonedDateTime end = window.next(start);
+        for (ZonedDateTime childStart = start; childStart.isBefore(end) && !childStart.isAfter(now);
+             childStart = child.next(childStart)) {
+            final ZonedDateTime childEnd = child.next(childStart);
+            if (Objects.isNull(child.child()) || !childEnd.isAfter(now)) {
+                sourceKeys.add(redisRankLab.getRankKeyLayout().getRankKey(materialize(rankName, child, childStart, now)));
+            }
+            else {
+                collectSources(rankName, child, childStart, now, sourceKeys);
+            }
+        }
+    }
+
+    private void expireBucket(String rankName, String bucketRankName) {
+        if (!bucketRankName.equals(expiredBuckets.put(rankName, bucketRankName))) {
+            redisComponent.expire(redisRankLab.getRankKeyLayout().getRankKey(bucketRankName), hourTtlSeconds);
+        }
+    }
+
+    private long getTtlSeconds(RankWindow window) {
+        switch (window) {
+            case HOUR:
+                return hourTtlSeconds;
+            case DAY:
+                return dayTtlSeconds;
+            default:
+                return weekTtlSeconds;
+        }
+    }
+
+    private String getBucketRankName(String rankName, ZonedDateTime now) {
+        return formatWindowRankName(redisRankLab.getRankKeyLayout(), rankName, RankWindow.HOUR, RankWindow.HOUR.truncate(now));
+    }
+
+    /**
+     * 集群的格式中各个窗口的名称带有{@code rankName}的 hash tag，同一排行榜的所有桶及汇总结果在同一个 slot 中，集群中也能 ZUNIONSTORE。
+     */
+    static String formatWindowRankName(RankKeyLayout layout, String rankName, RankWindow window, ZonedDateTime start) {
+        return layout.withHashTag(rankName) + ":" + window.getCode() + ":" + window.format(start);
+    }
+
+    private ZonedDateTime now() {
+        final ZoneId zone = zoneId.isEmpty() ? ZoneId.systemDefault() : ZoneId.of(zoneId);
+        return ZonedDateTime.now(clock).withZoneSameInstant(zone);
+    }
+
+    void setClock(Clock clock) {
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+    }
+
+    private static final class View {
+        final long builtAtMillis;
+        final boolean sealed;
+        final long expireAtMillis;
+
+        View(long builtAtMillis, boolean sealed, long expireAtMillis) {
+            this.builtAtMillis = builtAtMillis;
+            this.sealed = sealed;
+            this.expireAtMillis = expireAtMillis;
+        }
+    }
+}
@@ -25,7 +25,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
  * @since 1.0.0
  */
 @ContextConfiguration({
-        "/spring/spring-*.xml"
+        "classpath*:/spring/spring-*.xml"
 })
 @RunWith(SpringJUnit4ClassRunner.class)
 public class BaseSpringIntegrationTest {
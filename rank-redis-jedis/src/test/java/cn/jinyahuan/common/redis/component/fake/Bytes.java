@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.component.fake;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 作为 key 的字节数组，按无符号字节序比较，与 redis 的 memcmp 一致。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+final class Bytes implements Comparable<Bytes> {
+    final byte[] value;
+    private final int hash;
+
+    Bytes(byte[] value) {
+        this.value = value;
+        this.hash = Arrays.hashCode(value);
+    }
+
+    static Bytes of(String value) {
+        return new Bytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static int compare(byte[] bytes1, byte[] bytes2) {
+        final int length = Math.min(bytes1.length, bytes2.length);
+        for (int i = 0; i < length; i++) {
+            int b1 = bytes1[i] & 0xFF;
+            int b2 = bytes2[i] & 0xFF;
+            if (b1 != b2) {
+                return b1 - b2;
+            }
+        }
+        return bytes1.length - bytes2.length;
+    }
+
+    @Override
+    public int compareTo(Bytes o) {
+        return compare(value, o.value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Bytes bytes = (Bytes) o;
+        return hash == bytes.hash && Arrays.equals(value, bytes.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
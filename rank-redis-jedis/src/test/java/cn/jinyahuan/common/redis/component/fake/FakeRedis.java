@@ -0,0 +1,517 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.component.fake;
+
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.connection.DefaultTuple;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内的 redis 替身，实现排行榜用到的 string、hash、zset、key 及脚本命令，语义与 redis 一致。
+ *
+ * <p>与 redis 的单线程模型一样，所有命令都在同一把锁内执行，脚本执行期间也持有这把锁，因此都是原子的。
+ * 过期的 key 在访问时才删除。
+ *
+ * <p>lua 脚本不会被解释执行，需要预先通过{@link #registerScript}注册其 java 实现，
+ * 未注册的脚本在执行时返回错误。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+@Profile("fake")
+public class FakeRedis {
+    private static final String WRONG_TYPE =
+            "WRONGTYPE Operation against a key holding the wrong kind of value";
+
+    private final Map<Bytes, Object> data = new HashMap<>();
+    private final Map<Bytes, Long> expireAtMillis = new HashMap<>();
+
+    private final Map<String, FakeScript> scripts = new ConcurrentHashMap<>();
+    private final Map<String, String> loadedScripts = new ConcurrentHashMap<>();
+
+    public FakeRedis() {
+        registerScript(RedisComponent.UNLINK_SCRIPT.getSource(), (redis, keys, args) -> redis.del(keys));
+    }
+
+    // --- Connection
+
+    public String ping() {
+        return "PONG";
+    }
+
+    // --- Keys
+
+    public synchronized long del(byte[]... keys) {
+        long deleted = 0;
+        for (byte[] key : keys) {
+            final Bytes k = new Bytes(key);
+            if (Objects.nonNull(lookup(k))) {
+                data.remove(k);
+                expireAtMillis.remove(k);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    public synchronized boolean exists(byte[] key) {
+        return Objects.nonNull(lookup(new Bytes(key)));
+    }
+
+    /**
+     * @param key
+     * @param seconds 不大于0时立即删除
+     * @return key 不存在时返回{@code false}
+     */
+    public synchronized boolean expire(byte[] key, long seconds) {
+        final Bytes k = new Bytes(key);
+        if (Objects.isNull(lookup(k))) {
+            return false;
+        }
+        if (seconds <= 0) {
+            data.remove(k);
+            expireAtMillis.remove(k);
+        }
+        else {
+            expireAtMillis.put(k, System.currentTimeMillis() + seconds * 1000);
+        }
+        return true;
+    }
+
+    /**
+     * 重命名 key，过期时间随 key 转移，目标 key 已存在时被覆盖。
+     *
+     * @param key
+     * @param newKey
+     */
+    public synchronized void rename(byte[] key, byte[] newKey) {
+        final Bytes k = new Bytes(key);
+        final Object value = lookup(k);
+        if (Objects.isNull(value)) {
+            throw new InvalidDataAccessApiUsageException("ERR no such key");
+        }
+        final Long expireAt = expireAtMillis.remove(k);
+        data.remove(k);
+
+        final Bytes newK = new Bytes(newKey);
+        data.put(newK, value);
+        expireAtMillis.remove(newK);
+        if (Objects.nonNull(expireAt)) {
+            expireAtMillis.put(newK, expireAt);
+        }
+    }
+
+    /**
+     * 清空所有数据。
+     */
+    public synchronized void flushAll() {
+        data.clear();
+        expireAtMillis.clear();
+    }
+
+    // --- Strings
+
+    public synchronized byte[] get(byte[] key) {
+        return getString(new Bytes(key));
+    }
+
+    public synchronized void set(byte[] key, byte[] value) {
+        final Bytes k = new Bytes(key);
+        data.put(k, value);
+        expireAtMillis.remove(k);
+    }
+
+    public synchronized long incrBy(byte[] key, long increment) {
+        final Bytes k = new Bytes(key);
+        final byte[] value = getString(k);
+        long current = 0;
+        if (Objects.nonNull(value)) {
+            try {
+                current = Long.parseLong(new String(value, StandardCharsets.UTF_8));
+            } catch (NumberFormatException ex) {
+                throw new InvalidDataAccessApiUsageException("ERR value is not an integer or out of range");
+            }
+        }
+        final long result = current + increment;
+        if (((current ^ result) & (increment ^ result)) < 0) {
+            throw new InvalidDataAccessApiUsageException("ERR increment or decrement would overflow");
+        }
+        data.put(k, Long.toString(result).getBytes(StandardCharsets.UTF_8));
+        return result;
+    }
+
+    // --- Hashes
+
+    public synchronized byte[] hGet(byte[] key, byte[] field) {
+        final Map<Bytes, byte[]> hash = getHash(new Bytes(key), false);
+        return Objects.isNull(hash) ? null : hash.get(new Bytes(field));
+    }
+
+    public synchronized List<byte[]> hMGet(byte[] key, byte[]... fields) {
+        final Map<Bytes, byte[]> hash = getHash(new Bytes(key), false);
+        final List<byte[]> resultList = new ArrayList<>(fields.length);
+        for (byte[] field : fields) {
+            resultList.add(Objects.isNull(hash) ? null : hash.get(new Bytes(field)));
+        }
+        return resultList;
+    }
+
+    /**
+     * @param key
+     * @param field
+     * @param value
+     * @return 是否新增了字段
+     */
+    public synchronized boolean hSet(byte[] key, byte[] field, byte[] value) {
+        return Objects.isNull(getHash(new Bytes(key), true).put(new Bytes(field), value));
+    }
+
+    // --- Sorted Sets
+
+    public synchronized boolean zAdd(byte[] key, byte[] member, double score) {
+        checkScore(score);
+        return getSortedSet(new Bytes(key), true).add(new Bytes(member), score);
+    }
+
+    /**
+     * @return 移除的成员数
+     */
+    public synchronized long zRem(byte[] key, byte[] member) {
+        final Bytes k = new Bytes(key);
+        final FakeSortedSet sortedSet = getSortedSet(k, false);
+        if (Objects.isNull(sortedSet) || !sortedSet.remove(new Bytes(member))) {
+            return 0;
+        }
+        removeIfEmpty(k, sortedSet);
+        return 1;
+    }
+
+    public synchronized double zIncrBy(byte[] key, byte[] member, double increment) {
+        final Bytes k = new Bytes(key);
+        final Bytes m = new Bytes(member);
+        final FakeSortedSet sortedSet = getSortedSet(k, false);
+        final Double oldScore = Objects.isNull(sortedSet) ? null : sortedSet.score(m);
+        final double score = Objects.isNull(oldScore) ? increment : oldScore + increment;
+        checkScore(score);
+        (Objects.isNull(sortedSet) ? getSortedSet(k, true) : sortedSet).add(m, score);
+        return score;
+    }
+
+    public synchronized Double zScore(byte[] key, byte[] member) {
+        final FakeSortedSet sortedSet = getSortedSet(new Bytes(key), false);
+        return Objects.isNull(sortedSet) ? null : sortedSet.score(new Bytes(member));
+    }
+
+    public synchronized long zCard(byte[] key) {
+        final FakeSortedSet sortedSet = getSortedSet(new Bytes(key), false);
+        return Objects.isNull(sortedSet) ? 0 : sortedSet.size();
+    }
+
+    /**
+     * @param key
+     * @param member
+     * @return 从0开始，不存在时返回{@code null}
+     */
+    public synchronized Long zRevRank(byte[] key, byte[] member) {
+        final FakeSortedSet sortedSet = getSortedSet(new Bytes(key), false);
+        if (Objects.isNull(sortedSet)) {
+            return null;
+        }
+        final Long rank = sortedSet.rank(new Bytes(member));
+        return Objects.isNull(rank) ? null : sortedSet.size() - 1 - rank;
+    }
+
+    /**
+     * 统计分值在范围内的成员数，与 ZCOUNT 一致。
+     *
+     * @param key
+     * @param min
+     * @param minInclusive 是否包含{@code min}，为{@code false}时相当于 "(min"
+     * @param max
+     * @param maxInclusive 是否包含{@code max}
+     * @return
+     */
+    public synchronized long zCount(byte[] key, double min, boolean minInclusive, double max, boolean maxInclusive) {
+        final FakeSortedSet sortedSet = getSortedSet(new Bytes(key), false);
+        if (Objects.isNull(sortedSet)) {
+            return 0;
+        }
+        final long count = sortedSet.countBelow(max, maxInclusive) - sortedSet.countBelow(min, !minInclusive);
+        return Math.max(count, 0);
+    }
+
+    /**
+     * 按降序名次取成员，{@code start}、{@code stop}为负数时从末尾计算，与 ZREVRANGE 一致。
+     */
+    public synchronized Set<RedisZSetCommands.Tuple> zRevRangeWithScores(byte[] key, long start, long stop) {
+        final FakeSortedSet sortedSet = getSortedSet(new Bytes(key), false);
+        if (Objects.isNull(sortedSet)) {
+            return new LinkedHashSet<>();
+        }
+        final long[] range = normalizeRange(sortedSet.size(), start, stop);
+        if (Objects.isNull(range)) {
+            return new LinkedHashSet<>();
+        }
+        final Set<RedisZSetCommands.Tuple> resultSet = new LinkedHashSet<>();
+        FakeSortedSet.Node node = sortedSet.getByRank(sortedSet.size() - 1 - range[0]);
+        for (long i = range[0]; i <= range[1]; i++, node = node.backward) {
+            resultSet.add(new DefaultTuple(node.member, node.score));
+        }
+        return resultSet;
+    }
+
+    /**
+     * 按分值降序取分值在[{@code min},{@code max}]内的成员，跳过{@code offset}个后最多取{@code count}个，
+     * {@code count}为负数时不限制，与 ZREVRANGEBYSCORE ... LIMIT 一致。
+     */
+    public synchronized Set<RedisZSetCommands.Tuple> zRevRangeByScoreWithScores(byte[] key, double min, double max,
+                                                                               long offset, long count) {
+        final Set<RedisZSetCommands.Tuple> resultSet = new LinkedHashSet<>();
+        final FakeSortedSet sortedSet = getSortedSet(new Bytes(key), false);
+        if (Objects.isNull(sortedSet) || offset < 0) {
+            return resultSet;
+        }
+        FakeSortedSet.Node node = sortedSet.getLastNotGreaterThan(max);
+        for (long skipped = 0; Objects.nonNull(node) && node.score >= min && skipped < offset; skipped++) {
+            node = node.backward;
+        }
+        for (; Objects.nonNull(node) && node.score >= min && (count < 0 || resultSet.size() < count);
+             node = node.backward) {
+            resultSet.add(new DefaultTuple(node.member, node.score));
+        }
+        return resultSet;
+    }
+
+    /**
+     * 按升序名次删除成员，与 ZREMRANGEBYRANK 一致。
+     *
+     * @return 删除的成员数
+     */
+    public synchronized long zRemRangeByRank(byte[] key, long start, long stop) {
+        final Bytes k = new Bytes(key);
+        final FakeSortedSet sortedSet = getSortedSet(k, false);
+        if (Objects.isNull(sortedSet)) {
+            return 0;
+        }
+        final long[] range = normalizeRange(sortedSet.size(), start, stop);
+        if (Objects.isNull(range)) {
+            return 0;
+        }
+        final List<Bytes> members = new ArrayList<>();
+        FakeSortedSet.Node node = sortedSet.getByRank(range[0]);
+        for (long i = range[0]; i <= range[1]; i++, node = node.next()) {
+            members.add(new Bytes(node.member));
+        }
+        for (Bytes member : members) {
+            sortedSet.remove(member);
+        }
+        removeIfEmpty(k, sortedSet);
+        return members.size();
+    }
+
+    /**
+     * 以相同的权重、SUM 的方式合并，与 ZUNIONSTORE 一致。
+     *
+     * @return 结果的成员数
+     */
+    public synchronized long zUnionStore(byte[] destKey, byte[]... keys) {
+        final Map<Bytes, Double> union = new HashMap<>();
+        for (byte[] key : keys) {
+            final FakeSortedSet sortedSet = getSortedSet(new Bytes(key), false);
+            if (Objects.isNull(sortedSet)) {
+                continue;
+            }
+            for (FakeSortedSet.Node node = sortedSet.getFirst(); Objects.nonNull(node); node = node.next()) {
+                union.merge(new Bytes(node.member), node.score, Double::sum);
+            }
+        }
+
+        final Bytes destK = new Bytes(destKey);
+        data.remove(destK);
+        expireAtMillis.remove(destK);
+        if (union.isEmpty()) {
+            return 0;
+        }
+        final FakeSortedSet dest = new FakeSortedSet();
+        for (Map.Entry<Bytes, Double> entry : union.entrySet()) {
+            dest.add(entry.getKey(), entry.getValue());
+        }
+        data.put(destK, dest);
+        return dest.size();
+    }
+
+    // --- Scripting
+
+    /**
+     * 注册 lua 脚本的 java 实现。
+     *
+     * @param source 脚本内容
+     * @param script
+     */
+    public void registerScript(String source, FakeScript script) {
+        Objects.requireNonNull(source, "source must not be null");
+        Objects.requireNonNull(script, "script must not be null");
+        scripts.put(source, script);
+    }
+
+    public String scriptLoad(String source) {
+        final String sha = sha1Hex(source);
+        loadedScripts.put(sha, source);
+        return sha;
+    }
+
+    public synchronized Object evalSha(String sha, int numKeys, byte[]... keysAndArgs) {
+        final String source = loadedScripts.get(sha);
+        if (Objects.isNull(source)) {
+            throw new InvalidDataAccessApiUsageException("NOSCRIPT No matching script. Please use EVAL.");
+        }
+        final FakeScript script = scripts.get(source);
+        if (Objects.isNull(script)) {
+            throw new InvalidDataAccessApiUsageException("ERR no java implementation registered for script: " + source);
+        }
+        if (numKeys < 0 || numKeys > keysAndArgs.length) {
+            throw new InvalidDataAccessApiUsageException("ERR Number of keys can't be greater than number of args");
+        }
+        return script.execute(this,
+                Arrays.copyOfRange(keysAndArgs, 0, numKeys),
+                Arrays.copyOfRange(keysAndArgs, numKeys, keysAndArgs.length));
+    }
+
+    /**
+     * 按 redis 返回浮点数的格式转换，用于脚本的返回值。
+     *
+     * @param value
+     * @return
+     */
+    public static byte[] formatDouble(double value) {
+        final String text = value == Math.rint(value) && Math.abs(value) < 1e17
+                ? Long.toString((long) value)
+                : Double.toString(value);
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // ---
+
+    private Object lookup(Bytes key) {
+        if (expireAtMillis.isEmpty()) {
+            return data.get(key);
+        }
+        final Long expireAt = expireAtMillis.get(key);
+        if (Objects.nonNull(expireAt) && expireAt <= System.currentTimeMillis()) {
+            data.remove(key);
+            expireAtMillis.remove(key);
+            return null;
+        }
+        return data.get(key);
+    }
+
+    private byte[] getString(Bytes key) {
+        final Object value = lookup(key);
+        if (Objects.nonNull(value) && !(value instanceof byte[])) {
+            throw new InvalidDataAccessApiUsageException(WRONG_TYPE);
+        }
+        return (byte[]) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Bytes, byte[]> getHash(Bytes key, boolean create) {
+        final Object value = lookup(key);
+        if (Objects.isNull(value)) {
+            if (!create) {
+                return null;
+            }
+            final Map<Bytes, byte[]> hash = new HashMap<>();
+            data.put(key, hash);
+            return hash;
+        }
+        if (!(value instanceof Map)) {
+            throw new InvalidDataAccessApiUsageException(WRONG_TYPE);
+        }
+        return (Map<Bytes, byte[]>) value;
+    }
+
+    private FakeSortedSet getSortedSet(Bytes key, boolean create) {
+        final Object value = lookup(key);
+        if (Objects.isNull(value)) {
+            if (!create) {
+                return null;
+            }
+            final FakeSortedSet sortedSet = new FakeSortedSet();
+            data.put(key, sortedSet);
+            return sortedSet;
+        }
+        if (!(value instanceof FakeSortedSet)) {
+            throw new InvalidDataAccessApiUsageException(WRONG_TYPE);
+        }
+        return (FakeSortedSet) value;
+    }
+
+    private void removeIfEmpty(Bytes key, FakeSortedSet sortedSet) {
+        if (sortedSet.size() == 0) {
+            data.remove(key);
+            expireAtMillis.remove(key);
+        }
+    }
+
+    private static void checkScore(double score) {
+        if (Double.isNaN(score)) {
+            throw new InvalidDataAccessApiUsageException("ERR resulting score is not a number (NaN)");
+        }
+    }
+
+    /**
+     * @return 规范化后的[start, stop]，范围为空时返回{@code null}
+     */
+    private static long[] normalizeRange(long length, long start, long stop) {
+        if (start < 0) {
+            start = Math.max(length + start, 0);
+        }
+        if (stop < 0) {
+            stop = length + stop;
+        }
+        if (stop >= length) {
+            stop = length - 1;
+        }
+        if (start > stop || start >= length) {
+            return null;
+        }
+        return new long[]{start, stop};
+    }
+
+    private static String sha1Hex(String source) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
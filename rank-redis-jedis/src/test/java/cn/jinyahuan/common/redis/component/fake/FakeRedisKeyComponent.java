@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.component.fake;
+
+import cn.jinyahuan.common.redis.component.RedisKeyComponent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+@Profile("fake")
+public class FakeRedisKeyComponent implements RedisKeyComponent {
+    @Autowired
+    private FakeRedis fakeRedis;
+
+    @Override
+    public Long del(String key) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return fakeRedis.del(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Boolean expire(String key, long seconds) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return fakeRedis.expire(key.getBytes(StandardCharsets.UTF_8), seconds);
+    }
+}
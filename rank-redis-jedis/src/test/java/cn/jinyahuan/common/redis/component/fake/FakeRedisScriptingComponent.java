@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.component.fake;
+
+import cn.jinyahuan.common.redis.component.RedisScriptingComponent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * 执行通过{@link FakeRedis#registerScript}注册的脚本的 java 实现。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+@Profile("fake")
+public class FakeRedisScriptingComponent implements RedisScriptingComponent {
+    @Autowired
+    private FakeRedis fakeRedis;
+
+    @Override
+    public String scriptLoad(String script) {
+        if (Objects.isNull(script)) {
+            return null;
+        }
+        return fakeRedis.scriptLoad(script);
+    }
+
+    @Override
+    public <T> T evalSha(String scriptSha, ReturnType returnType, int numKeys, String... keysAndArgs) {
+        if (Boolean.logicalOr(Objects.isNull(scriptSha), Objects.isNull(keysAndArgs))) {
+            return null;
+        }
+        final byte[][] rawKeysAndArgs = new byte[keysAndArgs.length][];
+        for (int i = 0; i < keysAndArgs.length; i++) {
+            rawKeysAndArgs[i] = keysAndArgs[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return evalSha(scriptSha, returnType, numKeys, rawKeysAndArgs);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T evalSha(String scriptSha, ReturnType returnType, int numKeys, byte[]... keysAndArgs) {
+        if (Boolean.logicalOr(Objects.isNull(scriptSha), Objects.isNull(keysAndArgs))) {
+            return null;
+        }
+        final Object result = fakeRedis.evalSha(scriptSha, numKeys, keysAndArgs);
+        if (returnType == ReturnType.BOOLEAN) {
+            // lua 的 true 转换为整数1，false 及 nil 转换为 nil
+            return (T) Boolean.valueOf(Objects.nonNull(result) && !Long.valueOf(0).equals(result));
+        }
+        return (T) result;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.component.fake;
+
+import cn.jinyahuan.common.redis.component.RedisSortedSetComponent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 批量的方法逐个执行，每个命令是原子的，但整批不是，与管道一致。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+@Profile("fake")
+public class FakeRedisSortedSetComponent implements RedisSortedSetComponent {
+    @Autowired
+    private FakeRedis fakeRedis;
+
+    @Override
+    public Boolean zAdd(String key, String member, double score) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
+            return null;
+        }
+        return fakeRedis.zAdd(encode(key), encode(member), score);
+    }
+
+    @Override
+    public Double zIncrBy(String key, String member, double score) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
+            return null;
+        }
+        return zIncrBy(encode(key), encode(member), score);
+    }
+
+    @Override
+    public Double zIncrBy(byte[] key, byte[] member, double score) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
+            return null;
+        }
+        return fakeRedis.zIncrBy(key, member, score);
+    }
+
+    @Override
+    public Double zScore(String key, String member) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
+            return null;
+        }
+        return zScore(encode(key), encode(member));
+    }
+
+    @Override
+    public Double zScore(byte[] key, byte[] member) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
+            return null;
+        }
+        return fakeRedis.zScore(key, member);
+    }
+
+    @Override
+    public Long zRevrank(String key, String member) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
+            return null;
+        }
+        return zRevrank(encode(key), encode(member));
+    }
+
+    @Override
+    public Long zRevrank(byte[] key, byte[] member) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(member))) {
+            return null;
+        }
+        return fakeRedis.zRevRank(key, member);
+    }
+
+    @Override
+    public Set<RedisZSetCommands.Tuple> zRevRangeWithScores(String key, long start, long stop) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return zRevRangeWithScores(encode(key), start, stop);
+    }
+
+    @Override
+    public Set<RedisZSetCommands.Tuple> zRevRangeWithScores(byte[] key, long start, long stop) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return fakeRedis.zRevRangeWithScores(key, start, stop);
+    }
+
+    @Override
+    public Set<RedisZSetCommands.Tuple> zRevRangeByScoreWithScores(String key, double min, double max,
+                                                                  long offset, long count) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return fakeRedis.zRevRangeByScoreWithScores(encode(key), min, max, offset, count);
+    }
+
+    @Override
+    public Long zUnionStore(String destKey, Collection<String> keys) {
+        if (Boolean.logicalOr(Objects.isNull(destKey), Objects.isNull(keys))) {
+            return null;
+        }
+        final byte[][] rawKeys = new byte[keys.size()][];
+        int i = 0;
+        for (String key : keys) {
+            rawKeys[i++] = encode(key);
+        }
+        return fakeRedis.zUnionStore(encode(destKey), rawKeys);
+    }
+
+    @Override
+    public Long zRemRangeByRank(String key, long start, long stop) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return fakeRedis.zRemRangeByRank(encode(key), start, stop);
+    }
+
+    @Override
+    public List<Double> zIncrByBatch(String key, Map<String, Double> memberScores) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(memberScores))) {
+            return null;
+        }
+        final byte[] rawKey = encode(key);
+        final List<Double> resultList = new ArrayList<>(memberScores.size());
+        for (Map.Entry<String, Double> entry : memberScores.entrySet()) {
+            resultList.add(fakeRedis.zIncrBy(rawKey, encode(entry.getKey()), entry.getValue()));
+        }
+        return resultList;
+    }
+
+    @Override
+    public List<Double> zIncrByBatch(Map<String, ? extends Map<String, Double>> keyMemberScores) {
+        if (Objects.isNull(keyMemberScores)) {
+            return null;
+        }
+        final List<Double> resultList = new ArrayList<>();
+        for (Map.Entry<String, ? extends Map<String, Double>> keyEntry : keyMemberScores.entrySet()) {
+            resultList.addAll(zIncrByBatch(keyEntry.getKey(), keyEntry.getValue()));
+        }
+        return resultList;
+    }
+
+    @Override
+    public List<Double> zScoreBatch(String key, Collection<String> members) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(members))) {
+            return null;
+        }
+        final byte[] rawKey = encode(key);
+        final List<Double> resultList = new ArrayList<>(members.size());
+        for (String member : members) {
+            resultList.add(fakeRedis.zScore(rawKey, encode(member)));
+        }
+        return resultList;
+    }
+
+    @Override
+    public List<Long> zRevrankBatch(String key, Collection<String> members) {
+        if (Boolean.logicalOr(Objects.isNull(key), Objects.isNull(members))) {
+            return null;
+        }
+        final byte[] rawKey = encode(key);
+        final List<Long> resultList = new ArrayList<>(members.size());
+        for (String member : members) {
+            resultList.add(fakeRedis.zRevRank(rawKey, encode(member)));
+        }
+        return resultList;
+    }
+
+    private static byte[] encode(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
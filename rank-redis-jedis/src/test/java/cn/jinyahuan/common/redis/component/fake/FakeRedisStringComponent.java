@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.component.fake;
+
+import cn.jinyahuan.common.redis.component.RedisStringComponent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+@Profile("fake")
+public class FakeRedisStringComponent implements RedisStringComponent {
+    @Autowired
+    private FakeRedis fakeRedis;
+
+    @Override
+    public String get(String key) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        byte[] temp = fakeRedis.get(key.getBytes(StandardCharsets.UTF_8));
+        return Objects.isNull(temp) ? null : new String(temp, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void set(String key, String value) {
+        if (Objects.isNull(key) || Objects.isNull(value)) {
+            return;
+        }
+        fakeRedis.set(key.getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Long incr(String key) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return incr(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Long incr(byte[] key) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return fakeRedis.incrBy(key, 1);
+    }
+
+    @Override
+    public Long incrBy(String key, long increment) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return incrBy(key.getBytes(StandardCharsets.UTF_8), increment);
+    }
+
+    @Override
+    public Long incrBy(byte[] key, long increment) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        return fakeRedis.incrBy(key, increment);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.component.fake;
+
+import org.junit.Test;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FakeRedisTest {
+    private static final byte[] KEY = bytes("fakeRedisTest");
+
+    private final FakeRedis fakeRedis = new FakeRedis();
+
+    @Test
+    public void testSortedSet() {
+        assertTrue(fakeRedis.zAdd(KEY, bytes("b"), 1));
+        assertFalse(fakeRedis.zAdd(KEY, bytes("b"), 2));
+        assertEquals(3, fakeRedis.zIncrBy(KEY, bytes("a"), 3), 0);
+        assertEquals(3, fakeRedis.zIncrBy(KEY, bytes("c"), 3), 0);
+        assertEquals(3, fakeRedis.zCard(KEY));
+
+        // 同分时按成员的字节序，降序时 c 在 a 之前
+        assertEquals(Long.valueOf(0), fakeRedis.zRevRank(KEY, bytes("c")));
+        assertEquals(Long.valueOf(1), fakeRedis.zRevRank(KEY, bytes("a")));
+        assertEquals(Long.valueOf(2), fakeRedis.zRevRank(KEY, bytes("b")));
+        assertNull(fakeRedis.zRevRank(KEY, bytes("d")));
+        assertEquals(Double.valueOf(2), fakeRedis.zScore(KEY, bytes("b")));
+
+        assertEquals(Arrays.asList("c", "a", "b"), names(fakeRedis.zRevRangeWithScores(KEY, 0, -1)));
+        assertEquals(Arrays.asList("a", "b"), names(fakeRedis.zRevRangeWithScores(KEY, -2, 10)));
+        assertTrue(fakeRedis.zRevRangeWithScores(KEY, 3, 10).isEmpty());
+
+        assertEquals(Arrays.asList("a", "b"), names(fakeRedis.zRevRangeByScoreWithScores(KEY, 0, 3, 1, 5)));
+        assertEquals(Arrays.asList("b"), names(fakeRedis.zRevRangeByScoreWithScores(KEY, 0, 2.5, 0, 5)));
+        assertEquals(Arrays.asList("c"), names(fakeRedis.zRevRangeByScoreWithScores(KEY, 0, 3, 0, 1)));
+
+        assertEquals(2, fakeRedis.zRemRangeByRank(KEY, 0, 1));
+        assertEquals(Arrays.asList("c"), names(fakeRedis.zRevRangeWithScores(KEY, 0, -1)));
+        assertEquals(1, fakeRedis.zRemRangeByRank(KEY, 0, -1));
+        // 成员全部删除后 key 也被删除
+        assertFalse(fakeRedis.exists(KEY));
+    }
+
+    @Test
+    public void testSortedSetOrder() {
+        final int count = 1000;
+        for (int i = 0; i < count; i++) {
+            fakeRedis.zIncrBy(KEY, bytes("m" + i), i % 10);
+        }
+        Set<RedisZSetCommands.Tuple> tuples = fakeRedis.zRevRangeWithScores(KEY, 0, -1);
+        assertEquals(count, tuples.size());
+        RedisZSetCommands.Tuple previous = null;
+        long rank = 0;
+        for (RedisZSetCommands.Tuple tuple : tuples) {
+            if (previous != null) {
+                assertTrue(previous.getScore() > tuple.getScore() || (previous.getScore().equals(tuple.getScore())
+                        && Bytes.compare(previous.getValue(), tuple.getValue()) > 0));
+            }
+            assertEquals(Long.valueOf(rank++), fakeRedis.zRevRank(KEY, tuple.getValue()));
+            previous = tuple;
+        }
+    }
+
+    @Test
+    public void testZUnionStore() {
+        final byte[] key2 = bytes("fakeRedisTest2");
+        final byte[] dest = bytes("fakeRedisTestDest");
+        fakeRedis.zIncrBy(KEY, bytes("a"), 1);
+        fakeRedis.zIncrBy(key2, bytes("a"), 2);
+        fakeRedis.zIncrBy(key2, bytes("b"), 5);
+        assertEquals(2, fakeRedis.zUnionStore(dest, KEY, key2, bytes("notExists")));
+        assertEquals(Double.valueOf(3), fakeRedis.zScore(dest, bytes("a")));
+        assertEquals(0, fakeRedis.zUnionStore(dest));
+        assertFalse(fakeRedis.exists(dest));
+    }
+
+    @Test
+    public void testStringAndKeys() {
+        assertEquals(1, fakeRedis.incrBy(KEY, 1));
+        assertEquals(11, fakeRedis.incrBy(KEY, 10));
+        assertEquals("11", new String(fakeRedis.get(KEY), StandardCharsets.UTF_8));
+
+        fakeRedis.rename(KEY, bytes("renamed"));
+        assertFalse(fakeRedis.exists(KEY));
+        assertEquals(1, fakeRedis.del(bytes("renamed"), bytes("notExists")));
+
+        assertFalse(fakeRedis.expire(KEY, 10));
+        fakeRedis.set(KEY, bytes("v"));
+        assertTrue(fakeRedis.expire(KEY, 10));
+        assertTrue(fakeRedis.exists(KEY));
+        assertTrue(fakeRedis.expire(KEY, 0));
+        assertFalse(fakeRedis.exists(KEY));
+    }
+
+    @Test(expected = InvalidDataAccessApiUsageException.class)
+    public void testIncrNotInteger() {
+        fakeRedis.set(KEY, bytes("v"));
+        fakeRedis.incrBy(KEY, 1);
+    }
+
+    @Test(expected = InvalidDataAccessApiUsageException.class)
+    public void testWrongType() {
+        fakeRedis.set(KEY, bytes("v"));
+        fakeRedis.zIncrBy(KEY, bytes("a"), 1);
+    }
+
+    @Test
+    public void testScript() {
+        final String source = "return redis.call('ZCARD', KEYS[1])";
+        fakeRedis.registerScript(source, (redis, keys, args) -> redis.zCard(keys[0]));
+        try {
+            fakeRedis.evalSha("0000000000000000000000000000000000000000", 1, KEY);
+            fail();
+        } catch (InvalidDataAccessApiUsageException ex) {
+            assertTrue(ex.getMessage().startsWith("NOSCRIPT"));
+        }
+
+        final String sha = fakeRedis.scriptLoad(source);
+        assertEquals(40, sha.length());
+        fakeRedis.zIncrBy(KEY, bytes("a"), 1);
+        assertEquals(1L, fakeRedis.evalSha(sha, 1, KEY));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> names(Set<RedisZSetCommands.Tuple> tuples) {
+        List<String> names = new ArrayList<>();
+        for (RedisZSetCommands.Tuple tuple : tuples) {
+            names.add(new String(tuple.getValue(), StandardCharsets.UTF_8));
+        }
+        return names;
+    }
+}
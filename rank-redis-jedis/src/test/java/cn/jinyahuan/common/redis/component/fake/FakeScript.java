@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.component.fake;
+
+/**
+ * lua 脚本在{@link FakeRedis}中的 java 实现，执行期间持有{@link FakeRedis}的锁，与 redis 一样是原子的。
+ *
+ * <p>返回值与 lua 脚本的返回值转换后的类型一致：整数为{@link Long}，字符串为{@code byte[]}，数组为{@link java.util.List}。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@FunctionalInterface
+public interface FakeScript {
+    /**
+     * @param redis
+     * @param keys  KEYS
+     * @param args  ARGV
+     * @return
+     */
+    Object execute(FakeRedis redis, byte[][] keys, byte[][] args);
+}
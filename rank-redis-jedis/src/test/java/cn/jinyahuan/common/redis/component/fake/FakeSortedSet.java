@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.component.fake;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 有序集合，与 redis 的 zset 一致：成员到分值的散列表加上带跨度的跳表，
+ * 跳表按（分值，成员的字节序）升序排列，按成员求名次、按名次取成员都是{@code O(log n)}。
+ *
+ * <p>非线程安全，由{@link FakeRedis}加锁。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+final class FakeSortedSet {
+    private static final int MAX_LEVEL = 32;
+    private static final int LEVEL_UP_BOUND = 1 << 2;
+
+    private final Map<Bytes, Double> scores = new HashMap<>();
+    private final Node header = new Node(null, 0, MAX_LEVEL);
+    private Node tail;
+    private int level = 1;
+    private int length;
+
+    int size() {
+        return length;
+    }
+
+    Double score(Bytes member) {
+        return scores.get(member);
+    }
+
+    /**
+     * @param member
+     * @param score
+     * @return 是否新增了成员
+     */
+    boolean add(Bytes member, double score) {
+        final Double oldScore = scores.put(member, score);
+        if (oldScore != null) {
+            if (oldScore == score) {
+                return false;
+            }
+            delete(oldScore, member.value);
+        }
+        insert(score, member.value);
+        return oldScore == null;
+    }
+
+    boolean remove(Bytes member) {
+        final Double oldScore = scores.remove(member);
+        if (oldScore == null) {
+            return false;
+        }
+        delete(oldScore, member.value);
+        return true;
+    }
+
+    /**
+     * @param member
+     * @return 升序名次，从0开始，不存在时返回{@code null}
+     */
+    Long rank(Bytes member) {
+        final Double score = scores.get(member);
+        if (score == null) {
+            return null;
+        }
+        long rank = 0;
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && compare(x.forward[i], score, member.value) <= 0) {
+                rank += x.span[i];
+                x = x.forward[i];
+            }
+            if (x != header && compare(x, score, member.value) == 0) {
+                return rank - 1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param rank 升序名次，从0开始
+     * @return 不存在时返回{@code null}
+     */
+    Node getByRank(long rank) {
+        if (rank < 0 || rank >= length) {
+            return null;
+        }
+        final long target = rank + 1;
+        long traversed = 0;
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && traversed + x.span[i] <= target) {
+                traversed += x.span[i];
+                x = x.forward[i];
+            }
+            if (traversed == target) {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param max
+     * @return 分值不大于{@code max}的最后一个成员，不存在时返回{@code null}
+     */
+    Node getLastNotGreaterThan(double max) {
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && x.forward[i].score <= max) {
+                x = x.forward[i];
+            }
+        }
+        return x == header ? null : x;
+    }
+
+    /**
+     * @param score
+     * @param inclusive 是否包含分值等于{@code score}的成员
+     * @return 分值小于（{@code inclusive}时为不大于）{@code score}的成员数
+     */
+    long countBelow(double score, boolean inclusive) {
+        long count = 0;
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null
+                    && (x.forward[i].score < score || (inclusive && x.forward[i].score == score))) {
+                count += x.span[i];
+                x = x.forward[i];
+            }
+        }
+        return count;
+    }
+
+    Node getFirst() {
+        return header.forward[0];
+    }
+
+    Node getLast() {
+        return tail;
+    }
+
+    private void insert(double score, byte[] member) {
+        final Node[] update = new Node[MAX_LEVEL];
+        final int[] rank = new int[MAX_LEVEL];
+
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.forward[i] != null && compare(x.forward[i], score, member) < 0) {
+                rank[i] += x.span[i];
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+
+        final int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = header;
+                update[i].span[i] = length;
+            }
+            level = nodeLevel;
+        }
+
+        x = new Node(member, score, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            x.forward[i] = update[i].forward[i];
+            update[i].forward[i] = x;
+
+            x.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+
+        x.backward = update[0] == header ? null : update[0];
+        if (x.forward[0] != null) {
+            x.forward[0].backward = x;
+        }
+        else {
+            tail = x;
+        }
+        length++;
+    }
+
+    private void delete(double score, byte[] member) {
+        final Node[] update = new Node[MAX_LEVEL];
+
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && compare(x.forward[i], score, member) < 0) {
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+
+        x = x.forward[0];
+        for (int i = 0; i < level; i++) {
+            if (update[i].forward[i] == x) {
+                update[i].span[i] += x.span[i] - 1;
+                update[i].forward[i] = x.forward[i];
+            }
+            else {
+                update[i].span[i] -= 1;
+            }
+        }
+        if (x.forward[0] != null) {
+            x.forward[0].backward = x.backward;
+        }
+        else {
+            tail = x.backward;
+        }
+        while (level > 1 && header.forward[level - 1] == null) {
+            level--;
+        }
+        length--;
+    }
+
+    private static int randomLevel() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        int level = 1;
+        while (level < MAX_LEVEL && random.nextInt(LEVEL_UP_BOUND) == 0) {
+            level++;
+        }
+        return level;
+    }
+
+    private static int compare(Node node, double score, byte[] member) {
+        if (node.score < score) {
+            return -1;
+        }
+        if (node.score > score) {
+            return 1;
+        }
+        return Bytes.compare(node.member, member);
+    }
+
+    static final class Node {
+        final byte[] member;
+        final double score;
+        final Node[] forward;
+        final int[] span;
+        Node backward;
+
+        Node(byte[] member, double score, int level) {
+            this.member = member;
+            this.score = score;
+            this.forward = new Node[level];
+            this.span = new int[level];
+        }
+
+        Node next() {
+            return forward[0];
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * 进程内的 redis 替身，spring profile 为 {@code fake} 时代替 jedis 的实现，用于不依赖 redis 的测试（mvn test -Pfake）。
+ *
+ * <p>只在测试中，不会打包到 jar 中；lua 脚本由 java 实现代替，脚本本身只在连接 redis 的测试中验证。
+ */
+package cn.jinyahuan.common.redis.component.fake;
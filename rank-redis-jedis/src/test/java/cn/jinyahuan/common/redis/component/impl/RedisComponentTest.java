@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.jinyahuan.common.redis.component.impl;
+
+import org.junit.Test;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import static org.junit.Assert.*;
+
+public class RedisComponentTest {
+    @Test
+    public void testIsUnknownCommandError() {
+        assertTrue(RedisComponent.isUnknownCommandError(new InvalidDataAccessApiUsageException("ERR unknown command 'UNLINK'")));
+        assertTrue(RedisComponent.isUnknownCommandError(new InvalidDataAccessApiUsageException("script failed",
+                new JedisDataException("ERR Error running script (call to f_0): @user_script:1: "
+                        + "@user_script: 1: Unknown Redis command called from Lua script"))));
+
+        assertFalse(RedisComponent.isUnknownCommandError(new RedisConnectionFailureException("Connection refused")));
+        assertFalse(RedisComponent.isUnknownCommandError(new InvalidDataAccessApiUsageException(
+                "WRONGTYPE Operation against a key holding the wrong kind of value")));
+    }
+}
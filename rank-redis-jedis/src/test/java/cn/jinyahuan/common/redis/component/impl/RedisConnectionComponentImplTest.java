@@ -20,15 +20,48 @@ import cn.jinyahuan.common.BaseSpringIntegrationTest;
 import cn.jinyahuan.common.redis.component.RedisConnectionComponent;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 
 public class RedisConnectionComponentImplTest extends BaseSpringIntegrationTest {
     @Autowired
     private RedisConnectionComponent redisConnectionComponent;
+    @Autowired(required = false)
+    private RedisConnectionFactory redisConnectionFactory;
 
     @Test
     public void ping() {
         assertEquals("PONG", redisConnectionComponent.ping());
     }
+
+    /**
+     * 并发的线程数多于连接池的连接数，jedis 下线程排队等待连接，lettuce 下共享同一个连接。
+     */
+    @Test
+    public void pingConcurrently() throws Exception {
+        final int threads = 64;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < threads * 10; i++) {
+                futures.add(executor.submit(() -> redisConnectionComponent.ping()));
+            }
+            for (Future<String> future : futures) {
+                assertEquals("PONG", future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if ("lettuce".equals(System.getProperty("spring.profiles.active"))) {
+            assertEquals("LettuceConnectionFactory", redisConnectionFactory.getClass().getSimpleName());
+        }
+    }
 }
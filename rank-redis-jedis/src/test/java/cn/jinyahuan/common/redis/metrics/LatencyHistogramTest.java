@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.common.redis.metrics;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testBucketBounds() {
+        assertEquals(0, LatencyHistogram.bucketIndex(0));
+        for (int i = 1; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            long lowerBound = LatencyHistogram.bucketUpperBound(i - 1) + 1;
+            long upperBound = LatencyHistogram.bucketUpperBound(i);
+            assertEquals(i, LatencyHistogram.bucketIndex(lowerBound));
+            assertEquals(i, LatencyHistogram.bucketIndex(upperBound));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.bucketUpperBound(LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void testSnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getPercentile(0.99));
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-1);
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(1001, snapshot.getCount());
+        assertEquals(1000000, snapshot.getMax());
+        assertEquals(0, snapshot.getPercentile(0));
+        assertEquals(1000000, snapshot.getPercentile(1));
+        // 相对误差不超过 1/8
+        assertEquals(500000, snapshot.getPercentile(0.5), 500000 / 8D);
+        assertEquals(990000, snapshot.getPercentile(0.99), 990000 / 8D);
+    }
+
+    @Test
+    public void testRedisMetrics() {
+        RedisMetrics redisMetrics = new RedisMetrics();
+        final long[] sinkNanos = new long[1];
+        redisMetrics.setSinks(Collections.singletonList(
+                (command, nanos, failed) -> sinkNanos[0] = nanos));
+
+        redisMetrics.recordCommand(RedisCommand.ZSCORE, System.nanoTime() - 5000, true);
+        redisMetrics.recordCommand(RedisCommand.ZSCORE, System.nanoTime(), false);
+
+        LatencyMetrics metrics = redisMetrics.getCommandMetrics(RedisCommand.ZSCORE);
+        assertEquals(2, metrics.getCount());
+        assertEquals(1, metrics.getErrorCount());
+        assertEquals(0, redisMetrics.getCommandMetrics(RedisCommand.ZINCRBY).getCount());
+        assertTrue(sinkNanos[0] >= 0);
+    }
+}
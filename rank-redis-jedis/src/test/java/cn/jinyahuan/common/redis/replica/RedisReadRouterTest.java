@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.jinyahuan.common.redis.replica;
+
+import cn.jinyahuan.common.redis.component.RedisSortedSetComponent;
+import cn.jinyahuan.common.redis.component.fake.FakeRedis;
+import cn.jinyahuan.common.redis.component.fake.FakeRedisSortedSetComponent;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class RedisReadRouterTest {
+    private static final String KEY = "redisReadRouterTest";
+    private static final String MEMBER = "jin";
+
+    private final RedisReadRouter router = new RedisReadRouter();
+    private final RedisSortedSetComponent master = newComponent(1);
+    private final RedisSortedSetComponent replica1 = newComponent(2);
+    private final RedisSortedSetComponent replica2 = newComponent(3);
+
+    /**
+     * 各从节点上复制到的心跳，lagging 为 true 的从节点不再复制。
+     */
+    private final Map<String, String> heartbeats1 = new HashMap<>();
+    private final Map<String, String> heartbeats2 = new HashMap<>();
+    private boolean lagging1;
+
+    @Before
+    public void setUp() {
+        setTime(1000);
+        router.addReplica("replica1", replica1, heartbeats1::get);
+        router.addReplica("replica2", replica2, heartbeats2::get);
+        router.setHeartbeatWriter((key, value) -> {
+            if (!lagging1) {
+                heartbeats1.put(key, value);
+            }
+            heartbeats2.put(key, value);
+        });
+    }
+
+    @Test
+    public void testMasterBeforeFirstCheck() {
+        assertEquals(0, router.getAvailableReplicaCount());
+        assertEquals(1, zScore(), 0);
+        assertEquals(1, router.getMasterReadCount());
+        assertEquals(0, router.getReplicaReadCount());
+    }
+
+    @Test
+    public void testRoundRobin() {
+        router.checkReplicas();
+        assertEquals(2, router.getAvailableReplicaCount());
+
+        final double first = zScore();
+        final double second = zScore();
+        assertTrue(first != second);
+        assertEquals(5, first + second, 0);
+        assertEquals(first, zScore(), 0);
+        assertEquals(3, router.getReplicaReadCount());
+        assertEquals(0, router.getMasterReadCount());
+    }
+
+    @Test
+    public void testLaggingReplica() {
+        router.checkReplicas();
+
+        lagging1 = true;
+        setTime(4000);
+        router.checkReplicas();
+        assertEquals(1, router.getAvailableReplicaCount());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(3, zScore(), 0);
+        }
+
+        // 心跳检查停止后，延迟超过容忍范围的从节点都不再使用
+        setTime(7000);
+        assertEquals(0, router.getAvailableReplicaCount());
+        assertEquals(1, zScore(), 0);
+
+        lagging1 = false;
+        router.checkReplicas();
+        assertEquals(2, router.getAvailableReplicaCount());
+    }
+
+    @Test
+    public void testFallbackOnError() {
+        final RedisReadRouter router = new RedisReadRouter();
+        final FakeRedisSortedSetComponent failing = new FakeRedisSortedSetComponent() {
+            @Override
+            public Double zScore(String key, String member) {
+                throw new RedisConnectionFailureException("replica is down");
+            }
+        };
+        router.setClock(Clock.fixed(Instant.ofEpochMilli(1000), ZoneOffset.UTC));
+        router.addReplica("failing", failing, heartbeats1::get);
+        router.setHeartbeatWriter(heartbeats1::put);
+        router.checkReplicas();
+        assertEquals(1, router.getAvailableReplicaCount());
+
+        assertEquals(1, router.read(master, component -> component.zScore(KEY, MEMBER)), 0);
+        assertEquals(1, router.getFallbackCount());
+        assertEquals(0, router.getAvailableReplicaCount());
+
+        // 出错的从节点在下一次心跳检查成功前不再使用
+        assertEquals(1, router.read(master, component -> component.zScore(KEY, MEMBER)), 0);
+        assertEquals(1, router.getFallbackCount());
+        assertEquals(2, router.getMasterReadCount());
+
+        router.checkReplicas();
+        assertEquals(1, router.getAvailableReplicaCount());
+    }
+
+    @Test
+    public void testFallbackOnCommandError() {
+        final RedisReadRouter router = new RedisReadRouter();
+        final FakeRedisSortedSetComponent failing = new FakeRedisSortedSetComponent() {
+            @Override
+            public Double zScore(String key, String member) {
+                throw new InvalidDataAccessApiUsageException("WRONGTYPE Operation against a key holding the wrong kind of value");
+            }
+        };
+        router.setClock(Clock.fixed(Instant.ofEpochMilli(1000), ZoneOffset.UTC));
+        router.addReplica("failing", failing, heartbeats1::get);
+        router.setHeartbeatWriter(heartbeats1::put);
+        router.checkReplicas();
+
+        // 命令本身的错误在主节点上重试，从节点仍然可用
+        assertEquals(1, router.read(master, component -> component.zScore(KEY, MEMBER)), 0);
+        assertEquals(1, router.getFallbackCount());
+        assertEquals(1, router.getAvailableReplicaCount());
+    }
+
+    @Test
+    public void testIsConnectionFailure() {
+        assertTrue(RedisReadRouter.isConnectionFailure(new RedisConnectionFailureException("connection refused")));
+        assertTrue(RedisReadRouter.isConnectionFailure(new QueryTimeoutException("read timed out")));
+        assertFalse(RedisReadRouter.isConnectionFailure(new InvalidDataAccessApiUsageException("ERR")));
+    }
+
+    @Test
+    public void testWithReadState() throws Exception {
+        router.checkReplicas();
+        router.markWritten();
+        // 其他线程中执行的操作使用提交线程的读状态
+        assertEquals(1, CompletableFuture.supplyAsync(router.withReadState(this::zScore)).get(), 0);
+        assertTrue(CompletableFuture.supplyAsync(this::zScore).get() > 1);
+
+        setTime(1001);
+        router.checkReplicas();
+        assertTrue(zScore() > 1);
+        // 操作中的写入之后提交线程也能读到
+        CompletableFuture.supplyAsync(router.withReadState(() -> {
+            router.markWritten();
+            return null;
+        })).get();
+        assertEquals(1, zScore(), 0);
+    }
+
+    @Test
+    public void testReadYourWrites() throws Exception {
+        router.checkReplicas();
+        router.markWritten();
+        assertEquals(1, zScore(), 0);
+
+        // 其他线程不受影响
+        assertTrue(CompletableFuture.supplyAsync(this::zScore).get() > 1);
+
+        // 同一毫秒的心跳可能早于写入
+        router.checkReplicas();
+        assertEquals(1, zScore(), 0);
+
+        setTime(1001);
+        router.checkReplicas();
+        assertTrue(zScore() > 1);
+    }
+
+    @Test
+    public void testOnMaster() {
+        router.checkReplicas();
+        assertEquals(1, router.onMaster(this::zScore), 0);
+        assertEquals(1, router.onMaster(() -> router.onMaster(this::zScore)), 0);
+        assertTrue(zScore() > 1);
+    }
+
+    private double zScore() {
+        return router.read(master, component -> component.zScore(KEY, MEMBER));
+    }
+
+    private void setTime(long millis) {
+        router.setClock(Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+
+    private static RedisSortedSetComponent newComponent(double score) {
+        final FakeRedisSortedSetComponent component = new FakeRedisSortedSetComponent();
+        ReflectionTestUtils.setField(component, "fakeRedis", new FakeRedis());
+        component.zAdd(KEY, MEMBER, score);
+        return component;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AsyncRankLabTest {
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final AsyncRankLab asyncRankLab = new AsyncRankLab();
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(asyncRankLab, "redisRankLab", newRedisRankLab());
+        ReflectionTestUtils.setField(asyncRankLab, "redisComponent", new RedisComponent());
+        ReflectionTestUtils.setField(asyncRankLab, "maxInFlight", 2);
+        asyncRankLab.afterPropertiesSet();
+    }
+
+    private RedisRankLab newRedisRankLab() {
+        return new RedisRankLab() {
+            @Override
+            public Long getRankNumber(String rankName, String memberName) {
+                if ("blocked".equals(memberName)) {
+                    try {
+                        released.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (Objects.isNull(memberName)) {
+                    throw new NullPointerException("memberName must not be null");
+                }
+                return 1L;
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        released.countDown();
+        asyncRankLab.destroy();
+    }
+
+    @Test
+    public void testCallbackThread() throws Exception {
+        String threadName = asyncRankLab.getRankNumberAsync("rank", "jin")
+                .thenApply(rankNum -> Thread.currentThread().getName())
+                .get(5, TimeUnit.SECONDS);
+        // 已完成的 future 上注册的回调在调用线程执行，否则应在回调线程执行
+        assertTrue(threadName, threadName.startsWith("rank-async-callback")
+                || threadName.equals(Thread.currentThread().getName()));
+        assertEquals(Long.valueOf(1), asyncRankLab.getRankNumberAsync("rank", "jin").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testMaxInFlight() throws Exception {
+        CompletableFuture<Long> first = asyncRankLab.getRankNumberAsync("rank", "blocked");
+        CompletableFuture<Long> second = asyncRankLab.getRankNumberAsync("rank", "blocked");
+        CompletableFuture<Long> rejected = asyncRankLab.getRankNumberAsync("rank", "jin");
+        assertEquals(2, asyncRankLab.getInFlightCount());
+        try {
+            rejected.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+
+        released.countDown();
+        assertEquals(Long.valueOf(1), first.get(5, TimeUnit.SECONDS));
+        assertEquals(Long.valueOf(1), second.get(5, TimeUnit.SECONDS));
+        assertEquals(Long.valueOf(1), asyncRankLab.getRankNumberAsync("rank", "jin").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testExceptionalCompletion() throws Exception {
+        try {
+            asyncRankLab.getRankNumberAsync("rank", null).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof NullPointerException);
+        }
+        assertEquals(0, asyncRankLab.getInFlightCount());
+    }
+
+    @Test
+    public void testDestroyWaitsForSubmitted() throws Exception {
+        CompletableFuture<Long> submitted = asyncRankLab.getRankNumberAsync("rank", "jin");
+        asyncRankLab.destroy();
+        assertEquals(Long.valueOf(1), submitted.get(5, TimeUnit.SECONDS));
+        assertEquals(0, asyncRankLab.getInFlightCount());
+    }
+
+    @Test
+    public void testDestroyFailsQueued() throws Exception {
+        final AsyncRankLab singleThreadRankLab = new AsyncRankLab();
+        ReflectionTestUtils.setField(singleThreadRankLab, "redisRankLab", newRedisRankLab());
+        ReflectionTestUtils.setField(singleThreadRankLab, "redisComponent", new RedisComponent());
+        ReflectionTestUtils.setField(singleThreadRankLab, "virtualThreads", false);
+        ReflectionTestUtils.setField(singleThreadRankLab, "ioThreads", 1);
+        ReflectionTestUtils.setField(singleThreadRankLab, "shutdownTimeoutMillis", 100L);
+        singleThreadRankLab.afterPropertiesSet();
+
+        CompletableFuture<Long> running = singleThreadRankLab.getRankNumberAsync("rank", "blocked");
+        CompletableFuture<Long> queued = singleThreadRankLab.getRankNumberAsync("rank", "jin");
+        singleThreadRankLab.destroy();
+
+        // 正在执行的操作被中断后正常返回，排队的操作以失败完成，在途名额全部归还
+        assertEquals(Long.valueOf(1), running.get(5, TimeUnit.SECONDS));
+        try {
+            queued.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(0, singleThreadRankLab.getInFlightCount());
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.BaseSpringIntegrationTest;
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class BufferedRankWriterTest extends BaseSpringIntegrationTest {
+    @Autowired
+    private RedisRankLab redisRankLab;
+    @Autowired
+    private RedisComponent redisComponent;
+
+    @Test
+    public void testCoalesce() {
+        final String rankName1 = "bufferedWriter1";
+        final String rankName2 = "bufferedWriter2";
+
+        redisComponent.del(RedisRankLab.getRankKey(rankName1));
+        redisComponent.del(RedisRankLab.getRankKey(rankName2));
+
+        BufferedRankWriter writer = new BufferedRankWriter(redisRankLab, 1000, 1000, 60_000);
+        try {
+            for (int i = 0; i < 100; i++) {
+                writer.joinRank(rankName1, "jin_1", 1);
+                writer.joinRank(rankName1, "jin_2", 2);
+                writer.joinRank(rankName2, "jin_1", 3);
+            }
+            assertEquals(3, writer.getPendingEntries());
+            // 刷新前看不到
+            assertNull(redisRankLab.getRankScore(rankName1, "jin_1"));
+
+            writer.flush();
+            assertEquals(0, writer.getPendingEntries());
+            // 刷新后不保留空的 map
+            assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(writer, "pending")).isEmpty());
+            assertEquals(Long.valueOf(100), redisRankLab.getRankScore(rankName1, "jin_1"));
+            assertEquals(Long.valueOf(200), redisRankLab.getRankScore(rankName1, "jin_2"));
+            assertEquals(Long.valueOf(300), redisRankLab.getRankScore(rankName2, "jin_1"));
+
+            assertEquals(300, writer.getIncrementCount());
+            assertEquals(3, writer.getFlushedEntryCount());
+            assertEquals(100, writer.getCoalescingRatio(), 0);
+            assertEquals(1, writer.getFlushCount());
+        } finally {
+            writer.destroy();
+            redisComponent.del(RedisRankLab.getRankKey(rankName1));
+            redisComponent.del(RedisRankLab.getRankKey(rankName2));
+        }
+    }
+
+    @Test
+    public void testBackpressure() {
+        final String rankName = "bufferedWriterBackpressure";
+
+        redisComponent.del(RedisRankLab.getRankKey(rankName));
+
+        BufferedRankWriter writer = new BufferedRankWriter(redisRankLab, 10, 10, 60_000);
+        try {
+            for (int i = 0; i < 25; i++) {
+                writer.joinRank(rankName, "jin_" + i, 1);
+                assertTrue(writer.getPendingEntries() <= 10);
+            }
+        } finally {
+            writer.destroy();
+        }
+        // 关闭时刷新剩余的增量
+        assertEquals(Long.valueOf(1), redisRankLab.getRankScore(rankName, "jin_24"));
+        redisComponent.del(RedisRankLab.getRankKey(rankName));
+    }
+
+    @Test
+    public void testConcurrentBackpressure() throws Exception {
+        final String rankName = "bufferedWriterConcurrent";
+        final int threadCount = 8;
+        final int memberCountPerThread = 500;
+        final int maxPendingEntries = 16;
+
+        redisComponent.del(RedisRankLab.getRankKey(rankName));
+
+        final BufferedRankWriter writer = new BufferedRankWriter(redisRankLab, 8, maxPendingEntries, 60_000);
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                final int thread = i;
+                futures.add(executor.submit(() -> {
+                    int maxObserved = 0;
+                    for (int j = 0; j < memberCountPerThread; j++) {
+                        writer.joinRank(rankName, "jin_" + (j % 50), 1);
+                        writer.joinRank(rankName, "jin_" + thread + "_" + j, 1);
+                        maxObserved = Math.max(maxObserved, writer.getPendingEntries());
+                    }
+                    return maxObserved;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertTrue(future.get(60, TimeUnit.SECONDS) <= maxPendingEntries);
+            }
+            writer.flush();
+            assertEquals(0, writer.getPendingEntries());
+            assertEquals(Long.valueOf(threadCount * memberCountPerThread / 50),
+                    redisRankLab.getRankScore(rankName, "jin_0"));
+            assertEquals(Long.valueOf(1), redisRankLab.getRankScore(rankName, "jin_7_499"));
+        } finally {
+            executor.shutdownNow();
+            writer.destroy();
+            redisComponent.del(RedisRankLab.getRankKey(rankName));
+        }
+    }
+
+    @Test
+    public void testFlushAboveThreshold() throws Exception {
+        final String rankName = "bufferedWriterThreshold";
+        final AtomicInteger batchCount = new AtomicInteger();
+        final RedisRankLab flakyRankLab = new RedisRankLab() {
+            @Override
+            public List<Long> joinRankBatch(Map<String, ? extends Map<String, Long>> rankMemberScores) {
+                if (batchCount.incrementAndGet() == 1) {
+                    throw new RedisConnectionFailureException("redis is down");
+                }
+                return redisRankLab.joinRankBatch(rankMemberScores);
+            }
+        };
+
+        redisComponent.del(RedisRankLab.getRankKey(rankName));
+
+        final BufferedRankWriter writer = new BufferedRankWriter(flakyRankLab, 2, 10, 60_000);
+        try {
+            writer.joinRank(rankName, "jin_1", 1);
+            writer.joinRank(rankName, "jin_2", 1);
+            waitUntil(() -> writer.getFlushErrorCount() == 1);
+            assertEquals(2, writer.getPendingEntries());
+
+            // 刷新失败后条目数已超过阈值，新增条目时仍会刷新
+            writer.joinRank(rankName, "jin_3", 1);
+            waitUntil(() -> writer.getFlushCount() == 1);
+            assertEquals(0, writer.getPendingEntries());
+            assertEquals(Long.valueOf(1), redisRankLab.getRankScore(rankName, "jin_1"));
+            assertEquals(Long.valueOf(1), redisRankLab.getRankScore(rankName, "jin_3"));
+        } finally {
+            writer.destroy();
+            redisComponent.del(RedisRankLab.getRankKey(rankName));
+        }
+    }
+
+    @Test
+    public void testDestroyFlushFailure() {
+        final RedisRankLab failingRankLab = new RedisRankLab() {
+            @Override
+            public List<Long> joinRankBatch(Map<String, ? extends Map<String, Long>> rankMemberScores) {
+                throw new RedisConnectionFailureException("redis is down");
+            }
+        };
+        final BufferedRankWriter writer = new BufferedRankWriter(failingRankLab, 10, 10, 60_000);
+        writer.joinRank("bufferedWriterFailure", "jin_1", 1);
+        writer.joinRank("bufferedWriterFailure", "jin_2", 1);
+        try {
+            writer.destroy();
+            fail();
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getCause() instanceof RedisConnectionFailureException);
+        }
+        assertEquals(2, writer.getLostEntryCount());
+        assertEquals(BufferedRankWriter.DESTROY_FLUSH_ATTEMPTS, writer.getFlushErrorCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalArguments() {
+        new BufferedRankWriter(redisRankLab, 10, 5, 1000);
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+}
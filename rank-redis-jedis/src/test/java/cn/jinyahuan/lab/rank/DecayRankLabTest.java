@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.BaseSpringIntegrationTest;
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import cn.jinyahuan.lab.rank.DecayRankLab.DecayedMember;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DecayRankLabTest extends BaseSpringIntegrationTest {
+    private static final String RANK_NAME = "decayRank";
+    private static final long HALF_LIFE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long START_MILLIS = 1500000000000L;
+
+    @Autowired
+    private DecayRankLab decayRankLab;
+    @Autowired
+    private RedisComponent redisComponent;
+
+    @After
+    public void tearDown() {
+        redisComponent.del(decayRankLab.getDecayKey(RANK_NAME));
+        redisComponent.del(decayRankLab.getEpochKey(RANK_NAME));
+        decayRankLab.setClock(Clock.systemUTC());
+        decayRankLab.setHalfLifeMillis(TimeUnit.DAYS.toMillis(1));
+    }
+
+    @Test
+    public void testDecay() {
+        decayRankLab.setHalfLifeMillis(HALF_LIFE_MILLIS);
+        setTime(START_MILLIS);
+        assertEquals(100, decayRankLab.joinRank(RANK_NAME, "a", 100), 0);
+
+        setTime(START_MILLIS + HALF_LIFE_MILLIS);
+        assertEquals(60, decayRankLab.joinRank(RANK_NAME, "b", 60), 0);
+        assertEquals(50, decayRankLab.getRankScore(RANK_NAME, "a"), 1e-9);
+        assertEquals(Long.valueOf(1), decayRankLab.getRankNumber(RANK_NAME, "b"));
+        assertEquals(Long.valueOf(2), decayRankLab.getRankNumber(RANK_NAME, "a"));
+
+        // 后写入的分值放大的倍数更大，同样衰减
+        setTime(START_MILLIS + 2 * HALF_LIFE_MILLIS);
+        assertEquals(Arrays.asList(new DecayedMember("b", 30D), new DecayedMember("a", 25D)),
+                decayRankLab.getRankList(RANK_NAME, 1, 10));
+        assertEquals(35, decayRankLab.joinRank(RANK_NAME, "a", 10), 1e-9);
+        assertEquals(Long.valueOf(1), decayRankLab.getRankNumber(RANK_NAME, "a"));
+
+        assertNull(decayRankLab.getRankScore(RANK_NAME, "c"));
+        assertNull(decayRankLab.getRankNumber(RANK_NAME, "c"));
+        assertTrue(decayRankLab.getRankList("decayRankNotExists", 1, 10).isEmpty());
+    }
+
+    @Test
+    public void testRebase() {
+        decayRankLab.setHalfLifeMillis(HALF_LIFE_MILLIS);
+        setTime(START_MILLIS);
+        decayRankLab.joinRank(RANK_NAME, "a", 100);
+        decayRankLab.joinRank(RANK_NAME, "b", 3);
+        assertFalse(decayRankLab.rebase(RANK_NAME));
+
+        setTime(START_MILLIS + 10 * HALF_LIFE_MILLIS + 1);
+        final double scoreA = decayRankLab.getRankScore(RANK_NAME, "a");
+        final double scoreB = decayRankLab.getRankScore(RANK_NAME, "b");
+        assertTrue(decayRankLab.rebase(RANK_NAME));
+        assertFalse(decayRankLab.rebase(RANK_NAME));
+        assertEquals(String.valueOf(START_MILLIS + 10 * HALF_LIFE_MILLIS),
+                redisComponent.get(decayRankLab.getEpochKey(RANK_NAME)));
+
+        // 保存的分值按2的整数次幂缩小，没有舍入误差，读取时只有计算倍数（pow）的误差
+        assertEquals(scoreA, decayRankLab.getRankScore(RANK_NAME, "a"), scoreA * 1e-12);
+        assertEquals(scoreB, decayRankLab.getRankScore(RANK_NAME, "b"), scoreB * 1e-12);
+        assertEquals(Long.valueOf(1), decayRankLab.getRankNumber(RANK_NAME, "a"));
+    }
+
+    @Test
+    public void testBackgroundRebase() throws InterruptedException {
+        decayRankLab.setHalfLifeMillis(HALF_LIFE_MILLIS);
+        setTime(START_MILLIS);
+        decayRankLab.joinRank(RANK_NAME, "a", 1);
+
+        final long rebaseCount = decayRankLab.getRebaseCount();
+        setTime(START_MILLIS + 300 * HALF_LIFE_MILLIS);
+        assertEquals(1, decayRankLab.joinRank(RANK_NAME, "b", 1), 0);
+        for (int i = 0; i < 100 && decayRankLab.getRebaseCount() == rebaseCount; i++) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        assertEquals(rebaseCount + 1, decayRankLab.getRebaseCount());
+        assertEquals(String.valueOf(START_MILLIS + 300 * HALF_LIFE_MILLIS),
+                redisComponent.get(decayRankLab.getEpochKey(RANK_NAME)));
+        assertEquals(1, decayRankLab.getRankScore(RANK_NAME, "b"), 0);
+        assertEquals(Math.pow(2, -300), decayRankLab.getRankScore(RANK_NAME, "a"), 0);
+    }
+
+    @Test
+    public void testRebaseOnJoinAfterIdle() {
+        decayRankLab.setHalfLifeMillis(HALF_LIFE_MILLIS);
+        setTime(START_MILLIS);
+        decayRankLab.joinRank(RANK_NAME, "a", 1e9);
+
+        // 放大 2^2000 倍会溢出，写入时先重置基准时间
+        setTime(START_MILLIS + 2000 * HALF_LIFE_MILLIS + HALF_LIFE_MILLIS / 2);
+        assertEquals(5, decayRankLab.joinRank(RANK_NAME, "b", 5), 1e-9);
+        assertEquals(String.valueOf(START_MILLIS + 2000 * HALF_LIFE_MILLIS),
+                redisComponent.get(decayRankLab.getEpochKey(RANK_NAME)));
+        assertEquals(0, decayRankLab.getRankScore(RANK_NAME, "a"), 0);
+        assertEquals(Long.valueOf(1), decayRankLab.getRankNumber(RANK_NAME, "b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJoinRankNaN() {
+        decayRankLab.joinRank(RANK_NAME, "a", Double.NaN);
+    }
+
+    private void setTime(long millis) {
+        decayRankLab.setClock(Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+}
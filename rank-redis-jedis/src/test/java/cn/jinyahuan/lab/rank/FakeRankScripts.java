@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.redis.component.fake.FakeRedis;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 排行榜的 lua 脚本在{@link FakeRedis}中的 java 实现，逐行对应各脚本。
+ *
+ * @author JinYahuan
+ * @since 1.0.0
+ */
+@Component
+@Profile("fake")
+public class FakeRankScripts implements InitializingBean {
+    @Autowired
+    private FakeRedis fakeRedis;
+
+    @Override
+    public void afterPropertiesSet() {
+        fakeRedis.registerScript(RedisRankLab.JOIN_RANK_SCRIPT.getSource(), (redis, keys, args) -> {
+            double increment = parseDouble(args[1]) + parseDouble(args[2]);
+            final Double old = redis.zScore(keys[0], args[0]);
+            if (Objects.nonNull(old) && old != 0) {
+                final double absOld = Math.abs(old);
+                final double oldWeight = absOld - Math.floor(absOld);
+                if (oldWeight > 0) {
+                    increment = increment - oldWeight;
+                }
+            }
+            return FakeRedis.formatDouble(redis.zIncrBy(keys[0], args[0], increment));
+        });
+
+        fakeRedis.registerScript(RedisRankLab.JOIN_RANK_TIE_BREAK_SCRIPT.getSource(), (redis, keys, args) -> {
+            final double unit = parseDouble(args[2]);
+            double increment = parseDouble(args[1]);
+            final Double old = redis.zScore(keys[0], args[0]);
+            if (Objects.nonNull(old)) {
+                increment = increment - (old - Math.floor(old / unit) * unit);
+            }
+            return FakeRedis.formatDouble(redis.zIncrBy(keys[0], args[0], increment));
+        });
+
+        fakeRedis.registerScript(RedisRankLab.NEIGHBORHOOD_SCRIPT.getSource(), (redis, keys, args) -> {
+            final Long rank = redis.zRevRank(keys[0], args[0]);
+            if (Objects.isNull(rank)) {
+                return null;
+            }
+            final long start = Math.max(rank - (long) parseDouble(args[1]), 0);
+            final List<Object> result = new ArrayList<>();
+            result.add(rank);
+            redis.zRevRangeWithScores(keys[0], start, rank + (long) parseDouble(args[2])).forEach(tuple -> {
+                result.add(tuple.getValue());
+                result.add(FakeRedis.formatDouble(tuple.getScore()));
+            });
+            return result;
+        });
+
+        registerLexScripts();
+
+        fakeRedis.registerScript(RankRollover.ROLLOVER_SCRIPT.getSource(), (redis, keys, args) -> {
+            if (redis.exists(keys[1]) || redis.exists(keys[3])) {
+                throw new InvalidDataAccessApiUsageException("rollover target already exists");
+            }
+            long count = 0;
+            if (redis.exists(keys[0])) {
+                count = redis.zCard(keys[0]);
+                redis.rename(keys[0], keys[1]);
+            }
+            if (redis.exists(keys[2])) {
+                redis.rename(keys[2], keys[3]);
+            }
+            return count;
+        });
+
+        fakeRedis.registerScript(RankKeyMigration.MIGRATE_SCRIPT.getSource(), (redis, keys, args) -> {
+            long count = 0;
+            for (int i = 0; i < keys.length; i += 2) {
+                if (redis.exists(keys[i]) && !redis.exists(keys[i + 1])) {
+                    redis.rename(keys[i], keys[i + 1]);
+                    count++;
+                }
+            }
+            return count;
+        });
+
+        fakeRedis.registerScript(MemberDictionary.ASSIGN_IDS_SCRIPT.getSource(), (redis, keys, args) -> {
+            final List<Object> ids = new ArrayList<>(args.length);
+            for (byte[] name : args) {
+                byte[] id = redis.hGet(keys[0], name);
+                if (Objects.isNull(id)) {
+                    long n = redis.incrBy(keys[2], 1);
+                    final StringBuilder builder = new StringBuilder();
+                    do {
+                        builder.insert(0, (char) (n % 128));
+                        n = n / 128;
+                    } while (n != 0);
+                    id = builder.toString().getBytes(StandardCharsets.US_ASCII);
+                    redis.hSet(keys[0], name, id);
+                    redis.hSet(keys[1], id, name);
+                }
+                ids.add(id);
+            }
+            return ids;
+        });
+
+        fakeRedis.registerScript(ShardedRankLab.COUNT_BEFORE_SCRIPT.getSource(), (redis, keys, args) -> {
+            final double score = parseDouble(args[0]);
+            final List<Object> result = new ArrayList<>(keys.length * 2);
+            for (byte[] key : keys) {
+                result.add(redis.zCount(key, score, false, Double.POSITIVE_INFINITY, true));
+                long tiesBefore = 0;
+                for (RedisZSetCommands.Tuple tie : redis.zRevRangeByScoreWithScores(key, score, score, 0, -1)) {
+                    if (RankCursor.compareMember(tie.getValue(), args[1]) > 0) {
+                        tiesBefore++;
+                    }
+                }
+                result.add(tiesBefore);
+            }
+            return result;
+        });
+
+        fakeRedis.registerScript(WindowedRankLab.MATERIALIZE_SCRIPT.getSource(), (redis, keys, args) -> {
+            if (redis.exists(keys[1])) {
+                return 0L;
+            }
+            redis.zUnionStore(keys[0], Arrays.copyOfRange(keys, 2, keys.length));
+            final long ttlSeconds = (long) parseDouble(args[0]);
+            redis.expire(keys[0], ttlSeconds);
+            if ("1".equals(new String(args[1], StandardCharsets.UTF_8))) {
+                redis.set(keys[1], "1".getBytes(StandardCharsets.UTF_8));
+                redis.expire(keys[1], ttlSeconds);
+            }
+            return 1L;
+        });
+
+        registerDecayScripts();
+    }
+
+    private void registerLexScripts() {
+        fakeRedis.registerScript(RedisRankLab.SET_LEX_RANK_SCRIPT.getSource(), (redis, keys, args) -> {
+            final byte[] old = redis.hGet(keys[1], args[0]);
+            if (Objects.nonNull(old)) {
+                redis.zRem(keys[0], old);
+            }
+            redis.zAdd(keys[0], args[1], 0);
+            redis.hSet(keys[1], args[0], args[1]);
+            return Objects.nonNull(old) ? 0L : 1L;
+        });
+
+        fakeRedis.registerScript(RedisRankLab.LEX_RANK_NUMBER_SCRIPT.getSource(), (redis, keys, args) -> {
+            final byte[] encoded = redis.hGet(keys[1], args[0]);
+            final Long rank = Objects.isNull(encoded) ? null : redis.zRevRank(keys[0], encoded);
+            return Objects.isNull(rank) ? -1L : rank;
+        });
+
+        fakeRedis.registerScript(RedisRankLab.LEX_RANGE_SCRIPT.getSource(), (redis, keys, args) -> {
+            final long count = (long) parseDouble(args[2]);
+            final List<Object> result = new ArrayList<>();
+            for (RedisZSetCommands.Tuple tuple : redis.zRevRangeWithScores(keys[0], 0, -1)) {
+                if (result.size() >= count) {
+                    break;
+                }
+                if (belowLexMax(tuple.getValue(), args[0]) && aboveLexMin(tuple.getValue(), args[1])) {
+                    result.add(tuple.getValue());
+                }
+            }
+            return result;
+        });
+    }
+
+    private void registerDecayScripts() {
+        fakeRedis.registerScript(DecayRankLab.JOIN_DECAY_RANK_SCRIPT.getSource(), (redis, keys, args) -> {
+            final double halfLife = parseDouble(args[3]);
+            byte[] epoch = redis.get(keys[1]);
+            if (Objects.isNull(epoch)) {
+                epoch = args[2];
+                redis.set(keys[1], epoch);
+            }
+            double exponent = (parseDouble(args[2]) - parseDouble(epoch)) / halfLife;
+            if (exponent > parseDouble(args[4])) {
+                final double shift = Math.floor(exponent);
+                scale(redis, keys[0], Math.pow(2, -shift));
+                epoch = Long.toString((long) (parseDouble(epoch) + shift * halfLife)).getBytes(StandardCharsets.UTF_8);
+                redis.set(keys[1], epoch);
+                exponent = exponent - shift;
+            }
+            final double score = redis.zIncrBy(keys[0], args[0], parseDouble(args[1]) * Math.pow(2, exponent));
+            return Arrays.asList(FakeRedis.formatDouble(score), epoch);
+        });
+
+        fakeRedis.registerScript(DecayRankLab.DECAY_SCORE_SCRIPT.getSource(), (redis, keys, args) -> {
+            final Double score = redis.zScore(keys[0], args[0]);
+            return Arrays.asList(Objects.isNull(score) ? null : FakeRedis.formatDouble(score), redis.get(keys[1]));
+        });
+
+        fakeRedis.registerScript(DecayRankLab.DECAY_RANGE_SCRIPT.getSource(), (redis, keys, args) -> {
+            final List<Object> result = new ArrayList<>();
+            result.add(redis.get(keys[1]));
+            redis.zRevRangeWithScores(keys[0], (long) parseDouble(args[0]), (long) parseDouble(args[1])).forEach(tuple -> {
+                result.add(tuple.getValue());
+                result.add(FakeRedis.formatDouble(tuple.getScore()));
+            });
+            return result;
+        });
+
+        fakeRedis.registerScript(DecayRankLab.REBASE_DECAY_RANK_SCRIPT.getSource(), (redis, keys, args) -> {
+            if (!Arrays.equals(redis.get(keys[1]), args[0])) {
+                return 0L;
+            }
+            scale(redis, keys[0], Math.pow(2, -parseDouble(args[2])));
+            redis.set(keys[1], args[1]);
+            return 1L;
+        });
+    }
+
+    /**
+     * 与 {@code ZUNIONSTORE key 1 key WEIGHTS weight}相同。
+     */
+    private static void scale(FakeRedis redis, byte[] key, double weight) {
+        redis.zRevRangeWithScores(key, 0, -1).forEach(tuple ->
+                redis.zAdd(key, tuple.getValue(), tuple.getScore() * weight));
+    }
+
+    /**
+     * 与{@code ZREVRANGEBYLEX}的上界一致：{@code +}、{@code -}、{@code [value}或{@code (value}。
+     */
+    private static boolean belowLexMax(byte[] member, byte[] max) {
+        if (max[0] == '+' || max[0] == '-') {
+            return max[0] == '+';
+        }
+        final int cmp = RankCursor.compareMember(member, Arrays.copyOfRange(max, 1, max.length));
+        return max[0] == '[' ? cmp <= 0 : cmp < 0;
+    }
+
+    private static boolean aboveLexMin(byte[] member, byte[] min) {
+        if (min[0] == '+' || min[0] == '-') {
+            return min[0] == '-';
+        }
+        final int cmp = RankCursor.compareMember(member, Arrays.copyOfRange(min, 1, min.length));
+        return min[0] == '[' ? cmp >= 0 : cmp > 0;
+    }
+
+    private static double parseDouble(byte[] value) {
+        return Double.parseDouble(new String(value, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class InMemoryRankLabTest {
+    private final InMemoryRankLab rankLab = new InMemoryRankLab();
+
+    @Test
+    public void testJoinRank() {
+        final String rankName = "joinRank";
+        assertEquals(Long.valueOf(100), rankLab.joinRank(rankName, "jin_1", 100, BigDecimal.ZERO));
+        assertEquals(Long.valueOf(200), rankLab.joinRank(rankName, "jin_1", 100, BigDecimal.ZERO));
+        assertEquals(Long.valueOf(200), rankLab.getRankScore(rankName, "jin_1"));
+        assertNull(rankLab.getRankScore(rankName, "jin_2"));
+        assertNull(rankLab.getRankScore("notExist", "jin_1"));
+    }
+
+    @Test
+    public void testJoinRankReplaceWeight() {
+        final String rankName = "joinRankReplaceWeight";
+        rankLab.joinRank(rankName, "jin_1", 100, new BigDecimal("0.01"));
+        rankLab.joinRank(rankName, "jin_2", 100, new BigDecimal("0.02"));
+        assertEquals(Long.valueOf(1), rankLab.getRankNumber(rankName, "jin_2"));
+
+        // 旧权重被替换
+        assertEquals(Long.valueOf(100), rankLab.joinRank(rankName, "jin_1", 0, new BigDecimal("0.03")));
+        assertEquals(Long.valueOf(1), rankLab.getRankNumber(rankName, "jin_1"));
+        assertEquals(Long.valueOf(2), rankLab.getRankNumber(rankName, "jin_2"));
+    }
+
+    @Test
+    public void testJoinRankWithTieBreak() {
+        final String rankName = "joinRankWithTieBreak";
+        final InMemoryRankLab packedRankLab = new InMemoryRankLab();
+        packedRankLab.setScoreCodec(new PackedScoreCodec(20));
+
+        final long score = 1L << 31;
+        packedRankLab.joinRankWithTieBreak(rankName, "jin_1", score, 1);
+        packedRankLab.joinRankWithTieBreak(rankName, "jin_2", score, 2);
+        assertEquals(Long.valueOf(score + 1), packedRankLab.joinRankWithTieBreak(rankName, "jin_1", 1, 3));
+        assertEquals(Long.valueOf(score + 1), packedRankLab.joinRankWithTieBreak(rankName, "jin_2", 1, 4));
+        assertEquals(Long.valueOf(1), packedRankLab.getRankNumber(rankName, "jin_2"));
+        assertEquals(Long.valueOf(2), packedRankLab.getRankNumber(rankName, "jin_1"));
+    }
+
+    @Test
+    public void testGetRankList() {
+        final String rankName = "rankList";
+        assertTrue(rankLab.getRankList(rankName, 1, 10).isEmpty());
+
+        rankLab.joinRank(rankName, "jin_1", 100, BigDecimal.ZERO);
+        rankLab.joinRank(rankName, "jin_2", 100, BigDecimal.ZERO);
+        rankLab.joinRank(rankName, "jin_3", 300, BigDecimal.ZERO);
+        rankLab.joinRank(rankName, "jin_4", 200, BigDecimal.ZERO);
+
+        // 同分时按成员名降序，与 ZREVRANGE 一致
+        assertEquals(
+                "[RankMember{name='jin_3', score=300}, RankMember{name='jin_4', score=200}, RankMember{name='jin_2', score=100}, RankMember{name='jin_1', score=100}]",
+                rankLab.getRankList(rankName, 1, 10) + "");
+        assertEquals(
+                "[RankMember{name='jin_4', score=200}, RankMember{name='jin_2', score=100}]",
+                rankLab.getRankList(rankName, 2, 3) + "");
+        assertEquals(
+                "[RankMember{name='jin_1', score=100}]",
+                rankLab.getRankList(rankName, 0, 0) + "");
+        assertTrue(rankLab.getRankList(rankName, 5, 10).isEmpty());
+        assertTrue(rankLab.getRankList(rankName, 3, 2).isEmpty());
+    }
+
+    @Test
+    public void testAgainstSortedReference() {
+        final String rankName = "reference";
+        final Random random = new Random(1);
+        final Map<String, Long> expectedScores = new HashMap<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            final String memberName = "m" + random.nextInt(500);
+            final long score = random.nextInt(100) - 20;
+            rankLab.joinRank(rankName, memberName, score, 0D);
+            expectedScores.merge(memberName, score, Long::sum);
+        }
+
+        List<Map.Entry<String, Long>> expected = new ArrayList<>(expectedScores.entrySet());
+        expected.sort((o1, o2) -> {
+            int result = Long.compare(o2.getValue(), o1.getValue());
+            return result != 0 ? result : o2.getKey().compareTo(o1.getKey());
+        });
+
+        List<RedisRankLab.RankMember> actual = rankLab.getRankList(rankName, 1, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getKey(), actual.get(i).getName());
+            assertEquals(expected.get(i).getValue(), actual.get(i).getScore());
+            assertEquals(Long.valueOf(i + 1), rankLab.getRankNumber(rankName, expected.get(i).getKey()));
+        }
+    }
+
+    @Test
+    public void testGetRankPageAfter() {
+        final String rankName = "rankPageAfter";
+        final Random random = new Random(1);
+        for (int i = 0; i < 300; i++) {
+            rankLab.joinRank(rankName, "m" + random.nextInt(1000), random.nextInt(10), 0D);
+        }
+        List<RedisRankLab.RankMember> expected = rankLab.getRankList(rankName, 1, Integer.MAX_VALUE);
+
+        for (int count : new int[]{1, 7, expected.size(), expected.size() + 1}) {
+            List<RedisRankLab.RankMember> actual = new ArrayList<>();
+            String cursor = null;
+            do {
+                RankCursorPage page = rankLab.getRankPageAfter(rankName, cursor, count);
+                actual.addAll(page.getPage().toRankMembers());
+                cursor = page.getNextCursor();
+            }
+            while (cursor != null);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetRankPageAfterInvalidCursor() {
+        rankLab.getRankPageAfter("rankPageAfter", "!", 10);
+    }
+
+    @Test
+    public void testGetNeighborhood() {
+        final String rankName = "neighborhood";
+        assertNull(rankLab.getNeighborhood(rankName, "jin_1", 1, 1));
+        for (int i = 1; i <= 10; i++) {
+            rankLab.joinRank(rankName, "jin_" + i, i * 10, 0D);
+        }
+        assertNull(rankLab.getNeighborhood(rankName, "jin_11", 1, 1));
+
+        RankNeighborhood neighborhood = rankLab.getNeighborhood(rankName, "jin_5", 2, 1);
+        assertEquals(6L, neighborhood.getRankNumber());
+        assertEquals(50L, neighborhood.getScore());
+        assertEquals(2, neighborhood.getMemberIndex());
+        assertEquals(4L, neighborhood.getStartRankNumber());
+        assertEquals(4, neighborhood.getMembers().size());
+        assertEquals("jin_7", neighborhood.getMembers().getName(0));
+        assertEquals("jin_4", neighborhood.getMembers().getName(3));
+
+        neighborhood = rankLab.getNeighborhood(rankName, "jin_10", 5, 0);
+        assertEquals(1L, neighborhood.getRankNumber());
+        assertEquals(0, neighborhood.getMemberIndex());
+        assertEquals(1, neighborhood.getMembers().size());
+
+        neighborhood = rankLab.getNeighborhood(rankName, "jin_1", 1, 5);
+        assertEquals(10L, neighborhood.getRankNumber());
+        assertEquals(2, neighborhood.getMembers().size());
+    }
+
+    @Test
+    public void testCompareMember() {
+        assertTrue(RankSkipList.compareMember("a", "b") < 0);
+        assertTrue(RankSkipList.compareMember("ab", "a") > 0);
+        assertEquals(0, RankSkipList.compareMember("jin", "jin"));
+        // 码点顺序：U+1F600 > U+FFFD，而 UTF-16 的 char 顺序相反
+        assertTrue(RankSkipList.compareMember("😀", "�") > 0);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LexScoreCodecTest {
+    private final LexScoreCodec codec = LexScoreCodec.INSTANCE;
+
+    @Test
+    public void testRoundTrip() {
+        final long[] scores = {0, 1, -1, Long.MAX_VALUE, Long.MIN_VALUE};
+        final long[] tieBreaks = {0, 1, Long.MAX_VALUE, -1};
+        for (long score : scores) {
+            for (long tieBreak : tieBreaks) {
+                final String encoded = codec.encode(score, tieBreak, "jin");
+                assertEquals(score, codec.decodeScore(encoded));
+                assertEquals(tieBreak, codec.decodeTieBreak(encoded));
+                assertEquals("jin", codec.decodeMemberName(encoded));
+            }
+        }
+    }
+
+    @Test
+    public void testOrder() {
+        assertTrue(codec.encode(Long.MAX_VALUE, 0, "a").compareTo(codec.encode(Long.MAX_VALUE - 1, -1, "b")) > 0);
+        assertTrue(codec.encode(0, 0, "a").compareTo(codec.encode(-1, 0, "b")) > 0);
+        assertTrue(codec.encode(-1, 0, "a").compareTo(codec.encode(Long.MIN_VALUE, 0, "b")) > 0);
+        assertTrue(codec.encode(1, 2, "a").compareTo(codec.encode(1, 1, "b")) > 0);
+    }
+
+    @Test
+    public void testEncodeScore() {
+        final long[] scores = {0, 1, -1, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long score : scores) {
+            assertTrue(codec.encode(score, 1, "jin").startsWith(codec.encodeScore(score)));
+        }
+        assertTrue(codec.encodeScore(1).compareTo(codec.encode(0, -1, "\uffff")) > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeInvalid() {
+        codec.decodeScore("not a lex encoded member");
+    }
+}
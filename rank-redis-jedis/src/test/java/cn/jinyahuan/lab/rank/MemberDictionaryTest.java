@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.BaseSpringIntegrationTest;
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MemberDictionaryTest extends BaseSpringIntegrationTest {
+    @Autowired
+    private MemberDictionary memberDictionary;
+    @Autowired
+    private RedisRankLab redisRankLab;
+    @Autowired
+    private RedisComponent redisComponent;
+
+    @Test
+    public void testAssignAndLookup() {
+        assertNull(memberDictionary.getId("memberDictionaryTest_notExist"));
+
+        List<String> ids = memberDictionary.getOrAssignIds(Arrays.asList("memberDictionaryTest_1", "memberDictionaryTest_2"));
+        assertEquals(2, ids.size());
+        assertNotEquals(ids.get(0), ids.get(1));
+        assertEquals(ids.get(0), memberDictionary.getOrAssignId("memberDictionaryTest_1"));
+        assertEquals(ids.get(1), memberDictionary.getId("memberDictionaryTest_2"));
+        for (String id : ids) {
+            assertTrue(id.length() <= 4);
+        }
+
+        assertArrayEquals(new String[]{"memberDictionaryTest_2", "memberDictionaryTest_1"},
+                memberDictionary.getNames(new String[]{ids.get(1), ids.get(0)}));
+    }
+
+    @Test
+    public void testRankWithDictionary() {
+        final String rankName = "memberDictionary";
+        final String rankKey = RedisRankLab.getRankKey(rankName);
+        redisComponent.del(rankKey);
+        ReflectionTestUtils.setField(redisRankLab, "memberDictionaryEnabled", true);
+        try {
+            Map<String, Long> memberScores = new LinkedHashMap<>();
+            memberScores.put("jin_1", 100L);
+            memberScores.put("jin_2", 300L);
+            redisRankLab.joinRankBatch(rankName, memberScores);
+            redisRankLab.joinRank(rankName, "jin_3", 200L, 0D);
+
+            List<RedisRankLab.RankMember> rankList = redisRankLab.getRankList(rankName, 1, 10);
+            assertEquals("jin_2", rankList.get(0).getName());
+            assertEquals("jin_3", rankList.get(1).getName());
+            assertEquals("jin_1", rankList.get(2).getName());
+            assertEquals(Long.valueOf(2), redisRankLab.getRankNumber(rankName, "jin_3"));
+            assertEquals(Long.valueOf(300), redisRankLab.getRankScore(rankName, "jin_2"));
+            assertEquals(Arrays.asList(3L, null), redisRankLab.getRankNumbers(rankName, Arrays.asList("jin_1", "jin_4")));
+            assertEquals("jin_2", redisRankLab.getNeighborhood(rankName, "jin_3", 1, 0).getMembers().getName(0));
+        } finally {
+            ReflectionTestUtils.setField(redisRankLab, "memberDictionaryEnabled", false);
+            redisComponent.del(rankKey);
+        }
+    }
+
+    @Test
+    public void testLruCache() throws Exception {
+        MemberDictionary.LruCache<String, String> smallCache = new MemberDictionary.LruCache<>(2);
+        smallCache.putValue("a", "1");
+        smallCache.putValue("b", "2");
+        assertEquals("1", smallCache.getValue("a"));
+        smallCache.putValue("c", "3");
+        assertNull(smallCache.getValue("b"));
+        assertEquals("1", smallCache.getValue("a"));
+        assertEquals("3", smallCache.getValue("c"));
+
+        final int capacity = 1000;
+        final MemberDictionary.LruCache<String, String> cache = new MemberDictionary.LruCache<>(capacity);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        String key = thread + ":" + i;
+                        cache.putValue(key, key);
+                        // 其他线程的写入可能已经将其淘汰
+                        String value = cache.getValue(key);
+                        assertTrue(value == null || key.equals(value));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(cache.size() <= capacity);
+        assertTrue(cache.size() > capacity / 2);
+    }
+}
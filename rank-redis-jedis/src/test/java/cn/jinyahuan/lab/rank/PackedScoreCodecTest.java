@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PackedScoreCodecTest {
+    @Test
+    public void testRoundTrip() {
+        final PackedScoreCodec codec = new PackedScoreCodec(20);
+        assertEquals((1L << 32) - 1, codec.getMaxScore());
+        assertEquals(-(1L << 32), codec.getMinScore());
+        assertEquals((1L << 20) - 1, codec.getMaxTieBreak());
+        assertEquals(1 << 20, codec.getTieBreakUnit(), 0);
+
+        final long[] scores = {0, 1, -1, 100, -100, codec.getMaxScore(), codec.getMinScore()};
+        final long[] tieBreaks = {0, 1, 12345, codec.getMaxTieBreak()};
+        for (long score : scores) {
+            for (long tieBreak : tieBreaks) {
+                final double encoded = codec.encode(score, tieBreak);
+                assertEquals(score, codec.decodeScore(encoded));
+                assertEquals(tieBreak, codec.decodeTieBreak(encoded));
+            }
+        }
+    }
+
+    @Test
+    public void testOrder() {
+        final PackedScoreCodec codec = new PackedScoreCodec(20);
+        assertTrue(codec.encode(2, 0) > codec.encode(1, codec.getMaxTieBreak()));
+        assertTrue(codec.encode(1, 2) > codec.encode(1, 1));
+        assertTrue(codec.encode(-1, 2) > codec.encode(-1, 1));
+        assertTrue(codec.encode(0, 0) > codec.encode(-1, codec.getMaxTieBreak()));
+        // 反转后值越小越靠前
+        assertTrue(codec.encode(1, codec.reverseTieBreak(1)) > codec.encode(1, codec.reverseTieBreak(2)));
+    }
+
+    @Test
+    public void testIncrement() {
+        final PackedScoreCodec codec = new PackedScoreCodec(20);
+        // 与 ZINCRBY 脚本一致：加上新的编码分值并扣除旧的同分排名部分
+        double total = codec.encode(100, 7);
+        total += codec.encode(-30, 9) - codec.decodeTieBreak(total);
+        assertEquals(70, codec.decodeScore(total));
+        assertEquals(9, codec.decodeTieBreak(total));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncodeScoreOutOfRange() {
+        final PackedScoreCodec codec = new PackedScoreCodec(20);
+        codec.encode(codec.getMaxScore() + 1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncodeTieBreakOutOfRange() {
+        final PackedScoreCodec codec = new PackedScoreCodec(20);
+        codec.encode(0, codec.getMaxTieBreak() + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTieBreakBitsOutOfRange() {
+        new PackedScoreCodec(53);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RankArchiveTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        final String[] names = {"jin_1", "", "金", "jin_4", "jin_5"};
+        final long[] scores = {Long.MAX_VALUE, 5, 5, -3, Long.MIN_VALUE};
+        File file = temporaryFolder.newFile();
+        try (RankArchive archive = RankArchive.create(file)) {
+            archive.append(RankPage.ofNames(names, scores));
+            archive.append(RankPage.empty());
+            assertEquals(names.length, archive.getCount());
+            archive.finish();
+        }
+
+        List<RedisRankLab.RankMember> members = new ArrayList<>();
+        assertEquals(names.length, RankArchive.read(file, members::add));
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(names[i], members.get(i).getName());
+            assertEquals(Long.valueOf(scores[i]), members.get(i).getScore());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAppendOutOfOrder() throws IOException {
+        try (RankArchive archive = RankArchive.create(temporaryFolder.newFile())) {
+            archive.append(RankPage.ofNames(new String[]{"jin_1", "jin_2"}, new long[]{1, 2}));
+        }
+    }
+
+    @Test
+    public void testCloseWithoutFinish() throws IOException {
+        File file = temporaryFolder.newFile();
+        try (RankArchive archive = RankArchive.create(file)) {
+            archive.append(RankPage.ofNames(new String[]{"jin_1"}, new long[]{1}));
+        }
+        assertFalse(file.exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadInvalidFile() throws IOException {
+        RankArchive.read(temporaryFolder.newFile(), member -> {});
+    }
+}
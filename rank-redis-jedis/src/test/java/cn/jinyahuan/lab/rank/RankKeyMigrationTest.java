@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.BaseSpringIntegrationTest;
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.Assert.*;
+
+public class RankKeyMigrationTest extends BaseSpringIntegrationTest {
+    @Autowired
+    private RankKeyMigration rankKeyMigration;
+    @Autowired
+    private RedisRankLab redisRankLab;
+    @Autowired
+    private RankWeightComponent rankWeightComponent;
+    @Autowired
+    private RedisComponent redisComponent;
+
+    @Test
+    public void testMigrate() {
+        final String rankName = "keyMigration";
+        redisRankLab.joinRank(rankName, "jin_1", 10, 0.1);
+        redisRankLab.joinRank(rankName, "jin_2", 20, 0D);
+        rankWeightComponent.init(rankName, 1);
+
+        try {
+            assertEquals(2, rankKeyMigration.migrate(rankName));
+            // 已迁移过时不再重命名，也不会覆盖
+            assertEquals(0, rankKeyMigration.migrate(rankName));
+            assertNull(redisRankLab.getRankScore(rankName, "jin_2"));
+
+            ReflectionTestUtils.setField(redisRankLab, "rankKeyLayout", RankKeyLayout.HASH_TAG);
+            ReflectionTestUtils.setField(rankWeightComponent, "rankKeyLayout", RankKeyLayout.HASH_TAG);
+            try {
+                assertEquals(Long.valueOf(20), redisRankLab.getRankScore(rankName, "jin_2"));
+                assertEquals(Long.valueOf(10), redisRankLab.getRankScore(rankName, "jin_1"));
+                assertEquals(1, rankWeightComponent.peek(rankName));
+            } finally {
+                ReflectionTestUtils.setField(redisRankLab, "rankKeyLayout", RankKeyLayout.PLAIN);
+                ReflectionTestUtils.setField(rankWeightComponent, "rankKeyLayout", RankKeyLayout.PLAIN);
+            }
+        } finally {
+            redisComponent.del(RankKeyLayout.PLAIN.getRankKey(rankName));
+            redisComponent.del(RankKeyLayout.PLAIN.getWeightKey(rankName));
+            redisComponent.del(RankKeyLayout.HASH_TAG.getRankKey(rankName));
+            redisComponent.del(RankKeyLayout.HASH_TAG.getWeightKey(rankName));
+        }
+    }
+
+    @Test
+    public void testMigrateHashTagName() {
+        // 名称中已有 hash tag 时两种格式相同
+        assertEquals(0, rankKeyMigration.migrate("{season}:age"));
+    }
+}
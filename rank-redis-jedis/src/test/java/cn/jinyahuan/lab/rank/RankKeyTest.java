@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+
+import static org.junit.Assert.*;
+
+public class RankKeyTest {
+    @Test
+    public void testKeys() {
+        RankKey rankKey = RankKey.of("年龄");
+        assertEquals("年龄", rankKey.getRankName());
+        assertEquals(RedisRankLab.getRankKey("年龄"), rankKey.getKey());
+        assertEquals(RankWeightComponent.getKey("年龄"), rankKey.getWeightKey());
+        assertArrayEquals("rank:年龄".getBytes(StandardCharsets.UTF_8), rankKey.getRawKey());
+        assertArrayEquals("rank:年龄:weight".getBytes(StandardCharsets.UTF_8), rankKey.getRawWeightKey());
+
+        rankKey = RankKey.of("年龄", RankKeyLayout.HASH_TAG);
+        assertSame(RankKeyLayout.HASH_TAG, rankKey.getLayout());
+        assertArrayEquals("rank:{年龄}".getBytes(StandardCharsets.UTF_8), rankKey.getRawKey());
+        assertArrayEquals("rank:{年龄}:weight".getBytes(StandardCharsets.UTF_8), rankKey.getRawWeightKey());
+    }
+
+    @Test
+    public void testLayout() {
+        assertSame(RankKeyLayout.PLAIN, RankKeyLayout.of(false));
+        assertSame(RankKeyLayout.HASH_TAG, RankKeyLayout.of(true));
+
+        assertEquals("rank:age", RankKeyLayout.PLAIN.getRankKey("age"));
+        assertEquals("rank:age:weight", RankKeyLayout.PLAIN.getWeightKey("age"));
+        assertEquals("rank:{age}", RankKeyLayout.HASH_TAG.getRankKey("age"));
+        assertEquals("rank:{age}:weight", RankKeyLayout.HASH_TAG.getWeightKey("age"));
+        // 已有 hash tag 时原样使用
+        assertEquals("rank:{season}:age", RankKeyLayout.HASH_TAG.getRankKey("{season}:age"));
+        assertEquals("rank:{{}age}", RankKeyLayout.HASH_TAG.getRankKey("{}age"));
+    }
+
+    @Test
+    public void testCheckLayout() {
+        final RankKey rankKey = RankKey.of("age", RankKeyLayout.HASH_TAG);
+        assertSame(rankKey, rankKey.checkLayout(RankKeyLayout.HASH_TAG));
+        try {
+            rankKey.checkLayout(RankKeyLayout.PLAIN);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // 格式不一致
+        }
+    }
+
+    @Test
+    public void testSlot() {
+        // 与 CLUSTER KEYSLOT 的结果一致
+        assertEquals(12182, RankKey.getSlot("foo"));
+        assertEquals(12182, RankKey.getSlot("{foo}:bar"));
+        assertEquals(12182, RankKey.getSlot("bar{foo}{zap}"));
+        assertEquals(12739, RankKey.getSlot("123456789"));
+        assertNotEquals(RankKey.getSlot("{}foo"), RankKey.getSlot("foo"));
+
+        // 集群中排行榜与其权重序列、换季归档、时间窗口的桶、成员名字典在同一个 slot 中
+        final RankKeyLayout layout = RankKeyLayout.HASH_TAG;
+        final RankKey rankKey = RankKey.of("age", layout);
+        assertEquals(rankKey.getSlot(), RankKey.getSlot(rankKey.getWeightKey()));
+        assertEquals(rankKey.getSlot(), RankKey.getSlot(layout.getRankKey(layout.withHashTag("age") + ":rollover:1")));
+        assertEquals(rankKey.getSlot(), RankKey.getSlot(layout.getWeightKey(layout.withHashTag("age") + ":rollover:1")));
+        assertEquals(rankKey.getSlot(), RankKey.getSlot(layout.getRankKey(
+                WindowedRankLab.formatWindowRankName(layout, "age", RankWindow.HOUR, RankWindow.HOUR.truncate(ZonedDateTime.now())))));
+        final String dictKey = layout.getRankKey(MemberDictionary.DICT_NAME);
+        assertEquals(RankKey.getSlot(dictKey + MemberDictionary.KEY_SUFFIX_NAME_TO_ID),
+                RankKey.getSlot(dictKey + MemberDictionary.KEY_SUFFIX_ID_TO_NAME));
+        assertEquals(RankKey.getSlot(dictKey + MemberDictionary.KEY_SUFFIX_NAME_TO_ID),
+                RankKey.getSlot(dictKey + MemberDictionary.KEY_SUFFIX_SEQUENCE));
+    }
+
+    @Test
+    public void testHasHashTag() {
+        assertTrue(RankKey.hasHashTag("{age}"));
+        assertTrue(RankKey.hasHashTag("a{b}c{d}"));
+        assertFalse(RankKey.hasHashTag("age"));
+        assertFalse(RankKey.hasHashTag("{}age"));
+        assertFalse(RankKey.hasHashTag("{age"));
+        assertFalse(RankKey.hasHashTag("}age{"));
+        assertFalse(RankKey.hasHashTag(null));
+    }
+
+    @Test
+    public void testEquals() {
+        assertEquals(RankKey.of("age"), RankKey.of("age"));
+        assertEquals(RankKey.of("age").hashCode(), RankKey.of("age").hashCode());
+        assertNotEquals(RankKey.of("age"), RankKey.of("level"));
+        // 格式不同的 key 不相等
+        assertEquals(RankKey.of("age"), RankKey.of("age", RankKeyLayout.PLAIN));
+        assertNotEquals(RankKey.of("age"), RankKey.of("age", RankKeyLayout.HASH_TAG));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullRankName() {
+        RankKey.of(null);
+    }
+}
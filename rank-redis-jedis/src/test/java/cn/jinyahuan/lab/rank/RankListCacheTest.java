@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.BaseSpringIntegrationTest;
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import cn.jinyahuan.lab.rank.RedisRankLab.RankMember;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RankListCacheTest extends BaseSpringIntegrationTest {
+    @Autowired
+    private RedisRankLab redisRankLab;
+    @Autowired
+    private RankListCache rankListCache;
+    @Autowired
+    private RedisComponent redisComponent;
+
+    @Test
+    public void testGetRankList() {
+        final String rankName = "rankListCache";
+        final String rankKey = RedisRankLab.getRankKey(rankName);
+
+        redisComponent.del(rankKey);
+        rankListCache.invalidate(rankName);
+
+        redisRankLab.joinRank(rankName, "jin_1", 100, BigDecimal.ZERO);
+        redisRankLab.joinRank(rankName, "jin_2", 200, BigDecimal.ZERO);
+        redisRankLab.joinRank(rankName, "jin_3", 300, BigDecimal.ZERO);
+
+        final long missCount = rankListCache.getMissCount();
+        final long hitCount = rankListCache.getHitCount();
+        assertEquals(redisRankLab.getRankList(rankName, 1, 2), rankListCache.getRankList(rankName, 1, 2));
+        assertEquals(missCount + 1, rankListCache.getMissCount());
+
+        // 重叠的分页从同一份缓存中截取
+        assertEquals(redisRankLab.getRankList(rankName, 2, 3), rankListCache.getRankList(rankName, 2, 3));
+        assertEquals(redisRankLab.getRankList(rankName, 3, 10), rankListCache.getRankList(rankName, 3, 10));
+        assertEquals(hitCount + 2, rankListCache.getHitCount());
+        assertTrue(rankListCache.getRankList(rankName, 5, 10).isEmpty());
+
+        // 本 JVM 的写入使缓存失效
+        redisRankLab.joinRank(rankName, "jin_1", 1000, BigDecimal.ZERO);
+        assertEquals("jin_1", rankListCache.getRankList(rankName, 1, 1).get(0).getName());
+        assertEquals(missCount + 2, rankListCache.getMissCount());
+
+        // 修改返回的成员不影响缓存
+        rankListCache.getRankList(rankName, 1, 1).get(0).setScore(0L);
+        assertEquals(Long.valueOf(1100), rankListCache.getRankList(rankName, 1, 1).get(0).getScore());
+
+        redisComponent.del(rankKey);
+        rankListCache.invalidate(rankName);
+    }
+
+    @Test
+    public void testVersionsOnlyForCachedRanks() {
+        final String rankName = "rankListCacheVersions";
+        final RankListCache cache = new RankListCache();
+        ReflectionTestUtils.setField(cache, "redisRankLab", redisRankLab);
+        final Map<?, ?> versions = (Map<?, ?>) ReflectionTestUtils.getField(cache, "versions");
+        try {
+            // 没有缓存过的排行榜的写入不保存版本号
+            cache.onRankChanged(rankName);
+            assertTrue(versions.isEmpty());
+
+            assertTrue(cache.getRankList(rankName, 1, 10).isEmpty());
+            assertEquals(1, versions.size());
+            cache.onRankChanged(rankName);
+            assertEquals(1, versions.size());
+
+            cache.invalidate(rankName);
+            assertTrue(versions.isEmpty());
+        } finally {
+            cache.destroy();
+        }
+    }
+
+    @Test
+    public void testSyncMissDoesNotJoinStaleLoad() throws Exception {
+        final String rankName = "rankListCacheStaleLoad";
+        final CountDownLatch loadStarted = new CountDownLatch(1);
+        final CountDownLatch releaseLoad = new CountDownLatch(1);
+        final AtomicInteger loadCount = new AtomicInteger();
+        final RedisRankLab blockingRankLab = new RedisRankLab() {
+            @Override
+            public List<RankMember> getRankList(String rankName, int start, int end) {
+                // 第一次加载读到写入前的数据，并阻塞到写入之后才完成
+                if (loadCount.incrementAndGet() == 1) {
+                    loadStarted.countDown();
+                    awaitQuietly(releaseLoad);
+                    return Collections.singletonList(new RankMember("jin_1", 100L));
+                }
+                return Collections.singletonList(new RankMember("jin_1", 200L));
+            }
+        };
+        final RankListCache cache = new RankListCache();
+        ReflectionTestUtils.setField(cache, "redisRankLab", blockingRankLab);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<List<RankMember>> staleLoad = executor.submit(() -> cache.getRankList(rankName, 1, 1));
+            assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+
+            cache.onRankChanged(rankName);
+            // 版本变化后的查询自己加载，不等待变化前开始的加载
+            assertEquals(Long.valueOf(200), cache.getRankList(rankName, 1, 1).get(0).getScore());
+
+            releaseLoad.countDown();
+            assertEquals(Long.valueOf(100), staleLoad.get(10, TimeUnit.SECONDS).get(0).getScore());
+            // 较早版本的结果不覆盖较新的缓存
+            assertEquals(Long.valueOf(200), cache.getRankList(rankName, 1, 1).get(0).getScore());
+            assertEquals(2, loadCount.get());
+        } finally {
+            releaseLoad.countDown();
+            executor.shutdownNow();
+            cache.destroy();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import org.junit.Test;
+import org.springframework.data.redis.connection.DefaultTuple;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class RankPageTest {
+    @Test
+    public void testMappingForRankPage() {
+        Set<RedisZSetCommands.Tuple> tuples = new LinkedHashSet<>();
+        tuples.add(new DefaultTuple("金".getBytes(StandardCharsets.UTF_8), 30.7D));
+        tuples.add(new DefaultTuple("jin".getBytes(StandardCharsets.UTF_8), 20.1D));
+
+        RankPage page = RedisRankLab.mappingForRankPage(tuples, DecimalScoreCodec.DEFAULT);
+        assertEquals(2, page.size());
+        assertEquals(30L, page.getScore(0));
+        assertEquals(20L, page.getScore(1));
+        assertEquals("金", page.getName(0));
+        assertEquals("jin", page.getName(1));
+        assertSame(page.getName(0), page.getName(0));
+
+        List<RedisRankLab.RankMember> members = page.toRankMembers();
+        assertEquals("金", members.get(0).getName());
+        assertEquals(Long.valueOf(20L), members.get(1).getScore());
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(RedisRankLab.mappingForRankPage(null, DecimalScoreCodec.DEFAULT).isEmpty());
+        assertTrue(RankPage.empty().toRankMembers().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLengthMismatch() {
+        RankPage.ofNames(new String[1], new long[2]);
+    }
+}
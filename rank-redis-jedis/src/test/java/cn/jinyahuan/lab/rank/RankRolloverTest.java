@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.BaseSpringIntegrationTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RankRolloverTest extends BaseSpringIntegrationTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Autowired
+    private RankRollover rankRollover;
+    @Autowired
+    private RedisRankLab redisRankLab;
+    @Autowired
+    private RankWeightComponent rankWeightComponent;
+
+    @Test
+    public void testRollover() throws IOException {
+        final String rankName = "rollover";
+        for (int i = 1; i <= 2500; i++) {
+            redisRankLab.joinRank(rankName, "jin_" + i, i, 0D);
+        }
+        rankWeightComponent.offer(rankName);
+
+        File file = temporaryFolder.newFile();
+        assertEquals(2500, rankRollover.rollover(rankName, file));
+        assertTrue(redisRankLab.getRankList(rankName, 1, 10).isEmpty());
+        assertEquals(0, rankWeightComponent.peek(rankName));
+
+        List<RedisRankLab.RankMember> members = new ArrayList<>();
+        RankArchive.read(file, members::add);
+        assertEquals(2500, members.size());
+        assertEquals("jin_2500", members.get(0).getName());
+        assertEquals(Long.valueOf(1), members.get(2499).getScore());
+    }
+
+    @Test
+    public void testRolloverKeepArchivedRank() {
+        final String rankName = "rolloverKeep";
+        redisRankLab.joinRank(rankName, "jin_1", 100, 0D);
+
+        final String archivedRankName = rankRollover.rollover(rankName);
+        assertNull(redisRankLab.getRankScore(rankName, "jin_1"));
+        assertEquals(Long.valueOf(100), redisRankLab.getRankScore(archivedRankName, "jin_1"));
+
+        rankRollover.remove(archivedRankName);
+        assertNull(redisRankLab.getRankScore(archivedRankName, "jin_1"));
+    }
+
+    @Test
+    public void testRolloverArchiveFailure() throws IOException {
+        final String rankName = "rolloverArchiveFailure";
+        for (int i = 1; i <= 1500; i++) {
+            redisRankLab.joinRank(rankName, "jin_" + i, i, 0D);
+        }
+
+        final RedisRankLab failingRankLab = new RedisRankLab() {
+            @Override
+            public RankPage getRankPage(String rankName, int start, int end) {
+                if (start > 1) {
+                    throw new IllegalStateException("redis unavailable");
+                }
+                return redisRankLab.getRankPage(rankName, start, end);
+            }
+        };
+        File file = temporaryFolder.newFile();
+        ReflectionTestUtils.setField(rankRollover, "redisRankLab", failingRankLab);
+        String archivedRankName = null;
+        try {
+            rankRollover.rollover(rankName, file);
+            fail();
+        } catch (IOException ex) {
+            String message = ex.getMessage();
+            archivedRankName = message.substring(message.lastIndexOf(' ') + 1);
+        } finally {
+            ReflectionTestUtils.setField(rankRollover, "redisRankLab", redisRankLab);
+        }
+
+        // 不完整的归档文件被删除，归档的排行榜保留，可以重新导出
+        assertFalse(file.exists());
+        assertEquals(Long.valueOf(1500), redisRankLab.getRankScore(archivedRankName, "jin_1500"));
+        assertEquals(1500, rankRollover.archive(archivedRankName, file));
+        rankRollover.remove(archivedRankName);
+    }
+}
@@ -20,6 +20,16 @@ import cn.jinyahuan.common.BaseSpringIntegrationTest;
 import cn.jinyahuan.common.redis.component.impl.RedisComponent;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -50,7 +60,12 @@ public class RankWeightComponentTest extends BaseSpringIntegrationTest {
         String rankName1 = "logRankOpt";
         String rankOperationNumberKey1 = RankWeightComponent.getKey(rankName1);
         redisComponent.del(rankOperationNumberKey1);
-        assertEquals(0, rankWeightComponent.offer(null));
+        // 排行榜名称为 null 时抛出异常，不再累加 rank:null:weight
+        try {
+            rankWeightComponent.offer((String) null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
         assertEquals(0, rankWeightComponent.offer(""));
         assertEquals(1, rankWeightComponent.offer(rankName1));
         assertEquals(2, rankWeightComponent.offer(rankName1));
@@ -58,6 +73,79 @@ public class RankWeightComponentTest extends BaseSpringIntegrationTest {
         redisComponent.del(rankOperationNumberKey1);
     }
 
+    @Test
+    public void testOfferByBlock() throws Exception {
+        final String rankName = "offerByBlock";
+        final String key = RankWeightComponent.getKey(rankName);
+        final int blockSize = 10;
+        final int threadCount = 4;
+        final int offerCountPerThread = 100;
+
+        redisComponent.del(key);
+        ReflectionTestUtils.setField(rankWeightComponent, "blockSize", blockSize);
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            assertEquals(1, rankWeightComponent.offer(rankName));
+            assertEquals(2, rankWeightComponent.offer(rankName));
+            // 只预留了一段
+            assertEquals(blockSize, rankWeightComponent.peek(rankName));
+
+            final List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(() -> {
+                    List<Long> offered = new ArrayList<>(offerCountPerThread);
+                    for (int j = 0; j < offerCountPerThread; j++) {
+                        offered.add(rankWeightComponent.offer(rankName));
+                    }
+                    return offered;
+                }));
+            }
+            final Set<Long> values = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                long last = 0;
+                for (long value : future.get(30, TimeUnit.SECONDS)) {
+                    // 同一线程内严格递增
+                    assertTrue(value > last);
+                    last = value;
+                    values.add(value);
+                }
+            }
+            // 全局唯一
+            assertEquals(threadCount * offerCountPerThread, values.size());
+            assertTrue(values.stream().allMatch(value -> value <= rankWeightComponent.peek(rankName)));
+
+            // 重新初始化后丢弃本地租约
+            rankWeightComponent.init(rankName, 1000);
+            assertEquals(1001, rankWeightComponent.offer(rankName));
+        } finally {
+            executor.shutdownNow();
+            ReflectionTestUtils.setField(rankWeightComponent, "blockSize", 1);
+            redisComponent.del(key);
+        }
+    }
+
+    @Test
+    public void testReserveAheadWithSmallBlock() {
+        final String rankName = "offerBySmallBlock";
+        final String key = RankWeightComponent.getKey(rankName);
+
+        redisComponent.del(key);
+        ReflectionTestUtils.setField(rankWeightComponent, "blockSize", 3);
+        try {
+            assertEquals(1, rankWeightComponent.offer(rankName));
+            assertEquals(3, rankWeightComponent.peek(rankName));
+            // 剩余1个值时提前预留下一段
+            assertEquals(2, rankWeightComponent.offer(rankName));
+            assertEquals(6, rankWeightComponent.peek(rankName));
+            assertEquals(3, rankWeightComponent.offer(rankName));
+            assertEquals(4, rankWeightComponent.offer(rankName));
+            assertEquals(6, rankWeightComponent.peek(rankName));
+        } finally {
+            ReflectionTestUtils.setField(rankWeightComponent, "blockSize", 1);
+            redisComponent.del(key);
+        }
+    }
+
     @Test
     public void testGetRankOperationNumberKey() {
         assertEquals(null, RankWeightComponent.getKey(null));
@@ -93,6 +93,62 @@ public class RankWeightUtilsTest {
         assertEquals(BigDecimal.ONE.movePointLeft(10), new BigDecimal("9.223372036854775807E-11").add(new BigDecimal("7.76627963145224193E-12")).stripTrailingZeros());
     }
 
+    @Test
+    public void testComputeWeightAsDouble() {
+        assertEquals(0, RankWeightUtils.computeWeightAsDouble(Long.MIN_VALUE, 1), 0);
+        assertEquals(0, RankWeightUtils.computeWeightAsDouble(0, 1), 0);
+        assertEquals(0, RankWeightUtils.computeWeightAsDouble(1, -1), 0);
+        assertEquals(0, RankWeightUtils.computeWeightAsDouble(1, 11), 0);
+
+        assertEquals(0.01, RankWeightUtils.computeWeightAsDouble(1, 1), 0);
+        assertEquals(0.09, RankWeightUtils.computeWeightAsDouble(9, 1), 0);
+        assertEquals(0.01000000000001, RankWeightUtils.computeWeightAsDouble(1000_000_000_001L, 1), 0);
+
+        assertBitIdentical();
+    }
+
+    @Test
+    public void testComputeReverseWeightAsDouble() {
+        assertEquals(0, RankWeightUtils.computeReverseWeightAsDouble(Long.MIN_VALUE, 1), 0);
+        assertEquals(0, RankWeightUtils.computeReverseWeightAsDouble(0, 1), 0);
+        assertEquals(0, RankWeightUtils.computeReverseWeightAsDouble(1, -1), 0);
+        assertEquals(0, RankWeightUtils.computeReverseWeightAsDouble(1, 11), 0);
+
+        assertEquals(0.09, RankWeightUtils.computeReverseWeightAsDouble(1, 1), 0);
+        assertEquals(0.01, RankWeightUtils.computeReverseWeightAsDouble(9, 1), 0);
+        assertEquals(0.00776627963145224193, RankWeightUtils.computeReverseWeightAsDouble(Long.MAX_VALUE, 1), 0);
+    }
+
+    @Test
+    public void testCountDigits() {
+        assertEquals(1, RankWeightUtils.countDigits(1));
+        assertEquals(1, RankWeightUtils.countDigits(9));
+        assertEquals(2, RankWeightUtils.countDigits(10));
+        assertEquals(18, RankWeightUtils.countDigits(999_999_999_999_999_999L));
+        assertEquals(19, RankWeightUtils.countDigits(1_000_000_000_000_000_000L));
+        assertEquals(19, RankWeightUtils.countDigits(Long.MAX_VALUE));
+    }
+
+    /**
+     * 基本类型版本的结果必须与{@link BigDecimal}版本逐位相同。
+     */
+    private static void assertBitIdentical() {
+        long weightValue = 1;
+        for (int digits = 1; digits <= 19; digits++, weightValue *= 10) {
+            final long[] weightValues = {weightValue - 1, weightValue, weightValue + 1, weightValue * 7 / 3};
+            for (long value : weightValues) {
+                for (int decimalPlaces = -1; decimalPlaces <= 11; decimalPlaces++) {
+                    assertEquals(
+                            Double.doubleToRawLongBits(RankWeightUtils.computeWeight(value, decimalPlaces).doubleValue()),
+                            Double.doubleToRawLongBits(RankWeightUtils.computeWeightAsDouble(value, decimalPlaces)));
+                    assertEquals(
+                            Double.doubleToRawLongBits(RankWeightUtils.computeReverseWeight(value, decimalPlaces).doubleValue()),
+                            Double.doubleToRawLongBits(RankWeightUtils.computeReverseWeightAsDouble(value, decimalPlaces)));
+                }
+            }
+        }
+    }
+
     @Test
     public void testGetDefaultDecimalPlaces() {
         assertEquals(2, RankWeightUtils.getDefaultDecimalPlaces());
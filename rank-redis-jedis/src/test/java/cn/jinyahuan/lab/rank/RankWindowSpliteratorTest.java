@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class RankWindowSpliteratorTest {
+    private static final String RANK_NAME = "rankWindowSpliteratorTest";
+    private static final int MEMBER_COUNT = 1003;
+
+    private final InMemoryRankLab rankLab = new InMemoryRankLab();
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < MEMBER_COUNT; i++) {
+            rankLab.joinRank(RANK_NAME, "member" + i, i, 0D);
+        }
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testForEachRemaining() {
+        for (int windowSize : new int[]{1, 7, 100, MEMBER_COUNT, MEMBER_COUNT + 1}) {
+            List<Long> scores = new ArrayList<>();
+            new RankWindowSpliterator(rankLab, RANK_NAME, windowSize, executor)
+                    .forEachRemaining(member -> scores.add(member.getScore()));
+
+            assertEquals(MEMBER_COUNT, scores.size());
+            for (int i = 0; i < MEMBER_COUNT; i++) {
+                assertEquals(Long.valueOf(MEMBER_COUNT - 1 - i), scores.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testTryAdvanceWithoutPrefetch() {
+        RankWindowSpliterator spliterator = new RankWindowSpliterator(rankLab, RANK_NAME, 10, null);
+        int count = 0;
+        while (spliterator.tryAdvance(member -> {})) {
+            count++;
+        }
+        assertEquals(MEMBER_COUNT, count);
+        assertFalse(spliterator.tryAdvance(member -> {}));
+    }
+
+    @Test
+    public void testClose() {
+        RankWindowSpliterator spliterator = new RankWindowSpliterator(rankLab, RANK_NAME, 10, executor);
+        assertTrue(spliterator.tryAdvance(member -> {}));
+        spliterator.close();
+        assertFalse(spliterator.tryAdvance(member -> {}));
+    }
+
+    @Test
+    public void testRankNotExist() {
+        assertFalse(new RankWindowSpliterator(rankLab, "notExist", 10, executor).tryAdvance(member -> {}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindowSize() {
+        new RankWindowSpliterator(rankLab, RANK_NAME, 0, executor);
+    }
+}
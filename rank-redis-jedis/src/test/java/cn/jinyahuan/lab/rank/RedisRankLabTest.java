@@ -21,8 +21,17 @@ import cn.jinyahuan.common.redis.component.impl.RedisComponent;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import static org.junit.Assert.*;
 
@@ -33,6 +42,8 @@ public class RedisRankLabTest extends BaseSpringIntegrationTest {
     private RankWeightComponent rankWeightComponent;
     @Autowired
     private RedisComponent redisComponent;
+    @Autowired
+    private MemberDictionary memberDictionary;
 
     @Test
     public void testJoinRank() {
@@ -58,6 +69,212 @@ public class RedisRankLabTest extends BaseSpringIntegrationTest {
         redisComponent.del(rankOptKey);
     }
 
+    @Test
+    public void testJoinRankReplaceWeight() {
+        final String rankName = "joinRankReplaceWeight";
+        final String rankKey = redisRankLab.getRankKey(rankName);
+        final String memberName = "jin_weight";
+
+        redisComponent.del(rankKey);
+
+        assertEquals(Long.valueOf(100), redisRankLab.joinRank(rankName, memberName, 100, new BigDecimal("0.01")));
+        assertEquals(0.01, RedisRankLab.getScoreWeight(redisRankLab.doGetRankScore(rankName, memberName)), 1e-9);
+
+        // 旧权重被扣除，只保留新的权重
+        assertEquals(Long.valueOf(101), redisRankLab.joinRank(rankName, memberName, 1, new BigDecimal("0.02")));
+        assertEquals(0.02, RedisRankLab.getScoreWeight(redisRankLab.doGetRankScore(rankName, memberName)), 1e-9);
+
+        // 脚本缓存丢失后仍能执行
+        RedisRankLab.JOIN_RANK_SCRIPT.setSha("0000000000000000000000000000000000000000");
+        assertEquals(Long.valueOf(102), redisRankLab.joinRank(rankName, memberName, 1, new BigDecimal("0.03")));
+        assertEquals(0.03, RedisRankLab.getScoreWeight(redisRankLab.doGetRankScore(rankName, memberName)), 1e-9);
+
+        redisComponent.del(rankKey);
+    }
+
+    @Test
+    public void testJoinRankWithTieBreak() {
+        final String rankName = "joinRankWithTieBreak";
+        final String rankKey = redisRankLab.getRankKey(rankName);
+        final ScoreCodec defaultCodec = redisRankLab.getScoreCodec();
+        final PackedScoreCodec codec = new PackedScoreCodec(20);
+        // 超出小数权重能稳定表示的范围
+        final long score = 1L << 31;
+
+        redisComponent.del(rankKey);
+        redisRankLab.setScoreCodec(codec);
+        try {
+            assertEquals(Long.valueOf(score), redisRankLab.joinRankWithTieBreak(rankName, "jin_1", score, 1));
+            assertEquals(Long.valueOf(score), redisRankLab.joinRankWithTieBreak(rankName, "jin_2", score, 2));
+            assertEquals(Long.valueOf(score + 1), redisRankLab.joinRankWithTieBreak(rankName, "jin_1", 1, 3));
+            assertEquals(Long.valueOf(score + 1), redisRankLab.joinRankWithTieBreak(rankName, "jin_2", 1, 4));
+
+            assertEquals(4, codec.decodeTieBreak(redisRankLab.doGetRankScore(rankName, "jin_2")));
+            assertEquals(Long.valueOf(score + 1), redisRankLab.getRankScore(rankName, "jin_1"));
+            assertEquals(
+                    "[RankMember{name='jin_2', score=" + (score + 1) + "}, RankMember{name='jin_1', score=" + (score + 1) + "}]",
+                    redisRankLab.getRankList(rankName, 1, 10) + "");
+        } finally {
+            redisRankLab.setScoreCodec(defaultCodec);
+            redisComponent.del(rankKey);
+        }
+    }
+
+    @Test
+    public void testJoinRankMixedWithTieBreak() {
+        final String rankName = "joinRankMixedWithTieBreak";
+        final String rankKey = redisRankLab.getRankKey(rankName);
+        final ScoreCodec defaultCodec = redisRankLab.getScoreCodec();
+        final PackedScoreCodec codec = new PackedScoreCodec(20);
+
+        redisComponent.del(rankKey);
+        redisRankLab.setScoreCodec(codec);
+        try {
+            assertEquals(Long.valueOf(10), redisRankLab.joinRankWithTieBreak(rankName, "jin_1", 10, 7));
+            assertEquals(Long.valueOf(10), redisRankLab.joinRankWithTieBreak(rankName, "jin_2", 10, 9));
+            // 不带同分排名值的累加保留原有的同分排名值
+            assertEquals(Long.valueOf(15), redisRankLab.joinRank(rankName, "jin_1", 5, 0D));
+            assertEquals(7, codec.decodeTieBreak(redisRankLab.doGetRankScore(rankName, "jin_1")));
+            Map<String, Long> memberScores = new LinkedHashMap<>();
+            memberScores.put("jin_1", 0L);
+            memberScores.put("jin_2", 3L);
+            assertEquals(Arrays.asList(15L, 13L), redisRankLab.joinRankBatch(rankName, memberScores));
+            assertEquals(9, codec.decodeTieBreak(redisRankLab.doGetRankScore(rankName, "jin_2")));
+            assertEquals(Arrays.asList(5L), redisRankLab.joinRankBatch(Collections.singletonMap(rankName,
+                    Collections.singletonMap("jin_3", 5L))));
+            assertEquals(0, codec.decodeTieBreak(redisRankLab.doGetRankScore(rankName, "jin_3")));
+
+            assertEquals(Long.valueOf(15), redisRankLab.joinRankWithTieBreak(rankName, "jin_2", 2, 1));
+            // 同分时同分排名值大的在前
+            assertEquals(
+                    "[RankMember{name='jin_1', score=15}, RankMember{name='jin_2', score=15}, RankMember{name='jin_3', score=5}]",
+                    redisRankLab.getRankList(rankName, 1, 10) + "");
+        } finally {
+            redisRankLab.setScoreCodec(defaultCodec);
+            redisComponent.del(rankKey);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testJoinRankDecimalWeightWithPackedCodec() {
+        final ScoreCodec defaultCodec = redisRankLab.getScoreCodec();
+        redisRankLab.setScoreCodec(new PackedScoreCodec(20));
+        try {
+            redisRankLab.joinRank("joinRankDecimalWeightWithPackedCodec", "jin", 1, 0.5);
+        } finally {
+            redisRankLab.setScoreCodec(defaultCodec);
+        }
+    }
+
+    @Test
+    public void testJoinRankBatch() {
+        final String rankName = "joinRankBatch";
+        final String rankKey = redisRankLab.getRankKey(rankName);
+
+        redisComponent.del(rankKey);
+
+        Map<String, Long> memberScores = new LinkedHashMap<>();
+        memberScores.put("jin_1", 100L);
+        memberScores.put("jin_2", 300L);
+        memberScores.put("jin_3", 200L);
+        assertEquals(Arrays.asList(100L, 300L, 200L), redisRankLab.joinRankBatch(rankName, memberScores));
+        assertEquals(Arrays.asList(200L, 600L, 400L), redisRankLab.joinRankBatch(rankName, memberScores));
+
+        assertEquals(Arrays.asList(600L, null, 200L),
+                redisRankLab.getRankScores(rankName, Arrays.asList("jin_2", "jin_4", "jin_1")));
+        assertEquals(Arrays.asList(1L, null, 3L, 2L),
+                redisRankLab.getRankNumbers(rankName, Arrays.asList("jin_2", "jin_4", "jin_1", "jin_3")));
+
+        redisComponent.del(rankKey);
+    }
+
+    @Test
+    public void testJoinRankBatchHashTagKeys() {
+        // 集群的格式中多个 slot 的排行榜仍在一个管道中，返回值按迭代顺序排列
+        final List<String> rankNames = Arrays.asList("{batchSlot}:a", "batchSlotB", "{batchSlot}:c");
+        Map<String, Map<String, Long>> rankMemberScores = new LinkedHashMap<>();
+        for (int i = 0; i < rankNames.size(); i++) {
+            Map<String, Long> memberScores = new LinkedHashMap<>();
+            memberScores.put("jin_1", i * 10L + 1);
+            memberScores.put("jin_2", i * 10L + 2);
+            rankMemberScores.put(rankNames.get(i), memberScores);
+        }
+
+        ReflectionTestUtils.setField(redisRankLab, "rankKeyLayout", RankKeyLayout.HASH_TAG);
+        try {
+            assertEquals(Arrays.asList(1L, 2L, 11L, 12L, 21L, 22L), redisRankLab.joinRankBatch(rankMemberScores));
+            assertEquals(Long.valueOf(12), redisRankLab.getRankScore("batchSlotB", "jin_2"));
+        } finally {
+            ReflectionTestUtils.setField(redisRankLab, "rankKeyLayout", RankKeyLayout.PLAIN);
+            for (String rankName : rankNames) {
+                redisComponent.del(RankKeyLayout.HASH_TAG.getRankKey(rankName));
+            }
+        }
+    }
+
+    @Test
+    public void testGetRankPageAfter() {
+        final String rankName = "rankPageAfter";
+        final String rankKey = redisRankLab.getRankKey(rankName);
+
+        redisComponent.del(rankKey);
+
+        Map<String, Long> memberScores = new LinkedHashMap<>();
+        memberScores.put("jin_1", 100L);
+        memberScores.put("jin_2", 200L);
+        memberScores.put("jin_3", 200L);
+        memberScores.put("jin_4", 200L);
+        memberScores.put("jin_5", 50L);
+        redisRankLab.joinRankBatch(rankName, memberScores);
+
+        RankCursorPage page = redisRankLab.getRankPageAfter(rankName, null, 2);
+        assertEquals("jin_4", page.getPage().getName(0));
+        assertEquals("jin_3", page.getPage().getName(1));
+        assertTrue(page.hasNext());
+
+        // 游标之前的成员分值变化不影响下一页
+        redisRankLab.joinRank(rankName, "jin_4", 1L, 0D);
+        page = redisRankLab.getRankPageAfter(rankName, page.getNextCursor(), 2);
+        assertEquals("jin_2", page.getPage().getName(0));
+        assertEquals("jin_1", page.getPage().getName(1));
+        assertEquals(100L, page.getPage().getScore(1));
+
+        page = redisRankLab.getRankPageAfter(rankName, page.getNextCursor(), 2);
+        assertEquals(1, page.getPage().size());
+        assertEquals("jin_5", page.getPage().getName(0));
+        assertFalse(page.hasNext());
+
+        redisComponent.del(rankKey);
+    }
+
+    @Test
+    public void testGetNeighborhood() {
+        final String rankName = "neighborhood";
+        final String rankKey = redisRankLab.getRankKey(rankName);
+
+        redisComponent.del(rankKey);
+
+        assertNull(redisRankLab.getNeighborhood(rankName, "jin_1", 1, 1));
+        Map<String, Long> memberScores = new LinkedHashMap<>();
+        for (int i = 1; i <= 10; i++) {
+            memberScores.put("jin_" + i, i * 10L);
+        }
+        redisRankLab.joinRankBatch(rankName, memberScores);
+
+        RankNeighborhood neighborhood = redisRankLab.getNeighborhood(rankName, "jin_5", 2, 1);
+        assertEquals(6L, neighborhood.getRankNumber());
+        assertEquals(50L, neighborhood.getScore());
+        assertEquals(2, neighborhood.getMemberIndex());
+        assertEquals("jin_7", neighborhood.getMembers().getName(0));
+        assertEquals("jin_4", neighborhood.getMembers().getName(3));
+
+        neighborhood = redisRankLab.getNeighborhood(rankName, "jin_10", 5, 0);
+        assertEquals(1L, neighborhood.getRankNumber());
+        assertEquals(1, neighborhood.getMembers().size());
+
+        redisComponent.del(rankKey);
+    }
+
 //    @Ignore
     @Test
     public void testRankNo() {
@@ -181,6 +398,82 @@ public class RedisRankLabTest extends BaseSpringIntegrationTest {
         assertEquals("rank:", RedisRankLab.getRankKey(""));
 
         assertEquals("rank:age", RedisRankLab.getRankKey("age"));
+
+        assertSame(RankKeyLayout.PLAIN, redisRankLab.getRankKeyLayout());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRankKeyLayoutMismatch() {
+        redisRankLab.getRankScore(RankKey.of("age", RankKeyLayout.HASH_TAG), "jin");
+    }
+
+    @Test
+    public void testLexRank() {
+        final String rankName = "lexRank";
+        final String rankKey = RedisRankLab.getRankKey(rankName);
+        final String indexKey = redisRankLab.getLexIndexKey(rankName);
+        redisComponent.del(rankKey);
+        redisComponent.del(indexKey);
+
+        // 超出 2^53 的分值仍然精确
+        final long big = (1L << 53) + 1;
+        assertTrue(redisRankLab.setLexRankScore(rankName, "jin_1", big, 0));
+        assertTrue(redisRankLab.setLexRankScore(rankName, "jin_2", big - 1, 0));
+        assertTrue(redisRankLab.setLexRankScore(rankName, "jin_3", -1, 0));
+        assertTrue(redisRankLab.setLexRankScore(rankName, "jin_4", big - 1, 1));
+
+        assertEquals(Arrays.asList(
+                new RedisRankLab.RankMember("jin_1", big),
+                new RedisRankLab.RankMember("jin_4", big - 1),
+                new RedisRankLab.RankMember("jin_2", big - 1),
+                new RedisRankLab.RankMember("jin_3", -1L)), redisRankLab.getLexRankList(rankName, 1, 10));
+        assertEquals(Long.valueOf(big), redisRankLab.getLexRankScore(rankName, "jin_1"));
+        assertEquals(Long.valueOf(2), redisRankLab.getLexRankNumber(rankName, "jin_4"));
+        assertNull(redisRankLab.getLexRankScore(rankName, "jin_5"));
+        assertNull(redisRankLab.getLexRankNumber(rankName, "jin_5"));
+
+        // 更新分值时替换旧的编码值
+        assertFalse(redisRankLab.setLexRankScore(rankName, "jin_3", Long.MAX_VALUE, 0));
+        assertEquals(Long.valueOf(1), redisRankLab.getLexRankNumber(rankName, "jin_3"));
+        assertEquals(4, redisRankLab.getLexRankList(rankName, 1, 10).size());
+        assertEquals(Long.valueOf(Long.MAX_VALUE), redisRankLab.getLexRankScore(rankName, "jin_3"));
+
+        redisComponent.del(rankKey);
+        redisComponent.del(indexKey);
+    }
+
+    @Test
+    public void testLexRankListByScore() {
+        final String rankName = "lexRankByScore";
+        final String rankKey = RedisRankLab.getRankKey(rankName);
+        final String indexKey = redisRankLab.getLexIndexKey(rankName);
+        redisComponent.del(rankKey);
+        redisComponent.del(indexKey);
+
+        redisRankLab.setLexRankScore(rankName, "jin_1", Long.MAX_VALUE, 0);
+        redisRankLab.setLexRankScore(rankName, "jin_2", 100, -1);
+        redisRankLab.setLexRankScore(rankName, "jin_3", 100, 0);
+        redisRankLab.setLexRankScore(rankName, "jin_4", 99, 0);
+        redisRankLab.setLexRankScore(rankName, "jin_5", Long.MIN_VALUE, 0);
+
+        assertEquals(Arrays.asList(
+                new RedisRankLab.RankMember("jin_2", 100L),
+                new RedisRankLab.RankMember("jin_3", 100L)), redisRankLab.getLexRankListByScore(rankName, 100, 100, 10));
+        assertEquals(Arrays.asList(
+                new RedisRankLab.RankMember("jin_1", Long.MAX_VALUE),
+                new RedisRankLab.RankMember("jin_2", 100L)), redisRankLab.getLexRankListByScore(rankName, 100, Long.MAX_VALUE, 2));
+        assertEquals(Collections.singletonList(new RedisRankLab.RankMember("jin_5", Long.MIN_VALUE)),
+                redisRankLab.getLexRankListByScore(rankName, Long.MIN_VALUE, 98, 10));
+        assertTrue(redisRankLab.getLexRankListByScore(rankName, 101, 102, 10).isEmpty());
+        assertTrue(redisRankLab.getLexRankListByScore(rankName, 100, 99, 10).isEmpty());
+
+        redisComponent.del(rankKey);
+        redisComponent.del(indexKey);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLexRankListByScoreInvalidCount() {
+        redisRankLab.getLexRankListByScore("lexRankByScore", 0, 1, 0);
     }
 
     @Test
@@ -216,6 +509,12 @@ public class RedisRankLabTest extends BaseSpringIntegrationTest {
         }
     }
 
+    @Test
+    public void testParseScore() {
+        assertNull(RedisRankLab.parseScore(null));
+        assertEquals(Double.valueOf(100.01), RedisRankLab.parseScore("100.01".getBytes()));
+    }
+
     @Test
     public void testRangeIncludeZeroAndExcludeOne() {
         assertFalse(RedisRankLab.rangeIncludeZeroAndExcludeOne(1.1));
@@ -352,4 +651,71 @@ public class RedisRankLabTest extends BaseSpringIntegrationTest {
         assertFalse(RedisRankLab.rangeExcludeNegativeOneAndIncludeZero(-1.00000001));
         assertFalse(RedisRankLab.rangeExcludeNegativeOneAndIncludeZero(-1.000000001));
     }
+
+    @Test
+    public void testStreamRankWithBoundedPrefetch() {
+        final String rankName = "streamRankBoundedPrefetch";
+        final String rankKey = redisRankLab.getRankKey(rankName);
+        final int memberCount = 50;
+
+        redisComponent.del(rankKey);
+        for (int i = 0; i < memberCount; i++) {
+            redisRankLab.joinRank(rankName, "member" + i, i, BigDecimal.ZERO);
+        }
+
+        final RedisRankLab rankLab = new RedisRankLab();
+        ReflectionTestUtils.setField(rankLab, "redisComponent", redisComponent);
+        ReflectionTestUtils.setField(rankLab, "memberDictionary", memberDictionary);
+        ReflectionTestUtils.setField(rankLab, "scanPrefetchThreads", 1);
+        try {
+            // 同时打开的遍历多于预取线程数时，多出的预取由遍历的线程自己执行
+            List<Iterator<RedisRankLab.RankMember>> iterators = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                iterators.add(rankLab.streamRank(rankName, 3).iterator());
+            }
+            for (Iterator<RedisRankLab.RankMember> iterator : iterators) {
+                int count = 0;
+                while (iterator.hasNext()) {
+                    assertEquals(Long.valueOf(memberCount - 1 - count), iterator.next().getScore());
+                    count++;
+                }
+                assertEquals(memberCount, count);
+            }
+            ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(rankLab, "rankScanExecutor");
+            assertEquals(1, executor.getMaximumPoolSize());
+            assertTrue(executor.getLargestPoolSize() <= 1);
+        } finally {
+            rankLab.destroy();
+            redisComponent.del(rankKey);
+        }
+    }
+
+    @Test
+    public void testRankKeyOverloads() {
+        final String rankName = "rankKeyOverloads";
+        final RankKey rankKey = RankKey.of(rankName);
+        redisComponent.del(rankKey.getKey());
+        try {
+            Map<String, Long> memberScores = new LinkedHashMap<>();
+            memberScores.put("jin_1", 10L);
+            memberScores.put("jin_2", 20L);
+            assertEquals(Arrays.asList(10L, 20L), redisRankLab.joinRankBatch(rankKey, memberScores));
+            assertEquals(Long.valueOf(30), redisRankLab.joinRankWithTieBreak(rankKey, "jin_3", 30, 0));
+
+            assertEquals(Arrays.asList(30L, 20L, null),
+                    redisRankLab.getRankScores(rankKey, Arrays.asList("jin_3", "jin_2", "notExist")));
+            assertEquals(redisRankLab.getRankNumbers(rankName, Arrays.asList("jin_1", "jin_3")),
+                    redisRankLab.getRankNumbers(rankKey, Arrays.asList("jin_1", "jin_3")));
+
+            RankNeighborhood neighborhood = redisRankLab.getNeighborhood(rankKey, "jin_2", 1, 1);
+            assertEquals(2, neighborhood.getRankNumber());
+            assertEquals(3, neighborhood.getMembers().size());
+
+            RankCursorPage page = redisRankLab.getRankPageAfter(rankKey, null, 2);
+            assertEquals(2, page.getPage().size());
+            assertEquals(1, redisRankLab.getRankPageAfter(rankKey, page.getNextCursor(), 2).getPage().size());
+        } finally {
+            redisComponent.del(rankKey.getKey());
+        }
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.BaseSpringIntegrationTest;
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import cn.jinyahuan.lab.rank.RedisRankLab.RankMember;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.DefaultTuple;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ShardedRankLabTest extends BaseSpringIntegrationTest {
+    private static final String RANK_NAME = "shardedRank";
+    private static final String PLAIN_RANK_NAME = "shardedRankPlain";
+
+    @Autowired
+    private ShardedRankLab shardedRankLab;
+    @Autowired
+    private RedisRankLab redisRankLab;
+    @Autowired
+    private RedisComponent redisComponent;
+
+    @After
+    public void tearDown() {
+        for (int i = 0; i < shardedRankLab.getShardCount(); i++) {
+            redisComponent.del(RedisRankLab.getRankKey(shardedRankLab.getShardRankName(RANK_NAME, i)));
+        }
+        redisComponent.del(RedisRankLab.getRankKey(PLAIN_RANK_NAME));
+    }
+
+    @Test
+    public void testSameAsPlainRank() {
+        // 分值只有10种，大量同分的成员分布在不同的分片中
+        Map<String, Long> memberScores = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            memberScores.put("jin_" + i, (long) (i % 10));
+        }
+        // 同分成员按字节比较成员名
+        for (int i = 0; i < 20; i++) {
+            memberScores.put("金_" + i, (long) (i % 10));
+        }
+        List<Long> totalScores = shardedRankLab.joinRankBatch(RANK_NAME, memberScores);
+        assertEquals(new ArrayList<>(memberScores.values()), totalScores);
+        redisRankLab.joinRankBatch(PLAIN_RANK_NAME, memberScores);
+
+        assertEquals(redisRankLab.getRankList(PLAIN_RANK_NAME, 1, 250), shardedRankLab.getRankList(RANK_NAME, 1, 250));
+        assertEquals(redisRankLab.getRankList(PLAIN_RANK_NAME, 15, 42), shardedRankLab.getRankList(RANK_NAME, 15, 42));
+        for (String memberName : memberScores.keySet()) {
+            assertEquals(redisRankLab.getRankNumber(PLAIN_RANK_NAME, memberName),
+                    shardedRankLab.getRankNumber(RANK_NAME, memberName));
+        }
+
+        // 集群的格式中每个分片单独统计
+        Map<String, Long> rankNumbers = new HashMap<>();
+        for (String memberName : memberScores.keySet()) {
+            rankNumbers.put(memberName, redisRankLab.getRankNumber(PLAIN_RANK_NAME, memberName));
+        }
+        ReflectionTestUtils.setField(redisRankLab, "rankKeyLayout", RankKeyLayout.HASH_TAG);
+        try {
+            shardedRankLab.joinRankBatch(RANK_NAME, memberScores);
+            for (String memberName : memberScores.keySet()) {
+                assertEquals(rankNumbers.get(memberName), shardedRankLab.getRankNumber(RANK_NAME, memberName));
+            }
+        } finally {
+            ReflectionTestUtils.setField(redisRankLab, "rankKeyLayout", RankKeyLayout.PLAIN);
+            for (int i = 0; i < shardedRankLab.getShardCount(); i++) {
+                redisComponent.del(RankKeyLayout.HASH_TAG.getRankKey(shardedRankLab.getShardRankName(RANK_NAME, i)));
+            }
+        }
+    }
+
+    @Test
+    public void testShardSlots() {
+        Set<Integer> slots = new HashSet<>();
+        for (int i = 0; i < shardedRankLab.getShardCount(); i++) {
+            slots.add(RankKey.getSlot(RankKeyLayout.HASH_TAG.getRankKey(shardedRankLab.getShardRankName(RANK_NAME, i))));
+        }
+        assertTrue(slots.size() > 1);
+    }
+
+    @Test
+    public void testJoinRank() {
+        assertEquals(Long.valueOf(10), shardedRankLab.joinRank(RANK_NAME, "jin_1", 10, 0D));
+        assertEquals(Long.valueOf(15), shardedRankLab.joinRank(RANK_NAME, "jin_1", 5, 0D));
+        assertEquals(Long.valueOf(12), shardedRankLab.joinRank(RANK_NAME, "jin_2", 12, 0D));
+
+        assertEquals(Long.valueOf(15), shardedRankLab.getRankScore(RANK_NAME, "jin_1"));
+        assertEquals(Long.valueOf(1), shardedRankLab.getRankNumber(RANK_NAME, "jin_1"));
+        assertEquals(Long.valueOf(2), shardedRankLab.getRankNumber(RANK_NAME, "jin_2"));
+        assertNull(shardedRankLab.getRankNumber(RANK_NAME, "jin_3"));
+
+        // 只写入成员所在的分片
+        final String shardRankName = shardedRankLab.getShardRankName(RANK_NAME, shardedRankLab.getShardIndex("jin_1"));
+        assertEquals(Long.valueOf(15), redisRankLab.getRankScore(shardRankName, "jin_1"));
+    }
+
+    @Test
+    public void testGetRankListOutOfRange() {
+        shardedRankLab.joinRank(RANK_NAME, "jin_1", 10, 0D);
+        assertTrue(shardedRankLab.getRankList(RANK_NAME, 2, 10).isEmpty());
+        assertTrue(shardedRankLab.getRankList(RANK_NAME, 3, 2).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetRankListInvalidStart() {
+        shardedRankLab.getRankList(RANK_NAME, 0, 10);
+    }
+
+    @Test
+    public void testMerge() {
+        List<Set<RedisZSetCommands.Tuple>> slices = Arrays.asList(
+                slice("a", 5, "c", 3),
+                null,
+                slice("b", 5, "d", 1),
+                slice("e", 4));
+        List<RankMember> members = ShardedRankLab.merge(slices, 1, 10, DecimalScoreCodec.DEFAULT).toRankMembers();
+        assertEquals(Arrays.asList(
+                new RankMember("b", 5L),
+                new RankMember("a", 5L),
+                new RankMember("e", 4L),
+                new RankMember("c", 3L),
+                new RankMember("d", 1L)), members);
+
+        members = ShardedRankLab.merge(slices, 2, 3, DecimalScoreCodec.DEFAULT).toRankMembers();
+        assertEquals(Arrays.asList(new RankMember("a", 5L), new RankMember("e", 4L)), members);
+    }
+
+    private static Set<RedisZSetCommands.Tuple> slice(Object... memberScores) {
+        Set<RedisZSetCommands.Tuple> slice = new LinkedHashSet<>();
+        for (int i = 0; i < memberScores.length; i += 2) {
+            slice.add(new DefaultTuple(((String) memberScores[i]).getBytes(StandardCharsets.UTF_8),
+                    ((Integer) memberScores[i + 1]).doubleValue()));
+        }
+        return slice;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018 The Rank Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.jinyahuan.lab.rank;
+
+import cn.jinyahuan.common.BaseSpringIntegrationTest;
+import cn.jinyahuan.common.redis.component.impl.RedisComponent;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class WindowedRankLabTest extends BaseSpringIntegrationTest {
+    private static final String RANK_NAME = "windowedRank";
+    private static final Instant MONDAY = ZonedDateTime.of(2026, 10, 12, 0, 30, 0, 0, ZoneId.systemDefault()).toInstant();
+
+    @Autowired
+    private WindowedRankLab windowedRankLab;
+    @Autowired
+    private RedisRankLab redisRankLab;
+    @Autowired
+    private RedisComponent redisComponent;
+
+    @After
+    public void tearDown() {
+        for (int hour = 0; hour < 72; hour++) {
+            ZonedDateTime time = ZonedDateTime.ofInstant(MONDAY.plusSeconds(hour * 3600L), ZoneId.systemDefault());
+            for (RankWindow window : RankWindow.values()) {
+                final String key = RedisRankLab.getRankKey(
+                        WindowedRankLab.formatWindowRankName(RankKeyLayout.PLAIN, RANK_NAME, window, window.truncate(time)));
+                redisComponent.del(key);
+                redisComponent.del(key + WindowedRankLab.SEAL_SUFFIX);
+            }
+        }
+        ((Map<?, ?>) ReflectionTestUtils.getField(windowedRankLab, "views")).clear();
+        windowedRankLab.setClock(Clock.systemUTC());
+    }
+
+    @Test
+    public void testRollup() {
+        // 周一、周二、周三各写入一次
+        for (int day = 0; day < 3; day++) {
+            setNow(MONDAY.plusSeconds(day * 86400L));
+            windowedRankLab.joinRank(RANK_NAME, "jin_1", 10);
+            windowedRankLab.joinRank(RANK_NAME, "jin_2", day);
+        }
+        windowedRankLab.joinRank(RANK_NAME, "jin_2", 100);
+
+        assertEquals(Long.valueOf(30), windowedRankLab.getRankScore(RANK_NAME, RankWindow.WEEK, "jin_1"));
+        assertEquals(Long.valueOf(103), windowedRankLab.getRankScore(RANK_NAME, RankWindow.WEEK, "jin_2"));
+        assertEquals(Long.valueOf(1), windowedRankLab.getRankNumber(RANK_NAME, RankWindow.WEEK, "jin_2"));
+        assertEquals(Long.valueOf(10), windowedRankLab.getRankScore(RANK_NAME, RankWindow.DAY, "jin_1"));
+        assertEquals(Long.valueOf(102), windowedRankLab.getRankScore(RANK_NAME, RankWindow.HOUR, "jin_2"));
+
+        // 下一个小时，小时榜为空，天榜及周榜不变
+        setNow(MONDAY.plusSeconds(2 * 86400L + 3600L));
+        assertNull(windowedRankLab.getRankScore(RANK_NAME, RankWindow.HOUR, "jin_1"));
+        assertEquals(Long.valueOf(30), windowedRankLab.getRankScore(RANK_NAME, RankWindow.WEEK, "jin_1"));
+        assertEquals(2, windowedRankLab.getRankList(RANK_NAME, RankWindow.DAY, 1, 10).size());
+    }
+
+    @Test
+    public void testSealSurvivesRestart() {
+        setNow(MONDAY);
+        windowedRankLab.joinRank(RANK_NAME, "jin_1", 10);
+
+        // 周二查询周一的天榜，周一已结束，汇总后封存
+        setNow(MONDAY.plusSeconds(86400L + 3600L));
+        final ZonedDateTime monday = ZonedDateTime.ofInstant(MONDAY, ZoneId.systemDefault());
+        final String dayRankName = windowedRankLab.getWindowRankName(RANK_NAME, RankWindow.DAY, monday);
+        assertEquals(Long.valueOf(10), redisRankLab.getRankScore(dayRankName, "jin_1"));
+
+        // 小时桶过期，之后重启（本地的汇总状态丢失）
+        for (int hour = 0; hour < 24; hour++) {
+            redisComponent.del(RedisRankLab.getRankKey(WindowedRankLab.formatWindowRankName(
+                    RankKeyLayout.PLAIN, RANK_NAME, RankWindow.HOUR, monday.plusHours(hour).truncatedTo(ChronoUnit.HOURS))));
+        }
+        ((Map<?, ?>) ReflectionTestUtils.getField(windowedRankLab, "views")).clear();
+
+        // 已封存的天榜不会被过期的小时桶覆盖
+        assertEquals(dayRankName, windowedRankLab.getWindowRankName(RANK_NAME, RankWindow.DAY, monday));
+        assertEquals(Long.valueOf(10), redisRankLab.getRankScore(dayRankName, "jin_1"));
+    }
+
+    @Test
+    public void testWindowRankName() {
+        ZonedDateTime time = ZonedDateTime.of(2027, 1, 1, 5, 0, 0, 0, ZoneId.systemDefault());
+        assertEquals("r:h:2027010105", WindowedRankLab.formatWindowRankName(RankKeyLayout.PLAIN, "r", RankWindow.HOUR, RankWindow.HOUR.truncate(time)));
+        assertEquals("r:d:20270101", WindowedRankLab.formatWindowRankName(RankKeyLayout.PLAIN, "r", RankWindow.DAY, RankWindow.DAY.truncate(time)));
+        // ISO 周：2027-01-01 属于 2026 年的第53周
+        assertEquals("r:w:2026W53", WindowedRankLab.formatWindowRankName(RankKeyLayout.PLAIN, "r", RankWindow.WEEK, RankWindow.WEEK.truncate(time)));
+        // 集群的格式中带有排行榜名称的 hash tag
+        assertEquals("{r}:h:2027010105", WindowedRankLab.formatWindowRankName(RankKeyLayout.HASH_TAG, "r", RankWindow.HOUR, RankWindow.HOUR.truncate(time)));
+    }
+
+    private void setNow(Instant now) {
+        windowedRankLab.setClock(Clock.fixed(now, ZoneId.systemDefault()));
+    }
+}